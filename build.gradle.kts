@@ -9,6 +9,7 @@ plugins {
     alias(libs.plugins.changelog) // Gradle Changelog Plugin
     alias(libs.plugins.qodana) // Gradle Qodana Plugin
     alias(libs.plugins.kover) // Gradle Kover Plugin
+    alias(libs.plugins.jmh) // Gradle JMH Plugin
 }
 
 group = providers.gradleProperty("pluginGroup").get()
@@ -115,6 +116,32 @@ changelog {
     repositoryUrl = providers.gradleProperty("pluginRepositoryUrl")
 }
 
+// Configure Gradle JMH Plugin - read more: https://github.com/melix/jmh-gradle-plugin
+// Run with `./gradlew jmh`, optionally `-Pjmh.includes=<regex>`; results are written to build/results/jmh/results.json
+jmh {
+    jmhVersion = libs.versions.jmh
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
+    // gc.alloc.rate.norm in the results is the allocation per operation in bytes
+    profilers.add("gc")
+    resultFormat = "JSON"
+    // PathManager is initialized by SinaStockService's static state, point it to the build directory outside the IDE
+    jvmArgsAppend.addAll(
+        layout.buildDirectory.dir("jmh-idea").map { dir ->
+            listOf("-Didea.system.path=${dir.asFile}/system", "-Didea.config.path=${dir.asFile}/config")
+        }
+    )
+}
+
+// The benchmarks run outside the IDE, so the IntelliJ Platform classes are put on their classpath directly
+configurations.named("jmhImplementation") {
+    extendsFrom(configurations.compileOnly.get())
+}
+
+// Tests reuse the stand-in quote server from the benchmark sources
+dependencies {
+    testImplementation(sourceSets["jmh"].output)
+}
+
 // Configure Gradle Kover Plugin - read more: https://kotlin.github.io/kotlinx-kover/gradle-plugin/#configuration-details
 kover {
     reports {
@@ -0,0 +1,278 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.StockIndex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 基准测试使用的接口响应
+ * <p>
+ * 优先读取 src/jmh/resources/fixtures 下录制的响应：
+ * <ul>
+ *     <li>hq-sinajs-500.txt：一次请求 500 个代码的 hq.sinajs.cn 响应，GBK 编码</li>
+ *     <li>mairui-list.json：麦瑞 hslt/list 接口返回的完整股票列表</li>
+ * </ul>
+ * 文件不存在时按真实响应的格式生成，代码、价格与名称由固定种子的随机数决定，每次运行结果相同。
+ */
+final class BenchmarkFixtures {
+
+    static final int QUOTE_SYMBOLS = 500;
+    /** 沪深两市 A 股数量的量级 */
+    static final int LIST_SYMBOLS = 5400;
+
+    static final Charset GBK = Charset.forName("GBK");
+    private static final String NAME_CHARS = "中国平安招商银行贵州茅台五粮液美的集团比亚迪伊利股份格力电器宁德时代海天味业"
+            + "万科东方财富隆基绿能恒瑞医药工商建设农业交通光大民生浦发兴业长江电力三一重工紫金矿业";
+    private static final String HK_NAMES = "TENCENT,MEITUAN,ALIBABA,XIAOMI,HSBC HOLDINGS,AIA,CHINA MOBILE,BYD COMPANY";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 500 个代码的行情响应，其中约一成为港股
+     */
+    static byte[] quoteResponse() {
+        byte[] recorded = readResource("/fixtures/hq-sinajs-500.txt");
+        if (recorded != null) {
+            return recorded;
+        }
+        Random random = new Random(42);
+        StringBuilder body = new StringBuilder(QUOTE_SYMBOLS * 400);
+        for (String code : quoteCodes()) {
+            if (code.startsWith("hk")) {
+                appendHkLine(body, code, name(random), random);
+            } else {
+                appendAShareLine(body, code, name(random), random);
+            }
+        }
+        return body.toString().getBytes(GBK);
+    }
+
+    /**
+     * 三个指数的简版行情响应
+     */
+    static byte[] indexResponse() {
+        Random random = new Random(7);
+        StringBuilder body = new StringBuilder();
+        for (StockIndex index : StockIndex.values()) {
+            appendIndexLine(body, index.getSinaCode(), index.getDisplayName(), random);
+        }
+        return body.toString().getBytes(GBK);
+    }
+
+    /**
+     * 行情响应中的新浪代码，与 {@link #quoteResponse()} 的顺序一致
+     */
+    static List<String> quoteCodes() {
+        Random random = new Random(1);
+        List<String> codes = new ArrayList<>(QUOTE_SYMBOLS);
+        for (int i = 0; i < QUOTE_SYMBOLS; i++) {
+            if (i % 10 == 9) {
+                codes.add(String.format("hk%05d", random.nextInt(10000)));
+            } else {
+                codes.add(aShareCode(random));
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * 用户可能输入的各种代码写法：sh600519、600519、600519.SH、00700、hk00700
+     */
+    static List<String> userCodes() {
+        List<String> sinaCodes = quoteCodes();
+        List<String> userCodes = new ArrayList<>(sinaCodes.size());
+        for (int i = 0; i < sinaCodes.size(); i++) {
+            String code = sinaCodes.get(i);
+            String digits = code.substring(2);
+            switch (i % 3) {
+                case 0 -> userCodes.add(code);
+                case 1 -> userCodes.add(digits);
+                default -> userCodes.add(digits + "." + code.substring(0, 2).toUpperCase(Locale.ROOT));
+            }
+        }
+        return userCodes;
+    }
+
+    /**
+     * 完整的股票列表响应
+     */
+    static String stockListJson() {
+        byte[] recorded = readResource("/fixtures/mairui-list.json");
+        if (recorded != null) {
+            return new String(recorded, StandardCharsets.UTF_8);
+        }
+        Random random = new Random(3);
+        StringBuilder json = new StringBuilder(LIST_SYMBOLS * 48).append('[');
+        for (int i = 0; i < LIST_SYMBOLS; i++) {
+            String code = aShareCode(random);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"dm\":\"").append(code, 2, 8)
+                    .append("\",\"mc\":\"").append(name(random))
+                    .append("\",\"jys\":\"").append(code, 0, 2)
+                    .append("\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * 追加一行指数简版行情：名称,点数,涨跌,涨跌幅(%),成交量(手),成交额(万元)
+     */
+    static void appendIndexLine(StringBuilder body, String sinaCode, String name, Random random) {
+        double points = 2000 + random.nextInt(10000) + random.nextInt(10000) / 10000.0;
+        double change = (random.nextInt(2000) - 1000) / 100.0;
+        body.append("var hq_str_").append(sinaCode).append("=\"")
+                .append(name).append(',')
+                .append(format(points, 4)).append(',')
+                .append(format(change, 4)).append(',')
+                .append(format(change / points * 100, 2)).append(',')
+                .append(100_000_000 + random.nextInt(400_000_000)).append(',')
+                .append(10_000_000 + random.nextInt(90_000_000))
+                .append("\";\n");
+    }
+
+    /**
+     * 追加一行沪深 A 股行情，共 33 个字段
+     */
+    static void appendAShareLine(StringBuilder body, String code, String name, Random random) {
+        double prevClose = 3 + random.nextInt(20000) / 100.0;
+        double price = prevClose * (0.9 + random.nextInt(2000) / 10000.0);
+        body.append("var hq_str_").append(code).append("=\"").append(name).append(',')
+                .append(format(prevClose * 1.01, 3)).append(',')
+                .append(format(prevClose, 3)).append(',')
+                .append(format(price, 3)).append(',')
+                .append(format(Math.max(price, prevClose) * 1.02, 3)).append(',')
+                .append(format(Math.min(price, prevClose) * 0.98, 3)).append(',')
+                .append(format(price - 0.01, 3)).append(',')
+                .append(format(price, 3)).append(',')
+                .append(random.nextInt(100_000_000)).append(',')
+                .append(format(random.nextInt(1_000_000_000) * 3.7, 3));
+        for (int level = 0; level < 10; level++) {
+            // 买一至买五，卖一至卖五，每档为挂单量,价格
+            double offset = level < 5 ? -0.01 * (level + 1) : 0.01 * (level - 4);
+            body.append(',').append(random.nextInt(100_000) * 100)
+                    .append(',').append(format(price + offset, 3));
+        }
+        body.append(",2026-10-16,15:00:03,00\";\n");
+    }
+
+    /**
+     * 追加一行港股行情
+     */
+    static void appendHkLine(StringBuilder body, String code, String name, Random random) {
+        String[] englishNames = HK_NAMES.split(",");
+        double prevClose = 1 + random.nextInt(50000) / 100.0;
+        double price = prevClose * (0.9 + random.nextInt(2000) / 10000.0);
+        body.append("var hq_str_").append(code).append("=\"")
+                .append(englishNames[random.nextInt(englishNames.length)]).append(',')
+                .append(name).append(',')
+                .append(format(prevClose * 1.01, 3)).append(',')
+                .append(format(prevClose, 3)).append(',')
+                .append(format(Math.max(price, prevClose) * 1.02, 3)).append(',')
+                .append(format(Math.min(price, prevClose) * 0.98, 3)).append(',')
+                .append(format(price, 3)).append(',')
+                .append(format(price - prevClose, 3)).append(',')
+                .append(format((price - prevClose) / prevClose * 100, 3)).append(',')
+                .append(format(price - 0.2, 3)).append(',')
+                .append(format(price, 3)).append(',')
+                .append(random.nextInt(1_000_000_000)).append(',')
+                .append(random.nextInt(100_000_000)).append(',')
+                .append("0.000,0.000,")
+                .append(format(prevClose * 1.5, 3)).append(',')
+                .append(format(prevClose * 0.6, 3)).append(',')
+                .append("2026/10/16,16:08\";\n");
+    }
+
+    /**
+     * 追加一行腾讯指数简版行情：市场~名称~代码~点数~涨跌~涨跌幅(%)~成交量(手)~成交额(万元)
+     */
+    static void appendTencentIndexLine(StringBuilder body, String code, String name, Random random) {
+        double points = 2000 + random.nextInt(10000) + random.nextInt(10000) / 10000.0;
+        double change = (random.nextInt(2000) - 1000) / 100.0;
+        body.append("v_").append(code).append("=\"")
+                .append(code.startsWith("s_sh") ? "1" : "51").append('~')
+                .append(name).append('~')
+                .append(code, 4, code.length()).append('~')
+                .append(format(points, 2)).append('~')
+                .append(format(change, 2)).append('~')
+                .append(format(change / points * 100, 2)).append('~')
+                .append(100_000_000 + random.nextInt(400_000_000)).append('~')
+                .append(10_000_000 + random.nextInt(90_000_000)).append("~~\";\n");
+    }
+
+    /**
+     * 追加一行腾讯个股行情，沪深 A 股与港股字段相同，共 50 个字段
+     */
+    static void appendTencentStockLine(StringBuilder body, String code, String name, Random random) {
+        boolean hk = code.startsWith("hk");
+        double prevClose = 3 + random.nextInt(20000) / 100.0;
+        double price = prevClose * (0.9 + random.nextInt(2000) / 10000.0);
+        long volume = random.nextInt(1_000_000);
+        body.append("v_").append(code).append("=\"")
+                .append(hk ? "100" : code.startsWith("sh") ? "1" : "51").append('~')
+                .append(name).append('~')
+                .append(code, 2, code.length()).append('~')
+                .append(format(price, 2)).append('~')
+                .append(format(prevClose, 2)).append('~')
+                .append(format(prevClose * 1.01, 2)).append('~')
+                .append(volume).append('~')
+                .append(volume / 2).append('~')
+                .append(volume - volume / 2);
+        for (int level = 0; level < 10; level++) {
+            // 买一至买五，卖一至卖五，每档为价格~挂单量
+            double offset = level < 5 ? -0.01 * (level + 1) : 0.01 * (level - 4);
+            body.append('~').append(format(price + offset, 2))
+                    .append('~').append(random.nextInt(10_000));
+        }
+        body.append("~~").append(hk ? "2026/10/16 16:08:08" : "20261016150003").append('~')
+                .append(format(price - prevClose, 2)).append('~')
+                .append(format((price - prevClose) / prevClose * 100, 2)).append('~')
+                .append(format(Math.max(price, prevClose) * 1.02, 2)).append('~')
+                .append(format(Math.min(price, prevClose) * 0.98, 2)).append('~')
+                .append(format(price, 2)).append('/').append(volume).append('/').append(volume * 37).append('~')
+                .append(volume).append('~')
+                .append(format(volume * price / 100, 0));
+        for (int i = 38; i < 50; i++) {
+            body.append('~');
+        }
+        body.append("\";\n");
+    }
+
+    static String aShareCode(Random random) {
+        return switch (random.nextInt(3)) {
+            case 0 -> String.format("sh6%05d", random.nextInt(100000));
+            case 1 -> String.format("sz00%04d", random.nextInt(10000));
+            default -> String.format("sz30%04d", random.nextInt(10000));
+        };
+    }
+
+    static String name(Random random) {
+        char[] name = new char[4];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = NAME_CHARS.charAt(random.nextInt(NAME_CHARS.length()));
+        }
+        return new String(name);
+    }
+
+    private static String format(double value, int digits) {
+        return String.format(Locale.ROOT, "%." + digits + "f", value);
+    }
+
+    private static byte[] readResource(String path) {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream(path)) {
+            return in == null ? null : in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 首选数据源出现长尾延迟时的刷新延迟：只用新浪，与新浪加腾讯对冲
+ * <p>
+ * 两个数据源各自使用一个 {@link StandInQuoteServer}，首选数据源的请求以 slowRate 的概率额外等待 slowMillis，
+ * 备用数据源保持正常。对比两种模式下 P99 与最大延迟的差别。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HedgedRefreshBenchmark {
+
+    @Param({"single", "hedged"})
+    public String mode;
+
+    @Param({"200"})
+    public int symbols;
+
+    /** 首选数据源每次请求的基础延迟 */
+    @Param({"20"})
+    public long latencyMillis;
+
+    /** 首选数据源出现慢请求的概率 */
+    @Param({"0.1"})
+    public double slowRate;
+
+    @Param({"1000"})
+    public long slowMillis;
+
+    private StandInQuoteServer primaryServer;
+    private StandInQuoteServer backupServer;
+    private StockService service;
+    private QuoteSnapshotStore store;
+    private List<String> codes;
+
+    @Setup
+    public void setUp() throws IOException {
+        primaryServer = StandInQuoteServer.start(0);
+        primaryServer.setLatency(latencyMillis, latencyMillis / 2);
+        primaryServer.setSlowRate(slowRate, slowMillis);
+        backupServer = StandInQuoteServer.start(0);
+        backupServer.setLatency(latencyMillis, latencyMillis / 2);
+
+        FeedMetrics metrics = new FeedMetrics();
+        SinaStockService sina = new SinaStockService(primaryServer.getQuoteUrl(), primaryServer.getStockListUrl(), metrics);
+        if ("hedged".equals(mode)) {
+            TencentQuoteProvider tencent = new TencentQuoteProvider(backupServer.getTencentQuoteUrl(), metrics);
+            service = new QuoteRouter(sina, List.of(sina, tencent));
+        } else {
+            service = sina;
+        }
+        store = new QuoteSnapshotStore();
+        codes = new ArrayList<>(symbols);
+        for (int i = 0; i < symbols; i++) {
+            codes.add(i % 2 == 0 ? String.format("sh6%05d", i / 2) : String.format("sz%06d", i / 2 + 1));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        primaryServer.close();
+        backupServer.close();
+    }
+
+    /**
+     * @return 请求失败时为 false
+     */
+    @Benchmark
+    public boolean refresh() {
+        return service.updateSnapshot(codes, Set.of(), store);
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.PriceAlert;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 价格提醒的计算开销：每次操作计算一次轮询的全部变化行情
+ * <p>
+ * 每只股票设有 rulesPerSymbol 条规则，阈值散布在现价上下，价格按随机游走变化，
+ * 因此每次都会穿过少量阈值。行情批次在准备阶段生成，测得的只是提醒计算本身；
+ * 配合 -prof gc 可确认计算过程不分配对象（触发提醒的回调除外）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceAlertBenchmark {
+
+    @Param({"500"})
+    public int symbols;
+
+    @Param({"10"})
+    public int rulesPerSymbol;
+
+    /** 预先生成的轮询批次数，循环使用 */
+    private static final int BATCHES = 200;
+
+    private PriceAlertEngine engine;
+    private TickBatch[] batches;
+    private int next;
+    private long triggered;
+
+    @Setup
+    public void setUp() {
+        engine = new PriceAlertEngine((alert, price, changePercent) -> triggered++);
+        Random random = new Random(42);
+        List<String> codes = new ArrayList<>(symbols);
+        double[] prices = new double[symbols];
+        List<PriceAlert> alerts = new ArrayList<>(symbols * rulesPerSymbol);
+        PriceAlert.Type[] types = PriceAlert.Type.values();
+        for (int i = 0; i < symbols; i++) {
+            String code = String.format("sh6%05d", i);
+            codes.add(code);
+            prices[i] = 10 + random.nextInt(1000);
+            for (int r = 0; r < rulesPerSymbol; r++) {
+                PriceAlert.Type type = types[r % types.length];
+                double value = switch (type) {
+                    case PRICE_ABOVE, PRICE_BELOW -> prices[i] * (0.95 + random.nextDouble() * 0.1);
+                    case CHANGE_ABOVE, CHANGE_BELOW -> random.nextDouble() * 10 - 5;
+                    case MOVE_UP, MOVE_DOWN -> 0.5 + random.nextDouble() * 2;
+                };
+                alerts.add(new PriceAlert(code, type, value, 5 + r));
+            }
+        }
+        engine.setAlerts(alerts);
+
+        // 每个批次所有股票价格都变化，行情时间每次前进 3 秒
+        QuoteSnapshotStore store = new QuoteSnapshotStore();
+        Map<String, Long> sequences = new HashMap<>();
+        ZonedDateTime time = ZonedDateTime.of(2026, 10, 16, 9, 30, 0, 0, TradingCalendar.EXCHANGE_ZONE);
+        batches = new TickBatch[BATCHES];
+        for (int b = 0; b < BATCHES; b++) {
+            Lock writeLock = store.writeLock();
+            writeLock.lock();
+            try {
+                store.beginUpdate();
+                for (int i = 0; i < symbols; i++) {
+                    int slot = store.slotFor(codes.get(i));
+                    double prevClose = 10 + i % 1000;
+                    prices[i] *= 1 + (random.nextDouble() - 0.5) * 0.004;
+                    store.setPrevClose(slot, prevClose);
+                    store.setPrice(slot, prices[i]);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            batches[b] = TickBatch.collect(store, codes, sequences, time);
+            time = time.plusSeconds(3);
+        }
+    }
+
+    /**
+     * 一次轮询的全部变化行情
+     */
+    @Benchmark
+    public long evaluate() {
+        engine.evaluate(batches[next]);
+        next = (next + 1) % BATCHES;
+        return triggered;
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.StockIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行情响应解析：每次操作解析一次完整响应并写入快照，与轮询时的路径相同。
+ * 快照与解析器在多次操作之间复用，测得的是稳定轮询时的吞吐与每次操作的分配
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuoteParsingBenchmark {
+
+    private SinaStockService service;
+    private QuoteSnapshotStore store;
+
+    private byte[] stockResponse;
+    private Map<String, List<String>> stockCodes;
+    private byte[] indexResponse;
+    private Set<String> indexCodes;
+    private List<String> userCodes;
+
+    @Setup
+    public void setUp() {
+        service = new SinaStockService();
+        store = new QuoteSnapshotStore();
+
+        stockResponse = BenchmarkFixtures.quoteResponse();
+        stockCodes = new LinkedHashMap<>();
+        for (String code : BenchmarkFixtures.quoteCodes()) {
+            stockCodes.computeIfAbsent(code, k -> new ArrayList<>(1)).add(code);
+        }
+        indexResponse = BenchmarkFixtures.indexResponse();
+        indexCodes = new LinkedHashSet<>();
+        for (StockIndex index : StockIndex.values()) {
+            indexCodes.add(index.getSinaCode());
+        }
+        userCodes = BenchmarkFixtures.userCodes();
+    }
+
+    /**
+     * 500 个代码的个股行情
+     */
+    @Benchmark
+    public long parseStockLines() {
+        service.applyResponse(stockResponse, stockResponse.length, stockCodes, Set.of(), store);
+        return store.getSequence();
+    }
+
+    /**
+     * 指数简版行情
+     */
+    @Benchmark
+    public long parseIndexLines() {
+        service.applyResponse(indexResponse, indexResponse.length, Map.of(), indexCodes, store);
+        return store.getSequence();
+    }
+
+    /**
+     * 500 个不同写法的用户代码转换为新浪代码
+     */
+    @Benchmark
+    public void toSinaCode(Blackhole blackhole) {
+        for (String code : userCodes) {
+            blackhole.consume(SinaStockService.toSinaCode(code));
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地模拟行情服务器，代替 hq.sinajs.cn、qt.gtimg.cn 与麦瑞股票列表接口，用于测试大自选列表
+ * <p>
+ * 新浪行情接口 /list=代码1,代码2,... 可以为任意数量的代码生成 GBK 编码的响应，每次请求价格都会变化，
+ * 名称按代码固定；指数（s_ 开头）返回简版行情，无法识别的代码与新浪一样返回空字符串。
+ * 腾讯行情接口 /q=代码1,代码2,... 以腾讯的格式返回同样的数据。
+ * 股票列表接口 /hslt/list/任意licence 返回与基准测试相同的完整列表。
+ * <p>
+ * 可以设置每次请求的延迟、偶发的慢请求、失败概率以及 URL 长度上限，模拟网络抖动、长尾延迟、限流与过长的请求；
+ * 也可以指定代码，让包含这些代码的行情请求总是失败，测试单个分片失败的情况。
+ * 测试多个数据源时，为每个数据源各启动一个实例，分别设置。
+ * 直接运行 main 方法即可启动，再以输出的系统属性启动 runIde，让插件使用模拟数据。
+ */
+public final class StandInQuoteServer implements AutoCloseable {
+
+    private static final String QUOTE_PATH = "/list=";
+    private static final String TENCENT_QUOTE_PATH = "/q=";
+    private static final String STOCK_LIST_PATH = "/hslt/list/";
+    private static final String QUOTE_CONTENT_TYPE = "application/javascript; charset=GBK";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private volatile String stockListJson;
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double slowRate;
+    private volatile long slowMillis;
+    private volatile double failureRate;
+    private volatile int maxUrlLength;
+    private volatile Set<String> failingCodes = Set.of();
+
+    private StandInQuoteServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * 在本机回环地址上启动
+     * @param port 0 表示随机选择空闲端口
+     */
+    public static StandInQuoteServer start(int port) throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // 每个请求一个虚拟线程，注入的延迟不会占满处理线程
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        StandInQuoteServer server = new StandInQuoteServer(httpServer, executor);
+        httpServer.createContext("/", server::handle);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        return server;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 18080;
+        StandInQuoteServer server = start(port);
+        if (args.length > 1) {
+            server.setLatency(Long.parseLong(args[1]), 0);
+        }
+        if (args.length > 2) {
+            server.setFailureRate(Double.parseDouble(args[2]));
+        }
+        System.out.println("模拟行情服务器已启动，使用以下系统属性启动 IDE：");
+        System.out.println("-Dstock-record.quote.url=" + server.getQuoteUrl());
+        System.out.println("-Dstock-record.tencent.url=" + server.getTencentQuoteUrl());
+        System.out.println("-Dstock-record.stock-list.url=" + server.getStockListUrl());
+    }
+
+    /**
+     * 行情接口地址，可直接传给 {@link SinaStockService#SinaStockService(String, String)}
+     */
+    public String getQuoteUrl() {
+        return baseUrl() + QUOTE_PATH;
+    }
+
+    /**
+     * 腾讯格式的行情接口地址，可直接传给 {@link TencentQuoteProvider#TencentQuoteProvider(String, FeedMetrics)}
+     */
+    public String getTencentQuoteUrl() {
+        return baseUrl() + TENCENT_QUOTE_PATH;
+    }
+
+    public String getStockListUrl() {
+        return baseUrl() + STOCK_LIST_PATH + "stand-in";
+    }
+
+    /**
+     * 每次请求在响应前等待 latency 加上 [0, jitter) 内的随机时间
+     */
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+    }
+
+    /**
+     * 请求以该概率额外等待 slowMillis，模拟长尾延迟
+     */
+    public void setSlowRate(double slowRate, long slowMillis) {
+        this.slowRate = slowRate;
+        this.slowMillis = slowMillis;
+    }
+
+    /**
+     * 请求以该概率返回 503
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * 包含其中任一代码的行情请求返回 503，空集合表示不限制
+     */
+    public void setFailingCodes(Set<String> failingCodes) {
+        this.failingCodes = Set.copyOf(failingCodes);
+    }
+
+    /**
+     * 请求行中的路径超过该长度时返回 414，0 表示不限制
+     */
+    public void setMaxUrlLength(int maxUrlLength) {
+        this.maxUrlLength = maxUrlLength;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private String baseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requestCount.incrementAndGet();
+            String path = exchange.getRequestURI().getRawPath();
+            if (maxUrlLength > 0 && path.length() > maxUrlLength) {
+                failureCount.incrementAndGet();
+                respond(exchange, 414, QUOTE_CONTENT_TYPE, new byte[0]);
+                return;
+            }
+            if (!delay()) {
+                return;
+            }
+            if ((failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) || requestsFailingCode(path)) {
+                failureCount.incrementAndGet();
+                respond(exchange, 503, QUOTE_CONTENT_TYPE, new byte[0]);
+                return;
+            }
+            if (path.startsWith(QUOTE_PATH)) {
+                respond(exchange, 200, QUOTE_CONTENT_TYPE, quoteResponse(path.substring(QUOTE_PATH.length())));
+            } else if (path.startsWith(TENCENT_QUOTE_PATH)) {
+                respond(exchange, 200, QUOTE_CONTENT_TYPE,
+                        tencentQuoteResponse(path.substring(TENCENT_QUOTE_PATH.length())));
+            } else if (path.startsWith(STOCK_LIST_PATH)) {
+                respond(exchange, 200, "application/json; charset=utf-8", stockList().getBytes(StandardCharsets.UTF_8));
+            } else {
+                respond(exchange, 404, QUOTE_CONTENT_TYPE, new byte[0]);
+            }
+        }
+    }
+
+    private boolean requestsFailingCode(String path) {
+        Set<String> failing = failingCodes;
+        if (failing.isEmpty()) {
+            return false;
+        }
+        String codeList;
+        if (path.startsWith(QUOTE_PATH)) {
+            codeList = path.substring(QUOTE_PATH.length());
+        } else if (path.startsWith(TENCENT_QUOTE_PATH)) {
+            codeList = path.substring(TENCENT_QUOTE_PATH.length());
+        } else {
+            return false;
+        }
+        for (String code : codeList.split(",")) {
+            if (failing.contains(code)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean delay() {
+        long millis = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis) : 0);
+        if (slowRate > 0 && ThreadLocalRandom.current().nextDouble() < slowRate) {
+            millis += slowMillis;
+        }
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private byte[] quoteResponse(String codeList) {
+        String[] codes = codeList.split(",");
+        StringBuilder body = new StringBuilder(codes.length * 400);
+        Random random = ThreadLocalRandom.current();
+        for (String code : codes) {
+            if (code.isEmpty()) {
+                continue;
+            }
+            if (code.startsWith("s_")) {
+                BenchmarkFixtures.appendIndexLine(body, code, nameOf(code), random);
+            } else if (code.startsWith("hk") && code.length() == 7) {
+                BenchmarkFixtures.appendHkLine(body, code, nameOf(code), random);
+            } else if ((code.startsWith("sh") || code.startsWith("sz")) && code.length() == 8) {
+                BenchmarkFixtures.appendAShareLine(body, code, nameOf(code), random);
+            } else {
+                body.append("var hq_str_").append(code).append("=\"\";\n");
+            }
+        }
+        return body.toString().getBytes(BenchmarkFixtures.GBK);
+    }
+
+    private byte[] tencentQuoteResponse(String codeList) {
+        String[] codes = codeList.split(",");
+        StringBuilder body = new StringBuilder(codes.length * 400);
+        Random random = ThreadLocalRandom.current();
+        for (String code : codes) {
+            if (code.isEmpty()) {
+                continue;
+            }
+            if (code.startsWith("s_") && code.length() == 10) {
+                BenchmarkFixtures.appendTencentIndexLine(body, code, nameOf(code), random);
+            } else if ((code.startsWith("hk") && code.length() == 7)
+                    || ((code.startsWith("sh") || code.startsWith("sz")) && code.length() == 8)) {
+                BenchmarkFixtures.appendTencentStockLine(body, code, nameOf(code), random);
+            } else {
+                // 腾讯对无法识别的代码返回 v_pv_none_match="1";
+                body.append("v_pv_none_match=\"1\";\n");
+            }
+        }
+        return body.toString().getBytes(BenchmarkFixtures.GBK);
+    }
+
+    private String nameOf(String code) {
+        return names.computeIfAbsent(code, c -> BenchmarkFixtures.name(new Random(c.hashCode())));
+    }
+
+    private String stockList() {
+        String json = stockListJson;
+        if (json == null) {
+            json = BenchmarkFixtures.stockListJson();
+            stockListJson = json;
+        }
+        return json;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
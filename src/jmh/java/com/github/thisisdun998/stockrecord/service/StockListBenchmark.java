@@ -0,0 +1,77 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.StockQuote;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 股票列表解析与搜索
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockListBenchmark {
+
+    /**
+     * 搜索关键词：纯数字代码、完整代码、名称、单个字
+     */
+    @Param({"6005", "sz300", "茅台", "银行", "中"})
+    public String keyword;
+
+    private byte[] stockListJson;
+    private SinaStockService service;
+    private String previousKeyword;
+    private List<StockQuote> previousResults;
+
+    @Setup
+    public void setUp() throws IOException {
+        stockListJson = BenchmarkFixtures.stockListJson().getBytes(StandardCharsets.UTF_8);
+        service = new SinaStockService();
+        // 列表的拉取时间设为当前时间，搜索时不会触发后台刷新
+        SinaStockService.useStockList(parseStockListJson(), System.currentTimeMillis());
+        previousKeyword = keyword.substring(0, keyword.length() - 1);
+        previousResults = previousKeyword.isEmpty() ? null : service.searchStocks(previousKeyword);
+    }
+
+    /**
+     * 从响应体的字节流解析完整的股票列表，与下载时的路径相同
+     */
+    @Benchmark
+    public SymbolTable parseStockListJson() throws IOException {
+        return StockListJson.parse(new ByteArrayInputStream(stockListJson));
+    }
+
+    /**
+     * 在完整列表的搜索索引中搜索
+     */
+    @Benchmark
+    public List<StockQuote> searchStocks() {
+        return service.searchStocks(keyword);
+    }
+
+    /**
+     * 在上一次输入的搜索结果中继续过滤，与搜索对话框中逐字输入时的路径相同
+     */
+    @Benchmark
+    public List<StockQuote> searchStocksNarrowed() {
+        return service.searchStocks(keyword, previousKeyword, previousResults);
+    }
+}
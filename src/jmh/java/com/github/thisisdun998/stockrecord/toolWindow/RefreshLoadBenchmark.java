@@ -0,0 +1,106 @@
+package com.github.thisisdun998.stockrecord.toolWindow;
+
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService;
+import com.github.thisisdun998.stockrecord.service.QuoteSnapshotStore;
+import com.github.thisisdun998.stockrecord.service.SinaStockService;
+import com.github.thisisdun998.stockrecord.service.StandInQuoteServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 端到端刷新延迟：从发起行情请求到表格模型应用完新行情
+ * <p>
+ * 请求发往本地的 {@link StandInQuoteServer}，每次请求价格都会变化，因此每次刷新都会更新全部行。
+ * 结果按采样给出延迟分位数，可通过 latencyMillis 与 failureRate 模拟慢速或不稳定的接口。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RefreshLoadBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int symbols;
+
+    /** 模拟服务器每次请求的延迟 */
+    @Param({"0"})
+    public long latencyMillis;
+
+    /** 模拟服务器返回 503 的概率 */
+    @Param({"0"})
+    public double failureRate;
+
+    private StandInQuoteServer server;
+    private SinaStockService service;
+    private QuoteSnapshotStore store;
+    private StockWatchlistTableModel tableModel;
+    private List<String> codes;
+    private int[] slots;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = StandInQuoteServer.start(0);
+        server.setLatency(latencyMillis, 0);
+        server.setFailureRate(failureRate);
+        service = new SinaStockService(server.getQuoteUrl(), server.getStockListUrl());
+        store = new QuoteSnapshotStore();
+        tableModel = new StockWatchlistTableModel();
+
+        codes = new ArrayList<>(symbols);
+        List<StockWatchlistStateService.StockItemState> stocks = new ArrayList<>(symbols);
+        for (int i = 0; i < symbols; i++) {
+            // 一半沪市、一半深市，代码互不相同
+            String code = i % 2 == 0 ? String.format("sh6%05d", i / 2) : String.format("sz%06d", i / 2 + 1);
+            codes.add(code);
+            stocks.add(new StockWatchlistStateService.StockItemState(code, code));
+        }
+        tableModel.setStocks(stocks);
+        slots = new int[symbols];
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    /**
+     * 一次刷新：请求、解析写入快照、表格模型应用变化
+     * @return 应用到表格的行数，请求失败时为 -1
+     */
+    @Benchmark
+    public int refresh() {
+        if (!service.updateSnapshot(codes, Set.of(), store)) {
+            return -1;
+        }
+        Lock readLock = store.readLock();
+        readLock.lock();
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = store.slotOf(codes.get(i));
+            }
+            tableModel.applyQuotes(store, slots);
+        } finally {
+            readLock.unlock();
+        }
+        return tableModel.getRowCount();
+    }
+}
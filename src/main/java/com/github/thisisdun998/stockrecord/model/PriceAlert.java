@@ -0,0 +1,114 @@
+package com.github.thisisdun998.stockrecord.model;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * 价格提醒规则
+ * <p>
+ * 价格与涨跌幅提醒在行情穿过阈值时触发，之后需要先回到阈值另一侧才会再次触发；
+ * 区间涨跌提醒在最近 minutes 分钟内相对区间最低价上涨（或相对最高价下跌）达到 value% 时触发。
+ */
+public final class PriceAlert {
+
+    public enum Type {
+        /** 现价向上穿过 value */
+        PRICE_ABOVE("价格上穿"),
+        /** 现价向下穿过 value */
+        PRICE_BELOW("价格下穿"),
+        /** 涨跌幅（%）向上穿过 value */
+        CHANGE_ABOVE("涨幅达到"),
+        /** 涨跌幅（%）向下穿过 value，value 通常为负数 */
+        CHANGE_BELOW("跌幅达到"),
+        /** minutes 分钟内上涨 value% */
+        MOVE_UP("区间上涨"),
+        /** minutes 分钟内下跌 value% */
+        MOVE_DOWN("区间下跌");
+
+        private final String displayName;
+
+        Type(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public boolean isMove() {
+            return this == MOVE_UP || this == MOVE_DOWN;
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    private final String code;
+    private final Type type;
+    private final double value;
+    private final int minutes;
+
+    /**
+     * @param code 个股代码，与自选列表中的写法一致
+     * @param value 价格，或百分比（如 5 表示 5%）
+     * @param minutes 区间涨跌的时间窗口，其他类型忽略
+     */
+    public PriceAlert(String code, Type type, double value, int minutes) {
+        this.code = code;
+        this.type = type;
+        this.value = value;
+        this.minutes = type.isMove() ? Math.max(1, minutes) : 0;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public int getMinutes() {
+        return minutes;
+    }
+
+    /**
+     * 规则的简短描述，例如 "价格上穿 1800.00"、"5 分钟内上涨 2.00%"
+     */
+    public String describe() {
+        return switch (type) {
+            case PRICE_ABOVE, PRICE_BELOW -> String.format(Locale.ROOT, "%s %.2f", type.getDisplayName(), value);
+            case CHANGE_ABOVE, CHANGE_BELOW -> String.format(Locale.ROOT, "%s %.2f%%", type.getDisplayName(), value);
+            case MOVE_UP -> String.format(Locale.ROOT, "%d 分钟内上涨 %.2f%%", minutes, value);
+            case MOVE_DOWN -> String.format(Locale.ROOT, "%d 分钟内下跌 %.2f%%", minutes, value);
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PriceAlert other)) {
+            return false;
+        }
+        return Double.compare(value, other.value) == 0 && minutes == other.minutes
+                && type == other.type && Objects.equals(code, other.code);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(code, type, value, minutes);
+    }
+
+    @Override
+    public String toString() {
+        return code + " " + describe();
+    }
+}
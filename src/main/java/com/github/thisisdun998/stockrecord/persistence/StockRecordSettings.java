@@ -0,0 +1,150 @@
+package com.github.thisisdun998.stockrecord.persistence;
+
+import com.github.thisisdun998.stockrecord.model.PriceAlert;
+import com.github.thisisdun998.stockrecord.service.SinaStockService;
+import com.github.thisisdun998.stockrecord.service.TickHistory;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.util.xmlb.annotations.Attribute;
+import com.intellij.util.xmlb.annotations.Tag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 插件的应用级设置
+ */
+@State(
+        name = "StockRecordSettings",
+        storages = @Storage("stock_record.xml")
+)
+public final class StockRecordSettings implements PersistentStateComponent<StockRecordSettings.State> {
+
+    public static final double DEFAULT_HKD_TO_CNY_RATE = 0.92;
+
+    public static final class State {
+        /** 逐笔行情历史占用的内存上限（MB） */
+        @Attribute("tickHistoryMemoryMb")
+        public int tickHistoryMemoryMb = TickHistory.DEFAULT_MEMORY_LIMIT_MB;
+
+        /** 每个行情请求最多包含的代码数 */
+        @Attribute("quoteShardSize")
+        public int quoteShardSize = SinaStockService.DEFAULT_SHARD_SIZE;
+
+        /** 同时进行的行情请求数上限 */
+        @Attribute("maxConcurrentRequests")
+        public int maxConcurrentRequests = SinaStockService.DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+        /** 港元兑人民币汇率，用于把港股持仓折算为人民币 */
+        @Attribute("hkdToCnyRate")
+        public double hkdToCnyRate = DEFAULT_HKD_TO_CNY_RATE;
+
+        /** 价格提醒规则 */
+        @Tag("alerts")
+        public List<AlertState> alerts = new ArrayList<>();
+    }
+
+    @Tag("alert")
+    public static final class AlertState {
+        @Attribute("code")
+        public String code;
+
+        /** {@link PriceAlert.Type} 的名称 */
+        @Attribute("type")
+        public String type;
+
+        @Attribute("value")
+        public double value;
+
+        @Attribute("minutes")
+        public int minutes;
+
+        public AlertState() {
+        }
+
+        AlertState(PriceAlert alert) {
+            this.code = alert.getCode();
+            this.type = alert.getType().name();
+            this.value = alert.getValue();
+            this.minutes = alert.getMinutes();
+        }
+    }
+
+    private State state = new State();
+
+    public static StockRecordSettings getInstance() {
+        return ApplicationManager.getApplication().getService(StockRecordSettings.class);
+    }
+
+    @Override
+    public @Nullable State getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull State state) {
+        this.state = state;
+    }
+
+    public int getTickHistoryMemoryMb() {
+        return state.tickHistoryMemoryMb;
+    }
+
+    public void setTickHistoryMemoryMb(int megabytes) {
+        state.tickHistoryMemoryMb = megabytes;
+    }
+
+    public int getQuoteShardSize() {
+        return state.quoteShardSize;
+    }
+
+    public void setQuoteShardSize(int shardSize) {
+        state.quoteShardSize = shardSize;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return state.maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        state.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public double getHkdToCnyRate() {
+        return state.hkdToCnyRate > 0 ? state.hkdToCnyRate : DEFAULT_HKD_TO_CNY_RATE;
+    }
+
+    public void setHkdToCnyRate(double rate) {
+        state.hkdToCnyRate = rate;
+    }
+
+    /**
+     * 已保存的价格提醒，类型无法识别的条目被忽略
+     */
+    public List<PriceAlert> getAlerts() {
+        List<PriceAlert> result = new ArrayList<>(state.alerts.size());
+        for (AlertState alert : state.alerts) {
+            if (alert.code == null || alert.type == null) {
+                continue;
+            }
+            try {
+                result.add(new PriceAlert(alert.code, PriceAlert.Type.valueOf(alert.type), alert.value, alert.minutes));
+            } catch (IllegalArgumentException e) {
+                // 更高版本写入的类型
+            }
+        }
+        return result;
+    }
+
+    public void setAlerts(List<PriceAlert> alerts) {
+        List<AlertState> states = new ArrayList<>(alerts.size());
+        for (PriceAlert alert : alerts) {
+            states.add(new AlertState(alert));
+        }
+        state.alerts = states;
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.thisisdun998.stockrecord.persistence;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.xmlb.annotations.Attribute;
+import com.intellij.util.xmlb.annotations.Tag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 项目中的自选列表视图，只记录该项目显示哪个分组
+ * <p>
+ * 自选股本身保存在应用级的 {@link StockWatchlistStateService}。
+ * 旧版本按项目保存的自选列表在加载时并入应用级列表，之后项目文件中只保留所选分组。
+ */
+@State(
+        name = "StockWatchlistState",
+        storages = @Storage("stock_watchlist.xml")
+)
+public final class StockWatchlistProjectView implements PersistentStateComponent<StockWatchlistProjectView.State> {
+
+    public static final class State {
+        /** 旧版本的单一自选列表，只在加载时读取 */
+        @Tag("stocks")
+        public List<StockWatchlistStateService.StockItemState> stocks = new ArrayList<>();
+
+        /** 旧版本按项目保存的分组，只在加载时读取 */
+        @Tag("groups")
+        public List<StockWatchlistStateService.GroupState> groups = new ArrayList<>();
+
+        @Attribute("activeGroup")
+        public String activeGroup;
+    }
+
+    private final Supplier<StockWatchlistStateService> store;
+    private volatile String group = StockWatchlistStateService.DEFAULT_GROUP;
+
+    public StockWatchlistProjectView() {
+        this(StockWatchlistStateService::getInstance);
+    }
+
+    /**
+     * @param store 应用级自选列表，测试中可替换
+     */
+    StockWatchlistProjectView(Supplier<StockWatchlistStateService> store) {
+        this.store = store;
+    }
+
+    public static StockWatchlistProjectView getInstance(Project project) {
+        return project.getService(StockWatchlistProjectView.class);
+    }
+
+    @Override
+    public @Nullable State getState() {
+        State state = new State();
+        state.activeGroup = group;
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull State loaded) {
+        if (!loaded.stocks.isEmpty() || !loaded.groups.isEmpty()) {
+            store().update(batch -> {
+                for (StockWatchlistStateService.StockItemState stock : loaded.stocks) {
+                    batch.mergeStock(StockWatchlistStateService.DEFAULT_GROUP, stock);
+                }
+                for (StockWatchlistStateService.GroupState legacy : loaded.groups) {
+                    for (StockWatchlistStateService.StockItemState stock : legacy.stocks) {
+                        batch.mergeStock(legacy.name, stock);
+                    }
+                }
+            });
+        }
+        if (loaded.activeGroup != null) {
+            group = loaded.activeGroup;
+        }
+    }
+
+    private StockWatchlistStateService store() {
+        return store.get();
+    }
+
+    /**
+     * 当前显示的分组，分组已被删除时回到默认分组
+     */
+    public String getGroup() {
+        String current = group;
+        return store().hasGroup(current) ? current : StockWatchlistStateService.DEFAULT_GROUP;
+    }
+
+    public void setGroup(String group) {
+        if (store().hasGroup(group)) {
+            this.group = group;
+        }
+    }
+
+    /**
+     * 当前分组的自选股快照，按添加顺序排列
+     */
+    public List<StockWatchlistStateService.StockItemState> getStocks() {
+        return store().getStocks(getGroup());
+    }
+
+    /**
+     * 添加到当前分组
+     */
+    public void addStock(String name, String code) {
+        String current = getGroup();
+        store().update(batch -> batch.addStock(current, name, code));
+    }
+
+    /**
+     * 从当前分组中按股票代码删除
+     */
+    public void removeStockByCode(String code) {
+        String current = getGroup();
+        store().update(batch -> batch.removeStock(current, code));
+    }
+
+    /**
+     * 设置当前分组中的持仓，shares 为 0 时视为清仓
+     */
+    public void setPosition(String code, long shares, double costPrice) {
+        String current = getGroup();
+        store().update(batch -> batch.setPosition(current, code, shares, costPrice));
+    }
+
+    /**
+     * 检查股票是否已在当前分组中
+     */
+    public boolean containsStock(String code) {
+        return store().containsStock(getGroup(), code);
+    }
+}
@@ -1,27 +1,65 @@
 package com.github.thisisdun998.stockrecord.persistence;
 
-import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponentWithModificationTracker;
 import com.intellij.openapi.components.State;
 import com.intellij.openapi.components.Storage;
-import com.intellij.openapi.project.Project;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.util.xmlb.annotations.Attribute;
 import com.intellij.util.xmlb.annotations.Tag;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
+/**
+ * 自选股列表，按分组保存在应用级，所有项目共用同一份
+ * <p>
+ * 各项目通过 {@link StockWatchlistProjectView} 选择显示哪个分组，
+ * 任何项目修改后通过 {@link #addChangeListener} 通知所有打开的面板。
+ * <p>
+ * 每个分组是一个按添加顺序排列的 代码 → 条目 索引，同一分组内代码不重复，查找、删除都是 O(1)。
+ * 修改通过 {@link #update} 批量进行，一批修改只算一次状态变化；
+ * 状态没有变化时保存流程不会重新序列化 XML。
+ */
 @State(
         name = "StockWatchlistState",
         storages = @Storage("stock_watchlist.xml")
 )
-public final class StockWatchlistStateService implements PersistentStateComponent<StockWatchlistStateService.State> {
+public final class StockWatchlistStateService implements PersistentStateComponentWithModificationTracker<StockWatchlistStateService.State> {
+
+    private static final Logger LOG = Logger.getInstance(StockWatchlistStateService.class);
+
+    /** 默认分组，不可删除；旧版本的自选列表并入该分组 */
+    public static final String DEFAULT_GROUP = "自选";
 
     public static final class State {
+        @Tag("groups")
+        public List<GroupState> groups = new ArrayList<>();
+    }
+
+    @Tag("group")
+    public static final class GroupState {
+        @Attribute("name")
+        public String name;
+
         @Tag("stocks")
         public List<StockItemState> stocks = new ArrayList<>();
+
+        public GroupState() {
+        }
+
+        GroupState(String name, List<StockItemState> stocks) {
+            this.name = name;
+            this.stocks = stocks;
+        }
     }
 
     @Tag("stock")
@@ -32,6 +70,14 @@ public final class StockWatchlistStateService implements PersistentStateComponen
         @Attribute("code")
         public String code; // 支持 A 股 / 港股代码
 
+        /** 持股数，0 表示未持仓 */
+        @Attribute("shares")
+        public long shares;
+
+        /** 每股成本价，港股为港元，0 表示未设置 */
+        @Attribute("costPrice")
+        public double costPrice;
+
         public StockItemState() {
         }
 
@@ -39,77 +85,209 @@ public final class StockWatchlistStateService implements PersistentStateComponen
             this.name = name;
             this.code = code;
         }
+
+        StockItemState(StockItemState other) {
+            this.name = other.name;
+            this.code = other.code;
+            this.shares = other.shares;
+            this.costPrice = other.costPrice;
+        }
     }
 
-    private State state = new State();
+    /** 分组名 → (代码 → 条目)，都按添加顺序排列 */
+    private final Map<String, LinkedHashMap<String, StockItemState>> groups = new LinkedHashMap<>();
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private long modificationCount;
+    /** 最近一次序列化用的状态，修改后置为 null，下次保存时重新生成 */
+    private State state;
 
-    public static StockWatchlistStateService getInstance(Project project) {
-        return project.getService(StockWatchlistStateService.class);
+    public StockWatchlistStateService() {
+        groups.put(DEFAULT_GROUP, new LinkedHashMap<>());
+    }
+
+    public static StockWatchlistStateService getInstance() {
+        return ApplicationManager.getApplication().getService(StockWatchlistStateService.class);
     }
 
     @Override
-    public @Nullable State getState() {
+    public synchronized @Nullable State getState() {
+        if (state == null) {
+            State snapshot = new State();
+            for (Map.Entry<String, LinkedHashMap<String, StockItemState>> entry : groups.entrySet()) {
+                snapshot.groups.add(new GroupState(entry.getKey(), new ArrayList<>(entry.getValue().values())));
+            }
+            state = snapshot;
+        }
         return state;
     }
 
     @Override
-    public void loadState(@NotNull State state) {
-        this.state = state;
+    public synchronized long getStateModificationCount() {
+        return modificationCount;
     }
 
-    public List<StockItemState> getStocks() {
-        return Collections.unmodifiableList(state.stocks);
+    @Override
+    public synchronized void loadState(@NotNull State loaded) {
+        groups.clear();
+        groups.put(DEFAULT_GROUP, new LinkedHashMap<>());
+        for (GroupState group : loaded.groups) {
+            if (group.name == null || group.name.isBlank()) {
+                continue;
+            }
+            LinkedHashMap<String, StockItemState> entries = groups.computeIfAbsent(group.name, k -> new LinkedHashMap<>());
+            for (StockItemState stock : group.stocks) {
+                // 清理无效数据（包含.SZ/.SH后缀的错误代码和空值）
+                if (isValid(stock.name, stock.code)) {
+                    entries.putIfAbsent(stock.code, stock);
+                }
+            }
+        }
+        state = null;
     }
 
-    public void addStock(String name, String code) {
-        // 数据验证，拒绝无效数据
-        if (code == null || code.isBlank() || 
-            code.contains(".SZ") || code.contains(".SH") ||
-            name == null || name.isBlank() || name.equals("未找到结果")) {
-            return;
-        }
-        
-        state.stocks.add(new StockItemState(name, code));
+    /**
+     * 登记修改通知，parent 释放时自动注销；回调在修改所在的线程中调用
+     */
+    public void addChangeListener(@NotNull Disposable parent, @NotNull Runnable listener) {
+        changeListeners.add(listener);
+        Disposer.register(parent, () -> changeListeners.remove(listener));
     }
 
-    public void removeStock(int index) {
-        if (index >= 0 && index < state.stocks.size()) {
-            state.stocks.remove(index);
+    /**
+     * 一批修改，只能在 {@link #update} 的回调中使用
+     */
+    public final class Batch {
+        private boolean changed;
+
+        private Batch() {
+        }
+
+        /**
+         * 添加到分组末尾，分组不存在时自动创建；无效数据或已在分组中的代码被忽略
+         */
+        public void addStock(String group, String name, String code) {
+            if (group == null || group.isBlank() || !isValid(name, code)) {
+                return;
+            }
+            if (groups.computeIfAbsent(group, k -> new LinkedHashMap<>())
+                    .putIfAbsent(code, new StockItemState(name, code)) == null) {
+                changed = true;
+            }
+        }
+
+        /**
+         * 合并其他来源的条目（连同持仓），分组中已有该代码时保留原条目
+         */
+        public void mergeStock(String group, StockItemState stock) {
+            if (group == null || group.isBlank() || stock == null || !isValid(stock.name, stock.code)) {
+                return;
+            }
+            if (groups.computeIfAbsent(group, k -> new LinkedHashMap<>())
+                    .putIfAbsent(stock.code, new StockItemState(stock)) == null) {
+                changed = true;
+            }
+        }
+
+        public void removeStock(String group, String code) {
+            LinkedHashMap<String, StockItemState> entries = group == null ? null : groups.get(group);
+            if (entries != null && code != null && entries.remove(code) != null) {
+                changed = true;
+            }
+        }
+
+        /**
+         * 设置持仓，shares 为 0 时视为清仓
+         */
+        public void setPosition(String group, String code, long shares, double costPrice) {
+            LinkedHashMap<String, StockItemState> entries = group == null ? null : groups.get(group);
+            StockItemState stock = entries == null || code == null ? null : entries.get(code);
+            if (stock == null) {
+                return;
+            }
+            long newShares = Math.max(0, shares);
+            double newCostPrice = newShares > 0 ? Math.max(0, costPrice) : 0;
+            if (stock.shares != newShares || stock.costPrice != newCostPrice) {
+                // 换成新条目，已交给面板或正在序列化的旧条目不受影响
+                StockItemState updated = new StockItemState(stock);
+                updated.shares = newShares;
+                updated.costPrice = newCostPrice;
+                entries.put(code, updated);
+                changed = true;
+            }
+        }
+
+        /**
+         * 新建空分组，已存在时忽略
+         */
+        public void addGroup(String group) {
+            if (group != null && !group.isBlank() && !groups.containsKey(group)) {
+                groups.put(group, new LinkedHashMap<>());
+                changed = true;
+            }
+        }
+
+        /**
+         * 删除分组及其中的自选股，默认分组不可删除；正在显示该分组的项目改为显示默认分组
+         */
+        public void removeGroup(String group) {
+            if (group != null && !DEFAULT_GROUP.equals(group) && groups.remove(group) != null) {
+                changed = true;
+            }
         }
     }
 
     /**
-     * 根据股票代码删除
+     * 在一次状态变化中完成一批修改，批量增删时保存流程只需序列化一次，各面板也只收到一次通知
      */
-    public void removeStockByCode(String code) {
-        if (code == null) {
-            return;
+    public void update(Consumer<Batch> edits) {
+        synchronized (this) {
+            Batch batch = new Batch();
+            edits.accept(batch);
+            if (!batch.changed) {
+                return;
+            }
+            modificationCount++;
+            state = null;
+        }
+        for (Runnable listener : changeListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                LOG.warn("自选列表修改通知失败", e);
+            }
         }
-        state.stocks.removeIf(stock -> code.equals(stock.code));
     }
 
     /**
-     * 检查股票是否已在自选列表中
+     * 数据验证，拒绝无效数据（包含.SZ/.SH后缀的错误代码和空值）
      */
-    public boolean containsStock(String code) {
-        if (code == null) {
-            return false;
-        }
-        return state.stocks.stream().anyMatch(stock -> code.equals(stock.code));
+    private static boolean isValid(String name, String code) {
+        return code != null && !code.isBlank()
+                && !code.contains(".SZ") && !code.contains(".SH")
+                && name != null && !name.isBlank() && !name.equals("未找到结果");
+    }
+
+    public synchronized List<String> getGroupNames() {
+        return List.copyOf(groups.keySet());
+    }
+
+    public synchronized boolean hasGroup(String group) {
+        return group != null && groups.containsKey(group);
+    }
+
+    /**
+     * 分组中自选股的快照，按添加顺序排列；分组不存在时为空
+     */
+    public synchronized List<StockItemState> getStocks(String group) {
+        LinkedHashMap<String, StockItemState> entries = group == null ? null : groups.get(group);
+        return entries == null ? List.of() : List.copyOf(entries.values());
     }
 
     /**
-     * 清理无效数据（移除包含.SZ/.SH后缀的错误代码和空值）
+     * 检查股票是否已在分组中
      */
-    public void cleanupInvalidData() {
-        state.stocks.removeIf(stock -> 
-            stock.code == null || 
-            stock.code.isBlank() || 
-            stock.code.contains(".SZ") || 
-            stock.code.contains(".SH") ||
-            stock.name == null ||
-            stock.name.isBlank() ||
-            stock.name.equals("未找到结果")
-        );
+    public synchronized boolean containsStock(String group, String code) {
+        LinkedHashMap<String, StockItemState> entries = group == null ? null : groups.get(group);
+        return entries != null && code != null && entries.containsKey(code);
     }
 }
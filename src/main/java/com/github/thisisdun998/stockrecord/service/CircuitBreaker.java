@@ -0,0 +1,132 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 单个数据源的熔断器
+ * <p>
+ * 连续失败达到阈值后断开，断开期间不再向该数据源发请求；到期后只放行一个试探请求，
+ * 成功则恢复，失败则再次断开并把断开时间加倍，直到上限。
+ */
+final class CircuitBreaker {
+
+    private static final Logger LOG = Logger.getInstance(CircuitBreaker.class);
+
+    static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    static final long DEFAULT_MIN_OPEN_MILLIS = 30_000;
+    static final long DEFAULT_MAX_OPEN_MILLIS = 5 * 60_000;
+
+    enum State {
+        /** 正常放行 */
+        CLOSED,
+        /** 已断开，拒绝请求 */
+        OPEN,
+        /** 断开到期，只放行一个试探请求 */
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long minOpenMillis;
+    private final long maxOpenMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openMillis;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    CircuitBreaker(String name) {
+        this(name, DEFAULT_FAILURE_THRESHOLD, DEFAULT_MIN_OPEN_MILLIS, DEFAULT_MAX_OPEN_MILLIS);
+    }
+
+    /**
+     * @param failureThreshold 断开前允许的连续失败次数
+     * @param minOpenMillis 首次断开的时长
+     * @param maxOpenMillis 断开时长的上限
+     */
+    CircuitBreaker(String name, int failureThreshold, long minOpenMillis, long maxOpenMillis) {
+        this(name, failureThreshold, minOpenMillis, maxOpenMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 当前时间（毫秒），测试中可替换
+     */
+    CircuitBreaker(String name, int failureThreshold, long minOpenMillis, long maxOpenMillis, LongSupplier clock) {
+        this.name = name;
+        this.clock = clock;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.minOpenMillis = minOpenMillis;
+        this.maxOpenMillis = Math.max(minOpenMillis, maxOpenMillis);
+        this.openMillis = minOpenMillis;
+    }
+
+    /**
+     * 申请发出一个请求，获准后必须以 {@link #onSuccess}、{@link #onFailure} 或 {@link #onCancel} 之一结束
+     * @return 熔断器断开、或试探请求尚未结束时返回 false
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (clock.getAsLong() < openUntil) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            LOG.info("行情源 " + name + " 熔断到期，发送试探请求");
+        } else if (trialInFlight) {
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            LOG.info("行情源 " + name + " 已恢复");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openMillis = minOpenMillis;
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        switch (state) {
+            case CLOSED -> {
+                if (++consecutiveFailures >= failureThreshold) {
+                    open();
+                }
+            }
+            case HALF_OPEN -> {
+                openMillis = Math.min(maxOpenMillis, openMillis * 2);
+                open();
+            }
+            // 断开前发出的请求迟到的失败，不延长断开时间
+            case OPEN -> {
+            }
+        }
+    }
+
+    /**
+     * 请求被调用方取消，既不算成功也不算失败；取消的是试探请求时允许下一个请求重新试探
+     */
+    synchronized void onCancel() {
+        trialInFlight = false;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        trialInFlight = false;
+        openUntil = clock.getAsLong() + openMillis;
+        LOG.warn("行情源 " + name + " 连续失败，熔断 " + openMillis / 1000 + " 秒");
+    }
+}
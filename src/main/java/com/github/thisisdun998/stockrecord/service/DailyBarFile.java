@@ -0,0 +1,142 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * 单个代码的日 K 线本地文件，按列存放
+ * <p>
+ * 文件格式（小端）：
+ * <pre>
+ * int    MAGIC
+ * int    VERSION
+ * int    K 线数量 n
+ * int[n]    日期 yyyyMMdd
+ * double[n] 开盘价
+ * double[n] 最高价
+ * double[n] 最低价
+ * double[n] 收盘价
+ * long[n]   成交量（股）
+ * </pre>
+ */
+final class DailyBarFile {
+
+    private static final Logger LOG = Logger.getInstance(DailyBarFile.class);
+    private static final int MAGIC = 0x5352444B; // "SRDK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    /** 每根 K 线占用的字节数：日期 4 字节，其余字段各 8 字节 */
+    private static final int BYTES_PER_BAR = 4 + 8 * 5;
+
+    private final Path directory;
+
+    DailyBarFile(Path directory) {
+        this.directory = directory;
+    }
+
+    static Path defaultDirectory() {
+        return Path.of(PathManager.getSystemPath(), "stock-record", "kline");
+    }
+
+    /**
+     * 读取某个代码的日 K 线
+     * @return 文件不存在或内容损坏时返回 null
+     */
+    @Nullable
+    DailyBars read(String code) {
+        Path path = pathOf(code);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) fileSize).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            int count = buffer.getInt();
+            if (count < 0 || fileSize != HEADER_SIZE + (long) count * BYTES_PER_BAR) {
+                return null;
+            }
+            int[] dates = new int[count];
+            double[] opens = new double[count];
+            double[] highs = new double[count];
+            double[] lows = new double[count];
+            double[] closes = new double[count];
+            long[] volumes = new long[count];
+            buffer.asIntBuffer().get(dates);
+            buffer.position(buffer.position() + count * 4);
+            for (double[] column : new double[][]{opens, highs, lows, closes}) {
+                buffer.asDoubleBuffer().get(column);
+                buffer.position(buffer.position() + count * 8);
+            }
+            buffer.asLongBuffer().get(volumes);
+            return new DailyBars(dates, opens, highs, lows, closes, volumes, count);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("读取日 K 线缓存失败: " + path, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入某个代码的日 K 线，先写临时文件再替换
+     */
+    void write(String code, DailyBars bars) {
+        int count = bars.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * BYTES_PER_BAR).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count);
+        buffer.asIntBuffer().put(bars.dates(), 0, count);
+        buffer.position(buffer.position() + count * 4);
+        for (double[] column : new double[][]{bars.opens(), bars.highs(), bars.lows(), bars.closes()}) {
+            buffer.asDoubleBuffer().put(column, 0, count);
+            buffer.position(buffer.position() + count * 8);
+        }
+        buffer.asLongBuffer().put(bars.volumes(), 0, count);
+        buffer.position(buffer.capacity());
+        buffer.flip();
+
+        Path path = pathOf(code);
+        try {
+            Files.createDirectories(directory);
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOG.warn("保存日 K 线缓存失败: " + path, e);
+        }
+    }
+
+    private Path pathOf(String code) {
+        // 代码只保留字母、数字和点，避免生成非法文件名
+        String name = code.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9.]", "_");
+        return directory.resolve(name + ".bin");
+    }
+}
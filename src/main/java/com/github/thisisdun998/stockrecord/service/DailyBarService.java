@@ -0,0 +1,160 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 日 K 线服务
+ * <p>
+ * 每个代码的日 K 线保存在本地列式文件中，并在内存中缓存。
+ * 本地最后一根 K 线不早于最近一个已收盘的交易日时直接返回，不发起网络请求；
+ * 否则只请求缺少的交易日（多请求一天，覆盖旧版本保存的未收盘 K 线），合并后写回文件。
+ * 接口返回的当日未收盘 K 线会被丢弃，内存和文件中只保存已收盘的交易日，收盘后再次打开时重新获取。
+ * 请求失败时返回本地已有的数据，{@link #RETRY_DELAY_MILLIS} 之后再次打开时重试。
+ */
+@Service(Service.Level.APP)
+public final class DailyBarService {
+
+    /** 本地没有数据时首次获取的交易日数，约一年 */
+    private static final int INITIAL_BAR_COUNT = 250;
+    /** 请求失败后，多久之内不再重试 */
+    static final long RETRY_DELAY_MILLIS = 30_000;
+
+    private final DailyBarFile file;
+    private final Supplier<StockService> stockService;
+    private final Supplier<TradingCalendar> calendar;
+    private final Clock clock;
+    private final Executor executor;
+    private final Map<String, DailyBars> cache = new ConcurrentHashMap<>();
+    /** 同一代码同时只有一次加载在进行 */
+    private final Map<String, CompletableFuture<DailyBars>> loading = new ConcurrentHashMap<>();
+    /**
+     * 每个代码已向网络确认过的最近交易日，停牌时本地 K 线会落后，避免每次打开都重新请求；
+     * 数据源不支持的代码（港股）同样记录，到下一个交易日收盘后再判断
+     */
+    private final Map<String, Integer> checkedThrough = new ConcurrentHashMap<>();
+    /** 请求失败的代码在此时刻（毫秒）之前不再重试 */
+    private final Map<String, Long> retryAfter = new ConcurrentHashMap<>();
+
+    public DailyBarService() {
+        this(new DailyBarFile(DailyBarFile.defaultDirectory()),
+                () -> StockQuoteHub.getInstance().getStockService(),
+                () -> StockQuoteHub.getInstance().getTradingCalendar(),
+                Clock.system(TradingCalendar.EXCHANGE_ZONE),
+                StockRecordExecutors.blocking());
+    }
+
+    /**
+     * @param clock 判断最近收盘的交易日与重试时间，测试中可替换
+     */
+    DailyBarService(DailyBarFile file, Supplier<StockService> stockService, Supplier<TradingCalendar> calendar,
+                    Clock clock, Executor executor) {
+        this.file = file;
+        this.stockService = stockService;
+        this.calendar = calendar;
+        this.clock = clock;
+        this.executor = executor;
+    }
+
+    public static DailyBarService getInstance() {
+        return ApplicationManager.getApplication().getService(DailyBarService.class);
+    }
+
+    /**
+     * 获取某个代码的日 K 线，本地数据已是最新时不发起网络请求
+     * @return 按日期升序，获取失败且本地没有数据时为空序列
+     */
+    public CompletableFuture<DailyBars> getDailyBars(@NotNull String code) {
+        DailyBars cached = cache.get(code);
+        if (cached != null && isUpToDate(code, cached)) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<DailyBars> created = new CompletableFuture<>();
+        CompletableFuture<DailyBars> existing = loading.putIfAbsent(code, created);
+        if (existing != null) {
+            return existing;
+        }
+        executor.execute(() -> {
+            DailyBars bars = null;
+            Throwable failure = null;
+            try {
+                bars = load(code);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            // 先移除进行中的标记再完成，回调中再次获取时会重新判断是否需要加载
+            loading.remove(code, created);
+            if (failure != null) {
+                created.completeExceptionally(failure);
+            } else {
+                created.complete(bars);
+            }
+        });
+        return created;
+    }
+
+    private DailyBars load(String code) {
+        DailyBars bars = cache.get(code);
+        if (bars == null) {
+            bars = file.read(code);
+        }
+        if (bars == null) {
+            bars = DailyBars.EMPTY;
+        }
+        if (!isUpToDate(code, bars)) {
+            int expected = TickBatch.toDate(lastClosedTradingDay(code));
+            StockService service = stockService.get();
+            if (!service.supportsDailyBars(code)) {
+                checkedThrough.put(code, expected);
+            } else {
+                DailyBars fetched = service.fetchDailyBars(code, missingBarCount(code, bars));
+                if (fetched == null) {
+                    // 请求或解析失败，稍后重试，期间返回本地已有的数据
+                    retryAfter.put(code, clock.millis() + RETRY_DELAY_MILLIS);
+                } else {
+                    retryAfter.remove(code);
+                    checkedThrough.put(code, expected);
+                    // 盘中请求时接口会返回当日未收盘的 K 线，不能当作已收盘的数据保存
+                    fetched = fetched.through(expected);
+                    if (!fetched.isEmpty()) {
+                        bars = bars.merge(fetched);
+                        file.write(code, bars);
+                    }
+                }
+            }
+        }
+        cache.put(code, bars);
+        return bars;
+    }
+
+    private boolean isUpToDate(String code, DailyBars bars) {
+        int expected = TickBatch.toDate(lastClosedTradingDay(code));
+        return (!bars.isEmpty() && bars.getLastDate() >= expected)
+                || checkedThrough.getOrDefault(code, 0) >= expected
+                || clock.millis() < retryAfter.getOrDefault(code, 0L);
+    }
+
+    private int missingBarCount(String code, DailyBars bars) {
+        if (bars.isEmpty()) {
+            return INITIAL_BAR_COUNT;
+        }
+        LocalDate last = TickBatch.fromDate(bars.getLastDate());
+        int missing = calendar.get().tradingDaysBetween(TradingCalendar.Market.ofCode(code), last, lastClosedTradingDay(code));
+        return Math.min(INITIAL_BAR_COUNT, missing + 1);
+    }
+
+    private LocalDate lastClosedTradingDay(String code) {
+        return calendar.get().lastClosedTradingDay(
+                TradingCalendar.Market.ofCode(code), ZonedDateTime.now(clock));
+    }
+}
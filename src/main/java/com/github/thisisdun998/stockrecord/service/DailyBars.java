@@ -0,0 +1,151 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.util.Arrays;
+
+/**
+ * 日 K 线序列，按日期升序，各字段分别存放在基本类型数组中
+ */
+public final class DailyBars {
+
+    public static final DailyBars EMPTY = new DailyBars(new int[0], new double[0], new double[0],
+            new double[0], new double[0], new long[0], 0);
+
+    private final int[] dates;
+    private final double[] opens;
+    private final double[] highs;
+    private final double[] lows;
+    private final double[] closes;
+    private final long[] volumes;
+    private final int size;
+
+    public DailyBars(int[] dates, double[] opens, double[] highs, double[] lows, double[] closes,
+                     long[] volumes, int size) {
+        this.dates = dates;
+        this.opens = opens;
+        this.highs = highs;
+        this.lows = lows;
+        this.closes = closes;
+        this.volumes = volumes;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 第 i 根 K 线的日期 yyyyMMdd
+     */
+    public int getDate(int i) {
+        return dates[i];
+    }
+
+    public double getOpen(int i) {
+        return opens[i];
+    }
+
+    public double getHigh(int i) {
+        return highs[i];
+    }
+
+    public double getLow(int i) {
+        return lows[i];
+    }
+
+    public double getClose(int i) {
+        return closes[i];
+    }
+
+    /**
+     * 成交量（股）
+     */
+    public long getVolume(int i) {
+        return volumes[i];
+    }
+
+    /**
+     * 最后一根 K 线的日期，没有数据时返回 0
+     */
+    public int getLastDate() {
+        return size == 0 ? 0 : dates[size - 1];
+    }
+
+    /**
+     * 用 newer 中的数据覆盖本序列中相同及之后的日期，返回合并后的新序列
+     */
+    public DailyBars merge(DailyBars newer) {
+        if (newer.size == 0) {
+            return this;
+        }
+        int keep = 0;
+        while (keep < size && dates[keep] < newer.dates[0]) {
+            keep++;
+        }
+        int total = keep + newer.size;
+        return new DailyBars(
+                concat(dates, keep, newer.dates, newer.size, total),
+                concat(opens, keep, newer.opens, newer.size, total),
+                concat(highs, keep, newer.highs, newer.size, total),
+                concat(lows, keep, newer.lows, newer.size, total),
+                concat(closes, keep, newer.closes, newer.size, total),
+                concat(volumes, keep, newer.volumes, newer.size, total),
+                total);
+    }
+
+    /**
+     * 只保留日期不晚于 lastDate 的部分，返回的序列与本序列共用数组
+     */
+    public DailyBars through(int lastDate) {
+        int keep = size;
+        while (keep > 0 && dates[keep - 1] > lastDate) {
+            keep--;
+        }
+        return keep == size ? this : new DailyBars(dates, opens, highs, lows, closes, volumes, keep);
+    }
+
+    int[] dates() {
+        return dates;
+    }
+
+    double[] opens() {
+        return opens;
+    }
+
+    double[] highs() {
+        return highs;
+    }
+
+    double[] lows() {
+        return lows;
+    }
+
+    double[] closes() {
+        return closes;
+    }
+
+    long[] volumes() {
+        return volumes;
+    }
+
+    private static int[] concat(int[] head, int headLength, int[] tail, int tailLength, int total) {
+        int[] result = Arrays.copyOf(head, total);
+        System.arraycopy(tail, 0, result, headLength, tailLength);
+        return result;
+    }
+
+    private static double[] concat(double[] head, int headLength, double[] tail, int tailLength, int total) {
+        double[] result = Arrays.copyOf(head, total);
+        System.arraycopy(tail, 0, result, headLength, tailLength);
+        return result;
+    }
+
+    private static long[] concat(long[] head, int headLength, long[] tail, int tailLength, int total) {
+        long[] result = Arrays.copyOf(head, total);
+        System.arraycopy(tail, 0, result, headLength, tailLength);
+        return result;
+    }
+}
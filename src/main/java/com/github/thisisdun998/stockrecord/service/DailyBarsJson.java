@@ -0,0 +1,133 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 新浪日 K 线接口返回的 K 线
+ * <p>
+ * 格式为 [{"day":"2026-10-16","open":"1700.000","high":"...","low":"...","close":"...","volume":"123456"},...]。
+ * 通过 {@link JsonObjectArray} 边读取响应边解析，各字段直接写入基本类型数组；缺少字段或数值无法解析的 K 线被跳过。
+ */
+final class DailyBarsJson {
+
+    private static final String[] KEYS = {"day", "open", "high", "low", "close", "volume"};
+    private static final int DAY = 0;
+    private static final int OPEN = 1;
+    private static final int HIGH = 2;
+    private static final int LOW = 3;
+    private static final int CLOSE = 4;
+    private static final int VOLUME = 5;
+
+    private DailyBarsJson() {
+    }
+
+    /**
+     * 读取并解析，不关闭输入流
+     * @param expectedSize 预计的 K 线数量，用于预分配数组
+     * @return 顶层不是数组时（例如代码不存在时返回的 null）为 null
+     * @throws JsonObjectArray.FormatException JSON 格式错误
+     * @throws IOException 读取失败
+     */
+    static DailyBars parse(InputStream in, int expectedSize) throws IOException {
+        return parse(new InputStreamReader(in, StandardCharsets.UTF_8), expectedSize);
+    }
+
+    static DailyBars parse(Reader reader, int expectedSize) throws IOException {
+        Columns columns = new Columns(Math.max(1, expectedSize));
+        return JsonObjectArray.parse(reader, KEYS, columns) ? columns.build() : null;
+    }
+
+    /**
+     * 按列写入的 K 线，容量不足时翻倍
+     */
+    private static final class Columns implements JsonObjectArray.RowSink {
+        private int[] dates;
+        private double[] opens;
+        private double[] highs;
+        private double[] lows;
+        private double[] closes;
+        private long[] volumes;
+        private int size;
+
+        Columns(int capacity) {
+            dates = new int[capacity];
+            opens = new double[capacity];
+            highs = new double[capacity];
+            lows = new double[capacity];
+            closes = new double[capacity];
+            volumes = new long[capacity];
+        }
+
+        @Override
+        public void row(CharSequence[] values) {
+            for (CharSequence value : values) {
+                if (value == null) {
+                    return;
+                }
+            }
+            int date = parseDate(values[DAY]);
+            if (date < 0) {
+                return;
+            }
+            double open;
+            double high;
+            double low;
+            double close;
+            long volume;
+            try {
+                open = Double.parseDouble(values[OPEN].toString());
+                high = Double.parseDouble(values[HIGH].toString());
+                low = Double.parseDouble(values[LOW].toString());
+                close = Double.parseDouble(values[CLOSE].toString());
+                volume = (long) Double.parseDouble(values[VOLUME].toString());
+            } catch (NumberFormatException e) {
+                // 跳过格式不正确的 K 线
+                return;
+            }
+            if (size == dates.length) {
+                int capacity = size * 2;
+                dates = Arrays.copyOf(dates, capacity);
+                opens = Arrays.copyOf(opens, capacity);
+                highs = Arrays.copyOf(highs, capacity);
+                lows = Arrays.copyOf(lows, capacity);
+                closes = Arrays.copyOf(closes, capacity);
+                volumes = Arrays.copyOf(volumes, capacity);
+            }
+            dates[size] = date;
+            opens[size] = open;
+            highs[size] = high;
+            lows[size] = low;
+            closes[size] = close;
+            volumes[size] = volume;
+            size++;
+        }
+
+        DailyBars build() {
+            return new DailyBars(dates, opens, highs, lows, closes, volumes, size);
+        }
+
+        /**
+         * yyyy-MM-dd 转为 yyyyMMdd
+         * @return 不是 8 位数字时为 -1
+         */
+        private static int parseDate(CharSequence day) {
+            int date = 0;
+            int digits = 0;
+            for (int i = 0; i < day.length(); i++) {
+                char c = day.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    date = date * 10 + (c - '0');
+                    digits++;
+                } else if (c != '-') {
+                    return -1;
+                }
+            }
+            return digits == 8 ? date : -1;
+        }
+    }
+}
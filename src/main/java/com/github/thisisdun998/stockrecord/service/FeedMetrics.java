@@ -0,0 +1,240 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 行情接口的请求统计
+ * <p>
+ * 每个接口记录请求数、失败数、解析错误数、接收字节数与耗时分布。
+ * 耗时按固定的毫秒区间计数，记录时只做原子加法，不分配对象；分位数按区间上界估算。
+ */
+public final class FeedMetrics {
+
+    /** 耗时区间的上界（毫秒），最后一个区间没有上界 */
+    private static final long[] BUCKET_BOUNDS_MILLIS = {5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private final List<Endpoint> endpoints = new CopyOnWriteArrayList<>();
+
+    /**
+     * 获取或注册一个接口，返回的对象应保存下来重复使用
+     */
+    public synchronized Endpoint endpoint(String name) {
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.name.equals(name)) {
+                return endpoint;
+            }
+        }
+        Endpoint endpoint = new Endpoint(name);
+        endpoints.add(endpoint);
+        return endpoint;
+    }
+
+    /**
+     * 所有接口当前的统计，按注册顺序排列
+     */
+    public List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            result.add(endpoint.snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * 每个接口一行的统计摘要，用于写入日志
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder("行情接口统计");
+        for (Snapshot s : snapshot()) {
+            sb.append("\n  ").append(s);
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        endpoints.forEach(Endpoint::reset);
+    }
+
+    /**
+     * 单个接口的计数器
+     */
+    public static final class Endpoint {
+        private final String name;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder parseErrors = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+
+        private Endpoint(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 记录一次成功的请求
+         * @param nanos 从发出请求到收到完整响应的耗时
+         * @param byteCount 响应体字节数
+         */
+        public void recordSuccess(long nanos, long byteCount) {
+            record(nanos);
+            bytes.add(byteCount);
+        }
+
+        /**
+         * 记录一次失败的请求，包括非 200 响应与超时
+         */
+        public void recordFailure(long nanos, long byteCount) {
+            record(nanos);
+            failures.increment();
+            bytes.add(byteCount);
+        }
+
+        /**
+         * 记录解析失败的条目数
+         */
+        public void recordParseErrors(int count) {
+            if (count > 0) {
+                parseErrors.add(count);
+            }
+        }
+
+        private void record(long nanos) {
+            requests.increment();
+            totalNanos.add(nanos);
+            buckets.incrementAndGet(bucketOf(nanos));
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        private static int bucketOf(long nanos) {
+            long millis = nanos / 1_000_000;
+            int i = 0;
+            while (i < BUCKET_BOUNDS_MILLIS.length && millis >= BUCKET_BOUNDS_MILLIS[i]) {
+                i++;
+            }
+            return i;
+        }
+
+        private void reset() {
+            requests.reset();
+            failures.reset();
+            parseErrors.reset();
+            bytes.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+        }
+
+        private Snapshot snapshot() {
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return new Snapshot(name, requests.sum(), failures.sum(), parseErrors.sum(), bytes.sum(),
+                    totalNanos.sum(), maxNanos.get(), counts);
+        }
+    }
+
+    /**
+     * 某一时刻的统计，各计数器分别读取，彼此之间不保证严格一致
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final long requests;
+        private final long failures;
+        private final long parseErrors;
+        private final long bytes;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] buckets;
+
+        Snapshot(String name, long requests, long failures, long parseErrors, long bytes,
+                 long totalNanos, long maxNanos, long[] buckets) {
+            this.name = name;
+            this.requests = requests;
+            this.failures = failures;
+            this.parseErrors = parseErrors;
+            this.bytes = bytes;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getParseErrors() {
+            return parseErrors;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getMeanMillis() {
+            return requests == 0 ? 0 : totalNanos / 1e6 / requests;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos / 1e6;
+        }
+
+        /**
+         * 分位数所在区间的上界（毫秒），落在最后一个区间时返回最大耗时
+         * @param quantile 0 到 1 之间
+         */
+        public double getPercentileMillis(double quantile) {
+            long total = 0;
+            for (long count : buckets) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_MILLIS.length
+                            ? Math.min(BUCKET_BOUNDS_MILLIS[i], getMaxMillis())
+                            : getMaxMillis();
+                }
+            }
+            return getMaxMillis();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%s: 请求 %d，失败 %d，解析错误 %d，接收 %d KB，平均 %.1f ms，P50 %.0f ms，P95 %.0f ms，P99 %.0f ms，最大 %.0f ms",
+                    name, requests, failures, parseErrors, bytes / 1024, getMeanMillis(),
+                    getPercentileMillis(0.5), getPercentileMillis(0.95), getPercentileMillis(0.99), getMaxMillis());
+        }
+    }
+}
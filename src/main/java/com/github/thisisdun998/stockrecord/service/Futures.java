@@ -0,0 +1,53 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * CompletableFuture 的辅助方法
+ */
+final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * 与 thenApply 相同，但取消返回的 future 时同时取消 source；取消不会沿 thenApply 向上传递，
+     * 否则调用方取消后 HTTP 请求仍会继续
+     */
+    static <T, R> CompletableFuture<R> thenApplyCancellable(CompletableFuture<T> source,
+                                                            Function<? super T, ? extends R> fn) {
+        CompletableFuture<R> result = source.thenApply(fn);
+        result.whenComplete((ignored, error) -> {
+            if (result.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 等待结果，失败时返回 fallback；等待被中断时取消 future 并保留中断状态
+     */
+    static <T> T await(CompletableFuture<T> future, T fallback) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (ExecutionException | CancellationException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * 去掉 CompletionException 包装，得到真正的异常
+     */
+    static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
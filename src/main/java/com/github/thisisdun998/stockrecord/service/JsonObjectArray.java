@@ -0,0 +1,336 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 由扁平对象组成的 JSON 数组，例如 [{"dm":"000001","mc":"平安银行"},...]
+ * <p>
+ * 边读取边解析，不保留完整的响应文本。每个对象只取出调用方指定的字段，按行交给 {@link RowSink}，
+ * 由调用方写入各自的列，不为每个对象生成 Map 或字符串。
+ * 字段顺序任意，支持转义字符；字符串与数字都按原文交出，其他字段及任意嵌套的值会被跳过。
+ */
+final class JsonObjectArray {
+
+    private JsonObjectArray() {
+    }
+
+    /**
+     * 响应内容不是合法的 JSON，与读取失败区分，便于分别统计
+     */
+    static final class FormatException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        FormatException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 接收数组中每个对象的字段
+     */
+    interface RowSink {
+        /**
+         * @param values 与 keys 一一对应，对象中缺少、为 null 或为嵌套值的字段为 null；内容只在本次调用期间有效
+         */
+        void row(CharSequence[] values);
+    }
+
+    /**
+     * 读取并解析，不关闭 reader
+     * @param keys 需要的字段名
+     * @return 顶层不是数组时（例如接口返回的错误信息）为 false，不调用 sink
+     * @throws FormatException JSON 格式错误
+     * @throws IOException 读取失败
+     */
+    static boolean parse(Reader reader, String[] keys, RowSink sink) throws IOException {
+        return new Parser(reader, keys, sink).parseArray();
+    }
+
+    /**
+     * 按字符流读取的解析器，只实现对象数组用到的部分
+     */
+    private static final class Parser {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        /** 已读取的字符数，用于错误信息 */
+        private long offset;
+
+        private final StringBuilder text = new StringBuilder(32);
+
+        private final String[] keys;
+        private final RowSink sink;
+        /** 每个字段复用的缓冲区 */
+        private final StringBuilder[] buffers;
+        /** 交给 sink 的一行，缺少的字段为 null */
+        private final CharSequence[] values;
+
+        Parser(Reader reader, String[] keys, RowSink sink) {
+            this.reader = reader;
+            this.keys = keys;
+            this.sink = sink;
+            this.buffers = new StringBuilder[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                buffers[i] = new StringBuilder(16);
+            }
+            this.values = new CharSequence[keys.length];
+        }
+
+        boolean parseArray() throws IOException {
+            int c = nextToken();
+            if (c != '[') {
+                return false;
+            }
+            if (peekToken() == ']') {
+                next();
+                return true;
+            }
+            do {
+                int element = nextToken();
+                if (element == '{') {
+                    parseObject();
+                } else {
+                    unread(element);
+                    skipValue();
+                }
+            } while (expectSeparator(']'));
+            return true;
+        }
+
+        /**
+         * 解析一个对象并交给 sink，左括号已读取
+         */
+        private void parseObject() throws IOException {
+            Arrays.fill(values, null);
+            if (peekToken() == '}') {
+                next();
+                sink.row(values);
+                return;
+            }
+            do {
+                expect('"');
+                readString(text);
+                expect(':');
+                int field = indexOf(text);
+                if (field < 0) {
+                    skipValue();
+                } else {
+                    values[field] = readScalar(buffers[field]) ? buffers[field] : null;
+                }
+            } while (expectSeparator('}'));
+            sink.row(values);
+        }
+
+        /**
+         * 读取字符串或数字的原文
+         * @return 值为 null、true、false 或嵌套值时跳过并返回 false
+         */
+        private boolean readScalar(StringBuilder out) throws IOException {
+            int c = peekToken();
+            if (c == '"') {
+                next();
+                readString(out);
+                return true;
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                out.setLength(0);
+                while (isLiteralChar(peek())) {
+                    out.append((char) next());
+                }
+                return true;
+            }
+            skipValue();
+            return false;
+        }
+
+        private int indexOf(StringBuilder key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (is(key, keys[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 跳过任意一个值
+         */
+        private void skipValue() throws IOException {
+            int c = nextToken();
+            switch (c) {
+                case '"' -> readString(null);
+                case '{' -> {
+                    if (peekToken() == '}') {
+                        next();
+                        return;
+                    }
+                    do {
+                        expect('"');
+                        readString(null);
+                        expect(':');
+                        skipValue();
+                    } while (expectSeparator('}'));
+                }
+                case '[' -> {
+                    if (peekToken() == ']') {
+                        next();
+                        return;
+                    }
+                    do {
+                        skipValue();
+                    } while (expectSeparator(']'));
+                }
+                default -> {
+                    // 数字、true、false、null
+                    if (!isLiteralChar(c)) {
+                        throw error("无法识别的字符 '" + (c < 0 ? "EOF" : String.valueOf((char) c)) + "'");
+                    }
+                    while (isLiteralChar(peek())) {
+                        next();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 读取字符串的其余部分，起始引号已读取
+         * @param out 为 null 时只跳过
+         */
+        private void readString(StringBuilder out) throws IOException {
+            if (out != null) {
+                out.setLength(0);
+            }
+            while (true) {
+                int c = next();
+                if (c == '"') {
+                    return;
+                }
+                if (c < 0) {
+                    throw error("字符串未结束");
+                }
+                if (c == '\\') {
+                    c = readEscape();
+                }
+                if (out != null) {
+                    out.append((char) c);
+                }
+            }
+        }
+
+        private int readEscape() throws IOException {
+            int c = next();
+            return switch (c) {
+                case '"', '\\', '/' -> c;
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                case 't' -> '\t';
+                case 'u' -> {
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(next(), 16);
+                        if (digit < 0) {
+                            throw error("无效的 \\u 转义");
+                        }
+                        value = value * 16 + digit;
+                    }
+                    yield value;
+                }
+                default -> throw error("无效的转义字符");
+            };
+        }
+
+        /**
+         * 读取逗号或结束符
+         * @return 读到逗号时为 true，表示还有下一个元素
+         */
+        private boolean expectSeparator(char end) throws IOException {
+            int c = nextToken();
+            if (c == ',') {
+                return true;
+            }
+            if (c == end) {
+                return false;
+            }
+            throw error("应为 ',' 或 '" + end + "'");
+        }
+
+        private void expect(char expected) throws IOException {
+            if (nextToken() != expected) {
+                throw error("应为 '" + expected + "'");
+            }
+        }
+
+        /**
+         * 跳过空白后读取一个字符
+         */
+        private int nextToken() throws IOException {
+            int c;
+            do {
+                c = next();
+            } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+            return c;
+        }
+
+        /**
+         * 跳过空白后查看下一个字符，不读取
+         */
+        private int peekToken() throws IOException {
+            int c = nextToken();
+            unread(c);
+            return c;
+        }
+
+        private int next() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            offset++;
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+
+        /**
+         * 退回刚读取的字符 c，只能紧跟在 next 之后调用一次；c 为 -1 时不需要退回
+         */
+        private void unread(int c) {
+            if (c >= 0) {
+                position--;
+                offset--;
+            }
+        }
+
+        private boolean fill() throws IOException {
+            int n = reader.read(buffer, 0, buffer.length);
+            if (n <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = n;
+            return true;
+        }
+
+        private FormatException error(String message) {
+            return new FormatException("JSON 格式错误，位置 " + offset + ": " + message);
+        }
+
+        private static boolean isLiteralChar(int c) {
+            return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || c == '-' || c == '+' || c == '.'
+                    || c == 'E';
+        }
+
+        private static boolean is(StringBuilder text, String key) {
+            return text.length() == key.length() && text.indexOf(key) == 0;
+        }
+    }
+}
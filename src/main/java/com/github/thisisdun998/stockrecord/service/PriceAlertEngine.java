@@ -0,0 +1,389 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.PriceAlert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 价格提醒的增量计算
+ * <p>
+ * 规则按代码分组，编译成按阈值排序的 double 数组。每次轮询只计算发生变化的代码：
+ * 价格与涨跌幅从上一次的值移动到本次的值，二分查找出被穿过的阈值区间，只有区间内的规则需要检查；
+ * 区间涨跌用单调队列维护时间窗口内的最高、最低价，再二分查找达到的阈值。计算过程不分配对象。
+ * <p>
+ * 每条规则有一个待触发标记：触发后清除，值回到阈值另一侧后才恢复，价格停在阈值之外不会重复提醒。
+ * 规则的第一条行情只用于确定标记，已经满足条件的规则不触发。
+ * <p>
+ * {@link #setAlerts} 可在任意线程调用，规则不变的代码保留原有状态；{@link #evaluate} 只在轮询链中调用。
+ */
+final class PriceAlertEngine {
+
+    /** 按 3 秒一次的行情估算时间窗口内的记录数 */
+    private static final long TICK_INTERVAL_MILLIS = 3_000;
+
+    /**
+     * 提醒回调，在轮询线程中调用
+     */
+    interface Listener {
+        /**
+         * @param changePercent 涨跌幅（%），没有昨收价时为 NaN
+         */
+        void alertTriggered(PriceAlert alert, double price, double changePercent);
+    }
+
+    private final Listener listener;
+    private volatile Map<String, SymbolRules> rules = Collections.emptyMap();
+
+    PriceAlertEngine(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 替换全部规则
+     */
+    void setAlerts(Collection<PriceAlert> alerts) {
+        Map<String, List<PriceAlert>> grouped = new LinkedHashMap<>();
+        for (PriceAlert alert : alerts) {
+            if (alert.getCode() != null && Double.isFinite(alert.getValue())) {
+                grouped.computeIfAbsent(alert.getCode(), k -> new ArrayList<>()).add(alert);
+            }
+        }
+        Map<String, SymbolRules> previous = rules;
+        Map<String, SymbolRules> next = new HashMap<>(grouped.size() * 2);
+        for (Map.Entry<String, List<PriceAlert>> entry : grouped.entrySet()) {
+            SymbolRules existing = previous.get(entry.getKey());
+            next.put(entry.getKey(), existing != null && existing.alerts.equals(entry.getValue())
+                    ? existing
+                    : new SymbolRules(entry.getValue()));
+        }
+        rules = next;
+    }
+
+    /**
+     * 设有提醒的代码
+     */
+    Set<String> getCodes() {
+        return Collections.unmodifiableSet(rules.keySet());
+    }
+
+    /**
+     * 计算一次轮询中发生变化的行情
+     */
+    void evaluate(TickBatch batch) {
+        Map<String, SymbolRules> current = rules;
+        if (current.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < batch.size; i++) {
+            SymbolRules symbol = current.get(batch.codes[i]);
+            if (symbol != null) {
+                symbol.evaluate(batch.dates[i], batch.times[i], batch.prices[i], batch.prevCloses[i], listener);
+            }
+        }
+    }
+
+    /**
+     * 单个代码的全部规则及其状态
+     */
+    private static final class SymbolRules {
+        final List<PriceAlert> alerts;
+        private final Thresholds prices;
+        private final Thresholds changes;
+        private final MoveWindow[] windows;
+        private double lastPrice = Double.NaN;
+        private double lastChange = Double.NaN;
+        private int lastDate;
+
+        SymbolRules(List<PriceAlert> alerts) {
+            this.alerts = List.copyOf(alerts);
+            List<PriceAlert> priceAlerts = new ArrayList<>();
+            List<PriceAlert> changeAlerts = new ArrayList<>();
+            Map<Integer, List<PriceAlert>> moveAlerts = new TreeMap<>();
+            for (PriceAlert alert : alerts) {
+                switch (alert.getType()) {
+                    case PRICE_ABOVE, PRICE_BELOW -> priceAlerts.add(alert);
+                    case CHANGE_ABOVE, CHANGE_BELOW -> changeAlerts.add(alert);
+                    case MOVE_UP, MOVE_DOWN -> moveAlerts.computeIfAbsent(alert.getMinutes(), k -> new ArrayList<>())
+                            .add(alert);
+                }
+            }
+            this.prices = priceAlerts.isEmpty() ? null : new Thresholds(priceAlerts);
+            this.changes = changeAlerts.isEmpty() ? null : new Thresholds(changeAlerts);
+            this.windows = new MoveWindow[moveAlerts.size()];
+            int i = 0;
+            for (Map.Entry<Integer, List<PriceAlert>> entry : moveAlerts.entrySet()) {
+                windows[i++] = new MoveWindow(entry.getKey(), entry.getValue());
+            }
+        }
+
+        void evaluate(int date, long time, double price, double prevClose, Listener listener) {
+            double change = prevClose > 0 ? (price / prevClose - 1) * 100 : Double.NaN;
+            if (prices != null) {
+                prices.cross(lastPrice, price, price, change, listener);
+            }
+            if (changes != null && !Double.isNaN(change)) {
+                // 换日后昨收价变化，涨跌幅不连续，按当前值检查全部规则，待触发标记沿用
+                changes.cross(date == lastDate ? lastChange : Double.NaN, change, price, change, listener);
+            }
+            for (MoveWindow window : windows) {
+                if (date != lastDate) {
+                    window.clear();
+                }
+                window.add(time, price, change, listener);
+            }
+            lastPrice = price;
+            lastChange = change;
+            lastDate = date;
+        }
+    }
+
+    /**
+     * 按阈值升序排列的价格或涨跌幅规则
+     */
+    private static final class Thresholds {
+        private final double[] levels;
+        /** true 表示向上穿过时触发 */
+        private final boolean[] upward;
+        private final PriceAlert[] alerts;
+        /** true 表示规则当前未满足条件，下次满足时触发 */
+        private final boolean[] armed;
+        private boolean initialized;
+
+        Thresholds(List<PriceAlert> list) {
+            PriceAlert[] sorted = list.toArray(new PriceAlert[0]);
+            Arrays.sort(sorted, (a, b) -> Double.compare(a.getValue(), b.getValue()));
+            int n = sorted.length;
+            levels = new double[n];
+            upward = new boolean[n];
+            alerts = sorted;
+            armed = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                levels[i] = sorted[i].getValue();
+                PriceAlert.Type type = sorted[i].getType();
+                upward[i] = type == PriceAlert.Type.PRICE_ABOVE || type == PriceAlert.Type.CHANGE_ABOVE;
+            }
+        }
+
+        /**
+         * 值从 from 移动到 to，更新阈值落在两者之间的规则，触发其中待触发且已满足条件的规则
+         * @param from 上一次的值，NaN 表示不连续（换日后的涨跌幅），此时检查全部规则；
+         *             首次计算只确定待触发标记，不触发
+         */
+        void cross(double from, double to, double price, double change, Listener listener) {
+            if (!initialized) {
+                for (int i = 0; i < levels.length; i++) {
+                    armed[i] = !satisfied(i, to);
+                }
+                initialized = true;
+                return;
+            }
+            int low;
+            int high;
+            if (Double.isNaN(from)) {
+                low = 0;
+                high = levels.length;
+            } else if (to > from) {
+                // 阈值在 [from, to] 内的规则可能改变了满足状态，端点处的阈值同样需要检查
+                low = lowerBound(levels, from);
+                high = upperBound(levels, to);
+            } else if (to < from) {
+                low = lowerBound(levels, to);
+                high = upperBound(levels, from);
+            } else {
+                return;
+            }
+            for (int i = low; i < high; i++) {
+                if (!satisfied(i, to)) {
+                    armed[i] = true;
+                } else if (armed[i]) {
+                    armed[i] = false;
+                    listener.alertTriggered(alerts[i], price, change);
+                }
+            }
+        }
+
+        private boolean satisfied(int i, double value) {
+            return upward[i] ? value >= levels[i] : value <= levels[i];
+        }
+    }
+
+    /**
+     * 同一时间窗口的区间涨跌规则
+     * <p>
+     * 最低价与最高价各用一个单调队列维护，每条行情入队、出队各至多一次。
+     * 满足条件的规则总是阈值最小的若干条，记录上一次满足的条数，只触发新增满足的规则；
+     * 条数之外的规则即为待触发，不满足后自然恢复。
+     */
+    private static final class MoveWindow {
+        private final long windowMillis;
+        private final double[] upLevels;
+        private final PriceAlert[] upAlerts;
+        private final double[] downLevels;
+        private final PriceAlert[] downAlerts;
+        private int upSatisfied;
+        private int downSatisfied;
+        private final MonotonicQueue lows;
+        private final MonotonicQueue highs;
+
+        MoveWindow(int minutes, List<PriceAlert> alerts) {
+            this.windowMillis = minutes * 60_000L;
+            List<PriceAlert> up = new ArrayList<>();
+            List<PriceAlert> down = new ArrayList<>();
+            for (PriceAlert alert : alerts) {
+                (alert.getType() == PriceAlert.Type.MOVE_UP ? up : down).add(alert);
+            }
+            up.sort((a, b) -> Double.compare(a.getValue(), b.getValue()));
+            down.sort((a, b) -> Double.compare(a.getValue(), b.getValue()));
+            upAlerts = up.toArray(new PriceAlert[0]);
+            downAlerts = down.toArray(new PriceAlert[0]);
+            upLevels = values(upAlerts);
+            downLevels = values(downAlerts);
+            int capacity = (int) Math.min(4096, windowMillis / TICK_INTERVAL_MILLIS + 2);
+            lows = new MonotonicQueue(capacity, true);
+            highs = new MonotonicQueue(capacity, false);
+        }
+
+        void clear() {
+            lows.clear();
+            highs.clear();
+            upSatisfied = 0;
+            downSatisfied = 0;
+        }
+
+        void add(long time, double price, double change, Listener listener) {
+            long from = time - windowMillis;
+            lows.add(time, price, from);
+            highs.add(time, price, from);
+
+            double rise = (price / lows.first() - 1) * 100;
+            int satisfied = upperBound(upLevels, rise);
+            fire(upAlerts, upSatisfied, satisfied, price, change, listener);
+            upSatisfied = satisfied;
+
+            double fall = (1 - price / highs.first()) * 100;
+            satisfied = upperBound(downLevels, fall);
+            fire(downAlerts, downSatisfied, satisfied, price, change, listener);
+            downSatisfied = satisfied;
+        }
+
+        private static void fire(PriceAlert[] alerts, int from, int to, double price, double change,
+                                 Listener listener) {
+            for (int i = from; i < to; i++) {
+                listener.alertTriggered(alerts[i], price, change);
+            }
+        }
+
+        private static double[] values(PriceAlert[] alerts) {
+            double[] values = new double[alerts.length];
+            for (int i = 0; i < alerts.length; i++) {
+                values[i] = alerts[i].getValue();
+            }
+            return values;
+        }
+    }
+
+    /**
+     * 时间窗口内的单调队列，队首为窗口内的最低价（或最高价），环形数组存放，满时扩容
+     */
+    private static final class MonotonicQueue {
+        private final boolean minimum;
+        private long[] times;
+        private double[] prices;
+        private int head;
+        private int size;
+
+        MonotonicQueue(int capacity, boolean minimum) {
+            this.minimum = minimum;
+            this.times = new long[capacity];
+            this.prices = new double[capacity];
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        /**
+         * 移出早于 from 的记录，再从队尾移出不可能成为极值的记录后加入新记录
+         */
+        void add(long time, double price, long from) {
+            while (size > 0 && times[head] < from) {
+                head = (head + 1) % times.length;
+                size--;
+            }
+            while (size > 0) {
+                double last = prices[(head + size - 1) % prices.length];
+                if (minimum ? last < price : last > price) {
+                    break;
+                }
+                size--;
+            }
+            if (size == times.length) {
+                grow();
+            }
+            int tail = (head + size) % times.length;
+            times[tail] = time;
+            prices[tail] = price;
+            size++;
+        }
+
+        double first() {
+            return prices[head];
+        }
+
+        private void grow() {
+            long[] newTimes = new long[times.length * 2];
+            double[] newPrices = new double[prices.length * 2];
+            for (int i = 0; i < size; i++) {
+                newTimes[i] = times[(head + i) % times.length];
+                newPrices[i] = prices[(head + i) % prices.length];
+            }
+            times = newTimes;
+            prices = newPrices;
+            head = 0;
+        }
+    }
+
+    /**
+     * 第一个大于 value 的下标
+     */
+    private static int upperBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 第一个不小于 value 的下标
+     */
+    private static int lowerBound(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.PriceAlert;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+
+import java.util.Locale;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 把触发的价格提醒显示为 IDE 通知
+ */
+final class PriceAlertNotifier implements PriceAlertEngine.Listener {
+
+    /** 与 plugin.xml 中登记的通知组一致 */
+    static final String NOTIFICATION_GROUP = "Stock Record Alerts";
+
+    private final QuoteSnapshotStore store;
+
+    PriceAlertNotifier(QuoteSnapshotStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void alertTriggered(PriceAlert alert, double price, double changePercent) {
+        String name = null;
+        Lock readLock = store.readLock();
+        readLock.lock();
+        try {
+            int slot = store.slotOf(alert.getCode());
+            if (slot >= 0) {
+                name = store.getName(slot);
+            }
+        } finally {
+            readLock.unlock();
+        }
+        String title = name == null || name.isEmpty() ? alert.getCode() : name + " (" + alert.getCode() + ")";
+        String content = Double.isNaN(changePercent)
+                ? String.format(Locale.ROOT, "%s，现价 %.2f", alert.describe(), price)
+                : String.format(Locale.ROOT, "%s，现价 %.2f，涨跌幅 %.2f%%", alert.describe(), price, changePercent);
+        NotificationGroupManager.getInstance()
+                .getNotificationGroup(NOTIFICATION_GROUP)
+                .createNotification(title, content, NotificationType.INFORMATION)
+                .notify(null);
+    }
+}
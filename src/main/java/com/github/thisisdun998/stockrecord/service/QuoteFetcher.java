@@ -0,0 +1,161 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按分片批量请求行情接口
+ * <p>
+ * 代码以逗号分隔直接拼接在接口地址之后，代码较多时拆成多个请求，限制同时进行的请求数，
+ * 每个请求的耗时与字节数记入 {@link FeedMetrics}。新浪与腾讯的行情接口都是这种形式。
+ */
+final class QuoteFetcher {
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String referer;
+    private final FeedMetrics.Endpoint metrics;
+    private volatile int shardSize;
+    private volatile int maxConcurrentRequests;
+
+    /**
+     * @param baseUrl 接口地址，例如 http://hq.sinajs.cn/list=
+     * @param referer 请求头中的 Referer，不需要时为 null
+     */
+    QuoteFetcher(HttpClient client, String baseUrl, String referer, FeedMetrics.Endpoint metrics,
+                 int shardSize, int maxConcurrentRequests) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.referer = referer;
+        this.metrics = metrics;
+        setSharding(shardSize, maxConcurrentRequests);
+    }
+
+    /**
+     * @param shardSize 每个请求最多包含的代码数
+     * @param maxConcurrentRequests 同时进行的请求数上限
+     */
+    void setSharding(int shardSize, int maxConcurrentRequests) {
+        this.shardSize = Math.max(1, shardSize);
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+    }
+
+    /**
+     * 按分片并发请求，同时进行的请求数不超过上限，一个分片完成后再发出下一个分片
+     * @return 成功的分片的响应体，按分片顺序排列；单个分片失败不影响其他分片，全部失败时以第一个异常完成。
+     *         取消返回的 future 会取消所有未完成的请求
+     */
+    CompletableFuture<List<byte[]>> fetch(List<String> codes, Duration timeout) {
+        int size = shardSize;
+        List<String> urls = new ArrayList<>((codes.size() + size - 1) / size);
+        for (int from = 0; from < codes.size(); from += size) {
+            urls.add(baseUrl + String.join(",", codes.subList(from, Math.min(from + size, codes.size()))));
+        }
+
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            responses.add(new CompletableFuture<>());
+        }
+        AtomicInteger next = new AtomicInteger();
+        Runnable sendNext = new Runnable() {
+            @Override
+            public void run() {
+                int i = next.getAndIncrement();
+                if (i >= urls.size()) {
+                    return;
+                }
+                CompletableFuture<byte[]> response = responses.get(i);
+                if (response.isDone()) {
+                    run(); // 已被取消
+                    return;
+                }
+                CompletableFuture<byte[]> request = sendRequestAsync(urls.get(i), timeout);
+                response.whenComplete((body, error) -> request.cancel(true));
+                request.whenComplete((body, error) -> {
+                    if (error != null) {
+                        response.completeExceptionally(error);
+                    } else {
+                        response.complete(body);
+                    }
+                    run();
+                });
+            }
+        };
+        for (int i = 0; i < Math.min(maxConcurrentRequests, urls.size()); i++) {
+            sendNext.run();
+        }
+
+        CompletableFuture<List<byte[]>> result = CompletableFuture
+                .allOf(responses.stream().map(response -> response.handle((body, error) -> null))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    List<byte[]> bodies = new ArrayList<>(responses.size());
+                    Throwable failure = null;
+                    for (CompletableFuture<byte[]> response : responses) {
+                        try {
+                            byte[] body = response.join();
+                            if (body != null && body.length > 0) {
+                                bodies.add(body);
+                            }
+                        } catch (CompletionException | CancellationException e) {
+                            // 该分片失败，其余分片照常写入
+                            if (failure == null) {
+                                failure = e.getCause() != null ? e.getCause() : e;
+                            }
+                        }
+                    }
+                    if (bodies.isEmpty()) {
+                        throw new CompletionException(failure != null ? failure : new IOException("行情响应为空"));
+                    }
+                    return bodies;
+                });
+        result.whenComplete((bodies, error) -> {
+            if (result.isCancelled()) {
+                responses.forEach(response -> response.cancel(true));
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<byte[]> sendRequestAsync(String url, Duration timeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .GET()
+                .timeout(timeout);
+        if (referer != null) {
+            builder.header("Referer", referer);
+        }
+        HttpRequest request = builder.build();
+
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> sent = client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        sent.whenComplete((response, error) -> {
+            long nanos = System.nanoTime() - start;
+            if (response == null) {
+                // 调用方主动取消不算失败
+                if (!(error instanceof CancellationException)) {
+                    metrics.recordFailure(nanos, 0);
+                }
+            } else if (response.statusCode() == 200) {
+                metrics.recordSuccess(nanos, response.body().length);
+            } else {
+                metrics.recordFailure(nanos, response.body().length);
+            }
+        });
+        return Futures.thenApplyCancellable(sent, response -> {
+            if (response.statusCode() != 200) {
+                throw new CompletionException(new IOException("行情请求失败，HTTP " + response.statusCode()));
+            }
+            return response.body();
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.StockIndex;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 实时行情数据源
+ * <p>
+ * 请求与写入快照分为两步：{@link #fetchAsync} 只下载响应，调用方决定是否写入。
+ * {@link QuoteRouter} 同时向多个数据源请求时，只有最先成功的响应会写入快照。
+ */
+public interface QuoteProvider {
+
+    /**
+     * 数据源名称，用于日志与诊断页
+     */
+    String getName();
+
+    /**
+     * 请求个股与指数行情，不写入快照
+     * @param codes 个股代码，写入时按调用方传入的代码分配槽位
+     * @param indices 指数，写入时按 {@link StockIndex#getSinaCode()} 分配槽位
+     * @param timeout 单个请求的超时
+     * @return 至少有一部分请求成功时完成；全部失败时以异常完成。取消时同时取消未完成的请求
+     */
+    CompletableFuture<Response> fetchAsync(List<String> codes, Collection<StockIndex> indices, Duration timeout);
+
+    /**
+     * 设置分片请求的参数
+     * @param shardSize 每个请求最多包含的代码数
+     * @param maxConcurrentRequests 同时进行的请求数上限
+     */
+    void setSharding(int shardSize, int maxConcurrentRequests);
+
+    /**
+     * 只保留这些个股与指数的解析缓存，其余代码的缓存释放
+     */
+    default void retainCodes(Collection<String> codes, Collection<StockIndex> indices) {
+    }
+
+    /**
+     * 已下载的行情
+     */
+    interface Response {
+        /**
+         * 作为一次批量更新写入快照，会获取快照的写锁
+         */
+        void applyTo(QuoteSnapshotStore store);
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.StockIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一次批量行情请求中的代码
+ * <p>
+ * 新浪与腾讯的接口使用相同的代码写法（sh600519、hk00700，指数简版为 s_sh000001），
+ * 因此同一个请求可以发给任意一个数据源，响应按同样的映射写入快照。
+ */
+final class QuoteRequest {
+
+    /** 发给接口的代码，个股在前、指数在后，不重复 */
+    final List<String> codes;
+    /** 接口代码到用户代码的映射，同一个接口代码可能对应多个用户代码（如 600519 与 sh600519），每个用户代码各占一个槽位 */
+    final Map<String, List<String>> userCodesByCode;
+    /** 按指数简版格式解析的接口代码，同时也是指数的槽位键 */
+    final Set<String> indexCodes;
+
+    private QuoteRequest(List<String> codes, Map<String, List<String>> userCodesByCode, Set<String> indexCodes) {
+        this.codes = codes;
+        this.userCodesByCode = userCodesByCode;
+        this.indexCodes = indexCodes;
+    }
+
+    /**
+     * @param codes 用户输入的个股代码，无法识别的代码被忽略
+     */
+    static QuoteRequest of(Collection<String> codes, Collection<StockIndex> indices) {
+        Map<String, List<String>> userCodesByCode = new LinkedHashMap<>();
+        if (codes != null) {
+            for (String userCode : codes) {
+                String code = SinaStockService.toSinaCode(userCode);
+                if (code != null) {
+                    userCodesByCode.computeIfAbsent(code, k -> new ArrayList<>(1)).add(userCode);
+                }
+            }
+        }
+        Set<String> indexCodes = new LinkedHashSet<>();
+        if (indices != null) {
+            for (StockIndex index : indices) {
+                indexCodes.add(index.getSinaCode());
+            }
+        }
+        List<String> requestCodes = new ArrayList<>(userCodesByCode.size() + indexCodes.size());
+        requestCodes.addAll(userCodesByCode.keySet());
+        requestCodes.addAll(indexCodes);
+        return new QuoteRequest(requestCodes, userCodesByCode, indexCodes);
+    }
+
+    boolean isEmpty() {
+        return codes.isEmpty();
+    }
+}
@@ -0,0 +1,271 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.StockIndex;
+import com.github.thisisdun998.stockrecord.model.StockQuote;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在多个行情源之间路由的行情服务
+ * <p>
+ * 行情请求先发给首选数据源，超过其近期耗时的 P95 仍未返回时，再向下一个数据源发出对冲请求，
+ * 最先成功的响应写入快照，其余请求被取消；某个数据源失败时立即改用下一个。
+ * 每个数据源有独立的熔断器，连续失败的数据源在一段时间内被跳过。
+ * 搜索、日 K 线与股票列表不涉及实时行情，直接交给 delegate。
+ */
+public final class QuoteRouter implements StockService, QuoteProvider {
+
+    private static final Logger LOG = Logger.getInstance(QuoteRouter.class);
+
+    /** 每个数据源保留最近多少次成功请求的耗时 */
+    static final int LATENCY_SAMPLES = 128;
+    /** 样本数不足时使用默认的对冲延迟 */
+    static final int MIN_LATENCY_SAMPLES = 10;
+    static final long DEFAULT_HEDGE_DELAY_MILLIS = 1_000;
+    /** 对冲延迟的下限，避免首选数据源很快时几乎每次都发出对冲请求 */
+    static final long MIN_HEDGE_DELAY_MILLIS = 100;
+
+    private final StockService delegate;
+    private final List<Route> routes;
+
+    /**
+     * @param delegate 处理搜索、日 K 线与股票列表
+     * @param providers 行情源，按优先顺序排列
+     */
+    public QuoteRouter(StockService delegate, List<? extends QuoteProvider> providers) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个行情源");
+        }
+        this.delegate = delegate;
+        List<Route> routes = new ArrayList<>(providers.size());
+        for (QuoteProvider provider : providers) {
+            routes.add(new Route(provider, new CircuitBreaker(provider.getName())));
+        }
+        this.routes = List.copyOf(routes);
+    }
+
+    @Override
+    public String getName() {
+        return "自动切换";
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateSnapshotAsync(List<String> codes, Collection<StockIndex> indices,
+                                                          QuoteSnapshotStore store, Duration timeout) {
+        return Futures.thenApplyCancellable(fetchAsync(codes, indices, timeout), response -> {
+            response.applyTo(store);
+            return true;
+        });
+    }
+
+    /**
+     * @return 最先成功的数据源的响应；所有数据源都失败或都已熔断时以异常完成
+     */
+    @Override
+    public CompletableFuture<Response> fetchAsync(List<String> codes, Collection<StockIndex> indices,
+                                                  Duration timeout) {
+        Hedge hedge = new Hedge(codes, indices, timeout);
+        if (!hedge.launchNext()) {
+            return CompletableFuture.failedFuture(new IOException("所有行情源均已熔断"));
+        }
+        return hedge.result;
+    }
+
+    @Override
+    public void setSharding(int shardSize, int maxConcurrentRequests) {
+        for (Route route : routes) {
+            route.provider.setSharding(shardSize, maxConcurrentRequests);
+        }
+    }
+
+    @Override
+    public void retainCodes(Collection<String> codes, Collection<StockIndex> indices) {
+        for (Route route : routes) {
+            route.provider.retainCodes(codes, indices);
+        }
+    }
+
+    @Override
+    public List<StockQuote> searchStocks(String keyword) {
+        return delegate.searchStocks(keyword);
+    }
+
+    @Override
+    public List<StockQuote> searchStocks(String keyword, String previousKeyword, List<StockQuote> previousResults) {
+        return delegate.searchStocks(keyword, previousKeyword, previousResults);
+    }
+
+    @Override
+    public CompletableFuture<List<StockQuote>> searchStocksAsync(String keyword, String previousKeyword,
+                                                                 List<StockQuote> previousResults) {
+        return delegate.searchStocksAsync(keyword, previousKeyword, previousResults);
+    }
+
+    @Override
+    public DailyBars fetchDailyBars(String code, int count) {
+        return delegate.fetchDailyBars(code, count);
+    }
+
+    @Override
+    public boolean supportsDailyBars(String code) {
+        return delegate.supportsDailyBars(code);
+    }
+
+    @Override
+    public CompletableFuture<Void> refreshStockList() {
+        return delegate.refreshStockList();
+    }
+
+    /**
+     * 一个数据源及其熔断器与耗时统计
+     */
+    static final class Route {
+        final QuoteProvider provider;
+        final CircuitBreaker breaker;
+        /** 最近成功请求的耗时（纳秒），环形写入 */
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private int latencyCount;
+        private int latencyNext;
+
+        Route(QuoteProvider provider, CircuitBreaker breaker) {
+            this.provider = provider;
+            this.breaker = breaker;
+        }
+
+        synchronized void recordLatency(long nanos) {
+            latencies[latencyNext] = nanos;
+            latencyNext = (latencyNext + 1) % LATENCY_SAMPLES;
+            latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+        }
+
+        /**
+         * 等待多久后发出对冲请求：近期耗时的 P95，限制在 [下限, 超时] 之间
+         */
+        long hedgeDelayMillis(Duration timeout) {
+            long p95Millis;
+            synchronized (this) {
+                if (latencyCount < MIN_LATENCY_SAMPLES) {
+                    p95Millis = DEFAULT_HEDGE_DELAY_MILLIS;
+                } else {
+                    long[] sorted = Arrays.copyOf(latencies, latencyCount);
+                    Arrays.sort(sorted);
+                    p95Millis = sorted[(int) Math.ceil(latencyCount * 0.95) - 1] / 1_000_000;
+                }
+            }
+            return Math.min(Math.max(MIN_HEDGE_DELAY_MILLIS, p95Millis), timeout.toMillis());
+        }
+    }
+
+    /**
+     * 一次对冲请求：按优先顺序逐个启动数据源，先成功者胜出
+     */
+    private final class Hedge {
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+        private final List<String> codes;
+        private final Collection<StockIndex> indices;
+        private final Duration timeout;
+        private final List<CompletableFuture<Response>> attempts = new ArrayList<>(routes.size());
+        /** 下一个尝试的数据源 */
+        private int nextRoute;
+        private int failedAttempts;
+        private Throwable firstFailure;
+
+        Hedge(List<String> codes, Collection<StockIndex> indices, Duration timeout) {
+            this.codes = codes;
+            this.indices = indices;
+            this.timeout = timeout;
+            // 结果完成（胜出或被调用方取消）后取消其余请求
+            result.whenComplete((response, error) -> cancelAttempts());
+        }
+
+        /**
+         * 启动下一个熔断器放行的数据源，并安排对冲计时
+         * @return 没有可用的数据源时返回 false
+         */
+        synchronized boolean launchNext() {
+            if (result.isDone()) {
+                return true;
+            }
+            while (nextRoute < routes.size()) {
+                Route route = routes.get(nextRoute++);
+                if (!route.breaker.tryAcquire()) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                CompletableFuture<Response> attempt;
+                try {
+                    attempt = route.provider.fetchAsync(codes, indices, timeout);
+                } catch (RuntimeException e) {
+                    // 同步抛出的异常与失败的 future 一样处理，否则熔断器的试探许可不会释放
+                    attempt = CompletableFuture.failedFuture(e);
+                }
+                attempts.add(attempt);
+                // 已完成的请求在此处同步回调，失败时已在回调中启动了下一个数据源
+                attempt.whenComplete((response, error) -> onAttemptDone(route, start, response, error));
+                if (!attempt.isDone() && nextRoute < routes.size()) {
+                    int launched = attempts.size();
+                    CompletableFuture.delayedExecutor(route.hedgeDelayMillis(timeout), TimeUnit.MILLISECONDS,
+                            StockRecordExecutors.blocking()).execute(() -> hedgeIfStalled(launched));
+                }
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 对冲计时到期时，若期间没有因失败启动新的数据源，且仍未有结果，则启动下一个
+         */
+        private synchronized void hedgeIfStalled(int launched) {
+            if (!result.isDone() && attempts.size() == launched) {
+                if (launchNext()) {
+                    LOG.debug("行情请求超过 P95 未返回，发出对冲请求");
+                }
+            }
+        }
+
+        private void onAttemptDone(Route route, long start, Response response, Throwable error) {
+            if (error == null) {
+                route.recordLatency(System.nanoTime() - start);
+                route.breaker.onSuccess();
+                result.complete(response);
+                return;
+            }
+            if (Futures.unwrap(error) instanceof CancellationException) {
+                // 对冲落败被取消，不计入失败
+                route.breaker.onCancel();
+                return;
+            }
+            route.breaker.onFailure();
+            Throwable failure;
+            synchronized (this) {
+                failedAttempts++;
+                if (firstFailure == null) {
+                    firstFailure = Futures.unwrap(error);
+                }
+                // 立即改用下一个数据源，没有可用的数据源且已启动的都失败时整体失败
+                if (launchNext() || failedAttempts < attempts.size()) {
+                    return;
+                }
+                failure = firstFailure;
+            }
+            result.completeExceptionally(failure);
+        }
+
+        private void cancelAttempts() {
+            List<CompletableFuture<Response>> pending;
+            synchronized (this) {
+                pending = new ArrayList<>(attempts);
+            }
+            pending.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.StockIndex;
+import com.github.thisisdun998.stockrecord.model.StockIndexQuote;
+import com.github.thisisdun998.stockrecord.model.StockQuote;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 一档行情快照的列式存储
+ * <p>
+ * 每个代码分配一个固定的槽位，开盘价、最高、最低、成交量、五档盘口等字段分别存放在按槽位索引的基本类型数组中，
+ * 每个周期原地覆盖，不为每只股票创建对象。槽位一经分配不会移动，
+ * 直到代码不再被订阅时由 {@link #retainCodes} 释放；释放的槽位清空后留给新代码复用，数组不会随历史代码无限增长。
+ * <p>
+ * 写入方（行情服务）持有写锁批量更新，界面读取时需持有 {@link #readLock()}。
+ */
+public final class QuoteSnapshotStore {
+
+    public static final int BOOK_DEPTH = 5;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> slotsByCode = new HashMap<>();
+    private int size;
+    /** 已释放、等待复用的槽位 */
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    /** 每次批量更新递增，槽位的 updateSequences 记录最近一次发生变化的序号 */
+    private long sequence;
+
+    private String[] codes = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private double[] opens = new double[INITIAL_CAPACITY];
+    private double[] prevCloses = new double[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private double[] highs = new double[INITIAL_CAPACITY];
+    private double[] lows = new double[INITIAL_CAPACITY];
+    private long[] volumes = new long[INITIAL_CAPACITY];
+    private double[] turnovers = new double[INITIAL_CAPACITY];
+    /** 五档盘口按 slot * BOOK_DEPTH + level 存放 */
+    private double[] bidPrices = new double[INITIAL_CAPACITY * BOOK_DEPTH];
+    private long[] bidVolumes = new long[INITIAL_CAPACITY * BOOK_DEPTH];
+    private double[] askPrices = new double[INITIAL_CAPACITY * BOOK_DEPTH];
+    private long[] askVolumes = new long[INITIAL_CAPACITY * BOOK_DEPTH];
+    /** 行情日期 yyyyMMdd 与时间 HHmmss */
+    private int[] dates = new int[INITIAL_CAPACITY];
+    private int[] times = new int[INITIAL_CAPACITY];
+    private long[] updateSequences = new long[INITIAL_CAPACITY];
+
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+    Lock writeLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * 查找代码对应的槽位
+     * @return 尚未收到过该代码的行情时返回 -1
+     */
+    public int slotOf(String code) {
+        Integer slot = slotsByCode.get(code);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * 已分配过的槽位数，其中已释放的槽位代码为 null
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 正在使用的槽位数
+     */
+    public int liveCount() {
+        return slotsByCode.size();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * 开始一次批量更新，需持有写锁
+     */
+    long beginUpdate() {
+        return ++sequence;
+    }
+
+    /**
+     * 获取或分配代码对应的槽位，需持有写锁
+     */
+    int slotFor(String code) {
+        Integer slot = slotsByCode.get(code);
+        if (slot != null) {
+            return slot;
+        }
+        if (freeCount > 0) {
+            int reused = freeSlots[--freeCount];
+            codes[reused] = code;
+            slotsByCode.put(code, reused);
+            return reused;
+        }
+        if (size == codes.length) {
+            grow(size * 2);
+        }
+        int created = size++;
+        codes[created] = code;
+        slotsByCode.put(code, created);
+        return created;
+    }
+
+    /**
+     * 释放不在 keep 中的代码的槽位，需持有写锁
+     * <p>
+     * 释放后 {@link #slotOf} 对这些代码返回 -1，再次出现时重新分配槽位（可能与原来不同），
+     * 因此调用方缓存的槽位只对仍在 keep 中的代码有效。
+     * @return 释放的槽位数
+     */
+    int retainCodes(Set<String> keep) {
+        int released = 0;
+        Iterator<Map.Entry<String, Integer>> iterator = slotsByCode.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Integer> entry = iterator.next();
+            if (keep.contains(entry.getKey())) {
+                continue;
+            }
+            iterator.remove();
+            clear(entry.getValue());
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = entry.getValue();
+            released++;
+        }
+        return released;
+    }
+
+    private void clear(int slot) {
+        codes[slot] = null;
+        names[slot] = null;
+        opens[slot] = 0;
+        prevCloses[slot] = 0;
+        prices[slot] = 0;
+        highs[slot] = 0;
+        lows[slot] = 0;
+        volumes[slot] = 0;
+        turnovers[slot] = 0;
+        int book = slot * BOOK_DEPTH;
+        Arrays.fill(bidPrices, book, book + BOOK_DEPTH, 0);
+        Arrays.fill(bidVolumes, book, book + BOOK_DEPTH, 0);
+        Arrays.fill(askPrices, book, book + BOOK_DEPTH, 0);
+        Arrays.fill(askVolumes, book, book + BOOK_DEPTH, 0);
+        dates[slot] = 0;
+        times[slot] = 0;
+        // 复用时首次写入必然产生新的序号，旧的序号不会与之相同
+        updateSequences[slot] = 0;
+    }
+
+    private void grow(int capacity) {
+        codes = Arrays.copyOf(codes, capacity);
+        names = Arrays.copyOf(names, capacity);
+        opens = Arrays.copyOf(opens, capacity);
+        prevCloses = Arrays.copyOf(prevCloses, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        highs = Arrays.copyOf(highs, capacity);
+        lows = Arrays.copyOf(lows, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+        turnovers = Arrays.copyOf(turnovers, capacity);
+        bidPrices = Arrays.copyOf(bidPrices, capacity * BOOK_DEPTH);
+        bidVolumes = Arrays.copyOf(bidVolumes, capacity * BOOK_DEPTH);
+        askPrices = Arrays.copyOf(askPrices, capacity * BOOK_DEPTH);
+        askVolumes = Arrays.copyOf(askVolumes, capacity * BOOK_DEPTH);
+        dates = Arrays.copyOf(dates, capacity);
+        times = Arrays.copyOf(times, capacity);
+        updateSequences = Arrays.copyOf(updateSequences, capacity);
+    }
+
+    // ---- 写入，需持有写锁；值有变化时记录本次更新序号 ----
+
+    void setName(int slot, String name) {
+        if (!name.equals(names[slot])) {
+            names[slot] = name;
+            updateSequences[slot] = sequence;
+        }
+    }
+
+    void setOpen(int slot, double value) {
+        opens[slot] = set(slot, opens[slot], value);
+    }
+
+    void setPrevClose(int slot, double value) {
+        prevCloses[slot] = set(slot, prevCloses[slot], value);
+    }
+
+    void setPrice(int slot, double value) {
+        prices[slot] = set(slot, prices[slot], value);
+    }
+
+    void setHigh(int slot, double value) {
+        highs[slot] = set(slot, highs[slot], value);
+    }
+
+    void setLow(int slot, double value) {
+        lows[slot] = set(slot, lows[slot], value);
+    }
+
+    void setVolume(int slot, long value) {
+        if (volumes[slot] != value) {
+            volumes[slot] = value;
+            updateSequences[slot] = sequence;
+        }
+    }
+
+    void setTurnover(int slot, double value) {
+        turnovers[slot] = set(slot, turnovers[slot], value);
+    }
+
+    void setBid(int slot, int level, double price, long volume) {
+        int i = slot * BOOK_DEPTH + level;
+        bidPrices[i] = set(slot, bidPrices[i], price);
+        if (bidVolumes[i] != volume) {
+            bidVolumes[i] = volume;
+            updateSequences[slot] = sequence;
+        }
+    }
+
+    void setAsk(int slot, int level, double price, long volume) {
+        int i = slot * BOOK_DEPTH + level;
+        askPrices[i] = set(slot, askPrices[i], price);
+        if (askVolumes[i] != volume) {
+            askVolumes[i] = volume;
+            updateSequences[slot] = sequence;
+        }
+    }
+
+    void setDateTime(int slot, int date, int time) {
+        if (dates[slot] != date || times[slot] != time) {
+            dates[slot] = date;
+            times[slot] = time;
+            updateSequences[slot] = sequence;
+        }
+    }
+
+    private double set(int slot, double current, double value) {
+        if (Double.isNaN(value)) {
+            value = 0.0;
+        }
+        if (current != value) {
+            updateSequences[slot] = sequence;
+        }
+        return value;
+    }
+
+    // ---- 读取，需持有读锁 ----
+
+    public String getCode(int slot) {
+        return codes[slot];
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public double getOpen(int slot) {
+        return opens[slot];
+    }
+
+    public double getPrevClose(int slot) {
+        return prevCloses[slot];
+    }
+
+    public double getPrice(int slot) {
+        return prices[slot];
+    }
+
+    public double getHigh(int slot) {
+        return highs[slot];
+    }
+
+    public double getLow(int slot) {
+        return lows[slot];
+    }
+
+    public long getVolume(int slot) {
+        return volumes[slot];
+    }
+
+    public double getTurnover(int slot) {
+        return turnovers[slot];
+    }
+
+    public double getBidPrice(int slot, int level) {
+        return bidPrices[slot * BOOK_DEPTH + level];
+    }
+
+    public long getBidVolume(int slot, int level) {
+        return bidVolumes[slot * BOOK_DEPTH + level];
+    }
+
+    public double getAskPrice(int slot, int level) {
+        return askPrices[slot * BOOK_DEPTH + level];
+    }
+
+    public long getAskVolume(int slot, int level) {
+        return askVolumes[slot * BOOK_DEPTH + level];
+    }
+
+    public int getDate(int slot) {
+        return dates[slot];
+    }
+
+    public int getTime(int slot) {
+        return times[slot];
+    }
+
+    /**
+     * 槽位最近一次发生变化时的更新序号
+     */
+    public long getUpdateSequence(int slot) {
+        return updateSequences[slot];
+    }
+
+    public double getChange(int slot) {
+        return prices[slot] - prevCloses[slot];
+    }
+
+    public double getChangePercent(int slot) {
+        double prevClose = prevCloses[slot];
+        return prevClose == 0.0 ? 0.0 : (prices[slot] - prevClose) / prevClose * 100.0;
+    }
+
+    /**
+     * 生成槽位对应的个股行情对象，价格与涨跌幅保留两位小数
+     */
+    public StockQuote toQuote(int slot) {
+        return new StockQuote(names[slot], codes[slot], round(prices[slot]), round(getChangePercent(slot)));
+    }
+
+    /**
+     * 生成指数行情对象
+     * @return 尚未收到该指数行情时返回 null
+     */
+    public StockIndexQuote toIndexQuote(StockIndex index) {
+        int slot = slotOf(index.getSinaCode());
+        if (slot < 0) {
+            return null;
+        }
+        return new StockIndexQuote(names[slot], round(prices[slot]), round(getChange(slot)), round(getChangePercent(slot)));
+    }
+
+    public static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
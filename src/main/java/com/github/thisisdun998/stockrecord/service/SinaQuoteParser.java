@@ -0,0 +1,402 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * hq.sinajs.cn 响应的字节级解析器
+ * <p>
+ * 响应为 GBK 编码，每行形如 var hq_str_sh600519="贵州茅台,1700.000,...";
+ * GBK 双字节字符的首字节为 0x81~0xFE，第二个字节为 0x40~0xFE，不会是换行、引号、等号或逗号，
+ * 因此这些边界可以直接按字节查找；但可能是腾讯的分隔符 ~（0x7E，例如「葉」为 C8 7E），
+ * 所以切分字段时遇到首字节会连同第二个字节一起跳过。
+ * 解析器以游标方式逐行前进，字段只记录边界，价格直接从字节解析；
+ * 代码与名称按代码缓存，只有首次出现的代码和名称发生变化时才会分配新的 String；
+ * 不再订阅的代码由 {@link #retainSymbols} 移出缓存。
+ * <p>
+ * 腾讯 qt.gtimg.cn 的响应结构相同（v_sh600519="1~贵州茅台~...";），只是代码前缀与字段分隔符不同，同样用本类解析。
+ * <p>
+ * 解析器有状态且非线程安全，调用方需自行同步。
+ */
+final class SinaQuoteParser {
+
+    private static final Charset GBK = Charset.forName("GBK");
+    private static final String SINA_CODE_PREFIX = "hq_str_";
+    private static final int MAX_FIELDS = 64;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /** 2^53，尾数不超过该值时整数与 10 的幂都能精确表示，一次除法即得到正确舍入的结果 */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final byte[] codePrefix;
+    private final byte separator;
+
+    private byte[] buffer = new byte[0];
+    private int limit;
+    private int position;
+
+    private Symbol symbol;
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+    private int fieldCount;
+    private int malformedLines;
+
+    private static final int INITIAL_SYMBOL_TABLE = 64;
+
+    private Symbol[] symbols = new Symbol[INITIAL_SYMBOL_TABLE];
+    private int symbolCount;
+
+    SinaQuoteParser() {
+        this(SINA_CODE_PREFIX, ',');
+    }
+
+    /**
+     * @param codePrefix 代码之前的变量名前缀，新浪为 hq_str_，腾讯为 v_
+     * @param separator 字段分隔符，新浪为逗号，腾讯为 ~
+     */
+    SinaQuoteParser(String codePrefix, char separator) {
+        this.codePrefix = codePrefix.getBytes(GBK);
+        this.separator = (byte) separator;
+    }
+
+    /**
+     * 开始解析新的响应体
+     */
+    void reset(byte[] body, int length) {
+        this.buffer = body;
+        this.limit = length;
+        this.position = 0;
+        this.symbol = null;
+        this.fieldCount = 0;
+        this.malformedLines = 0;
+    }
+
+    /**
+     * 前进到下一条格式正确的行情行
+     * @return 没有更多行情行时返回 false
+     */
+    boolean nextLine() {
+        while (position < limit) {
+            int lineStart = position;
+            int lineEnd = indexOf((byte) '\n', lineStart, limit);
+            if (lineEnd < 0) {
+                lineEnd = limit;
+            }
+            position = lineEnd + 1;
+            if (parseLine(lineStart, lineEnd)) {
+                return true;
+            }
+            if (!isBlank(lineStart, lineEnd)) {
+                malformedLines++;
+            }
+        }
+        symbol = null;
+        fieldCount = 0;
+        return false;
+    }
+
+    /**
+     * 自上次 reset 以来跳过的非空白行数
+     */
+    int malformedLines() {
+        return malformedLines;
+    }
+
+    private boolean isBlank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean parseLine(int start, int end) {
+        int prefix = indexOf(codePrefix, start, end);
+        if (prefix < 0) {
+            return false;
+        }
+        int codeStart = prefix + codePrefix.length;
+        int eq = indexOf((byte) '=', codeStart, end);
+        int firstQuote = eq < 0 ? -1 : indexOf((byte) '"', eq, end);
+        int lastQuote = lastIndexOf((byte) '"', firstQuote + 1, end);
+        if (firstQuote < 0 || lastQuote <= firstQuote) {
+            return false;
+        }
+        int codeEnd = eq;
+        while (codeEnd > codeStart && buffer[codeEnd - 1] <= ' ') {
+            codeEnd--;
+        }
+        if (codeEnd == codeStart) {
+            return false;
+        }
+
+        fieldCount = 0;
+        int innerStart = firstQuote + 1;
+        if (innerStart < lastQuote) {
+            int fieldStart = innerStart;
+            for (int i = innerStart; i <= lastQuote && fieldCount < MAX_FIELDS; i++) {
+                if (i < lastQuote - 1 && (buffer[i] & 0xFF) >= 0x81) {
+                    i++; // 双字节字符的第二个字节可能与分隔符相同
+                } else if (i == lastQuote || buffer[i] == separator) {
+                    fieldStarts[fieldCount] = fieldStart;
+                    fieldEnds[fieldCount] = i;
+                    fieldCount++;
+                    fieldStart = i + 1;
+                }
+            }
+        }
+        symbol = lookupSymbol(codeStart, codeEnd);
+        return true;
+    }
+
+    /**
+     * 当前行的代码，例如 sh600519
+     */
+    String code() {
+        return symbol.code;
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * 当前行第 index 个字段对应的名称，GBK 解码结果按代码缓存，名称不变时不会重复解码
+     */
+    String name(int index) {
+        int start = fieldStarts[index];
+        int length = fieldEnds[index] - start;
+        Symbol s = symbol;
+        if (s.name == null || s.nameLength != length
+                || !Arrays.equals(s.nameBytes, 0, length, buffer, start, start + length)) {
+            if (s.nameBytes.length < length) {
+                s.nameBytes = new byte[length];
+            }
+            System.arraycopy(buffer, start, s.nameBytes, 0, length);
+            s.nameLength = length;
+            s.name = new String(buffer, start, length, GBK);
+        }
+        return s.name;
+    }
+
+    /**
+     * 把当前行第 index 个字段解析为 double，无法解析时返回 NaN
+     */
+    double fieldAsDouble(int index) {
+        return parseDouble(buffer, fieldStarts[index], fieldEnds[index]);
+    }
+
+    /**
+     * 把当前行第 index 个字段解析为 long（成交量等），小数部分截断，无法解析时返回 0
+     */
+    long fieldAsLong(int index) {
+        double value = fieldAsDouble(index);
+        return Double.isNaN(value) ? 0L : (long) value;
+    }
+
+    /**
+     * 只取当前行第 index 个字段中的数字拼成整数，用于 2026-10-16、14:59:59 这类日期时间字段
+     */
+    int fieldDigits(int index) {
+        int value = 0;
+        for (int i = fieldStarts[index], end = fieldEnds[index]; i < end; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 与 {@link #fieldDigits(int)} 相同，用于 20261016145959 这类超出 int 范围的日期时间字段
+     */
+    long fieldDigitsLong(int index) {
+        long value = 0;
+        for (int i = fieldStarts[index], end = fieldEnds[index]; i < end; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 从字节解析形如 -123.456 的十进制数，不产生中间 String
+     */
+    static double parseDouble(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean dot = false;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                    return slowParseDouble(bytes, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                return slowParseDouble(bytes, start, end);
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (scale >= POWERS_OF_TEN.length) {
+            return slowParseDouble(bytes, start, end);
+        }
+        double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * 罕见格式（科学计数法、超长尾数）交给 JDK 解析
+     */
+    private static double slowParseDouble(byte[] bytes, int start, int end) {
+        try {
+            return Double.parseDouble(new String(bytes, start, end - start, GBK).trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private Symbol lookupSymbol(int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int mask = symbols.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (true) {
+            Symbol s = symbols[slot];
+            if (s == null) {
+                break;
+            }
+            if (s.hash == hash && Arrays.equals(s.codeBytes, 0, s.codeBytes.length, buffer, start, end)) {
+                return s;
+            }
+            slot = (slot + 1) & mask;
+        }
+        Symbol created = new Symbol(hash, Arrays.copyOfRange(buffer, start, end));
+        symbols[slot] = created;
+        if (++symbolCount * 2 > symbols.length) {
+            rehash();
+        }
+        return created;
+    }
+
+    /**
+     * 只保留 codes 中的代码缓存，其余释放，哈希表按剩余数量收缩
+     */
+    void retainSymbols(Set<String> codes) {
+        int kept = 0;
+        for (int i = 0; i < symbols.length; i++) {
+            Symbol s = symbols[i];
+            if (s != null && !codes.contains(s.code)) {
+                symbols[i] = null;
+            } else if (s != null) {
+                kept++;
+            }
+        }
+        symbolCount = kept;
+        // 开放寻址删除后需要重新插入，顺便收缩到装载因子不超过 1/2 的最小容量
+        int capacity = INITIAL_SYMBOL_TABLE;
+        while (kept * 2 > capacity) {
+            capacity *= 2;
+        }
+        rehash(capacity);
+        symbol = null;
+    }
+
+    int symbolCount() {
+        return symbolCount;
+    }
+
+    private void rehash() {
+        rehash(symbols.length * 2);
+    }
+
+    private void rehash(int capacity) {
+        Symbol[] old = symbols;
+        symbols = new Symbol[capacity];
+        int mask = symbols.length - 1;
+        for (Symbol s : old) {
+            if (s == null) {
+                continue;
+            }
+            int slot = (s.hash ^ (s.hash >>> 16)) & mask;
+            while (symbols[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            symbols[slot] = s;
+        }
+    }
+
+    private int indexOf(byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(byte[] target, int from, int to) {
+        int last = to - target.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (buffer[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private int lastIndexOf(byte target, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 缓存的代码及其最近一次的名称
+     */
+    private static final class Symbol {
+        final int hash;
+        final byte[] codeBytes;
+        final String code;
+        byte[] nameBytes = new byte[16];
+        int nameLength;
+        String name;
+
+        Symbol(int hash, byte[] codeBytes) {
+            this.hash = hash;
+            this.codeBytes = codeBytes;
+            this.code = new String(codeBytes, GBK);
+        }
+    }
+}
@@ -1,334 +1,472 @@
 package com.github.thisisdun998.stockrecord.service;
 
 import com.github.thisisdun998.stockrecord.model.StockIndex;
-import com.github.thisisdun998.stockrecord.model.StockIndexQuote;
 import com.github.thisisdun998.stockrecord.model.StockQuote;
+import com.intellij.openapi.diagnostic.Logger;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.Charset;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 
 /**
  * 使用新浪财经 hq.sinajs.cn 接口获取实时行情数据。
  * <p>
  * 如需更换为其他数据源，可以在此处替换为真实 HTTP 请求实现。
  */
-public final class SinaStockService implements StockService {
+public final class SinaStockService implements StockService, QuoteProvider {
+
+    private static final Logger LOG = Logger.getInstance(SinaStockService.class);
 
     private static final String BASE_URL = "http://hq.sinajs.cn/list=";
-    private static final Charset GBK = Charset.forName("GBK");
+    // 日 K 线接口，scale=240 表示 240 分钟即日线，只支持沪深
+    private static final String KLINE_URL =
+            "https://quotes.sina.cn/cn/api/json_v2.php/CN_MarketDataService.getKLineData?scale=240&ma=no&symbol=";
     
     // 麦瑞API - 沪深两市股票列表接口
     // 注意：请到 https://www.mairui.club/gratis.html 申请免费licence替换下面的示例licence
     private static final String STOCK_LIST_API = "http://api.mairuiapi.com/hslt/list/";
     private static final String DEFAULT_LICENCE = "LICENCE-66D8-9F96-0C7F0FBCD073"; // 默认测试licence，建议更换
+
+    // 通过系统属性替换接口地址，例如指向本地的模拟行情服务器
+    private static final String QUOTE_URL_PROPERTY = "stock-record.quote.url";
+    private static final String STOCK_LIST_URL_PROPERTY = "stock-record.stock-list.url";
     
-    // 股票列表缓存
-    private static volatile List<StockInfo> cachedStockList = null;
-    private static volatile long lastUpdateTime = 0;
+    // 股票列表缓存，首次使用时从本地文件加载，过期后先返回旧列表并在后台从网络刷新
+    private static volatile StockCatalog cachedCatalog = null;
+    private static final AtomicReference<CompletableFuture<Void>> refreshInFlight = new AtomicReference<>();
+    private static volatile int consecutiveFailures = 0;
+    private static volatile long nextRetryTime = 0;
+    private static final StockListFile stockListFile = new StockListFile(StockListFile.defaultPath());
     private static final long CACHE_DURATION = 24 * 60 * 60 * 1000; // 24小时缓存
+    private static final long MIN_RETRY_DELAY = 30 * 1000; // 刷新失败后首次重试间隔30秒
+    private static final long MAX_RETRY_DELAY = 30 * 60 * 1000; // 重试间隔指数增长，最长30分钟
+    private static final int SEARCH_LIMIT = 100;
+    /** 每个 list= 请求默认包含的代码数，约 2KB 的 URL，远低于常见的 URL 长度限制 */
+    public static final int DEFAULT_SHARD_SIZE = 200;
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
 
-    private static final class StockInfo {
-        final String code;
-        final String name;
-
-        StockInfo(String code, String name) {
-            this.code = code;
-            this.name = name;
+    /**
+     * 股票列表及其搜索索引，刷新列表时一次性构建
+     */
+    static final class StockCatalog {
+        final SymbolTable symbols;
+        final long fetchedAt;
+        final StockSearchIndex searchIndex;
+
+        StockCatalog(SymbolTable symbols, long fetchedAt) {
+            this.symbols = symbols;
+            this.fetchedAt = fetchedAt;
+            this.searchIndex = StockSearchIndex.build(symbols);
         }
     }
 
-    private static List<StockInfo> initStockList() {
+    static SymbolTable initStockList() {
         // 保留作为默认备用数据，API请求失败时使用
-        List<StockInfo> list = new ArrayList<>();
-        list.add(new StockInfo("sh600519", "贵州茅台"));
-        list.add(new StockInfo("sh600036", "招商银行"));
-        list.add(new StockInfo("sh601318", "中国平安"));
-        list.add(new StockInfo("sz000858", "五粮液"));
-        list.add(new StockInfo("sz000333", "美的集团"));
-        list.add(new StockInfo("sz002594", "比亚迪"));
-        list.add(new StockInfo("sh600887", "伊利股份"));
-        list.add(new StockInfo("sz000651", "格力电器"));
-        list.add(new StockInfo("sh601888", "中国中免"));
-        list.add(new StockInfo("sz300750", "宁德时代"));
-        return list;
+        SymbolTable.Builder builder = new SymbolTable.Builder(10);
+        builder.add("sh600519", "贵州茅台");
+        builder.add("sh600036", "招商银行");
+        builder.add("sh601318", "中国平安");
+        builder.add("sz000858", "五粮液");
+        builder.add("sz000333", "美的集团");
+        builder.add("sz002594", "比亚迪");
+        builder.add("sh600887", "伊利股份");
+        builder.add("sz000651", "格力电器");
+        builder.add("sh601888", "中国中免");
+        builder.add("sz300750", "宁德时代");
+        return builder.build();
     }
 
     /**
-     * 从麦瑞API获取所有沪深股票列表
+     * 从麦瑞API获取所有沪深股票列表，边下载边解析
+     * @return 请求失败或列表为空时返回 null
      */
-    private List<StockInfo> fetchStockListFromAPI() {
+    private SymbolTable fetchStockListFromAPI() {
+        long start = System.nanoTime();
+        CountingInputStream body = null;
         try {
-            String url = STOCK_LIST_API + DEFAULT_LICENCE;
-            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            HttpRequest request = HttpRequest.newBuilder(URI.create(stockListUrl))
                     .GET()
                     .timeout(Duration.ofSeconds(10))
                     .build();
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() != 200) {
-                return initStockList(); // 返回默认列表
-            }
-
-            // 解析JSON响应
-            String body = response.body();
-            List<StockInfo> stocks = parseStockListJson(body);
-            
-            if (!stocks.isEmpty()) {
-                return stocks;
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            body = new CountingInputStream(response.body());
+            try (InputStream in = body) {
+                if (response.statusCode() != 200) {
+                    stockListMetrics.recordFailure(System.nanoTime() - start, in.transferTo(OutputStream.nullOutputStream()));
+                    LOG.warn("获取股票列表失败，HTTP " + response.statusCode());
+                    return null;
+                }
+                SymbolTable stocks = StockListJson.parse(in);
+                stockListMetrics.recordSuccess(System.nanoTime() - start, body.count);
+                if (stocks.size() > 0) {
+                    return stocks;
+                }
+                LOG.warn("股票列表为空");
             }
+        } catch (JsonObjectArray.FormatException e) {
+            stockListMetrics.recordSuccess(System.nanoTime() - start, body.count);
+            stockListMetrics.recordParseErrors(1);
+            LOG.warn("解析股票列表失败: " + e.getMessage());
         } catch (Exception e) {
-            // 请求失败，记录日志但不抛异常
-            System.err.println("获取股票列表失败: " + e.getMessage());
+            stockListMetrics.recordFailure(System.nanoTime() - start, body == null ? 0 : body.count);
+            LOG.warn("获取股票列表失败: " + e.getMessage());
         }
-        return initStockList(); // 返回默认列表
+        return null;
     }
 
     /**
-     * 解析股票列表JSON
+     * 获取股票列表及搜索索引（带缓存）
+     * <p>
+     * 首次调用时从本地文件加载，本地没有文件时先使用默认备用列表；
+     * 列表过期后立即返回旧列表并在后台刷新，不阻塞当前搜索。
+     * 备用列表的拉取时间为 0，视为已过期，因此只会在下一次刷新成功前短暂使用。
      */
-    private List<StockInfo> parseStockListJson(String json) {
-        List<StockInfo> result = new ArrayList<>();
-        try {
-            // JSON格式：[{"dm":"000001","mc":"平安银行","jys":"sz"},...]
-            if (json == null || json.isBlank() || !json.startsWith("[")) {
-                return result;
-            }
-
-            // 简单解析，不依赖第三方JSON库
-            String[] items = json.substring(1, json.length() - 1).split("\\},\\{");
-            for (String item : items) {
-                item = item.replace("{", "").replace("}", "");
-                String code = extractJsonValue(item, "dm");
-                String name = extractJsonValue(item, "mc");
-                String market = extractJsonValue(item, "jys");
-
-                if (code != null && name != null && market != null) {
-                    String fullCode = market.toLowerCase() + code;
-                    result.add(new StockInfo(fullCode, name));
+    private StockCatalog getStockCatalog() {
+        StockCatalog catalog = cachedCatalog;
+        if (catalog == null) {
+            synchronized (SinaStockService.class) {
+                // 双重检查
+                catalog = cachedCatalog;
+                if (catalog == null) {
+                    StockListFile.Contents contents = stockListFile.read();
+                    catalog = contents != null
+                            ? new StockCatalog(contents.symbols, contents.fetchedAt)
+                            : new StockCatalog(initStockList(), 0L);
+                    cachedCatalog = catalog;
                 }
             }
-        } catch (Exception e) {
-            System.err.println("解析股票列表JSON失败: " + e.getMessage());
         }
-        return result;
+
+        long now = System.currentTimeMillis();
+        if (now - catalog.fetchedAt > CACHE_DURATION && now >= nextRetryTime) {
+            refreshStockList();
+        }
+        return catalog;
     }
 
     /**
-     * 提取JSON字段值
+     * 替换当前使用的股票列表并重建搜索索引
      */
-    private String extractJsonValue(String json, String key) {
-        String pattern = "\"" + key + "\":\"";
-        int start = json.indexOf(pattern);
-        if (start < 0) {
-            return null;
-        }
-        start += pattern.length();
-        int end = json.indexOf("\"", start);
-        if (end < 0) {
-            return null;
+    static StockCatalog useStockList(SymbolTable symbols, long fetchedAt) {
+        StockCatalog catalog = new StockCatalog(symbols, fetchedAt);
+        cachedCatalog = catalog;
+        return catalog;
+    }
+
+    @Override
+    public CompletableFuture<Void> refreshStockList() {
+        while (true) {
+            CompletableFuture<Void> current = refreshInFlight.get();
+            if (current != null) {
+                return current; // 已有刷新在进行，合并为同一次请求
+            }
+            CompletableFuture<Void> created = new CompletableFuture<>();
+            if (refreshInFlight.compareAndSet(null, created)) {
+                StockRecordExecutors.blocking().execute(() -> runStockListRefresh(created));
+                return created;
+            }
         }
-        return json.substring(start, end);
     }
 
-    /**
-     * 获取股票列表（带缓存）
-     */
-    private List<StockInfo> getStockList() {
-        long now = System.currentTimeMillis();
-        
-        // 检查缓存是否过期
-        if (cachedStockList == null || (now - lastUpdateTime) > CACHE_DURATION) {
-            synchronized (SinaStockService.class) {
-                // 双重检查
-                if (cachedStockList == null || (now - lastUpdateTime) > CACHE_DURATION) {
-                    cachedStockList = fetchStockListFromAPI();
-                    lastUpdateTime = now;
-                }
+    private void runStockListRefresh(CompletableFuture<Void> future) {
+        Throwable failure = null;
+        try {
+            SymbolTable stocks = fetchStockListFromAPI();
+            if (stocks != null) {
+                StockCatalog catalog = useStockList(stocks, System.currentTimeMillis());
+                consecutiveFailures = 0;
+                nextRetryTime = 0;
+                stockListFile.write(catalog.fetchedAt, catalog.symbols);
+            } else {
+                failure = new IOException("获取股票列表失败");
             }
+        } catch (Throwable t) {
+            failure = t;
+        }
+        if (failure != null) {
+            // 保留当前列表，按指数退避安排下一次自动重试
+            int failures = ++consecutiveFailures;
+            nextRetryTime = System.currentTimeMillis()
+                    + Math.min(MAX_RETRY_DELAY, MIN_RETRY_DELAY << Math.min(failures - 1, 16));
+        }
+        // 先清除进行中的标记再完成，完成回调中再次刷新时会发起新的请求
+        refreshInFlight.compareAndSet(future, null);
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(null);
         }
-        
-        return cachedStockList;
     }
 
+    private final SinaQuoteParser quoteParser = new SinaQuoteParser();
+
     private final HttpClient client = HttpClient.newBuilder()
+            .executor(StockRecordExecutors.blocking())
             .version(HttpClient.Version.HTTP_1_1)
             .connectTimeout(Duration.ofSeconds(5))
             .build();
 
-    @Override
-    public List<StockQuote> getQuotes(List<String> codes) {
-        List<StockQuote> result = new ArrayList<>();
-        if (codes == null || codes.isEmpty()) {
-            return result;
-        }
+    private final String stockListUrl;
+    private final FeedMetrics metrics;
+    private final FeedMetrics.Endpoint quoteMetrics;
+    private final FeedMetrics.Endpoint stockListMetrics;
+    private final FeedMetrics.Endpoint dailyBarMetrics;
+    private final QuoteFetcher quoteFetcher;
 
-        Map<String, String> sinaCodeToUserCode = new HashMap<>();
-        List<String> sinaCodes = new ArrayList<>();
-        for (String userCode : codes) {
-            String sinaCode = toSinaCode(userCode);
-            if (sinaCode != null) {
-                sinaCodes.add(sinaCode);
-                sinaCodeToUserCode.put(sinaCode, userCode);
-            }
-        }
+    public SinaStockService() {
+        this(new FeedMetrics());
+    }
 
-        if (sinaCodes.isEmpty()) {
-            return result;
-        }
+    /**
+     * 使用默认接口地址，或系统属性指定的地址
+     * @param metrics 请求统计写入的位置，可与其他数据源共用
+     */
+    public SinaStockService(FeedMetrics metrics) {
+        this(System.getProperty(QUOTE_URL_PROPERTY, BASE_URL),
+                System.getProperty(STOCK_LIST_URL_PROPERTY, STOCK_LIST_API + DEFAULT_LICENCE), metrics);
+    }
 
-        String url = BASE_URL + String.join(",", sinaCodes);
-        try {
-            String body = sendRequest(url);
-            if (body == null || body.isBlank()) {
-                return result;
-            }
-            String[] lines = body.split("\\n");
-            for (String line : lines) {
-                if (line.isBlank()) {
-                    continue;
-                }
-                ParsedQuote parsed = parseStockLine(line);
-                if (parsed == null) {
-                    continue;
-                }
-                String userCode = sinaCodeToUserCode.get(parsed.sinaCode);
-                if (userCode == null) {
-                    userCode = parsed.sinaCode;
-                }
-                result.add(new StockQuote(parsed.name, userCode, parsed.price, parsed.changePercent));
-            }
-        } catch (Exception e) {
-            // 请求失败时，不抛异常，以免影响 IDE 使用
-            // 可以根据需要增加日志记录
-        }
-        return result;
+    /**
+     * @param quoteUrl 行情接口地址，以逗号分隔的代码直接拼接在其后，例如 http://hq.sinajs.cn/list=
+     * @param stockListUrl 股票列表接口的完整地址
+     */
+    public SinaStockService(String quoteUrl, String stockListUrl) {
+        this(quoteUrl, stockListUrl, new FeedMetrics());
+    }
+
+    /**
+     * @param metrics 请求统计写入的位置，可与其他数据源共用
+     */
+    public SinaStockService(String quoteUrl, String stockListUrl, FeedMetrics metrics) {
+        this.stockListUrl = stockListUrl;
+        this.metrics = metrics;
+        this.quoteMetrics = metrics.endpoint("hq.sinajs.cn");
+        this.stockListMetrics = metrics.endpoint("mairui 股票列表");
+        this.dailyBarMetrics = metrics.endpoint("新浪日K");
+        this.quoteFetcher = new QuoteFetcher(client, quoteUrl, "https://finance.sina.com.cn", quoteMetrics,
+                DEFAULT_SHARD_SIZE, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * 本数据源各接口的请求统计
+     */
+    public FeedMetrics getMetrics() {
+        return metrics;
     }
 
     @Override
-    public StockIndexQuote getIndexQuote(StockIndex index) {
-        String url = BASE_URL + index.getSinaCode();
-        try {
-            String body = sendRequest(url);
-            if (body == null || body.isBlank()) {
-                return new StockIndexQuote(index.getDisplayName(), 0.0, 0.0, 0.0);
-            }
-            String[] lines = body.split("\\n");
-            if (lines.length == 0) {
-                return new StockIndexQuote(index.getDisplayName(), 0.0, 0.0, 0.0);
-            }
-            ParsedIndex parsed = parseIndexLine(lines[0]);
-            if (parsed == null) {
-                return new StockIndexQuote(index.getDisplayName(), 0.0, 0.0, 0.0);
-            }
-            return new StockIndexQuote(parsed.name, parsed.points, parsed.change, parsed.changePercent);
-        } catch (Exception e) {
-            return new StockIndexQuote(index.getDisplayName(), 0.0, 0.0, 0.0);
-        }
+    public String getName() {
+        return "新浪";
     }
 
-    private String sendRequest(String url) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
-                .GET()
-                .timeout(Duration.ofSeconds(5))
-                .header("Referer", "https://finance.sina.com.cn")
-                .build();
+    @Override
+    public CompletableFuture<Boolean> updateSnapshotAsync(List<String> codes, Collection<StockIndex> indices,
+                                                          QuoteSnapshotStore store, Duration timeout) {
+        return Futures.thenApplyCancellable(fetchAsync(codes, indices, timeout), response -> {
+            response.applyTo(store);
+            return true;
+        });
+    }
 
-        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
-        if (response.statusCode() != 200) {
-            return null;
+    @Override
+    public CompletableFuture<Response> fetchAsync(List<String> codes, Collection<StockIndex> indices,
+                                                  Duration timeout) {
+        QuoteRequest request = QuoteRequest.of(codes, indices);
+        if (request.isEmpty()) {
+            return CompletableFuture.completedFuture(store -> {
+            });
         }
-        return new String(response.body(), GBK);
+        return Futures.thenApplyCancellable(quoteFetcher.fetch(request.codes, timeout),
+                bodies -> store -> applyResponses(bodies, request.userCodesByCode, request.indexCodes, store));
     }
 
-    private static final class ParsedQuote {
-        final String sinaCode;
-        final String name;
-        final double price;
-        final double changePercent;
+    /**
+     * @param shardSize 每个 list= 请求最多包含的代码数
+     * @param maxConcurrentRequests 同时进行的请求数上限
+     */
+    @Override
+    public void setSharding(int shardSize, int maxConcurrentRequests) {
+        quoteFetcher.setSharding(shardSize, maxConcurrentRequests);
+    }
 
-        ParsedQuote(String sinaCode, String name, double price, double changePercent) {
-            this.sinaCode = sinaCode;
-            this.name = name;
-            this.price = price;
-            this.changePercent = changePercent;
+    @Override
+    public void retainCodes(Collection<String> codes, Collection<StockIndex> indices) {
+        Set<String> keep = new HashSet<>(QuoteRequest.of(codes, indices).codes);
+        synchronized (quoteParser) {
+            quoteParser.retainSymbols(keep);
         }
     }
 
-    private static final class ParsedIndex {
-        final String name;
-        final double points;
-        final double change;
-        final double changePercent;
+    /**
+     * 解析一次 hq.sinajs.cn 响应并写入快照
+     * @param sinaCodeToUserCodes 新浪代码到用户代码的映射，每个用户代码各占一个槽位
+     * @param indexCodes 按指数简版格式解析的新浪代码
+     */
+    void applyResponse(byte[] body, int length, Map<String, List<String>> sinaCodeToUserCodes,
+                       Set<String> indexCodes, QuoteSnapshotStore store) {
+        applyResponses(List.of(length == body.length ? body : Arrays.copyOf(body, length)),
+                sinaCodeToUserCodes, indexCodes, store);
+    }
 
-        ParsedIndex(String name, double points, double change, double changePercent) {
-            this.name = name;
-            this.points = points;
-            this.change = change;
-            this.changePercent = changePercent;
+    /**
+     * 把各分片的响应作为同一次批量更新写入快照，按分片顺序写入，新代码的槽位顺序与请求顺序一致
+     */
+    private void applyResponses(List<byte[]> bodies, Map<String, List<String>> sinaCodeToUserCodes,
+                                Set<String> indexCodes, QuoteSnapshotStore store) {
+        Lock writeLock = store.writeLock();
+        synchronized (quoteParser) {
+            writeLock.lock();
+            try {
+                store.beginUpdate();
+                int parseErrors = 0;
+                for (byte[] body : bodies) {
+                    quoteParser.reset(body, body.length);
+                    while (quoteParser.nextLine()) {
+                        String sinaCode = quoteParser.code();
+                        // 代码不存在或停牌时返回空字符串，不算解析错误
+                        boolean empty = quoteParser.fieldCount() == 0;
+                        if (indexCodes.contains(sinaCode)) {
+                            if (!writeIndexLine(store, store.slotFor(sinaCode)) && !empty) {
+                                parseErrors++;
+                            }
+                            continue;
+                        }
+                        List<String> userCodes = sinaCodeToUserCodes.get(sinaCode);
+                        if (userCodes == null) {
+                            continue;
+                        }
+                        for (String userCode : userCodes) {
+                            if (!writeStockLine(store, userCode) && !empty) {
+                                parseErrors++;
+                            }
+                        }
+                    }
+                    parseErrors += quoteParser.malformedLines();
+                }
+                quoteMetrics.recordParseErrors(parseErrors);
+            } finally {
+                writeLock.unlock();
+            }
         }
     }
 
-    private ParsedQuote parseStockLine(String line) {
-        int codeStart = line.indexOf("_str_");
-        int eqIndex = line.indexOf("=");
-        int firstQuote = line.indexOf('"');
-        int lastQuote = line.lastIndexOf('"');
-        if (codeStart < 0 || eqIndex < 0 || firstQuote < 0 || lastQuote <= firstQuote) {
-            return null;
+    /**
+     * 指数简版行情：名称,点数,涨跌,涨跌幅(%),成交量(手),成交额(万元)
+     */
+    private boolean writeIndexLine(QuoteSnapshotStore store, int slot) {
+        if (quoteParser.fieldCount() < 4) {
+            return false;
         }
-        String sinaCode = line.substring(codeStart + "_str_".length(), eqIndex).trim();
-        String inner = line.substring(firstQuote + 1, lastQuote);
-        String[] parts = inner.split(",");
-        if (parts.length < 4) {
-            return null;
+        double points = quoteParser.fieldAsDouble(1);
+        double change = quoteParser.fieldAsDouble(2);
+        if (Double.isNaN(points) || Double.isNaN(change)) {
+            return false;
         }
-        String name = parts[0];
-        try {
-            double yesterday = Double.parseDouble(parts[2]);
-            double price = Double.parseDouble(parts[3]);
-            double change = price - yesterday;
-            double changePercent = yesterday == 0.0 ? 0.0 : (change / yesterday * 100.0);
-            return new ParsedQuote(sinaCode, name, round(price), round(changePercent));
-        } catch (NumberFormatException e) {
-            return null;
+        store.setName(slot, quoteParser.name(0));
+        store.setPrice(slot, points);
+        store.setPrevClose(slot, points - change);
+        if (quoteParser.fieldCount() >= 6) {
+            store.setVolume(slot, quoteParser.fieldAsLong(4) * 100);
+            store.setTurnover(slot, quoteParser.fieldAsDouble(5) * 10_000);
         }
+        return true;
     }
 
-    private ParsedIndex parseIndexLine(String line) {
-        int firstQuote = line.indexOf('"');
-        int lastQuote = line.lastIndexOf('"');
-        if (firstQuote < 0 || lastQuote <= firstQuote) {
-            return null;
+    /**
+     * @return 字段不足或价格无法解析时返回 false
+     */
+    private boolean writeStockLine(QuoteSnapshotStore store, String code) {
+        if (quoteParser.code().startsWith("hk")) {
+            return writeHkStockLine(store, code);
         }
-        String inner = line.substring(firstQuote + 1, lastQuote);
-        String[] parts = inner.split(",");
-        if (parts.length < 4) {
-            return null;
+        return writeAShareLine(store, code);
+    }
+
+    /**
+     * 沪深 A 股：名称,今开,昨收,现价,最高,最低,买一,卖一,成交量(股),成交额(元),
+     * 买一量,买一价,...,买五量,买五价,卖一量,卖一价,...,卖五量,卖五价,日期,时间
+     */
+    private boolean writeAShareLine(QuoteSnapshotStore store, String code) {
+        if (quoteParser.fieldCount() < 4) {
+            return false;
         }
-        String name = parts[0];
-        try {
-            double points = Double.parseDouble(parts[1]);
-            double change = Double.parseDouble(parts[2]);
-            double changePercent = Double.parseDouble(parts[3]);
-            return new ParsedIndex(name, round(points), round(change), round(changePercent));
-        } catch (NumberFormatException e) {
-            return null;
+        double prevClose = quoteParser.fieldAsDouble(2);
+        double price = quoteParser.fieldAsDouble(3);
+        if (Double.isNaN(prevClose) || Double.isNaN(price)) {
+            return false;
+        }
+        int slot = store.slotFor(code);
+        store.setName(slot, quoteParser.name(0));
+        store.setOpen(slot, quoteParser.fieldAsDouble(1));
+        store.setPrevClose(slot, prevClose);
+        store.setPrice(slot, price);
+        if (quoteParser.fieldCount() < 32) {
+            return true;
         }
+        store.setHigh(slot, quoteParser.fieldAsDouble(4));
+        store.setLow(slot, quoteParser.fieldAsDouble(5));
+        store.setVolume(slot, quoteParser.fieldAsLong(8));
+        store.setTurnover(slot, quoteParser.fieldAsDouble(9));
+        for (int level = 0; level < QuoteSnapshotStore.BOOK_DEPTH; level++) {
+            int bid = 10 + level * 2;
+            int ask = 20 + level * 2;
+            store.setBid(slot, level, quoteParser.fieldAsDouble(bid + 1), quoteParser.fieldAsLong(bid));
+            store.setAsk(slot, level, quoteParser.fieldAsDouble(ask + 1), quoteParser.fieldAsLong(ask));
+        }
+        store.setDateTime(slot, quoteParser.fieldDigits(30), quoteParser.fieldDigits(31));
+        return true;
     }
 
-    private static double round(double value) {
-        return Math.round(value * 100.0) / 100.0;
+    /**
+     * 港股：英文名,中文名,今开,昨收,最高,最低,现价,涨跌,涨跌幅,买一,卖一,成交额,成交量,...,日期,时间
+     * <p>
+     * 港股接口只提供买一卖一价，没有五档挂单量。
+     */
+    private boolean writeHkStockLine(QuoteSnapshotStore store, String code) {
+        if (quoteParser.fieldCount() < 7) {
+            return false;
+        }
+        double prevClose = quoteParser.fieldAsDouble(3);
+        double price = quoteParser.fieldAsDouble(6);
+        if (Double.isNaN(prevClose) || Double.isNaN(price)) {
+            return false;
+        }
+        int slot = store.slotFor(code);
+        store.setName(slot, quoteParser.name(1));
+        store.setOpen(slot, quoteParser.fieldAsDouble(2));
+        store.setPrevClose(slot, prevClose);
+        store.setHigh(slot, quoteParser.fieldAsDouble(4));
+        store.setLow(slot, quoteParser.fieldAsDouble(5));
+        store.setPrice(slot, price);
+        if (quoteParser.fieldCount() < 19) {
+            return true;
+        }
+        store.setBid(slot, 0, quoteParser.fieldAsDouble(9), 0L);
+        store.setAsk(slot, 0, quoteParser.fieldAsDouble(10), 0L);
+        store.setTurnover(slot, quoteParser.fieldAsDouble(11));
+        store.setVolume(slot, quoteParser.fieldAsLong(12));
+        // 港股时间只有时分
+        store.setDateTime(slot, quoteParser.fieldDigits(17), quoteParser.fieldDigits(18) * 100);
+        return true;
     }
 
     @Override
@@ -338,39 +476,110 @@ public final class SinaStockService implements StockService {
         }
         
         String lowerKeyword = keyword.toLowerCase(Locale.ROOT).trim();
-        List<StockInfo> stockList = getStockList(); // 使用缓存的股票列表
+        StockCatalog catalog = getStockCatalog(); // 使用缓存的股票列表与索引
         
-        List<StockInfo> matches = stockList.stream()
-                .filter(stock -> {
-                    // 支持按名称搜索
-                    if (stock.name.toLowerCase(Locale.ROOT).contains(lowerKeyword)) {
-                        return true;
-                    }
-                    // 支持按完整代码搜索（sh600519）
-                    if (stock.code.toLowerCase(Locale.ROOT).contains(lowerKeyword)) {
-                        return true;
-                    }
-                    // 支持按纯数字代码搜索（600519）
-                    String pureCode = stock.code.replaceAll("[^0-9]", "");
-                    if (pureCode.contains(lowerKeyword)) {
-                        return true;
-                    }
-                    return false;
-                })
-                .limit(100)  // 限制搜索结果数量
-                .toList();
-        
-        if (matches.isEmpty()) {
+        // 支持按名称、完整代码（sh600519）、纯数字代码（600519）搜索，限制搜索结果数量
+        int[] matches = catalog.searchIndex.search(lowerKeyword, SEARCH_LIMIT);
+        if (matches.length == 0) {
             return Collections.emptyList();
         }
         
         // 不查询实时行情，直接返回基本信息，提高搜索速度
-        return matches.stream()
-                .map(s -> new StockQuote(s.name, s.code, 0.0, 0.0))
-                .toList();
+        List<StockQuote> result = new ArrayList<>(matches.length);
+        for (int ordinal : matches) {
+            result.add(new StockQuote(catalog.symbols.name(ordinal), catalog.symbols.code(ordinal), 0.0, 0.0));
+        }
+        return result;
+    }
+
+    @Override
+    public List<StockQuote> searchStocks(String keyword, String previousKeyword, List<StockQuote> previousResults) {
+        if (keyword == null || keyword.isBlank() || previousKeyword == null || previousKeyword.isBlank()
+                || previousResults == null || previousResults.size() >= SEARCH_LIMIT) {
+            return searchStocks(keyword);
+        }
+        String lowerKeyword = keyword.toLowerCase(Locale.ROOT).trim();
+        if (!lowerKeyword.contains(previousKeyword.toLowerCase(Locale.ROOT).trim())) {
+            return searchStocks(keyword);
+        }
+
+        // 上一次的结果来自代码表，按代码找到序号后直接在小写名称中匹配，不必每次重新转换大小写
+        SymbolTable symbols = getStockCatalog().symbols;
+        List<StockQuote> result = new ArrayList<>();
+        for (StockQuote quote : previousResults) {
+            int ordinal = symbols.indexOf(quote.getCode());
+            boolean matches = ordinal >= 0
+                    ? symbols.matches(ordinal, lowerKeyword)
+                    : StockSearchIndex.matches(quote.getName(), quote.getCode(), lowerKeyword);
+            if (matches) {
+                result.add(quote);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<List<StockQuote>> searchStocksAsync(String keyword, String previousKeyword,
+                                                                 List<StockQuote> previousResults) {
+        // 首次搜索需要从本地文件加载股票列表
+        return CompletableFuture.supplyAsync(() -> searchStocks(keyword, previousKeyword, previousResults),
+                StockRecordExecutors.blocking());
+    }
+
+    @Override
+    public DailyBars fetchDailyBars(String code, int count) {
+        String sinaCode = toSinaCode(code);
+        if (sinaCode == null || sinaCode.startsWith("hk") || count <= 0) {
+            return null;
+        }
+        long start = System.nanoTime();
+        CountingInputStream body = null;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(KLINE_URL + sinaCode + "&datalen=" + count))
+                    .GET()
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Referer", "https://finance.sina.com.cn")
+                    .build();
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            body = new CountingInputStream(response.body());
+            try (InputStream in = body) {
+                if (response.statusCode() != 200) {
+                    dailyBarMetrics.recordFailure(System.nanoTime() - start, in.transferTo(OutputStream.nullOutputStream()));
+                    LOG.warn("获取日K线失败: " + code + "，HTTP " + response.statusCode());
+                    return null;
+                }
+                // 边下载边解析，不保留完整的响应文本
+                DailyBars bars = DailyBarsJson.parse(in, count);
+                dailyBarMetrics.recordSuccess(System.nanoTime() - start, body.count);
+                if (bars == null) {
+                    dailyBarMetrics.recordParseErrors(1);
+                    LOG.warn("解析日K线失败: " + code);
+                }
+                return bars;
+            }
+        } catch (JsonObjectArray.FormatException e) {
+            dailyBarMetrics.recordSuccess(System.nanoTime() - start, body.count);
+            dailyBarMetrics.recordParseErrors(1);
+            LOG.warn("解析日K线失败: " + code + "，" + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            dailyBarMetrics.recordFailure(System.nanoTime() - start, body == null ? 0 : body.count);
+            LOG.warn("获取日K线失败: " + code + "，" + e.getMessage());
+            return null;
+        }
     }
 
-    private String toSinaCode(String userCode) {
+    @Override
+    public boolean supportsDailyBars(String code) {
+        // 日 K 线接口只提供沪深京个股
+        String sinaCode = toSinaCode(code);
+        return sinaCode != null && !sinaCode.startsWith("hk");
+    }
+
+    static String toSinaCode(String userCode) {
         if (userCode == null) {
             return null;
         }
@@ -406,4 +615,40 @@ public final class SinaStockService implements StockService {
         }
         return null;
     }
+
+    /**
+     * 记录已读取字节数的输入流，用于统计流式解析的响应大小
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package com.github.thisisdun998.stockrecord.service;
+
+/**
+ * 单个代码当日走势的降采样快照，按时间升序
+ * <p>
+ * 每个桶覆盖相同数量的逐笔记录（最后一桶可能未满），记录该段的首、尾、最高、最低价。
+ * 桶数不超过 {@link TickDownsample#BUCKETS}，与当日记录条数无关。
+ */
+public final class SparklineSeries {
+
+    public static final SparklineSeries EMPTY = new SparklineSeries(new double[0], new double[0], new double[0], new double[0]);
+
+    private final double[] first;
+    private final double[] last;
+    private final double[] low;
+    private final double[] high;
+
+    SparklineSeries(double[] first, double[] last, double[] low, double[] high) {
+        this.first = first;
+        this.last = last;
+        this.low = low;
+        this.high = high;
+    }
+
+    public int size() {
+        return first.length;
+    }
+
+    public double getFirst(int i) {
+        return first[i];
+    }
+
+    public double getLast(int i) {
+        return last[i];
+    }
+
+    public double getLow(int i) {
+        return low[i];
+    }
+
+    public double getHigh(int i) {
+        return high[i];
+    }
+
+    public double getLastPrice() {
+        return last.length == 0 ? Double.NaN : last[last.length - 1];
+    }
+
+    /**
+     * 当日最低价，没有记录时返回 NaN
+     */
+    public double getLow() {
+        double result = Double.NaN;
+        for (double value : low) {
+            if (!(value >= result)) {
+                result = value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 当日最高价，没有记录时返回 NaN
+     */
+    public double getHigh() {
+        double result = Double.NaN;
+        for (double value : high) {
+            if (!(value <= result)) {
+                result = value;
+            }
+        }
+        return result;
+    }
+}
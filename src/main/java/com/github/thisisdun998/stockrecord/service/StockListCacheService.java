@@ -1,8 +1,9 @@
 package com.github.thisisdun998.stockrecord.service;
 
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
-import com.intellij.openapi.project.Project;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.util.concurrency.AppExecutorUtil;
 
 import java.util.concurrent.ScheduledFuture;
@@ -10,16 +11,18 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * 股票列表缓存服务
- * 每天定时更新股票列表缓存
+ * 每天定时更新股票列表缓存，股票列表在应用内共享，多个项目只安排一次定时刷新
  */
-@Service(Service.Level.PROJECT)
+@Service(Service.Level.APP)
 public final class StockListCacheService implements Disposable {
     
+    private static final Logger LOG = Logger.getInstance(StockListCacheService.class);
+
     private final StockService stockService;
     private ScheduledFuture<?> scheduledTask;
     
-    public StockListCacheService(Project project) {
-        this.stockService = new SinaStockService();
+    public StockListCacheService() {
+        this.stockService = StockQuoteHub.getInstance().getStockService();
         startScheduledUpdate();
     }
     
@@ -62,23 +65,23 @@ public final class StockListCacheService implements Disposable {
     }
     
     /**
-     * 更新股票列表缓存
+     * 更新股票列表缓存，刷新在后台进行，期间搜索继续使用旧列表
      */
     private void updateStockListCache() {
-        try {
-            // 触发一次搜索，强制刷新缓存
-            stockService.searchStocks("000001");
-            System.out.println("股票列表缓存已更新: " + new java.util.Date());
-        } catch (Exception e) {
-            System.err.println("更新股票列表缓存失败: " + e.getMessage());
-        }
+        stockService.refreshStockList().whenComplete((ignored, error) -> {
+            if (error != null) {
+                LOG.warn("更新股票列表缓存失败: " + error.getMessage());
+            } else {
+                LOG.info("股票列表缓存已更新");
+            }
+        });
     }
     
     /**
      * 手动触发更新
      */
     public void manualUpdate() {
-        AppExecutorUtil.getAppExecutorService().submit(this::updateStockListCache);
+        updateStockListCache();
     }
     
     @Override
@@ -88,7 +91,7 @@ public final class StockListCacheService implements Disposable {
         }
     }
     
-    public static StockListCacheService getInstance(Project project) {
-        return project.getService(StockListCacheService.class);
+    public static StockListCacheService getInstance() {
+        return ApplicationManager.getApplication().getService(StockListCacheService.class);
     }
 }
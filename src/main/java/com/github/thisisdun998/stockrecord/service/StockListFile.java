@@ -0,0 +1,166 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 股票列表的本地二进制文件，保存在 IDE 系统目录下，重启后无需等待网络即可搜索
+ * <p>
+ * 文件格式（小端）：
+ * <pre>
+ * int  MAGIC
+ * int  VERSION
+ * long 拉取时间（毫秒）
+ * int  股票数量 n
+ * int  名称字符总数 m
+ * byte[n]  每只股票的市场编号
+ * int[n]   每只股票的数字代码
+ * short[n] 每只股票的名称长度
+ * char[m]  所有名称依次拼接的字符区
+ * </pre>
+ * 与 {@link SymbolTable} 的内存布局一致，读写时不需要为每只股票生成字符串。
+ * 旧版本的文件视为不存在，等待下一次从网络刷新。
+ */
+final class StockListFile {
+
+    private static final Logger LOG = Logger.getInstance(StockListFile.class);
+    private static final int MAGIC = 0x5352534C; // "SRSL"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+
+    private final Path path;
+
+    StockListFile(Path path) {
+        this.path = path;
+    }
+
+    static Path defaultPath() {
+        return Path.of(PathManager.getSystemPath(), "stock-record", "stock-list.bin");
+    }
+
+    /**
+     * 文件中的股票列表
+     */
+    static final class Contents {
+        final long fetchedAt;
+        final SymbolTable symbols;
+
+        Contents(long fetchedAt, SymbolTable symbols) {
+            this.fetchedAt = fetchedAt;
+            this.symbols = symbols;
+        }
+    }
+
+    /**
+     * 读取文件。文件只有几百 KB，一次读入堆内存；不使用内存映射，
+     * 以免 Windows 上映射未释放时无法替换文件
+     * @return 文件不存在、版本不符或内容损坏时返回 null
+     */
+    @Nullable
+    Contents read() {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) fileSize).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long fetchedAt = buffer.getLong();
+            int count = buffer.getInt();
+            int charCount = buffer.getInt();
+            if (count < 0 || charCount < 0 || fileSize != HEADER_SIZE + count * 7L + charCount * 2L) {
+                return null;
+            }
+
+            int marketsPosition = buffer.position();
+            int numbersPosition = marketsPosition + count;
+            int lengthsPosition = numbersPosition + count * 4;
+            CharBuffer chars = buffer.position(lengthsPosition + count * 2).slice()
+                    .order(ByteOrder.LITTLE_ENDIAN).asCharBuffer();
+
+            SymbolTable.Builder symbols = new SymbolTable.Builder(count);
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                int market = buffer.get(marketsPosition + i);
+                int number = buffer.getInt(numbersPosition + i * 4);
+                int nameLength = buffer.getShort(lengthsPosition + i * 2) & 0xFFFF;
+                if (offset + nameLength > charCount
+                        || !symbols.add(market, number, chars.subSequence(offset, offset + nameLength))) {
+                    return null;
+                }
+                offset += nameLength;
+            }
+            return new Contents(fetchedAt, symbols.build());
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("读取本地股票列表失败: " + path, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入文件，先写临时文件再替换，避免读到写了一半的文件
+     */
+    void write(long fetchedAt, SymbolTable symbols) {
+        int count = symbols.size();
+        int charCount = 0;
+        for (int i = 0; i < count; i++) {
+            charCount += symbols.nameLength(i);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * 7 + charCount * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(fetchedAt).putInt(count).putInt(charCount);
+        for (int i = 0; i < count; i++) {
+            buffer.put((byte) symbols.market(i));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(symbols.number(i));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putShort((short) symbols.nameLength(i));
+        }
+        char[] names = symbols.nameChars();
+        for (int i = 0; i < charCount; i++) {
+            buffer.putChar(names[i]);
+        }
+        buffer.flip();
+
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOG.warn("保存本地股票列表失败: " + path, e);
+        }
+    }
+}
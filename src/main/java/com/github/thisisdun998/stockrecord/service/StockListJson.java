@@ -0,0 +1,46 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 麦瑞 hslt/list 接口返回的股票列表
+ * <p>
+ * 格式为 [{"dm":"000001","mc":"平安银行","jys":"sz"},...]。通过 {@link JsonObjectArray} 边读取响应边解析，
+ * 结果直接写入 {@link SymbolTable}，不为每条记录生成代码与名称字符串；缺少字段或代码无法识别的条目被忽略。
+ */
+final class StockListJson {
+
+    /** 沪深两市 A 股数量的量级 */
+    private static final int EXPECTED_SIZE = 6000;
+    private static final String[] KEYS = {"dm", "jys", "mc"};
+    private static final int CODE = 0;
+    private static final int MARKET = 1;
+    private static final int NAME = 2;
+
+    private StockListJson() {
+    }
+
+    /**
+     * 读取并解析，不关闭输入流
+     * @return 顶层不是数组时（例如 licence 无效时返回的错误信息）为空列表
+     * @throws JsonObjectArray.FormatException JSON 格式错误
+     * @throws IOException 读取失败
+     */
+    static SymbolTable parse(InputStream in) throws IOException {
+        return parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    static SymbolTable parse(Reader reader) throws IOException {
+        SymbolTable.Builder symbols = new SymbolTable.Builder(EXPECTED_SIZE);
+        JsonObjectArray.parse(reader, KEYS, values -> {
+            if (values[CODE] != null && values[MARKET] != null && values[NAME] != null) {
+                symbols.add(values[MARKET], values[CODE], values[NAME]);
+            }
+        });
+        return symbols.build();
+    }
+}
@@ -0,0 +1,562 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.PriceAlert;
+import com.github.thisisdun998.stockrecord.model.StockIndex;
+import com.github.thisisdun998.stockrecord.persistence.StockRecordSettings;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 应用级行情中心
+ * <p>
+ * 所有面板、状态栏组件通过订阅登记自己关心的个股与指数，
+ * 行情中心每个周期把所有订阅合并成一次批量请求，结果原地写入共享的 {@link QuoteSnapshotStore}，
+ * 再通知各订阅读取自己登记的槽位。无论打开多少个项目和面板，每个周期的网络请求数都保持不变。
+ * <p>
+ * 轮询间隔由 {@link TradingCalendar} 决定：连续竞价时快速轮询，集合竞价时放慢，
+ * 午间休市和收盘后停止轮询，只在进入新阶段时请求一次，界面保留最后的收盘快照，直到下一次开盘。
+ */
+@Service(Service.Level.APP)
+public final class StockQuoteHub implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(StockQuoteHub.class);
+    private static final long CONTINUOUS_INTERVAL_MILLIS = 3_000;
+    private static final long AUCTION_INTERVAL_MILLIS = 10_000;
+    /** 休市期间最长的休眠时间，防止系统睡眠或时钟调整后错过开盘 */
+    private static final long MAX_IDLE_MILLIS = 30 * 60_000;
+    /** 阶段切换后稍等再请求，确保拿到收盘价等最终数据 */
+    private static final long PHASE_CHANGE_GRACE_MILLIS = 30_000;
+    private static final Duration REQUEST_TIMEOUT = StockService.DEFAULT_TIMEOUT;
+    /** 行情接口统计写入日志的间隔 */
+    private static final long METRICS_LOG_INTERVAL_MILLIS = 10 * 60_000;
+    /** 订阅没有变化时，也按此间隔释放一次只在搜索等临时请求中出现过的解析缓存 */
+    private static final long RELEASE_INTERVAL_MILLIS = 10 * 60_000;
+
+    private final FeedMetrics feedMetrics = new FeedMetrics();
+    /** 新浪为首选行情源，同时负责搜索、日 K 线与股票列表；腾讯为备用行情源 */
+    private final QuoteRouter stockService;
+    private final QuoteSnapshotStore store = new QuoteSnapshotStore();
+    private final TickHistory tickHistory = new TickHistory();
+    private final TickJournal tickJournal = new TickJournal(TickJournal.defaultDirectory());
+    private final PriceAlertEngine alertEngine = new PriceAlertEngine(new PriceAlertNotifier(store));
+    /** 设有价格提醒的代码始终参与定时轮询，与面板是否暂停同步无关 */
+    private final Subscription alertSubscription;
+    /** 每个代码最近一次记录到逐笔历史时的槽位更新序号，仅在轮询链中访问 */
+    private final Map<String, Long> recordedSequences = new HashMap<>();
+    /** 已从日志回放过的代码，仅在轮询链中访问 */
+    private final Set<String> restoredCodes = new HashSet<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final TradingCalendar calendar = TradingCalendar.load();
+    private final Object pollLock = new Object();
+    /** 最近一次排队的轮询，新的轮询接在其后执行，保证轮询依次进行且不阻塞线程，仅在持有 pollLock 时访问 */
+    private CompletableFuture<Void> lastPoll = CompletableFuture.completedFuture(null);
+    private ScheduledFuture<?> pollingTask;
+    /** 每次启动、停止或重新安排轮询时递增，旧的轮询任务据此放弃续期 */
+    private long pollingGeneration;
+    /** 上一次定时轮询时的交易阶段，仅在持有 pollLock 时访问 */
+    private TradingCalendar.Phase lastPhase;
+    /** 上一次把接口统计写入日志的时间，仅在轮询链中访问 */
+    private long lastMetricsLog = System.currentTimeMillis();
+    /** 订阅的代码、指数或订阅本身发生变化，下一次轮询前释放不再订阅的代码 */
+    private volatile boolean subscriptionsChanged;
+    /** 上一次释放不再订阅的代码的时间，仅在轮询链中访问 */
+    private long lastRelease = System.currentTimeMillis();
+
+    public StockQuoteHub() {
+        SinaStockService sina = new SinaStockService(feedMetrics);
+        stockService = new QuoteRouter(sina, List.of(sina, new TencentQuoteProvider(feedMetrics)));
+        StockRecordSettings settings = StockRecordSettings.getInstance();
+        tickHistory.setMemoryLimitMb(settings.getTickHistoryMemoryMb());
+        stockService.setSharding(settings.getQuoteShardSize(), settings.getMaxConcurrentRequests());
+        alertEngine.setAlerts(settings.getAlerts());
+        alertSubscription = subscribe(this, (store, slots) -> {
+        });
+        alertSubscription.setCodes(alertEngine.getCodes());
+    }
+
+    public static StockQuoteHub getInstance() {
+        return ApplicationManager.getApplication().getService(StockQuoteHub.class);
+    }
+
+    public StockService getStockService() {
+        return stockService;
+    }
+
+    /**
+     * 行情、股票列表与日 K 线接口的请求统计
+     */
+    public FeedMetrics getFeedMetrics() {
+        return feedMetrics;
+    }
+
+    /**
+     * 设置行情请求的分片大小与并发数，下一次轮询生效
+     */
+    public void setQuoteSharding(int shardSize, int maxConcurrentRequests) {
+        stockService.setSharding(shardSize, maxConcurrentRequests);
+    }
+
+    public List<PriceAlert> getPriceAlerts() {
+        return StockRecordSettings.getInstance().getAlerts();
+    }
+
+    /**
+     * 保存并启用价格提醒，规则未变的代码保留原有状态，不会重复提醒
+     */
+    public void setPriceAlerts(@NotNull List<PriceAlert> alerts) {
+        StockRecordSettings.getInstance().setAlerts(alerts);
+        alertEngine.setAlerts(alerts);
+        alertSubscription.setCodes(alertEngine.getCodes());
+    }
+
+    public QuoteSnapshotStore getStore() {
+        return store;
+    }
+
+    public TradingCalendar getTradingCalendar() {
+        return calendar;
+    }
+
+    /**
+     * 当日逐笔行情历史，每次轮询成功后、通知订阅之前追加
+     */
+    public TickHistory getTickHistory() {
+        return tickHistory;
+    }
+
+    /**
+     * 落盘的逐笔行情日志，可回放近期任意交易日
+     */
+    public TickJournal getTickJournal() {
+        return tickJournal;
+    }
+
+    /**
+     * 登记一个订阅，parent 释放时自动取消订阅
+     */
+    public Subscription subscribe(@NotNull Disposable parent, @NotNull QuoteListener listener) {
+        Subscription subscription = new Subscription(listener);
+        subscriptions.add(subscription);
+        Disposer.register(parent, subscription);
+        startPolling();
+        return subscription;
+    }
+
+    private synchronized void startPolling() {
+        if (pollingTask != null) {
+            return;
+        }
+        scheduleTick(0);
+    }
+
+    private synchronized void stopPollingIfIdle() {
+        if (subscriptions.isEmpty() && pollingTask != null) {
+            pollingTask.cancel(false);
+            pollingTask = null;
+            pollingGeneration++;
+        }
+    }
+
+    /**
+     * 订阅的代码或暂停状态变化后立即重新计算轮询间隔，避免在休市的长休眠中错过新加入市场的开盘
+     */
+    private synchronized void reschedule() {
+        if (pollingTask == null) {
+            return;
+        }
+        pollingTask.cancel(false);
+        scheduleTick(0);
+    }
+
+    private synchronized void scheduleTick(long delayMillis) {
+        long generation = ++pollingGeneration;
+        pollingTask = AppExecutorUtil.getAppScheduledExecutorService()
+                .schedule(() -> tick(generation), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick(long generation) {
+        CompletableFuture<Long> next;
+        try {
+            next = scheduledPoll();
+        } catch (Exception e) {
+            LOG.warn("定时轮询失败", e);
+            next = CompletableFuture.completedFuture(CONTINUOUS_INTERVAL_MILLIS);
+        }
+        // 本次轮询完成后再安排下一次，间隔从请求结束时算起
+        next.whenComplete((delay, error) -> {
+            synchronized (this) {
+                if (generation == pollingGeneration) {
+                    scheduleTick(error == null ? delay : CONTINUOUS_INTERVAL_MILLIS);
+                }
+            }
+        });
+    }
+
+    /**
+     * 按交易阶段执行一次定时轮询
+     * @return 本次轮询完成时得到距下一次轮询的毫秒数
+     */
+    private CompletableFuture<Long> scheduledPoll() {
+        synchronized (pollLock) {
+            Set<TradingCalendar.Market> markets = EnumSet.noneOf(TradingCalendar.Market.class);
+            for (Subscription subscription : subscriptions) {
+                if (subscription.paused) {
+                    continue;
+                }
+                for (String code : subscription.codes) {
+                    markets.add(TradingCalendar.Market.ofCode(code));
+                }
+                if (!subscription.indices.isEmpty()) {
+                    markets.add(TradingCalendar.Market.CN);
+                }
+            }
+            if (markets.isEmpty()) {
+                if (subscriptionsChanged) {
+                    // 没有需要轮询的订阅时也要释放取消订阅的代码，排在轮询链中执行
+                    lastPoll = lastPoll.thenRun(this::releaseUnsubscribedIfDue).exceptionally(e -> {
+                        LOG.warn("释放行情槽位失败", e);
+                        return null;
+                    });
+                }
+                return CompletableFuture.completedFuture(CONTINUOUS_INTERVAL_MILLIS);
+            }
+
+            ZonedDateTime now = ZonedDateTime.now(TradingCalendar.EXCHANGE_ZONE);
+            TradingCalendar.Phase phase = calendar.phaseAt(markets, now);
+            boolean phaseChanged = phase != lastPhase;
+            lastPhase = phase;
+            long delay;
+            switch (phase) {
+                case CONTINUOUS:
+                    delay = CONTINUOUS_INTERVAL_MILLIS;
+                    break;
+                case AUCTION:
+                    delay = AUCTION_INTERVAL_MILLIS;
+                    break;
+                default:
+                    ZonedDateTime next = calendar.nextPhaseChange(markets, now);
+                    long untilNext = Duration.between(now, next).toMillis() + PHASE_CHANGE_GRACE_MILLIS;
+                    delay = Math.max(CONTINUOUS_INTERVAL_MILLIS, Math.min(MAX_IDLE_MILLIS, untilNext));
+                    break;
+            }
+            if (phase.isTrading() || phaseChanged) {
+                return poll(false).thenApply(ignored -> delay);
+            }
+            return CompletableFuture.completedFuture(delay);
+        }
+    }
+
+    /**
+     * 立即执行一次合并请求，用于手动刷新
+     */
+    private void requestImmediatePoll() {
+        poll(true);
+    }
+
+    /**
+     * 把一次轮询排在上一次之后执行，请求期间不占用线程
+     * <p>
+     * 轮询总是在后台线程中开始：上一次轮询已结束时 thenCompose 会在调用方线程中同步执行，
+     * 而手动刷新从 EDT 调用，释放槽位（需要快照写锁）与准备请求不能在 EDT 上进行。
+     * @return 轮询结束（包括失败）时完成
+     */
+    private CompletableFuture<Void> poll(boolean immediate) {
+        synchronized (pollLock) {
+            // 异常在此处吞掉，避免后续轮询因前一次失败而被跳过
+            lastPoll = lastPoll.thenComposeAsync(ignored -> runPoll(immediate), StockRecordExecutors.blocking())
+                    .exceptionally(e -> {
+                        LOG.warn("轮询失败", e);
+                        return null;
+                    });
+            return lastPoll;
+        }
+    }
+
+    private CompletableFuture<Void> runPoll(boolean immediate) {
+        releaseUnsubscribedIfDue();
+
+        List<Subscription> targets = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.takeRefreshRequest() || (!immediate && !subscription.paused)) {
+                targets.add(subscription);
+            }
+        }
+        if (targets.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Set<String> codes = new LinkedHashSet<>();
+        Set<StockIndex> indices = EnumSet.noneOf(StockIndex.class);
+        for (Subscription subscription : targets) {
+            codes.addAll(subscription.codes);
+            indices.addAll(subscription.indices);
+        }
+        if (codes.isEmpty() && indices.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Boolean> update;
+        try {
+            update = stockService.updateSnapshotAsync(new ArrayList<>(codes), indices, store, REQUEST_TIMEOUT);
+        } catch (Exception e) {
+            update = CompletableFuture.failedFuture(e);
+        }
+        return update.handle((updated, error) -> {
+            logMetricsIfDue();
+            if (error != null) {
+                Throwable cause = Futures.unwrap(error);
+                if (cause instanceof IOException) {
+                    LOG.debug("批量获取行情失败", cause); // 网络不可用时每个周期都会失败，不记录警告
+                } else {
+                    LOG.warn("批量获取行情失败", cause);
+                }
+                return false;
+            }
+            return true;
+        }).thenCompose(succeeded -> {
+            if (!succeeded) {
+                return CompletableFuture.completedFuture(null);
+            }
+            List<String> recorded = new ArrayList<>(codes);
+            for (StockIndex index : indices) {
+                recorded.add(index.getSinaCode());
+            }
+            ZonedDateTime now = ZonedDateTime.now(TradingCalendar.EXCHANGE_ZONE);
+            return restoreFromJournal(recorded, now).thenRun(() -> {
+                TickBatch batch = TickBatch.collect(store, recorded, recordedSequences, now);
+                tickHistory.record(batch);
+                tickJournal.append(batch);
+                alertEngine.evaluate(batch);
+
+                for (Subscription subscription : targets) {
+                    subscription.deliver();
+                }
+            });
+        });
+    }
+
+    /**
+     * 代码首次有行情时先从日志回放其交易日的记录，IDE 重启后逐笔历史与走势图接着之前的记录继续；
+     * 快照中已写入日志的当前行情标记为已收集，不会再次追加。在轮询链中调用
+     */
+    private CompletableFuture<Void> restoreFromJournal(List<String> codes, ZonedDateTime now) {
+        Map<Integer, List<String>> pending = new HashMap<>();
+        Lock readLock = store.readLock();
+        readLock.lock();
+        try {
+            for (String code : codes) {
+                int slot = store.slotOf(code);
+                if (slot < 0 || !(store.getPrice(slot) > 0) || restoredCodes.contains(code)) {
+                    continue;
+                }
+                restoredCodes.add(code);
+                // 指数行情不带日期，与 TickBatch 一样使用轮询日期
+                int date = store.getDate(slot) > 0 ? store.getDate(slot) : TickBatch.toDate(now.toLocalDate());
+                pending.computeIfAbsent(date, k -> new ArrayList<>()).add(code);
+            }
+        } finally {
+            readLock.unlock();
+        }
+        CompletableFuture<Void> restored = CompletableFuture.completedFuture(null);
+        for (Map.Entry<Integer, List<String>> entry : pending.entrySet()) {
+            int date = entry.getKey();
+            restored = restored.thenCompose(ignored -> tickJournal.replay(TickBatch.fromDate(date), entry.getValue()))
+                    .thenAccept(replayed -> {
+                        readLock.lock();
+                        try {
+                            for (Map.Entry<String, TickSeries> series : replayed.entrySet()) {
+                                tickHistory.restore(series.getKey(), date, series.getValue());
+                                TickBatch.markReplayed(store, series.getKey(), series.getValue(), recordedSequences);
+                            }
+                        } finally {
+                            readLock.unlock();
+                        }
+                    });
+        }
+        return restored.exceptionally(e -> {
+            LOG.warn("回放逐笔行情日志失败", e);
+            return null;
+        });
+    }
+
+    /**
+     * 释放已没有任何订阅的代码：快照槽位、逐笔记录序号与回放标记、逐笔历史与行情解析缓存，
+     * 避免取消关注或搜索过的代码在 IDE 运行期间一直占用内存。在轮询链中调用，不与写入快照的轮询并发
+     */
+    private void releaseUnsubscribedIfDue() {
+        long now = System.currentTimeMillis();
+        if (!subscriptionsChanged && now - lastRelease < RELEASE_INTERVAL_MILLIS) {
+            return;
+        }
+        subscriptionsChanged = false;
+        lastRelease = now;
+
+        Set<String> codes = new HashSet<>();
+        Set<StockIndex> indices = EnumSet.noneOf(StockIndex.class);
+        for (Subscription subscription : subscriptions) {
+            codes.addAll(subscription.codes);
+            indices.addAll(subscription.indices);
+        }
+        Set<String> slotCodes = new HashSet<>(codes);
+        for (StockIndex index : indices) {
+            slotCodes.add(index.getSinaCode());
+        }
+        int released;
+        Lock writeLock = store.writeLock();
+        writeLock.lock();
+        try {
+            released = store.retainCodes(slotCodes);
+        } finally {
+            writeLock.unlock();
+        }
+        recordedSequences.keySet().retainAll(slotCodes);
+        restoredCodes.retainAll(slotCodes);
+        tickHistory.retainCodes(slotCodes);
+        stockService.retainCodes(codes, indices);
+        if (released > 0) {
+            LOG.debug("释放 " + released + " 个不再订阅的行情槽位");
+        }
+    }
+
+    private void logMetricsIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastMetricsLog >= METRICS_LOG_INTERVAL_MILLIS) {
+            lastMetricsLog = now;
+            LOG.info(getFeedMetrics().summary());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        subscriptions.clear();
+        stopPollingIfIdle();
+        tickJournal.close();
+        LOG.info(getFeedMetrics().summary());
+    }
+
+    /**
+     * 行情回调，在后台线程中调用，更新界面时需自行切换到 EDT
+     */
+    public interface QuoteListener {
+        /**
+         * @param store 共享的快照存储，读取时需持有 {@link QuoteSnapshotStore#readLock()}
+         * @param slots 与订阅登记的个股代码一一对应的槽位，尚无行情的代码为 -1；
+         *              指数通过 {@link QuoteSnapshotStore#toIndexQuote(StockIndex)} 读取
+         */
+        void quotesUpdated(@NotNull QuoteSnapshotStore store, @NotNull int[] slots);
+    }
+
+    /**
+     * 单个订阅，只会收到自己登记的个股和指数
+     */
+    public final class Subscription implements Disposable {
+
+        private final QuoteListener listener;
+        private volatile List<String> codes = Collections.emptyList();
+        /** 仅在轮询线程中访问：slots 为 resolvedCodes 已解析的槽位，槽位分配后不会移动，只需补全尚未分配的代码 */
+        private List<String> resolvedCodes = Collections.emptyList();
+        private int[] slots = new int[0];
+        private volatile Set<StockIndex> indices = Collections.emptySet();
+        private volatile boolean paused;
+        private volatile boolean refreshRequested;
+
+        private Subscription(QuoteListener listener) {
+            this.listener = listener;
+        }
+
+        public void setCodes(@NotNull Collection<String> codes) {
+            this.codes = List.copyOf(codes);
+            subscriptionsChanged = true;
+            reschedule();
+        }
+
+        public void setIndices(@NotNull Collection<StockIndex> indices) {
+            this.indices = indices.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(indices));
+            subscriptionsChanged = true;
+            reschedule();
+        }
+
+        /**
+         * 暂停后不再参与定时轮询，但仍可通过 {@link #refresh()} 手动刷新
+         */
+        public void setPaused(boolean paused) {
+            this.paused = paused;
+            reschedule();
+        }
+
+        /**
+         * 尽快为该订阅执行一次刷新
+         */
+        public void refresh() {
+            refreshRequested = true;
+            requestImmediatePoll();
+        }
+
+        private boolean takeRefreshRequest() {
+            if (refreshRequested) {
+                refreshRequested = false;
+                return true;
+            }
+            return false;
+        }
+
+        private void deliver() {
+            List<String> wantedCodes = codes;
+            int[] resolved = slots;
+            if (resolvedCodes != wantedCodes) {
+                resolved = new int[wantedCodes.size()];
+                Arrays.fill(resolved, -1);
+            }
+            Lock readLock = store.readLock();
+            readLock.lock();
+            try {
+                for (int i = 0; i < resolved.length; i++) {
+                    if (resolved[i] < 0) {
+                        resolved[i] = store.slotOf(wantedCodes.get(i));
+                    }
+                }
+            } finally {
+                readLock.unlock();
+            }
+            resolvedCodes = wantedCodes;
+            slots = resolved;
+            try {
+                listener.quotesUpdated(store, resolved.clone());
+            } catch (Exception e) {
+                LOG.warn("行情订阅回调失败", e);
+            }
+        }
+
+        @Override
+        public void dispose() {
+            subscriptions.remove(this);
+            subscriptionsChanged = true;
+            stopPollingIfIdle();
+        }
+    }
+}
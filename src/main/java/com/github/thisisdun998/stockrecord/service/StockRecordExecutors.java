@@ -0,0 +1,25 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 插件专用的后台执行器
+ * <p>
+ * 网络请求、文件读写等阻塞操作在虚拟线程中执行，阻塞期间不占用 IDE 共享线程池的线程。
+ */
+public final class StockRecordExecutors {
+
+    private static final ExecutorService BLOCKING = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("StockRecord-", 0).factory());
+
+    private StockRecordExecutors() {
+    }
+
+    /**
+     * 每个任务一个虚拟线程，可以放心执行阻塞操作
+     */
+    public static ExecutorService blocking() {
+        return BLOCKING;
+    }
+}
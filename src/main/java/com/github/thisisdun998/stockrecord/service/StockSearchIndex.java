@@ -0,0 +1,181 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 股票搜索索引
+ * <p>
+ * 每只股票的检索文本为 "名称\0完整代码"（均已小写），纯数字代码是完整代码的子串，无需单独保存。
+ * 索引为单字符与相邻双字符（bigram）到股票序号的倒排表，以 CSR 形式存放在 int 数组中。
+ * 查询时取关键词中最稀有的 bigram 对应的倒排表作为候选，再在 {@link SymbolTable} 中校验，
+ * 检索文本不单独保存，小写名称已在代码表中计算好。
+ */
+final class StockSearchIndex {
+
+    /** 名称与代码之间的分隔符，关键词中不会出现，因此不会跨字段匹配 */
+    private static final char SEPARATOR = '\0';
+    /** 单字符的键使用 0xFFFF 作为高位，0xFFFF 不是合法字符，不会与 bigram 冲突 */
+    private static final int UNIGRAM_HIGH = 0xFFFF;
+
+    private final SymbolTable symbols;
+    /** 升序排列的 gram 键 */
+    private final int[] keys;
+    /** keys[i] 对应的倒排表为 postings[offsets[i], offsets[i + 1]) */
+    private final int[] offsets;
+    /** 倒排表内的股票序号升序，保证结果顺序与原始列表一致 */
+    private final int[] postings;
+
+    private StockSearchIndex(SymbolTable symbols, int[] keys, int[] offsets, int[] postings) {
+        this.symbols = symbols;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.postings = postings;
+    }
+
+    /**
+     * 为代码表构建索引，结果中的序号即代码表中的序号
+     */
+    static StockSearchIndex build(SymbolTable symbols) {
+        int count = symbols.size();
+        char[] haystack = new char[64];
+        long[] entries = new long[64];
+        int entryCount = 0;
+        for (int i = 0; i < count; i++) {
+            int keyLength = symbols.searchKeyLength(i);
+            if (haystack.length < keyLength) {
+                haystack = new char[keyLength * 2];
+            }
+            int length = symbols.writeSearchKey(i, haystack, SEPARATOR);
+            if (entries.length < entryCount + length * 2) {
+                entries = Arrays.copyOf(entries, Math.max(entries.length * 2, entryCount + length * 2));
+            }
+            for (int j = 0; j < length; j++) {
+                char c = haystack[j];
+                if (c == SEPARATOR) {
+                    continue;
+                }
+                entries[entryCount++] = entry(unigram(c), i);
+                if (j + 1 < length && haystack[j + 1] != SEPARATOR) {
+                    entries[entryCount++] = entry(bigram(c, haystack[j + 1]), i);
+                }
+            }
+        }
+
+        // 高 32 位为 gram 键，低 32 位为序号，排序后 keys 按有符号整数升序，同一键的序号自然升序
+        Arrays.sort(entries, 0, entryCount);
+        int[] keys = new int[entryCount];
+        int[] offsets = new int[entryCount + 1];
+        int[] postings = new int[entryCount];
+        int keyCount = 0;
+        int postingCount = 0;
+        long previous = -1L;
+        for (int i = 0; i < entryCount; i++) {
+            long e = entries[i];
+            if (e == previous) {
+                continue; // 同一只股票中重复出现的 gram
+            }
+            int key = (int) (e >>> 32);
+            if (keyCount == 0 || keys[keyCount - 1] != key) {
+                keys[keyCount] = key;
+                offsets[keyCount] = postingCount;
+                keyCount++;
+            }
+            postings[postingCount++] = (int) e;
+            previous = e;
+        }
+        offsets[keyCount] = postingCount;
+        return new StockSearchIndex(symbols,
+                Arrays.copyOf(keys, keyCount),
+                Arrays.copyOf(offsets, keyCount + 1),
+                Arrays.copyOf(postings, postingCount));
+    }
+
+    int size() {
+        return symbols.size();
+    }
+
+    /**
+     * 按名称、完整代码或纯数字代码做子串匹配
+     * @param keyword 已 trim 并转为小写的关键词
+     * @param limit 最多返回的结果数
+     * @return 匹配股票的序号，按原始列表顺序排列
+     */
+    int[] search(String keyword, int limit) {
+        int length = keyword.length();
+        if (length == 0 || limit <= 0) {
+            return new int[0];
+        }
+
+        // 选出倒排表最短的 gram 作为候选集
+        int best = -1;
+        int bestSize = Integer.MAX_VALUE;
+        if (length == 1) {
+            best = find(unigram(keyword.charAt(0)));
+            bestSize = best < 0 ? 0 : offsets[best + 1] - offsets[best];
+        } else {
+            for (int j = 0; j + 1 < length; j++) {
+                int slot = find(bigram(keyword.charAt(j), keyword.charAt(j + 1)));
+                int size = slot < 0 ? 0 : offsets[slot + 1] - offsets[slot];
+                if (size < bestSize) {
+                    best = slot;
+                    bestSize = size;
+                }
+                if (size == 0) {
+                    break;
+                }
+            }
+        }
+        if (best < 0 || bestSize == 0) {
+            return new int[0];
+        }
+
+        int[] result = new int[Math.min(limit, bestSize)];
+        int found = 0;
+        for (int p = offsets[best], end = offsets[best + 1]; p < end && found < result.length; p++) {
+            int ordinal = postings[p];
+            // 单字符与双字符关键词的候选已是精确结果，更长的关键词需要校验
+            if (length <= 2 || symbols.matches(ordinal, keyword)) {
+                result[found++] = ordinal;
+            }
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    /**
+     * 单条股票是否匹配关键词，与 {@link #search(String, int)} 的匹配规则一致，用于代码表中没有的股票
+     * @param keyword 已 trim 并转为小写的关键词
+     */
+    static boolean matches(String name, String code, String keyword) {
+        return (name + SEPARATOR + code).toLowerCase(Locale.ROOT).contains(keyword);
+    }
+
+    private int find(int key) {
+        int low = 0;
+        int high = keys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Integer.compare(keys[mid], key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static int unigram(char c) {
+        return (UNIGRAM_HIGH << 16) | c;
+    }
+
+    private static int bigram(char first, char second) {
+        return (first << 16) | second;
+    }
+
+    private static long entry(int key, int ordinal) {
+        return ((long) key << 32) | ordinal;
+    }
+}
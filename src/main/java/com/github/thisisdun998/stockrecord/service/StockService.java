@@ -4,13 +4,93 @@ import com.github.thisisdun998.stockrecord.model.StockIndex;
 import com.github.thisisdun998.stockrecord.model.StockIndexQuote;
 import com.github.thisisdun998.stockrecord.model.StockQuote;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * 行情数据源
+ * <p>
+ * 带 Async 后缀的方法不阻塞调用线程：网络请求异步发送，其余阻塞操作在 {@link StockRecordExecutors#blocking()} 中执行。
+ * 返回的 CompletableFuture 被取消时，尚未完成的网络请求也会被取消。
+ * 不带后缀的同步方法等待异步结果，失败时返回空结果而不抛异常，只应在后台线程中调用。
+ * 行情相关的方法都基于 {@link #updateSnapshotAsync}，实现类只需提供这一个行情方法。
+ */
 public interface StockService {
 
-    List<StockQuote> getQuotes(List<String> codes);
+    /** 同步方法使用的单个请求超时 */
+    Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
 
-    StockIndexQuote getIndexQuote(StockIndex index);
+    default List<StockQuote> getQuotes(List<String> codes) {
+        return Futures.await(getQuotesAsync(codes, DEFAULT_TIMEOUT), new ArrayList<>());
+    }
+
+    /**
+     * 获取个股行情
+     * @param timeout 单个请求的超时
+     * @return 按传入顺序排列，没有行情的代码不包含在结果中；全部请求失败时以异常完成
+     */
+    default CompletableFuture<List<StockQuote>> getQuotesAsync(List<String> codes, Duration timeout) {
+        if (codes == null || codes.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        QuoteSnapshotStore store = new QuoteSnapshotStore();
+        return Futures.thenApplyCancellable(updateSnapshotAsync(codes, Collections.emptyList(), store, timeout), updated -> {
+            List<StockQuote> result = new ArrayList<>();
+            for (String code : new LinkedHashSet<>(codes)) {
+                int slot = store.slotOf(code);
+                if (slot >= 0) {
+                    result.add(store.toQuote(slot));
+                }
+            }
+            return result;
+        });
+    }
+
+    default StockIndexQuote getIndexQuote(StockIndex index) {
+        return Futures.await(getIndexQuoteAsync(index, DEFAULT_TIMEOUT),
+                new StockIndexQuote(index.getDisplayName(), 0.0, 0.0, 0.0));
+    }
+
+    /**
+     * 获取指数行情
+     * @param timeout 单个请求的超时
+     * @return 请求失败时以异常完成
+     */
+    default CompletableFuture<StockIndexQuote> getIndexQuoteAsync(StockIndex index, Duration timeout) {
+        QuoteSnapshotStore store = new QuoteSnapshotStore();
+        return Futures.thenApplyCancellable(updateSnapshotAsync(Collections.emptyList(), List.of(index), store, timeout), updated -> {
+            StockIndexQuote quote = store.toIndexQuote(index);
+            if (quote == null) {
+                return new StockIndexQuote(index.getDisplayName(), 0.0, 0.0, 0.0);
+            }
+            return quote;
+        });
+    }
+
+    /**
+     * 在一次请求中同时获取个股与指数行情，原地写入快照存储
+     * @param codes 个股代码，按调用方传入的代码分配槽位
+     * @param indices 指数，按 {@link StockIndex#getSinaCode()} 分配槽位
+     * @param store 快照存储
+     * @return 请求失败时返回 false，此时快照保持不变
+     */
+    default boolean updateSnapshot(List<String> codes, Collection<StockIndex> indices, QuoteSnapshotStore store) {
+        // 请求失败时，不抛异常，以免影响 IDE 使用
+        return Futures.await(updateSnapshotAsync(codes, indices, store, DEFAULT_TIMEOUT), false);
+    }
+
+    /**
+     * {@link #updateSnapshot} 的异步版本
+     * @param timeout 单个请求的超时
+     * @return 至少有一部分行情写入快照时为 true；全部请求失败时以异常完成，此时快照保持不变
+     */
+    CompletableFuture<Boolean> updateSnapshotAsync(List<String> codes, Collection<StockIndex> indices,
+                                                   QuoteSnapshotStore store, Duration timeout);
 
     /**
      * 搜索股票，支持按代码或名称模糊查询
@@ -18,4 +98,38 @@ public interface StockService {
      * @return 匹配的股票列表
      */
     List<StockQuote> searchStocks(String keyword);
+
+    /**
+     * 在上一次的搜索结果中继续过滤。新关键词包含上一次的关键词时，新结果必然是旧结果的子集，
+     * 只要旧结果没有达到数量上限，就无需重新扫描全部股票
+     * @param previousKeyword 上一次搜索的关键词
+     * @param previousResults 上一次搜索的结果
+     * @return 无法复用上一次结果时等同于 {@link #searchStocks(String)}
+     */
+    List<StockQuote> searchStocks(String keyword, String previousKeyword, List<StockQuote> previousResults);
+
+    /**
+     * {@link #searchStocks(String, String, List)} 的异步版本，首次搜索时读取本地股票列表不会阻塞调用线程
+     * @param previousKeyword 上一次搜索的关键词，没有时为 null
+     */
+    CompletableFuture<List<StockQuote>> searchStocksAsync(String keyword, String previousKeyword,
+                                                          List<StockQuote> previousResults);
+
+    /**
+     * 获取最近 count 个交易日的日 K 线（含当日未收盘的 K 线）
+     * @param code 个股代码
+     * @return 按日期升序；请求失败或不支持该代码时返回 null
+     */
+    DailyBars fetchDailyBars(String code, int count);
+
+    /**
+     * 是否支持获取该代码的日 K 线，不支持的代码 {@link #fetchDailyBars} 总是返回 null，无需重试
+     */
+    boolean supportsDailyBars(String code);
+
+    /**
+     * 在后台刷新股票列表缓存，刷新期间搜索继续使用旧列表；同一时间只会有一次刷新在进行
+     * @return 刷新结果，失败时以异常完成
+     */
+    CompletableFuture<Void> refreshStockList();
 }
@@ -0,0 +1,342 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.util.Arrays;
+
+/**
+ * 紧凑存放的股票代码表
+ * <p>
+ * 每只股票只保存一个市场编号（byte）与数字代码（int），所有名称依次拼接在同一个字符区中，按偏移量访问；
+ * 搜索用的小写名称在构建时计算一次，另存一份字符区。代码字符串与名称字符串只在需要时生成。
+ * 另有按 (市场, 数字代码) 排序的序号表，按完整代码查找序号时二分查找，不需要 HashMap。
+ */
+final class SymbolTable {
+
+    /** 市场前缀，下标即保存的市场编号 */
+    private static final String[] MARKETS = {"sh", "sz", "bj", "hk"};
+    /** 各市场数字代码的位数 */
+    private static final int[] DIGITS = {6, 6, 6, 5};
+    private static final int[] MAX_NUMBER = {1_000_000, 1_000_000, 1_000_000, 100_000};
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000};
+    /** 完整代码的最大长度 */
+    static final int MAX_CODE_LENGTH = 8;
+
+    static final SymbolTable EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final byte[] markets;
+    private final int[] numbers;
+    /** 第 i 只股票的名称为 names[nameOffsets[i], nameOffsets[i + 1]) */
+    private final int[] nameOffsets;
+    private final char[] names;
+    /** 与 names 等长的小写名称 */
+    private final char[] lowerNames;
+    /** 按 (市场, 数字代码) 升序排列的序号 */
+    private final int[] byCode;
+
+    private SymbolTable(int size, byte[] markets, int[] numbers, int[] nameOffsets, char[] names) {
+        this.size = size;
+        this.markets = markets;
+        this.numbers = numbers;
+        this.nameOffsets = nameOffsets;
+        this.names = names;
+        this.lowerNames = new char[names.length];
+        for (int i = 0; i < names.length; i++) {
+            lowerNames[i] = Character.toLowerCase(names[i]);
+        }
+        // 高位为市场与数字代码，低 32 位为序号，排序后取出序号
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (codeKey(i) << 32) | i;
+        }
+        Arrays.sort(order);
+        this.byCode = new int[size];
+        for (int i = 0; i < size; i++) {
+            byCode[i] = (int) order[i];
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 完整代码，例如 sz000001
+     */
+    String code(int ordinal) {
+        char[] chars = new char[MAX_CODE_LENGTH];
+        return new String(chars, 0, writeCode(ordinal, chars, 0));
+    }
+
+    String name(int ordinal) {
+        int start = nameOffsets[ordinal];
+        return new String(names, start, nameOffsets[ordinal + 1] - start);
+    }
+
+    int market(int ordinal) {
+        return markets[ordinal];
+    }
+
+    int number(int ordinal) {
+        return numbers[ordinal];
+    }
+
+    /**
+     * 所有名称按序号依次拼接成的字符区，长度为名称长度之和，调用方不得修改
+     */
+    char[] nameChars() {
+        return names;
+    }
+
+    int nameLength(int ordinal) {
+        return nameOffsets[ordinal + 1] - nameOffsets[ordinal];
+    }
+
+    /**
+     * 按完整代码（大小写不限）查找序号
+     * @return 不存在时返回 -1
+     */
+    int indexOf(String code) {
+        if (code == null || code.length() < 3) {
+            return -1;
+        }
+        int market = marketOf(code, 0);
+        if (market < 0 || code.length() - 2 != DIGITS[market]) {
+            return -1;
+        }
+        int number = parseDigits(code, 2, code.length());
+        if (number < 0) {
+            return -1;
+        }
+        long key = codeKey(market, number);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = codeKey(byCode[mid]);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return byCode[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 把搜索用的文本 "小写名称\0完整代码" 写入 dest
+     * @param dest 长度至少为 {@link #searchKeyLength(int)}
+     * @return 写入的字符数
+     */
+    int writeSearchKey(int ordinal, char[] dest, char separator) {
+        int start = nameOffsets[ordinal];
+        int length = nameOffsets[ordinal + 1] - start;
+        System.arraycopy(lowerNames, start, dest, 0, length);
+        dest[length] = separator;
+        return writeCode(ordinal, dest, length + 1);
+    }
+
+    int searchKeyLength(int ordinal) {
+        return nameLength(ordinal) + 1 + 2 + DIGITS[markets[ordinal]];
+    }
+
+    /**
+     * 小写名称或完整代码是否包含关键词，不生成字符串
+     * @param keyword 已转为小写的关键词
+     */
+    boolean matches(int ordinal, String keyword) {
+        int length = keyword.length();
+        if (length == 0) {
+            return true;
+        }
+        int start = nameOffsets[ordinal];
+        int end = nameOffsets[ordinal + 1];
+        if (contains(lowerNames, start, end, keyword)) {
+            return true;
+        }
+        // 在市场编号与数字代码上直接比较完整代码的各个字符
+        int market = markets[ordinal];
+        int number = numbers[ordinal];
+        for (int i = 0, last = 2 + DIGITS[market] - length; i <= last; i++) {
+            int j = 0;
+            while (j < length && codeCharAt(market, number, i + j) == keyword.charAt(j)) {
+                j++;
+            }
+            if (j == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 完整代码的第 index 个字符
+     */
+    private static char codeCharAt(int market, int number, int index) {
+        if (index < 2) {
+            return MARKETS[market].charAt(index);
+        }
+        return (char) ('0' + number / POWERS_OF_TEN[DIGITS[market] - 1 - (index - 2)] % 10);
+    }
+
+    private int writeCode(int ordinal, char[] dest, int offset) {
+        int market = markets[ordinal];
+        String prefix = MARKETS[market];
+        dest[offset] = prefix.charAt(0);
+        dest[offset + 1] = prefix.charAt(1);
+        int digits = DIGITS[market];
+        int number = numbers[ordinal];
+        for (int i = offset + 2 + digits - 1; i >= offset + 2; i--) {
+            dest[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return offset + 2 + digits;
+    }
+
+    private long codeKey(int ordinal) {
+        return codeKey(markets[ordinal], numbers[ordinal]);
+    }
+
+    /**
+     * 数字代码不超过 24 位，市场编号放在其上
+     */
+    private static long codeKey(int market, int number) {
+        return ((long) market << 24) | number;
+    }
+
+    private static boolean contains(char[] chars, int start, int end, String keyword) {
+        int length = keyword.length();
+        char first = keyword.charAt(0);
+        for (int i = start, last = end - length; i <= last; i++) {
+            if (chars[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < length && chars[i + j] == keyword.charAt(j)) {
+                j++;
+            }
+            if (j == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 前缀对应的市场编号，大小写不限
+     * @return 无法识别时返回 -1
+     */
+    private static int marketOf(CharSequence s, int offset) {
+        char a = Character.toLowerCase(s.charAt(offset));
+        char b = Character.toLowerCase(s.charAt(offset + 1));
+        for (int i = 0; i < MARKETS.length; i++) {
+            if (MARKETS[i].charAt(0) == a && MARKETS[i].charAt(1) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return 含非数字字符或为空时返回 -1
+     */
+    private static int parseDigits(CharSequence s, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 依次添加股票，名称直接复制进字符区
+     */
+    static final class Builder {
+        private int size;
+        private byte[] markets;
+        private int[] numbers;
+        private int[] nameOffsets;
+        private char[] names;
+
+        Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            markets = new byte[capacity];
+            numbers = new int[capacity];
+            nameOffsets = new int[capacity + 1];
+            names = new char[capacity * 4];
+        }
+
+        /**
+         * @param code 完整代码，例如 sz000001
+         * @return 代码无法识别时不添加，返回 false
+         */
+        boolean add(CharSequence code, CharSequence name) {
+            if (code.length() < 3) {
+                return false;
+            }
+            return add(code.subSequence(0, 2), code.subSequence(2, code.length()), name);
+        }
+
+        /**
+         * @param market 市场前缀，例如 sz、SH
+         * @param digits 数字代码，例如 000001
+         * @return 市场或代码无法识别时不添加，返回 false
+         */
+        boolean add(CharSequence market, CharSequence digits, CharSequence name) {
+            int m = market.length() == 2 ? marketOf(market, 0) : -1;
+            if (m < 0 || digits.length() != DIGITS[m]) {
+                return false;
+            }
+            int number = parseDigits(digits, 0, digits.length());
+            return number >= 0 && add(m, number, name);
+        }
+
+        /**
+         * 按市场编号与数字代码添加，用于读取本地文件
+         * @return 市场编号或代码超出范围时不添加，返回 false
+         */
+        boolean add(int market, int number, CharSequence name) {
+            if (market < 0 || market >= MARKETS.length || number < 0 || number >= MAX_NUMBER[market]) {
+                return false;
+            }
+            if (size == markets.length) {
+                markets = Arrays.copyOf(markets, size * 2);
+                numbers = Arrays.copyOf(numbers, size * 2);
+                nameOffsets = Arrays.copyOf(nameOffsets, size * 2 + 1);
+            }
+            int offset = nameOffsets[size];
+            int length = name.length();
+            if (offset + length > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, offset + length));
+            }
+            for (int i = 0; i < length; i++) {
+                names[offset + i] = name.charAt(i);
+            }
+            markets[size] = (byte) market;
+            numbers[size] = number;
+            nameOffsets[size + 1] = offset + length;
+            size++;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        SymbolTable build() {
+            return new SymbolTable(size,
+                    Arrays.copyOf(markets, size),
+                    Arrays.copyOf(numbers, size),
+                    Arrays.copyOf(nameOffsets, size + 1),
+                    Arrays.copyOf(names, nameOffsets[size]));
+        }
+    }
+}
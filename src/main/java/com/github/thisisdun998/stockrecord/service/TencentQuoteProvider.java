@@ -0,0 +1,190 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.StockIndex;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 使用腾讯 qt.gtimg.cn 接口获取实时行情，作为新浪接口的备用数据源
+ * <p>
+ * 代码写法与新浪相同，响应为 GBK 编码，每行形如 v_sh600519="1~贵州茅台~600519~1700.00~...";
+ * 指数使用简版代码 s_sh000001。
+ */
+public final class TencentQuoteProvider implements QuoteProvider {
+
+    private static final String BASE_URL = "http://qt.gtimg.cn/q=";
+    // 通过系统属性替换接口地址，例如指向本地的模拟行情服务器
+    private static final String QUOTE_URL_PROPERTY = "stock-record.tencent.url";
+
+    private final SinaQuoteParser quoteParser = new SinaQuoteParser("v_", '~');
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(StockRecordExecutors.blocking())
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final FeedMetrics.Endpoint quoteMetrics;
+    private final QuoteFetcher quoteFetcher;
+
+    /**
+     * 使用默认接口地址，或系统属性指定的地址
+     * @param metrics 请求统计写入的位置，可与其他数据源共用
+     */
+    public TencentQuoteProvider(FeedMetrics metrics) {
+        this(System.getProperty(QUOTE_URL_PROPERTY, BASE_URL), metrics);
+    }
+
+    /**
+     * @param quoteUrl 行情接口地址，以逗号分隔的代码直接拼接在其后，例如 http://qt.gtimg.cn/q=
+     */
+    public TencentQuoteProvider(String quoteUrl, FeedMetrics metrics) {
+        this.quoteMetrics = metrics.endpoint("qt.gtimg.cn");
+        this.quoteFetcher = new QuoteFetcher(client, quoteUrl, null, quoteMetrics,
+                SinaStockService.DEFAULT_SHARD_SIZE, SinaStockService.DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    @Override
+    public String getName() {
+        return "腾讯";
+    }
+
+    @Override
+    public CompletableFuture<Response> fetchAsync(List<String> codes, Collection<StockIndex> indices,
+                                                  Duration timeout) {
+        QuoteRequest request = QuoteRequest.of(codes, indices);
+        if (request.isEmpty()) {
+            return CompletableFuture.completedFuture(store -> {
+            });
+        }
+        return Futures.thenApplyCancellable(quoteFetcher.fetch(request.codes, timeout),
+                bodies -> store -> applyResponses(bodies, request.userCodesByCode, request.indexCodes, store));
+    }
+
+    @Override
+    public void setSharding(int shardSize, int maxConcurrentRequests) {
+        quoteFetcher.setSharding(shardSize, maxConcurrentRequests);
+    }
+
+    @Override
+    public void retainCodes(Collection<String> codes, Collection<StockIndex> indices) {
+        Set<String> keep = new HashSet<>(QuoteRequest.of(codes, indices).codes);
+        synchronized (quoteParser) {
+            quoteParser.retainSymbols(keep);
+        }
+    }
+
+    /**
+     * 把各分片的响应作为同一次批量更新写入快照，按分片顺序写入
+     */
+    private void applyResponses(List<byte[]> bodies, Map<String, List<String>> userCodesByCode,
+                                Set<String> indexCodes, QuoteSnapshotStore store) {
+        Lock writeLock = store.writeLock();
+        synchronized (quoteParser) {
+            writeLock.lock();
+            try {
+                store.beginUpdate();
+                int parseErrors = 0;
+                for (byte[] body : bodies) {
+                    quoteParser.reset(body, body.length);
+                    while (quoteParser.nextLine()) {
+                        String code = quoteParser.code();
+                        // 代码不存在时返回 v_pv_none_match="1"; 之类的内容，只有一个字段
+                        boolean empty = quoteParser.fieldCount() <= 1;
+                        if (indexCodes.contains(code)) {
+                            if (!writeIndexLine(store, store.slotFor(code)) && !empty) {
+                                parseErrors++;
+                            }
+                            continue;
+                        }
+                        List<String> userCodes = userCodesByCode.get(code);
+                        if (userCodes == null) {
+                            continue;
+                        }
+                        for (String userCode : userCodes) {
+                            if (!writeStockLine(store, userCode) && !empty) {
+                                parseErrors++;
+                            }
+                        }
+                    }
+                    parseErrors += quoteParser.malformedLines();
+                }
+                quoteMetrics.recordParseErrors(parseErrors);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 指数简版行情：市场~名称~代码~点数~涨跌~涨跌幅(%)~成交量(手)~成交额(万元)
+     */
+    private boolean writeIndexLine(QuoteSnapshotStore store, int slot) {
+        if (quoteParser.fieldCount() < 5) {
+            return false;
+        }
+        double points = quoteParser.fieldAsDouble(3);
+        double change = quoteParser.fieldAsDouble(4);
+        if (Double.isNaN(points) || Double.isNaN(change)) {
+            return false;
+        }
+        store.setName(slot, quoteParser.name(1));
+        store.setPrice(slot, points);
+        store.setPrevClose(slot, points - change);
+        if (quoteParser.fieldCount() >= 8) {
+            store.setVolume(slot, quoteParser.fieldAsLong(6) * 100);
+            store.setTurnover(slot, quoteParser.fieldAsDouble(7) * 10_000);
+        }
+        return true;
+    }
+
+    /**
+     * 个股：市场~名称~代码~现价~昨收~今开~成交量~外盘~内盘~买一价~买一量~...~买五量~卖一价~卖一量~...~卖五量~
+     * 最近成交~时间~涨跌~涨跌幅~最高~最低~现价/成交量/成交额~成交量~成交额~...
+     * <p>
+     * 沪深 A 股的成交量与挂单量以手为单位、成交额以万元为单位；港股均为股与元，时间写作 2026/10/16 16:08:08。
+     * @return 字段不足或价格无法解析时返回 false
+     */
+    private boolean writeStockLine(QuoteSnapshotStore store, String code) {
+        if (quoteParser.fieldCount() < 6) {
+            return false;
+        }
+        double price = quoteParser.fieldAsDouble(3);
+        double prevClose = quoteParser.fieldAsDouble(4);
+        if (Double.isNaN(prevClose) || Double.isNaN(price)) {
+            return false;
+        }
+        int slot = store.slotFor(code);
+        store.setName(slot, quoteParser.name(1));
+        store.setPrice(slot, price);
+        store.setPrevClose(slot, prevClose);
+        store.setOpen(slot, quoteParser.fieldAsDouble(5));
+        if (quoteParser.fieldCount() < 38) {
+            return true;
+        }
+        boolean hk = quoteParser.code().startsWith("hk");
+        long lot = hk ? 1 : 100;
+        store.setHigh(slot, quoteParser.fieldAsDouble(33));
+        store.setLow(slot, quoteParser.fieldAsDouble(34));
+        store.setVolume(slot, quoteParser.fieldAsLong(36) * lot);
+        store.setTurnover(slot, quoteParser.fieldAsDouble(37) * (hk ? 1 : 10_000));
+        for (int level = 0; level < QuoteSnapshotStore.BOOK_DEPTH; level++) {
+            int bid = 9 + level * 2;
+            int ask = 19 + level * 2;
+            store.setBid(slot, level, quoteParser.fieldAsDouble(bid), quoteParser.fieldAsLong(bid + 1) * lot);
+            store.setAsk(slot, level, quoteParser.fieldAsDouble(ask), quoteParser.fieldAsLong(ask + 1) * lot);
+        }
+        // yyyyMMddHHmmss，港股带分隔符，只取数字后格式相同
+        long dateTime = quoteParser.fieldDigitsLong(30);
+        store.setDateTime(slot, (int) (dateTime / 1_000_000), (int) (dateTime % 1_000_000));
+        return true;
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 一次轮询中发生变化的逐笔行情，按列存放
+ * <p>
+ * 由行情中心在轮询线程中从快照存储收集，再交给内存中的 {@link TickHistory}、磁盘上的 {@link TickJournal}
+ * 与 {@link PriceAlertEngine}。
+ */
+final class TickBatch {
+
+    final int size;
+    final String[] codes;
+    /** 交易日 yyyyMMdd */
+    final int[] dates;
+    /** 行情时间（毫秒） */
+    final long[] times;
+    final double[] prices;
+    /** 当日累计成交量（股） */
+    final long[] volumes;
+    /** 昨收价，用于计算涨跌幅；没有昨收价时为 0 */
+    final double[] prevCloses;
+
+    private TickBatch(int size, String[] codes, int[] dates, long[] times, double[] prices, long[] volumes,
+                      double[] prevCloses) {
+        this.size = size;
+        this.codes = codes;
+        this.dates = dates;
+        this.times = times;
+        this.prices = prices;
+        this.volumes = volumes;
+        this.prevCloses = prevCloses;
+    }
+
+    /**
+     * 收集 codes 中自上次收集以来发生变化的行情
+     * @param lastSequences 每个代码上次收集时的槽位更新序号，由调用方保存，收集时同步更新
+     * @param pollTime 本次轮询的时间，行情本身不带时间时（如指数简版行情）使用
+     */
+    static TickBatch collect(QuoteSnapshotStore store, Collection<String> codes,
+                             Map<String, Long> lastSequences, ZonedDateTime pollTime) {
+        int capacity = codes.size();
+        String[] batchCodes = new String[capacity];
+        int[] dates = new int[capacity];
+        long[] times = new long[capacity];
+        double[] prices = new double[capacity];
+        long[] volumes = new long[capacity];
+        double[] prevCloses = new double[capacity];
+        int size = 0;
+
+        Lock readLock = store.readLock();
+        readLock.lock();
+        try {
+            for (String code : codes) {
+                int slot = store.slotOf(code);
+                if (slot < 0) {
+                    continue;
+                }
+                double price = store.getPrice(slot);
+                if (!(price > 0)) {
+                    continue; // 开盘前或停牌时现价为 0，不是有效成交
+                }
+                long sequence = store.getUpdateSequence(slot);
+                Long last = lastSequences.put(code, sequence);
+                if (last != null && last == sequence) {
+                    continue;
+                }
+
+                int date = store.getDate(slot);
+                if (date > 0) {
+                    times[size] = toEpochMillis(date, store.getTime(slot));
+                } else {
+                    date = toDate(pollTime.toLocalDate());
+                    times[size] = pollTime.toInstant().toEpochMilli();
+                }
+                batchCodes[size] = code;
+                dates[size] = date;
+                prices[size] = price;
+                volumes[size] = store.getVolume(slot);
+                prevCloses[size] = store.getPrevClose(slot);
+                size++;
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return new TickBatch(size, batchCodes, dates, times, prices, volumes, prevCloses);
+    }
+
+    /**
+     * 回放日志后调用：快照中的当前行情已在日志中时（时间不晚于最后一条记录，或价格与成交量都相同），
+     * 把它的更新序号记为已收集，避免重复追加到逐笔历史与日志。需持有 {@link QuoteSnapshotStore#readLock()}
+     * @param replayed 该代码回放出的记录，不为空
+     */
+    static void markReplayed(QuoteSnapshotStore store, String code, TickSeries replayed, Map<String, Long> lastSequences) {
+        int slot = store.slotOf(code);
+        if (slot < 0) {
+            return;
+        }
+        int last = replayed.size() - 1;
+        int date = store.getDate(slot);
+        boolean journaled = date > 0 && toEpochMillis(date, store.getTime(slot)) <= replayed.getTime(last);
+        if (journaled || (store.getPrice(slot) == replayed.getPrice(last)
+                && store.getVolume(slot) == replayed.getVolume(last))) {
+            lastSequences.put(code, store.getUpdateSequence(slot));
+        }
+    }
+
+    static int toDate(LocalDate date) {
+        return date.getYear() * 10_000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    static LocalDate fromDate(int date) {
+        return LocalDate.of(date / 10_000, date / 100 % 100, date % 100);
+    }
+
+    private static long toEpochMillis(int date, int time) {
+        LocalDateTime dateTime = LocalDateTime.of(fromDate(date),
+                LocalTime.of(time / 10_000 % 24, time / 100 % 100 % 60, time % 100 % 60));
+        return dateTime.atZone(TradingCalendar.EXCHANGE_ZONE).toInstant().toEpochMilli();
+    }
+}
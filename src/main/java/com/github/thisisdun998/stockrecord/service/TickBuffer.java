@@ -0,0 +1,130 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * 单个代码的逐笔行情环形缓冲区
+ * <p>
+ * 只允许一个线程写入（行情中心的轮询线程），读取方无需加锁：
+ * 写入方先写数组再递增 volatile 的 count 发布；读取方复制前后各读一次 count，
+ * 复制期间可能被覆盖的最旧数据会被丢弃，因此快照总是一致的。
+ * <p>
+ * 同时维护当日走势的 {@link TickDownsample}（同样单线程写入、读取无锁），调整容量时原样转交给新缓冲区，
+ * 因此走势图仍覆盖整个交易日，不受环形缓冲区丢弃旧记录的影响。
+ */
+final class TickBuffer {
+
+    /** 每条记录占用的字节数：时间、价格、成交量各 8 字节 */
+    static final int BYTES_PER_TICK = 24;
+
+    private final int capacity;
+    private final long[] times;
+    private final double[] prices;
+    private final long[] volumes;
+    private final TickDownsample downsample;
+    /** 已写入的记录总数，也是下一条记录的逻辑序号 */
+    private volatile long count;
+    /** 当日第一条记录的逻辑序号，跨交易日时前移，旧的记录不再出现在快照中 */
+    private volatile long start;
+
+    /** 最近一条记录的交易日，仅由写入线程访问 */
+    private int lastDate;
+
+    TickBuffer(int capacity) {
+        this(capacity, new TickDownsample());
+    }
+
+    private TickBuffer(int capacity, TickDownsample downsample) {
+        this.capacity = capacity;
+        this.downsample = downsample;
+        this.times = new long[capacity];
+        this.prices = new double[capacity];
+        this.volumes = new long[capacity];
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 追加一条记录，仅写入线程调用
+     * @param date 交易日 yyyyMMdd，与上一条不同时视为新的交易日，清空当日记录
+     */
+    void append(int date, long time, double price, long volume) {
+        long c = count;
+        if (date != lastDate) {
+            lastDate = date;
+            start = c;
+            downsample.reset();
+        }
+        int index = (int) (c % capacity);
+        times[index] = time;
+        prices[index] = price;
+        volumes[index] = volume;
+        count = c + 1;
+        downsample.add(price);
+    }
+
+    /**
+     * 复制出容量不同的新缓冲区，保留最近的记录，仅写入线程调用
+     */
+    TickBuffer resized(int newCapacity) {
+        TickBuffer copy = new TickBuffer(newCapacity, downsample);
+        TickSeries series = snapshot();
+        int from = Math.max(0, series.size() - newCapacity);
+        for (int i = from; i < series.size(); i++) {
+            int index = (int) (copy.count % newCapacity);
+            copy.times[index] = series.getTime(i);
+            copy.prices[index] = series.getPrice(i);
+            copy.volumes[index] = series.getVolume(i);
+            copy.count++;
+        }
+        copy.lastDate = lastDate;
+        return copy;
+    }
+
+    /**
+     * 读取当日走势的降采样，可在任意线程调用
+     */
+    SparklineSeries sparkline() {
+        return downsample.snapshot();
+    }
+
+    /**
+     * 读取当日记录的一致快照，可在任意线程调用
+     */
+    TickSeries snapshot() {
+        while (true) {
+            long end = count;
+            // start 可能在读取 count 之后才前移到更大的序号，此时当日尚无已发布的记录
+            long from = Math.min(end, Math.max(start, end - capacity));
+            int size = (int) (end - from);
+            long[] t = new long[size];
+            double[] p = new double[size];
+            long[] v = new long[size];
+            for (int i = 0; i < size; i++) {
+                int index = (int) ((from + i) % capacity);
+                t[i] = times[index];
+                p[i] = prices[index];
+                v[i] = volumes[index];
+            }
+            // 确保上面的数组读取不会重排到再次读取 count 之后
+            VarHandle.acquireFence();
+            // 写入方正在写的下一条会覆盖逻辑序号 count - capacity 的位置，因此再多丢弃一条
+            long firstValid = count - capacity + 1;
+            if (firstValid <= from) {
+                return new TickSeries(t, p, v, size);
+            }
+            if (firstValid >= end) {
+                continue; // 复制期间整个缓冲区都被覆盖，重新读取
+            }
+            int skip = (int) (firstValid - from);
+            return new TickSeries(
+                    Arrays.copyOfRange(t, skip, size),
+                    Arrays.copyOfRange(p, skip, size),
+                    Arrays.copyOfRange(v, skip, size),
+                    size - skip);
+        }
+    }
+}
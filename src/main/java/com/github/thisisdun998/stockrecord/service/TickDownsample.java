@@ -0,0 +1,118 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * 单个代码当日走势的降采样，供走势图绘制
+ * <p>
+ * 固定 {@link #BUCKETS} 个桶，每桶记录首、尾、最高、最低价；桶用完时相邻两桶合并，
+ * 每桶覆盖的记录数翻倍，因此追加是均摊 O(1)，读取只复制固定大小的数组，与当日记录条数无关。
+ * 只允许一个线程写入（行情中心的轮询线程），读取方无需加锁：写入方修改前后各递增一次 volatile 的 version，
+ * 修改期间 version 为奇数；读取方复制前后读到相同的偶数 version 时快照有效，否则重新读取。
+ * 写入方与界面线程互不阻塞。
+ */
+final class TickDownsample {
+
+    /** 桶数，需为偶数 */
+    static final int BUCKETS = 256;
+    /** 每个代码占用的字节数：每桶 4 个 double */
+    static final int BYTES = BUCKETS * 4 * 8;
+
+    private final double[] first = new double[BUCKETS];
+    private final double[] last = new double[BUCKETS];
+    private final double[] low = new double[BUCKETS];
+    private final double[] high = new double[BUCKETS];
+    /** 已使用的桶数 */
+    private int size;
+    /** 每桶覆盖的记录数 */
+    private long span = 1;
+    /** 最后一个桶已有的记录数 */
+    private long filled;
+    /** 修改次数的两倍，写入期间为奇数 */
+    private volatile long version;
+
+    /**
+     * 追加一条记录，仅写入线程调用
+     */
+    void add(double price) {
+        beginWrite();
+        if (size == 0 || filled == span) {
+            if (size == BUCKETS) {
+                halve();
+            }
+            first[size] = price;
+            last[size] = price;
+            low[size] = price;
+            high[size] = price;
+            size++;
+            filled = 1;
+        } else {
+            int index = size - 1;
+            last[index] = price;
+            low[index] = Math.min(low[index], price);
+            high[index] = Math.max(high[index], price);
+            filled++;
+        }
+        endWrite();
+    }
+
+    /**
+     * 进入新的交易日时清空，仅写入线程调用
+     */
+    void reset() {
+        beginWrite();
+        size = 0;
+        span = 1;
+        filled = 0;
+        endWrite();
+    }
+
+    private void beginWrite() {
+        version = version + 1;
+        // 确保下面的修改不会重排到 version 变为奇数之前
+        VarHandle.storeStoreFence();
+    }
+
+    private void endWrite() {
+        version = version + 1;
+    }
+
+    /**
+     * 相邻两桶合并为一桶，合并后所有桶都是满的
+     */
+    private void halve() {
+        for (int i = 0; i < BUCKETS / 2; i++) {
+            int j = i * 2;
+            first[i] = first[j];
+            last[i] = last[j + 1];
+            low[i] = Math.min(low[j], low[j + 1]);
+            high[i] = Math.max(high[j], high[j + 1]);
+        }
+        size = BUCKETS / 2;
+        span *= 2;
+    }
+
+    /**
+     * 读取当前各桶的快照，可在任意线程调用
+     */
+    SparklineSeries snapshot() {
+        while (true) {
+            long before = version;
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue; // 写入方正在修改
+            }
+            int n = size;
+            double[] f = Arrays.copyOf(first, n);
+            double[] l = Arrays.copyOf(last, n);
+            double[] lo = Arrays.copyOf(low, n);
+            double[] hi = Arrays.copyOf(high, n);
+            // 确保上面的数组读取不会重排到再次读取 version 之后
+            VarHandle.acquireFence();
+            if (version == before) {
+                return n == 0 ? SparklineSeries.EMPTY : new SparklineSeries(f, l, lo, hi);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 当日逐笔行情历史
+ * <p>
+ * 行情中心每次轮询后把发生变化的行情追加到对应代码的 {@link TickBuffer}，
+ * 界面可随时读取快照，在本地计算日内高低点、最近 N 分钟涨跌等，无需重新请求。
+ * 所有缓冲区的总内存不超过设置中的上限：每个代码占用 容量 × {@code TickBuffer.BYTES_PER_TICK} 加上固定的
+ * {@code TickDownsample.BYTES}，代码越多，每个代码保留的记录越少。容量按计入本批新代码后的代码总数计算，
+ * 容量下降时所有缓冲区（包括已不再有新行情的代码）立即缩小；容量已降到下限时不再为新代码建立缓冲区。
+ * 不再订阅的代码由 {@link #retainCodes} 移除。
+ */
+public final class TickHistory {
+
+    private static final Logger LOG = Logger.getInstance(TickHistory.class);
+
+    public static final int DEFAULT_MEMORY_LIMIT_MB = 32;
+    /** 每个代码至少保留的记录数 */
+    private static final int MIN_CAPACITY = 64;
+    /** 每个代码最多保留的记录数，3 秒一笔约可覆盖 6.8 小时 */
+    private static final int MAX_CAPACITY = 8192;
+    /** 每个代码至少占用的内存 */
+    private static final long MIN_BYTES_PER_SYMBOL = (long) MIN_CAPACITY * TickBuffer.BYTES_PER_TICK + TickDownsample.BYTES;
+
+    private final Map<String, TickBuffer> buffers = new ConcurrentHashMap<>();
+    private volatile long memoryLimitBytes = DEFAULT_MEMORY_LIMIT_MB * 1024L * 1024L;
+    /** 最近一次计算出的每个代码的容量，没有缓冲区超过该值，仅由轮询线程访问 */
+    private int capacity = MAX_CAPACITY;
+    /** 已因代码数达到上限而跳过新代码，恢复前只记录一次日志，仅由轮询线程访问 */
+    private boolean symbolLimitReported;
+
+    /**
+     * 设置所有缓冲区的内存上限，已有缓冲区在下一次轮询时调整容量
+     */
+    public void setMemoryLimitMb(int megabytes) {
+        memoryLimitBytes = Math.max(1, megabytes) * 1024L * 1024L;
+    }
+
+    /**
+     * 读取某个代码当日记录的快照，可在任意线程调用
+     * @param code 个股为订阅时的代码，指数为 {@link com.github.thisisdun998.stockrecord.model.StockIndex#getSinaCode()}
+     */
+    @NotNull
+    public TickSeries getSeries(String code) {
+        TickBuffer buffer = buffers.get(code);
+        return buffer == null ? TickSeries.EMPTY : buffer.snapshot();
+    }
+
+    /**
+     * 读取某个代码当日走势的降采样，可在任意线程调用；耗时与当日记录条数无关
+     * @param code 同 {@link #getSeries}
+     */
+    @NotNull
+    public SparklineSeries getSparkline(String code) {
+        TickBuffer buffer = buffers.get(code);
+        return buffer == null ? SparklineSeries.EMPTY : buffer.sparkline();
+    }
+
+    /**
+     * 追加一次轮询中发生变化的行情，只能由行情中心的轮询线程调用
+     */
+    void record(TickBatch batch) {
+        int added = 0;
+        for (int i = 0; i < batch.size; i++) {
+            if (!buffers.containsKey(batch.codes[i])) {
+                added++;
+            }
+        }
+        int maxSymbols = maxSymbols();
+        updateCapacity(Math.min(maxSymbols, buffers.size() + added));
+        for (int i = 0; i < batch.size; i++) {
+            String code = batch.codes[i];
+            TickBuffer buffer = buffers.get(code);
+            if (buffer == null) {
+                if (buffers.size() >= maxSymbols) {
+                    reportSymbolLimit(maxSymbols);
+                    continue;
+                }
+                buffer = new TickBuffer(capacity);
+                buffers.put(code, buffer);
+            } else if (buffer.capacity() < capacity) {
+                // 代码减少或上限调高后，有新行情的缓冲区再扩容
+                buffer = buffer.resized(capacity);
+                buffers.put(code, buffer);
+            }
+            buffer.append(batch.dates[i], batch.times[i], batch.prices[i], batch.volumes[i]);
+        }
+    }
+
+    /**
+     * 用日志中回放的当日记录初始化某个代码的缓冲区，已有缓冲区时忽略；只能由行情中心的轮询线程调用
+     * @param date 记录所属的交易日 yyyyMMdd
+     */
+    void restore(String code, int date, TickSeries series) {
+        int maxSymbols = maxSymbols();
+        if (series.isEmpty() || buffers.containsKey(code)) {
+            return;
+        }
+        if (buffers.size() >= maxSymbols) {
+            reportSymbolLimit(maxSymbols);
+            return;
+        }
+        updateCapacity(buffers.size() + 1);
+        TickBuffer buffer = new TickBuffer(capacity);
+        for (int i = 0; i < series.size(); i++) {
+            buffer.append(date, series.getTime(i), series.getPrice(i), series.getVolume(i));
+        }
+        buffers.put(code, buffer);
+    }
+
+    /**
+     * 移除不在 codes 中的代码的记录，只能由行情中心的轮询线程调用
+     */
+    void retainCodes(Set<String> codes) {
+        buffers.keySet().retainAll(codes);
+        updateCapacity(buffers.size());
+    }
+
+    /**
+     * 已建立缓冲区的代码数
+     */
+    int size() {
+        return buffers.size();
+    }
+
+    /**
+     * 当前每个代码的容量，没有缓冲区超过该值；只能由行情中心的轮询线程调用
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 所有缓冲区实际占用的内存，与 {@link #setMemoryLimitMb} 设置的上限比较
+     */
+    long memoryBytes() {
+        long bytes = 0;
+        for (TickBuffer buffer : buffers.values()) {
+            bytes += (long) buffer.capacity() * TickBuffer.BYTES_PER_TICK + TickDownsample.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * 按代码总数重新计算容量，容量下降时缩小所有超出的缓冲区；上限调低后代码数超出时移除多余的缓冲区
+     */
+    private void updateCapacity(int symbolCount) {
+        int maxSymbols = maxSymbols();
+        if (buffers.size() > maxSymbols) {
+            Iterator<String> codes = buffers.keySet().iterator();
+            for (int excess = buffers.size() - maxSymbols; excess > 0 && codes.hasNext(); excess--) {
+                codes.next();
+                codes.remove();
+            }
+            reportSymbolLimit(maxSymbols);
+        } else if (buffers.size() < maxSymbols) {
+            symbolLimitReported = false;
+        }
+        int target = capacityFor(Math.min(maxSymbols, symbolCount));
+        if (target < capacity) {
+            for (Map.Entry<String, TickBuffer> entry : buffers.entrySet()) {
+                if (entry.getValue().capacity() > target) {
+                    entry.setValue(entry.getValue().resized(target));
+                }
+            }
+        }
+        capacity = target;
+    }
+
+    /**
+     * 内存上限内最多可保留的代码数，每个代码都按容量下限计算
+     */
+    private int maxSymbols() {
+        return (int) Math.min(Integer.MAX_VALUE, memoryLimitBytes / MIN_BYTES_PER_SYMBOL);
+    }
+
+    /**
+     * @param symbolCount 不超过 {@link #maxSymbols()}，因此结果不低于容量下限时总内存仍在上限内
+     */
+    private int capacityFor(int symbolCount) {
+        // 每个代码的走势降采样占用固定内存，先从上限中扣除
+        long perSymbol = (memoryLimitBytes / Math.max(1, symbolCount) - TickDownsample.BYTES) / TickBuffer.BYTES_PER_TICK;
+        return (int) Math.max(MIN_CAPACITY, Math.min(MAX_CAPACITY, perSymbol));
+    }
+
+    private void reportSymbolLimit(int maxSymbols) {
+        if (!symbolLimitReported) {
+            symbolLimitReported = true;
+            LOG.warn("逐笔行情历史的内存上限最多容纳 " + maxSymbols + " 个代码，其余代码不再记录");
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 逐笔行情日志，IDE 重启后仍可回放当日及近期的行情
+ * <p>
+ * 每个交易日一个段文件 yyyyMMdd.seg，以内存映射方式只追加写入。所有读写都在同一个后台线程中执行，
+ * 轮询线程只负责把 {@link TickBatch} 交给该线程。段文件格式（小端）：
+ * <pre>
+ * 文件头   int MAGIC, int VERSION, int 交易日, int 代码数, long 写入位置, long 保留
+ * 代码目录 MAX_SYMBOLS 个条目：byte 代码长度, byte[15] 代码, long 最后一条记录的位置, int 记录数, int 保留
+ * 记录区   每条记录：long 时间(毫秒), double 价格, long 累计成交量, int 同一代码上一条记录的位置, int 代码序号
+ * </pre>
+ * 同一代码的记录通过"上一条记录的位置"串成链表，回放某个代码时从目录中的最后一条记录倒序遍历，
+ * 不会读取其他代码的记录。追加时先写记录、再更新写入位置、最后更新目录，
+ * 因此 IDE 异常退出时目录不会指向未写完的记录。
+ * <p>
+ * 段文件从 1MB 起按需加倍，最大 {@link #MAX_SEGMENT_SIZE}（1GB，约 3300 万条记录）。
+ * 达到上限后当日的后续记录被丢弃，只在第一次发生时记录一条警告。
+ */
+public final class TickJournal {
+
+    private static final Logger LOG = Logger.getInstance(TickJournal.class);
+    private static final int MAGIC = 0x53524A4C; // "SRJL"
+    private static final int VERSION = 1;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    static final int HEADER_SIZE = 32;
+    private static final int HEADER_SYMBOL_COUNT = 12;
+    private static final int HEADER_WRITE_POSITION = 16;
+    private static final int MAX_SYMBOLS = 4096;
+    private static final int MAX_CODE_LENGTH = 15;
+    private static final int DIRECTORY_ENTRY_SIZE = 32;
+    private static final int DIRECTORY_LAST_RECORD = 16;
+    private static final int DIRECTORY_RECORD_COUNT = 24;
+    static final int DATA_START = HEADER_SIZE + MAX_SYMBOLS * DIRECTORY_ENTRY_SIZE;
+    static final int RECORD_SIZE = 32;
+    private static final int RECORD_PREVIOUS = 24;
+    private static final int RECORD_SYMBOL = 28;
+    private static final int INITIAL_SEGMENT_SIZE = 1024 * 1024;
+    /** 单个段文件的大小上限，映射的缓冲区以 int 索引，不能超过 2GB */
+    static final long MAX_SEGMENT_SIZE = 1L << 30;
+    /** 段文件保留天数，超过的在新建段文件时删除 */
+    private static final int RETENTION_DAYS = 30;
+    private static final int MAX_OPEN_SEGMENTS = 2;
+
+    private final Path directory;
+    private final long maxSegmentSize;
+    private final ExecutorService writer =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("StockRecord Tick Journal", 1);
+    /**
+     * 已打开的段，按最近使用排序，仅在写入线程中访问。
+     * 指数行情不带日期、使用轮询日期，非交易日时可能与个股的日期不同，因此同时保留两个段
+     */
+    private final Map<Integer, Segment> openSegments = new LinkedHashMap<>(4, 0.75f, true);
+    private boolean symbolLimitReported;
+    private boolean segmentFullReported;
+
+    public TickJournal(Path directory) {
+        this(directory, MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param maxSegmentSize 段文件大小上限，测试中可调小
+     */
+    TickJournal(Path directory, long maxSegmentSize) {
+        this.directory = directory;
+        this.maxSegmentSize = Math.min(maxSegmentSize, MAX_SEGMENT_SIZE);
+    }
+
+    static Path defaultDirectory() {
+        return Path.of(PathManager.getSystemPath(), "stock-record", "ticks");
+    }
+
+    /**
+     * 异步追加一次轮询中发生变化的行情
+     */
+    void append(TickBatch batch) {
+        if (batch.size == 0) {
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                write(batch);
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("写入逐笔行情日志失败", e);
+            }
+        });
+    }
+
+    /**
+     * 回放某个代码在指定交易日的全部记录
+     * @param code 个股为订阅时的代码，指数为 {@link com.github.thisisdun998.stockrecord.model.StockIndex#getSinaCode()}
+     * @return 没有记录时为空序列
+     */
+    public CompletableFuture<TickSeries> replay(@NotNull LocalDate date, @NotNull String code) {
+        return replay(date, List.of(code)).thenApply(series -> series.getOrDefault(code, TickSeries.EMPTY));
+    }
+
+    /**
+     * 回放多个代码在指定交易日的全部记录，段文件只打开一次；排在此前已提交的写入之后执行
+     * @return 代码 → 记录，没有记录的代码不出现在结果中
+     */
+    public CompletableFuture<Map<String, TickSeries>> replay(@NotNull LocalDate date, @NotNull Collection<String> codes) {
+        return CompletableFuture.supplyAsync(() -> {
+            int day = TickBatch.toDate(date);
+            Map<String, TickSeries> result = new HashMap<>();
+            try {
+                Segment open = openSegments.get(day);
+                if (open != null) {
+                    readAll(open, codes, result);
+                    return result;
+                }
+                Path path = segmentPath(day);
+                if (!Files.isRegularFile(path)) {
+                    return result;
+                }
+                Segment segment = Segment.open(path, day, false);
+                if (segment == null) {
+                    LOG.warn("逐笔行情日志文件无法识别，跳过: " + path);
+                } else {
+                    try {
+                        readAll(segment, codes, result);
+                    } finally {
+                        segment.close();
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn("读取逐笔行情日志失败: " + date, e);
+            }
+            return result;
+        }, writer);
+    }
+
+    private static void readAll(Segment segment, Collection<String> codes, Map<String, TickSeries> result) {
+        for (String code : codes) {
+            TickSeries series = segment.read(code);
+            if (!series.isEmpty()) {
+                result.put(code, series);
+            }
+        }
+    }
+
+    /**
+     * 把已写入的数据刷到磁盘并关闭当前段
+     */
+    void close() {
+        writer.execute(() -> {
+            for (Segment segment : openSegments.values()) {
+                segment.close();
+            }
+            openSegments.clear();
+        });
+    }
+
+    private void write(TickBatch batch) throws IOException {
+        for (int i = 0; i < batch.size; i++) {
+            Segment segment = segmentFor(batch.dates[i]);
+            switch (segment.append(batch.codes[i], batch.times[i], batch.prices[i], batch.volumes[i],
+                    maxSegmentSize)) {
+                case SYMBOL_LIMIT -> {
+                    if (!symbolLimitReported) {
+                        symbolLimitReported = true;
+                        LOG.warn("逐笔行情日志的代码数已达上限 " + MAX_SYMBOLS + "，新代码不再记录");
+                    }
+                }
+                case SEGMENT_FULL -> {
+                    if (!segmentFullReported) {
+                        segmentFullReported = true;
+                        LOG.warn("逐笔行情日志 " + batch.dates[i] + " 已达 " + (maxSegmentSize >> 20)
+                                + "MB 上限，当日后续记录不再写入");
+                    }
+                }
+                case APPENDED -> {
+                }
+            }
+        }
+    }
+
+    private Segment segmentFor(int date) throws IOException {
+        Segment open = openSegments.get(date);
+        if (open != null) {
+            return open;
+        }
+        if (openSegments.size() >= MAX_OPEN_SEGMENTS) {
+            Iterator<Segment> eldest = openSegments.values().iterator();
+            eldest.next().close();
+            eldest.remove();
+        }
+        Files.createDirectories(directory);
+        Path path = segmentPath(date);
+        Segment segment = Files.exists(path) ? Segment.open(path, date, true) : null;
+        if (segment == null) {
+            if (Files.exists(path)) {
+                // 无法识别的旧文件，保留以便排查，重新开始当日的记录
+                LOG.warn("逐笔行情日志文件无法识别，已重命名为 .corrupt: " + path);
+                Files.move(path, path.resolveSibling(path.getFileName() + ".corrupt"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            segment = Segment.create(path, date);
+            deleteExpiredSegments(date);
+        }
+        openSegments.put(date, segment);
+        symbolLimitReported = false;
+        return segment;
+    }
+
+    private void deleteExpiredSegments(int today) {
+        int oldest = TickBatch.toDate(TickBatch.fromDate(today).minusDays(RETENTION_DAYS));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String stem = name.substring(0, name.length() - SEGMENT_SUFFIX.length());
+                if (stem.length() == 8 && stem.chars().allMatch(Character::isDigit)
+                        && Integer.parseInt(stem) < oldest) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("清理过期的逐笔行情日志失败", e);
+        }
+    }
+
+    private Path segmentPath(int date) {
+        return directory.resolve(date + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * 单个交易日的段文件
+     */
+    /**
+     * 追加一条记录的结果
+     */
+    private enum AppendResult {
+        APPENDED,
+        /** 代码数已达上限，无法记录新代码 */
+        SYMBOL_LIMIT,
+        /** 段文件已达大小上限 */
+        SEGMENT_FULL
+    }
+
+    private static final class Segment {
+        final int date;
+        private final FileChannel channel;
+        private final boolean writable;
+        private ByteBuffer buffer;
+        private final Map<String, Integer> symbols = new HashMap<>();
+        private int symbolCount;
+        private long writePosition;
+
+        private Segment(FileChannel channel, int date, boolean writable) {
+            this.channel = channel;
+            this.date = date;
+            this.writable = writable;
+        }
+
+        static Segment create(Path path, int date) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(channel, date, true);
+            segment.map(INITIAL_SEGMENT_SIZE);
+            segment.buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, date)
+                    .putInt(HEADER_SYMBOL_COUNT, 0).putLong(HEADER_WRITE_POSITION, DATA_START);
+            segment.writePosition = DATA_START;
+            return segment;
+        }
+
+        /**
+         * 打开已有的段文件
+         * @return 文件头或代码目录不正确时返回 null
+         */
+        @Nullable
+        static Segment open(Path path, int date, boolean writable) throws IOException {
+            FileChannel channel = writable
+                    ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(path, StandardOpenOption.READ);
+            Segment segment = new Segment(channel, date, writable);
+            try {
+                long size = channel.size();
+                if (size < DATA_START || size > Integer.MAX_VALUE) {
+                    segment.close();
+                    return null;
+                }
+                segment.map(size);
+                ByteBuffer b = segment.buffer;
+                long writePosition = b.getLong(HEADER_WRITE_POSITION);
+                int symbolCount = b.getInt(HEADER_SYMBOL_COUNT);
+                if (b.getInt(0) != MAGIC || b.getInt(4) != VERSION || b.getInt(8) != date
+                        || symbolCount < 0 || symbolCount > MAX_SYMBOLS
+                        || writePosition < DATA_START || writePosition > size) {
+                    segment.close();
+                    return null;
+                }
+                segment.writePosition = writePosition;
+                segment.symbolCount = symbolCount;
+                byte[] code = new byte[MAX_CODE_LENGTH];
+                for (int id = 0; id < symbolCount; id++) {
+                    int entry = HEADER_SIZE + id * DIRECTORY_ENTRY_SIZE;
+                    int length = b.get(entry);
+                    if (length <= 0 || length > MAX_CODE_LENGTH) {
+                        segment.close();
+                        return null;
+                    }
+                    b.get(entry + 1, code, 0, length);
+                    segment.symbols.put(new String(code, 0, length, StandardCharsets.US_ASCII), id);
+                }
+                return segment;
+            } catch (IOException | RuntimeException e) {
+                segment.close();
+                throw e;
+            }
+        }
+
+        private void map(long size) throws IOException {
+            // 可写映射超出文件长度时会自动扩展文件
+            buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, size)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * @param maxSize 段文件大小上限，写满后不再扩展
+         */
+        AppendResult append(String code, long time, double price, long volume, long maxSize) throws IOException {
+            Integer id = symbols.get(code);
+            if (id == null) {
+                byte[] bytes = code.getBytes(StandardCharsets.US_ASCII);
+                if (symbolCount >= MAX_SYMBOLS || bytes.length > MAX_CODE_LENGTH) {
+                    return AppendResult.SYMBOL_LIMIT;
+                }
+                id = symbolCount++;
+                int entry = HEADER_SIZE + id * DIRECTORY_ENTRY_SIZE;
+                buffer.put(entry, (byte) bytes.length).put(entry + 1, bytes)
+                        .putLong(entry + DIRECTORY_LAST_RECORD, 0L).putInt(entry + DIRECTORY_RECORD_COUNT, 0);
+                buffer.putInt(HEADER_SYMBOL_COUNT, symbolCount);
+                symbols.put(code, id);
+            }
+
+            if (writePosition + RECORD_SIZE > buffer.capacity()) {
+                long size = Math.min((long) buffer.capacity() * 2, maxSize);
+                if (writePosition + RECORD_SIZE > size) {
+                    return AppendResult.SEGMENT_FULL;
+                }
+                map(size);
+            }
+            int entry = HEADER_SIZE + id * DIRECTORY_ENTRY_SIZE;
+            int position = (int) writePosition;
+            buffer.putLong(position, time)
+                    .putDouble(position + 8, price)
+                    .putLong(position + 16, volume)
+                    .putInt(position + RECORD_PREVIOUS, (int) buffer.getLong(entry + DIRECTORY_LAST_RECORD))
+                    .putInt(position + RECORD_SYMBOL, id);
+            writePosition += RECORD_SIZE;
+            buffer.putLong(HEADER_WRITE_POSITION, writePosition);
+            buffer.putLong(entry + DIRECTORY_LAST_RECORD, position)
+                    .putInt(entry + DIRECTORY_RECORD_COUNT, buffer.getInt(entry + DIRECTORY_RECORD_COUNT) + 1);
+            return AppendResult.APPENDED;
+        }
+
+        /**
+         * 沿链表倒序读取某个代码的全部记录
+         */
+        TickSeries read(String code) {
+            Integer id = symbols.get(code);
+            if (id == null) {
+                return TickSeries.EMPTY;
+            }
+            int entry = HEADER_SIZE + id * DIRECTORY_ENTRY_SIZE;
+            // 记录数不超过写入位置之前能容纳的条数，目录损坏时不会分配过大的数组
+            int count = Math.max(0, Math.min(buffer.getInt(entry + DIRECTORY_RECORD_COUNT),
+                    (int) ((writePosition - DATA_START) / RECORD_SIZE)));
+            long[] times = new long[count];
+            double[] prices = new double[count];
+            long[] volumes = new long[count];
+            int i = count;
+            long record = buffer.getLong(entry + DIRECTORY_LAST_RECORD);
+            while (i > 0 && record >= DATA_START && record + RECORD_SIZE <= writePosition) {
+                int position = (int) record;
+                if (buffer.getInt(position + RECORD_SYMBOL) != id) {
+                    break; // 链表损坏，只保留已读到的部分
+                }
+                i--;
+                times[i] = buffer.getLong(position);
+                prices[i] = buffer.getDouble(position + 8);
+                volumes[i] = buffer.getLong(position + 16);
+                record = buffer.getInt(position + RECORD_PREVIOUS);
+            }
+            if (i == 0) {
+                return new TickSeries(times, prices, volumes, count);
+            }
+            return new TickSeries(
+                    Arrays.copyOfRange(times, i, count),
+                    Arrays.copyOfRange(prices, i, count),
+                    Arrays.copyOfRange(volumes, i, count),
+                    count - i);
+        }
+
+        void close() {
+            try {
+                if (writable && buffer instanceof MappedByteBuffer mapped) {
+                    mapped.force();
+                }
+                channel.close();
+            } catch (IOException e) {
+                LOG.warn("关闭逐笔行情日志失败", e);
+            }
+        }
+    }
+}
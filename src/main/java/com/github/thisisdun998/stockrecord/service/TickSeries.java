@@ -0,0 +1,117 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.time.Duration;
+
+/**
+ * 单个代码当日逐笔行情的不可变快照，按时间升序
+ * <p>
+ * 成交量为当日累计成交量（股），两条记录的差即为期间成交量。
+ */
+public final class TickSeries {
+
+    public static final TickSeries EMPTY = new TickSeries(new long[0], new double[0], new long[0], 0);
+
+    private final long[] times;
+    private final double[] prices;
+    private final long[] volumes;
+    private final int size;
+
+    TickSeries(long[] times, double[] prices, long[] volumes, int size) {
+        this.times = times;
+        this.prices = prices;
+        this.volumes = volumes;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 第 i 条记录的时间（毫秒）
+     */
+    public long getTime(int i) {
+        return times[i];
+    }
+
+    public double getPrice(int i) {
+        return prices[i];
+    }
+
+    public long getVolume(int i) {
+        return volumes[i];
+    }
+
+    public double getLastPrice() {
+        return size == 0 ? Double.NaN : prices[size - 1];
+    }
+
+    /**
+     * 快照内的最高价，没有记录时返回 NaN
+     */
+    public double getHigh() {
+        double high = Double.NaN;
+        for (int i = 0; i < size; i++) {
+            if (!(prices[i] <= high)) {
+                high = prices[i];
+            }
+        }
+        return high;
+    }
+
+    /**
+     * 快照内的最低价，没有记录时返回 NaN
+     */
+    public double getLow() {
+        double low = Double.NaN;
+        for (int i = 0; i < size; i++) {
+            if (!(prices[i] >= low)) {
+                low = prices[i];
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 最近 window 时间内的价格变化，记录覆盖的时间不足 window 时返回 NaN
+     */
+    public double getChange(Duration window) {
+        int i = indexAtOrBefore(window);
+        return i < 0 ? Double.NaN : prices[size - 1] - prices[i];
+    }
+
+    /**
+     * 最近 window 时间内的成交量，记录覆盖的时间不足 window 时返回 -1
+     */
+    public long getVolume(Duration window) {
+        int i = indexAtOrBefore(window);
+        return i < 0 ? -1 : volumes[size - 1] - volumes[i];
+    }
+
+    /**
+     * 时间不晚于最后一条记录前 window 的最近一条记录
+     */
+    private int indexAtOrBefore(Duration window) {
+        if (size == 0) {
+            return -1;
+        }
+        long target = times[size - 1] - window.toMillis();
+        int low = 0;
+        int high = size - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] <= target) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,294 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 交易日历
+ * <p>
+ * 记录上交所、深交所与港交所的交易时段，休市日从本地日历文件读取：
+ * 插件自带 /stock-record/holidays.txt，用户可在 IDE 配置目录下的 stock-record/holidays.txt 中补充。
+ * 文件每行一个休市日，格式为 "市场 日期"，例如 "CN 2026-10-01"，# 之后为注释。
+ */
+public final class TradingCalendar {
+
+    private static final Logger LOG = Logger.getInstance(TradingCalendar.class);
+    private static final String BUNDLED_HOLIDAYS = "/stock-record/holidays.txt";
+
+    /** 沪深港三地交易所均使用 UTC+8 */
+    public static final ZoneId EXCHANGE_ZONE = ZoneId.of("Asia/Shanghai");
+
+    public enum Market {
+        /** 上交所、深交所，交易时段与休市日相同 */
+        CN,
+        /** 港交所 */
+        HK;
+
+        /**
+         * 根据用户输入的个股代码判断所属市场
+         */
+        public static Market ofCode(String code) {
+            String c = code == null ? "" : code.trim().toLowerCase(Locale.ROOT);
+            if (c.startsWith("hk") || c.endsWith(".hk") || c.matches("\\d{5}")) {
+                return HK;
+            }
+            return CN;
+        }
+    }
+
+    /**
+     * 交易阶段，按活跃程度升序排列
+     */
+    public enum Phase {
+        /** 休市：非交易日或收盘后 */
+        CLOSED,
+        /** 午间休市 */
+        BREAK,
+        /** 开盘、收盘集合竞价 */
+        AUCTION,
+        /** 连续竞价 */
+        CONTINUOUS;
+
+        public boolean isTrading() {
+            return this == AUCTION || this == CONTINUOUS;
+        }
+    }
+
+    private static final class Session {
+        final LocalTime start;
+        final LocalTime end;
+        final Phase phase;
+
+        Session(String start, String end, Phase phase) {
+            this.start = LocalTime.parse(start);
+            this.end = LocalTime.parse(end);
+            this.phase = phase;
+        }
+    }
+
+    private static final Map<Market, List<Session>> SESSIONS = new EnumMap<>(Market.class);
+
+    static {
+        // 9:25 至 9:30 为撮合后的静默期，行情不变，与开盘集合竞价合并处理
+        SESSIONS.put(Market.CN, List.of(
+                new Session("09:15", "09:30", Phase.AUCTION),
+                new Session("09:30", "11:30", Phase.CONTINUOUS),
+                new Session("11:30", "13:00", Phase.BREAK),
+                new Session("13:00", "14:57", Phase.CONTINUOUS),
+                new Session("14:57", "15:00", Phase.AUCTION)));
+        SESSIONS.put(Market.HK, List.of(
+                new Session("09:00", "09:30", Phase.AUCTION),
+                new Session("09:30", "12:00", Phase.CONTINUOUS),
+                new Session("12:00", "13:00", Phase.BREAK),
+                new Session("13:00", "16:00", Phase.CONTINUOUS),
+                new Session("16:00", "16:10", Phase.AUCTION)));
+    }
+
+    /** 查找下一个交易日时最多向后查找的天数，足以跨过最长的长假 */
+    private static final int MAX_LOOKAHEAD_DAYS = 30;
+
+    private final Map<Market, Set<LocalDate>> holidays;
+
+    TradingCalendar(Map<Market, Set<LocalDate>> holidays) {
+        this.holidays = holidays;
+    }
+
+    /**
+     * 读取插件自带与用户补充的休市日，当年没有某个市场的休市日时记录警告
+     */
+    static TradingCalendar load() {
+        Map<Market, Set<LocalDate>> holidays = new EnumMap<>(Market.class);
+        for (Market market : Market.values()) {
+            holidays.put(market, new HashSet<>());
+        }
+        try (InputStream in = TradingCalendar.class.getResourceAsStream(BUNDLED_HOLIDAYS)) {
+            if (in != null) {
+                parse(new InputStreamReader(in, StandardCharsets.UTF_8), holidays);
+            }
+        } catch (IOException e) {
+            LOG.warn("读取内置休市日失败", e);
+        }
+        Path userFile = Path.of(PathManager.getConfigPath(), "stock-record", "holidays.txt");
+        if (Files.isRegularFile(userFile)) {
+            try (Reader reader = Files.newBufferedReader(userFile, StandardCharsets.UTF_8)) {
+                parse(reader, holidays);
+            } catch (IOException e) {
+                LOG.warn("读取休市日文件失败: " + userFile, e);
+            }
+        }
+        TradingCalendar calendar = new TradingCalendar(holidays);
+        int year = LocalDate.now(EXCHANGE_ZONE).getYear();
+        for (Market market : Market.values()) {
+            if (!calendar.hasHolidays(market, year)) {
+                LOG.warn("休市日文件中没有 " + year + " 年的 " + market + " 休市日，节假日将被当作交易日，"
+                        + "可在 " + userFile + " 中补充");
+            }
+        }
+        return calendar;
+    }
+
+    /**
+     * 某个市场在指定年份是否有休市日，用于发现日历文件未更新的年份
+     */
+    boolean hasHolidays(Market market, int year) {
+        for (LocalDate date : holidays.getOrDefault(market, Collections.emptySet())) {
+            if (date.getYear() == year) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void parse(Reader reader, Map<Market, Set<LocalDate>> holidays) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length != 2) {
+                continue;
+            }
+            try {
+                Market market = Market.valueOf(parts[0].toUpperCase(Locale.ROOT));
+                holidays.get(market).add(LocalDate.parse(parts[1]));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                LOG.warn("无法识别的休市日: " + line.trim());
+            }
+        }
+    }
+
+    /**
+     * 是否为交易日
+     */
+    public boolean isTradingDay(Market market, LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        if (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY) {
+            return false;
+        }
+        return !holidays.getOrDefault(market, Collections.emptySet()).contains(date);
+    }
+
+    /**
+     * 某个市场在指定时刻所处的交易阶段
+     */
+    public Phase phaseAt(Market market, ZonedDateTime time) {
+        ZonedDateTime local = time.withZoneSameInstant(EXCHANGE_ZONE);
+        if (!isTradingDay(market, local.toLocalDate())) {
+            return Phase.CLOSED;
+        }
+        LocalTime clock = local.toLocalTime();
+        for (Session session : SESSIONS.get(market)) {
+            if (!clock.isBefore(session.start) && clock.isBefore(session.end)) {
+                return session.phase;
+            }
+        }
+        return Phase.CLOSED;
+    }
+
+    /**
+     * 多个市场中最活跃的阶段，没有市场时视为休市
+     */
+    public Phase phaseAt(Collection<Market> markets, ZonedDateTime time) {
+        Phase result = Phase.CLOSED;
+        for (Market market : markets) {
+            Phase phase = phaseAt(market, time);
+            if (phase.compareTo(result) > 0) {
+                result = phase;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 指定时刻之后，某个市场下一次切换交易阶段的时刻
+     */
+    public ZonedDateTime nextPhaseChange(Market market, ZonedDateTime time) {
+        ZonedDateTime local = time.withZoneSameInstant(EXCHANGE_ZONE);
+        LocalDate date = local.toLocalDate();
+        LocalTime clock = local.toLocalTime();
+        for (int i = 0; i <= MAX_LOOKAHEAD_DAYS; i++, date = date.plusDays(1)) {
+            if (!isTradingDay(market, date)) {
+                continue;
+            }
+            for (Session session : SESSIONS.get(market)) {
+                if (i > 0 || session.start.isAfter(clock)) {
+                    return date.atTime(session.start).atZone(EXCHANGE_ZONE);
+                }
+                if (session.end.isAfter(clock)) {
+                    return date.atTime(session.end).atZone(EXCHANGE_ZONE);
+                }
+            }
+        }
+        return local.plusDays(MAX_LOOKAHEAD_DAYS);
+    }
+
+    /**
+     * 指定时刻已经收盘的最近一个交易日，当日尚未收盘时为上一个交易日
+     */
+    public LocalDate lastClosedTradingDay(Market market, ZonedDateTime time) {
+        ZonedDateTime local = time.withZoneSameInstant(EXCHANGE_ZONE);
+        List<Session> sessions = SESSIONS.get(market);
+        LocalTime close = sessions.get(sessions.size() - 1).end;
+        LocalDate date = local.toLocalDate();
+        if (!isTradingDay(market, date) || local.toLocalTime().isBefore(close)) {
+            date = date.minusDays(1);
+        }
+        for (int i = 0; i < MAX_LOOKAHEAD_DAYS && !isTradingDay(market, date); i++) {
+            date = date.minusDays(1);
+        }
+        return date;
+    }
+
+    /**
+     * (from, to] 之间的交易日数
+     */
+    public int tradingDaysBetween(Market market, LocalDate from, LocalDate to) {
+        int count = 0;
+        for (LocalDate date = from.plusDays(1); !date.isAfter(to); date = date.plusDays(1)) {
+            if (isTradingDay(market, date)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 多个市场中最早的一次阶段切换，没有市场时返回 null
+     */
+    public ZonedDateTime nextPhaseChange(Collection<Market> markets, ZonedDateTime time) {
+        ZonedDateTime result = null;
+        for (Market market : markets) {
+            ZonedDateTime next = nextPhaseChange(market, time);
+            if (result == null || next.isBefore(result)) {
+                result = next;
+            }
+        }
+        return result;
+    }
+}
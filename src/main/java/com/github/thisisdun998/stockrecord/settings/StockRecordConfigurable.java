@@ -0,0 +1,100 @@
+package com.github.thisisdun998.stockrecord.settings;
+
+import com.github.thisisdun998.stockrecord.persistence.StockRecordSettings;
+import com.github.thisisdun998.stockrecord.service.StockQuoteHub;
+import com.intellij.openapi.options.Configurable;
+import com.intellij.util.ui.FormBuilder;
+
+import javax.swing.*;
+
+/**
+ * 设置页：Settings | Tools | Stock Record
+ */
+public final class StockRecordConfigurable implements Configurable {
+
+    private static final int MIN_MEMORY_MB = 1;
+    private static final int MAX_MEMORY_MB = 1024;
+    private static final int MAX_SHARD_SIZE = 1000;
+    private static final int MAX_CONCURRENT_REQUESTS = 16;
+
+    private JSpinner tickHistoryMemorySpinner;
+    private JSpinner quoteShardSizeSpinner;
+    private JSpinner maxConcurrentRequestsSpinner;
+    private JSpinner hkdToCnyRateSpinner;
+
+    @Override
+    public String getDisplayName() {
+        return "Stock Record";
+    }
+
+    @Override
+    public JComponent createComponent() {
+        StockRecordSettings settings = StockRecordSettings.getInstance();
+        tickHistoryMemorySpinner = new JSpinner(new SpinnerNumberModel(
+                settings.getTickHistoryMemoryMb(), MIN_MEMORY_MB, MAX_MEMORY_MB, 1));
+        quoteShardSizeSpinner = new JSpinner(new SpinnerNumberModel(
+                settings.getQuoteShardSize(), 1, MAX_SHARD_SIZE, 10));
+        maxConcurrentRequestsSpinner = new JSpinner(new SpinnerNumberModel(
+                settings.getMaxConcurrentRequests(), 1, MAX_CONCURRENT_REQUESTS, 1));
+        hkdToCnyRateSpinner = new JSpinner(new SpinnerNumberModel(
+                settings.getHkdToCnyRate(), 0.01, 10.0, 0.01));
+        hkdToCnyRateSpinner.setEditor(new JSpinner.NumberEditor(hkdToCnyRateSpinner, "0.0000"));
+        return FormBuilder.createFormBuilder()
+                .addLabeledComponent("逐笔行情历史内存上限 (MB):", tickHistoryMemorySpinner)
+                .addLabeledComponent("每个行情请求的代码数:", quoteShardSizeSpinner)
+                .addLabeledComponent("同时进行的行情请求数:", maxConcurrentRequestsSpinner)
+                .addLabeledComponent("港元兑人民币汇率:", hkdToCnyRateSpinner)
+                .addComponentFillVertically(new JPanel(), 0)
+                .getPanel();
+    }
+
+    @Override
+    public boolean isModified() {
+        StockRecordSettings settings = StockRecordSettings.getInstance();
+        return intValue(tickHistoryMemorySpinner) != settings.getTickHistoryMemoryMb()
+                || intValue(quoteShardSizeSpinner) != settings.getQuoteShardSize()
+                || intValue(maxConcurrentRequestsSpinner) != settings.getMaxConcurrentRequests()
+                || doubleValue(hkdToCnyRateSpinner) != settings.getHkdToCnyRate();
+    }
+
+    @Override
+    public void apply() {
+        StockRecordSettings settings = StockRecordSettings.getInstance();
+        int megabytes = intValue(tickHistoryMemorySpinner);
+        int shardSize = intValue(quoteShardSizeSpinner);
+        int maxConcurrentRequests = intValue(maxConcurrentRequestsSpinner);
+        settings.setTickHistoryMemoryMb(megabytes);
+        settings.setQuoteShardSize(shardSize);
+        settings.setMaxConcurrentRequests(maxConcurrentRequests);
+        // 汇率在自选面板下一次刷新时生效
+        settings.setHkdToCnyRate(doubleValue(hkdToCnyRateSpinner));
+        StockQuoteHub hub = StockQuoteHub.getInstance();
+        hub.getTickHistory().setMemoryLimitMb(megabytes);
+        hub.setQuoteSharding(shardSize, maxConcurrentRequests);
+    }
+
+    @Override
+    public void reset() {
+        StockRecordSettings settings = StockRecordSettings.getInstance();
+        tickHistoryMemorySpinner.setValue(settings.getTickHistoryMemoryMb());
+        quoteShardSizeSpinner.setValue(settings.getQuoteShardSize());
+        maxConcurrentRequestsSpinner.setValue(settings.getMaxConcurrentRequests());
+        hkdToCnyRateSpinner.setValue(settings.getHkdToCnyRate());
+    }
+
+    @Override
+    public void disposeUIResources() {
+        tickHistoryMemorySpinner = null;
+        quoteShardSizeSpinner = null;
+        maxConcurrentRequestsSpinner = null;
+        hkdToCnyRateSpinner = null;
+    }
+
+    private static int intValue(JSpinner spinner) {
+        return ((Number) spinner.getValue()).intValue();
+    }
+
+    private static double doubleValue(JSpinner spinner) {
+        return ((Number) spinner.getValue()).doubleValue();
+    }
+}
@@ -2,20 +2,19 @@ package com.github.thisisdun998.stockrecord.statusbar;
 
 import com.github.thisisdun998.stockrecord.model.StockIndex;
 import com.github.thisisdun998.stockrecord.model.StockIndexQuote;
-import com.github.thisisdun998.stockrecord.service.SinaStockService;
-import com.github.thisisdun998.stockrecord.service.StockService;
+import com.github.thisisdun998.stockrecord.service.QuoteSnapshotStore;
+import com.github.thisisdun998.stockrecord.service.StockQuoteHub;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.wm.CustomStatusBarWidget;
 import com.intellij.openapi.wm.StatusBar;
 import com.intellij.openapi.wm.StatusBarWidget;
-import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.EnumSet;
+import java.util.concurrent.locks.Lock;
 
 public final class StockIndexStatusBarWidget implements CustomStatusBarWidget {
 
@@ -23,8 +22,8 @@ public final class StockIndexStatusBarWidget implements CustomStatusBarWidget {
     private final JPanel panel;
     private final JComboBox<StockIndex> comboBox;
     private final JLabel label;
-    private final StockService stockService = new SinaStockService();
-    private ScheduledFuture<?> pollingTask;
+    private final StockQuoteHub.Subscription subscription;
+    private volatile StockIndex selectedIndex;
 
     public StockIndexStatusBarWidget(Project project) {
         this.project = project;
@@ -36,30 +35,36 @@ public final class StockIndexStatusBarWidget implements CustomStatusBarWidget {
         panel.add(comboBox);
         panel.add(label);
 
-        comboBox.addActionListener(e -> restartPolling());
+        this.subscription = StockQuoteHub.getInstance().subscribe(this, (store, slots) -> updateIndex(store));
 
-        restartPolling();
+        comboBox.addActionListener(e -> updateSubscription());
+
+        updateSubscription();
     }
 
-    private void restartPolling() {
-        stopPolling();
+    private void updateSubscription() {
         StockIndex index = (StockIndex) comboBox.getSelectedItem();
+        selectedIndex = index;
+        subscription.setIndices(index == null ? EnumSet.noneOf(StockIndex.class) : EnumSet.of(index));
+        subscription.refresh();
+    }
+
+    private void updateIndex(QuoteSnapshotStore store) {
+        StockIndex index = selectedIndex;
         if (index == null) {
             return;
         }
-        pollingTask = AppExecutorUtil.getAppScheduledExecutorService()
-                .scheduleWithFixedDelay(() -> updateIndex(index), 0, 3, TimeUnit.SECONDS);
-    }
-
-    private void stopPolling() {
-        if (pollingTask != null) {
-            pollingTask.cancel(false);
-            pollingTask = null;
+        StockIndexQuote quote;
+        Lock readLock = store.readLock();
+        readLock.lock();
+        try {
+            quote = store.toIndexQuote(index);
+        } finally {
+            readLock.unlock();
+        }
+        if (quote == null) {
+            return;
         }
-    }
-
-    private void updateIndex(StockIndex index) {
-        StockIndexQuote quote = stockService.getIndexQuote(index);
         SwingUtilities.invokeLater(() -> {
             String text = String.format(
                     "%s %.2f  涨跌: %.2f  涨跌幅: %.2f%%",
@@ -96,6 +101,6 @@ public final class StockIndexStatusBarWidget implements CustomStatusBarWidget {
 
     @Override
     public void dispose() {
-        stopPolling();
+        // 订阅随本组件一起释放
     }
 }
@@ -0,0 +1,153 @@
+package com.github.thisisdun998.stockrecord.toolWindow;
+
+import com.github.thisisdun998.stockrecord.service.FeedMetrics;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 诊断页：各行情接口的请求数、失败数、解析错误数、接收字节数与耗时分布，每两秒刷新一次
+ */
+final class DiagnosticsPanel implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(DiagnosticsPanel.class);
+    private static final int REFRESH_INTERVAL_MILLIS = 2_000;
+
+    private final FeedMetrics metrics;
+    private final JPanel mainPanel = new JPanel(new BorderLayout());
+    private final MetricsTableModel tableModel = new MetricsTableModel();
+    private final Timer timer;
+
+    DiagnosticsPanel(FeedMetrics metrics) {
+        this.metrics = metrics;
+
+        DefaultActionGroup actionGroup = new DefaultActionGroup();
+        actionGroup.add(new LogAction());
+        actionGroup.add(new ResetAction());
+        ActionToolbar toolbar = ActionManager.getInstance()
+                .createActionToolbar("StockDiagnosticsToolbar", actionGroup, true);
+        toolbar.setTargetComponent(mainPanel);
+
+        mainPanel.add(toolbar.getComponent(), BorderLayout.NORTH);
+        mainPanel.add(new JBScrollPane(new JBTable(tableModel)), BorderLayout.CENTER);
+
+        timer = new Timer(REFRESH_INTERVAL_MILLIS, e -> {
+            // 页面不可见时不刷新
+            if (mainPanel.isShowing()) {
+                refresh();
+            }
+        });
+        timer.start();
+        refresh();
+    }
+
+    JComponent getComponent() {
+        return mainPanel;
+    }
+
+    private void refresh() {
+        tableModel.setRows(metrics.snapshot());
+    }
+
+    @Override
+    public void dispose() {
+        timer.stop();
+    }
+
+    private final class LogAction extends AnAction {
+        LogAction() {
+            super("写入日志", "把当前统计写入 idea.log", AllIcons.Actions.Download);
+        }
+
+        @Override
+        public void actionPerformed(@NotNull AnActionEvent e) {
+            LOG.info(metrics.summary());
+        }
+    }
+
+    private final class ResetAction extends AnAction {
+        ResetAction() {
+            super("清零", "清空所有统计", AllIcons.Actions.GC);
+        }
+
+        @Override
+        public void actionPerformed(@NotNull AnActionEvent e) {
+            metrics.reset();
+            refresh();
+        }
+    }
+
+    private static final class MetricsTableModel extends AbstractTableModel {
+
+        private static final String[] COLUMN_NAMES = {
+                "接口", "请求", "失败", "解析错误", "接收(KB)", "平均(ms)", "P50(ms)", "P95(ms)", "P99(ms)", "最大(ms)"
+        };
+
+        private List<FeedMetrics.Snapshot> rows = new ArrayList<>();
+
+        void setRows(List<FeedMetrics.Snapshot> rows) {
+            boolean sameShape = rows.size() == this.rows.size();
+            this.rows = rows;
+            if (sameShape) {
+                // 行数不变时只更新数值，保持选中行
+                if (!rows.isEmpty()) {
+                    fireTableRowsUpdated(0, rows.size() - 1);
+                }
+            } else {
+                fireTableDataChanged();
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            FeedMetrics.Snapshot s = rows.get(rowIndex);
+            return switch (columnIndex) {
+                case 0 -> s.getName();
+                case 1 -> s.getRequests();
+                case 2 -> s.getFailures();
+                case 3 -> s.getParseErrors();
+                case 4 -> s.getBytes() / 1024;
+                case 5 -> millis(s.getMeanMillis());
+                case 6 -> millis(s.getPercentileMillis(0.5));
+                case 7 -> millis(s.getPercentileMillis(0.95));
+                case 8 -> millis(s.getPercentileMillis(0.99));
+                case 9 -> millis(s.getMaxMillis());
+                default -> null;
+            };
+        }
+
+        private static String millis(double value) {
+            return String.format(Locale.ROOT, "%.1f", value);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.thisisdun998.stockrecord.toolWindow;
+
+import com.github.thisisdun998.stockrecord.service.DailyBarService;
+import com.github.thisisdun998.stockrecord.service.DailyBars;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * 日 K 线对话框
+ */
+public class KLineDialog extends DialogWrapper {
+
+    private final ChartPanel chart = new ChartPanel();
+    private final JLabel statusLabel = new JLabel("加载中...");
+
+    public KLineDialog(@Nullable Project project, String code, String name) {
+        super(project);
+        setTitle(name == null || name.isEmpty() ? code : name + " (" + code + ")");
+        setModal(false);
+        init();
+
+        DailyBarService.getInstance().getDailyBars(code).whenComplete((bars, error) ->
+                SwingUtilities.invokeLater(() -> {
+                    if (bars == null || bars.isEmpty()) {
+                        statusLabel.setText("暂无日K线数据");
+                        return;
+                    }
+                    statusLabel.setText("共 " + bars.size() + " 个交易日，最新 " + formatDate(bars.getLastDate()));
+                    chart.setBars(bars);
+                }));
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setPreferredSize(new Dimension(720, 420));
+        panel.add(chart, BorderLayout.CENTER);
+        panel.add(statusLabel, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    @Override
+    protected Action[] createActions() {
+        return new Action[]{getOKAction()};
+    }
+
+    private static String formatDate(int date) {
+        return String.format("%d-%02d-%02d", date / 10000, date / 100 % 100, date % 100);
+    }
+
+    /**
+     * 蜡烛图，上方为价格、下方约五分之一为成交量，只绘制宽度放得下的最近若干根
+     */
+    private static final class ChartPanel extends JComponent {
+        private static final int BAR_WIDTH = 7;
+        private static final int BAR_GAP = 2;
+        private static final int PADDING = 6;
+        private static final Color UP = new Color(0xCC0000); // 红色
+        private static final Color DOWN = new Color(0x008000); // 绿色
+
+        private DailyBars bars = DailyBars.EMPTY;
+
+        void setBars(DailyBars bars) {
+            this.bars = bars;
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            if (bars.isEmpty()) {
+                return;
+            }
+            int width = getWidth() - PADDING * 2;
+            int height = getHeight() - PADDING * 2;
+            int step = BAR_WIDTH + BAR_GAP;
+            int visible = Math.min(bars.size(), Math.max(1, width / step));
+            int first = bars.size() - visible;
+
+            double high = Double.NEGATIVE_INFINITY;
+            double low = Double.POSITIVE_INFINITY;
+            long maxVolume = 1;
+            for (int i = first; i < bars.size(); i++) {
+                high = Math.max(high, bars.getHigh(i));
+                low = Math.min(low, bars.getLow(i));
+                maxVolume = Math.max(maxVolume, bars.getVolume(i));
+            }
+            double range = high > low ? high - low : 1;
+            int volumeHeight = height / 5;
+            int priceHeight = height - volumeHeight - PADDING;
+            int volumeBottom = PADDING + height;
+
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                g2.setColor(Color.LIGHT_GRAY);
+                g2.drawLine(PADDING, PADDING + priceHeight, PADDING + width, PADDING + priceHeight);
+                for (int i = first; i < bars.size(); i++) {
+                    int x = PADDING + (i - first) * step;
+                    double open = bars.getOpen(i);
+                    double close = bars.getClose(i);
+                    g2.setColor(close >= open ? UP : DOWN);
+
+                    int highY = PADDING + (int) ((high - bars.getHigh(i)) / range * priceHeight);
+                    int lowY = PADDING + (int) ((high - bars.getLow(i)) / range * priceHeight);
+                    int openY = PADDING + (int) ((high - open) / range * priceHeight);
+                    int closeY = PADDING + (int) ((high - close) / range * priceHeight);
+                    g2.drawLine(x + BAR_WIDTH / 2, highY, x + BAR_WIDTH / 2, lowY);
+                    int top = Math.min(openY, closeY);
+                    int bodyHeight = Math.max(1, Math.abs(openY - closeY));
+                    if (close >= open) {
+                        // 阳线空心，与常见行情软件一致
+                        g2.setColor(getParent() != null ? getParent().getBackground() : Color.WHITE);
+                        g2.fillRect(x, top, BAR_WIDTH, bodyHeight);
+                        g2.setColor(UP);
+                        g2.drawRect(x, top, BAR_WIDTH - 1, bodyHeight);
+                    } else {
+                        g2.fillRect(x, top, BAR_WIDTH, bodyHeight);
+                    }
+
+                    int barHeight = (int) ((double) bars.getVolume(i) / maxVolume * volumeHeight);
+                    g2.fillRect(x, volumeBottom - barHeight, BAR_WIDTH, barHeight);
+                }
+
+                g2.setColor(Color.GRAY);
+                FontMetrics metrics = g2.getFontMetrics();
+                g2.drawString(String.format("%.2f", high), PADDING, PADDING + metrics.getAscent());
+                g2.drawString(String.format("%.2f", low), PADDING, PADDING + priceHeight - metrics.getDescent());
+            } finally {
+                g2.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.thisisdun998.stockrecord.toolWindow;
+
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistProjectView;
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService;
+import com.github.thisisdun998.stockrecord.service.TradingCalendar;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.openapi.ui.ValidationInfo;
+import com.intellij.util.ui.FormBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+
+/**
+ * 编辑单只股票的持仓，持股数为 0 表示清仓
+ */
+public class PositionDialog extends DialogWrapper {
+
+    private final Project project;
+    private final String code;
+    private final JTextField sharesField = new JTextField(12);
+    private final JTextField costPriceField = new JTextField(12);
+
+    public PositionDialog(@Nullable Project project, String code, String name) {
+        super(project);
+        this.project = project;
+        this.code = code;
+        for (StockWatchlistStateService.StockItemState stock : StockWatchlistProjectView.getInstance(project).getStocks()) {
+            if (code.equals(stock.code) && stock.shares > 0) {
+                sharesField.setText(String.valueOf(stock.shares));
+                costPriceField.setText(stock.costPrice > 0 ? String.valueOf(stock.costPrice) : "");
+            }
+        }
+        setTitle("持仓 - " + (name == null || name.isEmpty() ? code : name + " (" + code + ")"));
+        init();
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        String currency = TradingCalendar.Market.ofCode(code) == TradingCalendar.Market.HK ? "港元" : "元";
+        return FormBuilder.createFormBuilder()
+                .addLabeledComponent("持股数:", sharesField)
+                .addLabeledComponent("成本价 (" + currency + "):", costPriceField)
+                .getPanel();
+    }
+
+    @Override
+    public @Nullable JComponent getPreferredFocusedComponent() {
+        return sharesField;
+    }
+
+    /**
+     * @return 空白视为 0，不是非负整数时返回 -1
+     */
+    private long parseShares() {
+        String text = sharesField.getText().trim();
+        if (text.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Math.max(-1, Long.parseLong(text));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return 空白视为 0，不是非负数时返回 -1
+     */
+    private double parseCostPrice() {
+        String text = costPriceField.getText().trim();
+        if (text.isEmpty()) {
+            return 0;
+        }
+        try {
+            double value = Double.parseDouble(text);
+            return Double.isFinite(value) && value >= 0 ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    protected @Nullable ValidationInfo doValidate() {
+        if (parseShares() < 0) {
+            return new ValidationInfo("请输入非负整数", sharesField);
+        }
+        if (parseCostPrice() < 0) {
+            return new ValidationInfo("请输入非负数", costPriceField);
+        }
+        return null;
+    }
+
+    @Override
+    protected void doOKAction() {
+        StockWatchlistProjectView.getInstance(project).setPosition(code, parseShares(), parseCostPrice());
+        super.doOKAction();
+    }
+}
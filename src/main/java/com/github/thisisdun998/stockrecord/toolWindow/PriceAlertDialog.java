@@ -0,0 +1,141 @@
+package com.github.thisisdun998.stockrecord.toolWindow;
+
+import com.github.thisisdun998.stockrecord.model.PriceAlert;
+import com.github.thisisdun998.stockrecord.service.StockQuoteHub;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.openapi.ui.ValidationInfo;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编辑单只股票的价格提醒
+ */
+public class PriceAlertDialog extends DialogWrapper {
+
+    private static final String[] COLUMN_NAMES = {"规则"};
+
+    private final String code;
+    /** 当前股票的规则，与表格行一一对应 */
+    private final List<PriceAlert> alerts = new ArrayList<>();
+    private final DefaultTableModel tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final JBTable table = new JBTable(tableModel);
+    private final JComboBox<PriceAlert.Type> typeComboBox = new JComboBox<>(PriceAlert.Type.values());
+    private final JTextField valueField = new JTextField(8);
+    private final JSpinner minutesSpinner = new JSpinner(new SpinnerNumberModel(5, 1, 240, 1));
+
+    public PriceAlertDialog(@Nullable Project project, String code, String name) {
+        super(project);
+        this.code = code;
+        for (PriceAlert alert : StockQuoteHub.getInstance().getPriceAlerts()) {
+            if (code.equals(alert.getCode())) {
+                alerts.add(alert);
+                tableModel.addRow(new Object[]{alert.describe()});
+            }
+        }
+        setTitle("价格提醒 - " + (name == null || name.isEmpty() ? code : name + " (" + code + ")"));
+        init();
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setPreferredSize(new Dimension(460, 280));
+        panel.add(new JBScrollPane(table), BorderLayout.CENTER);
+
+        JPanel inputPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        JLabel minutesLabel = new JLabel("分钟");
+        JButton addButton = new JButton("添加");
+        JButton removeButton = new JButton("删除选中");
+        inputPanel.add(typeComboBox);
+        inputPanel.add(valueField);
+        inputPanel.add(minutesSpinner);
+        inputPanel.add(minutesLabel);
+        inputPanel.add(addButton);
+        inputPanel.add(removeButton);
+        panel.add(inputPanel, BorderLayout.SOUTH);
+
+        // 时间窗口只对区间涨跌有效
+        Runnable updateMinutes = () -> {
+            PriceAlert.Type type = (PriceAlert.Type) typeComboBox.getSelectedItem();
+            boolean move = type != null && type.isMove();
+            minutesSpinner.setEnabled(move);
+            minutesLabel.setEnabled(move);
+        };
+        typeComboBox.addActionListener(e -> updateMinutes.run());
+        updateMinutes.run();
+        addButton.addActionListener(e -> addAlert());
+        removeButton.addActionListener(e -> removeSelected());
+        return panel;
+    }
+
+    private void addAlert() {
+        PriceAlert.Type type = (PriceAlert.Type) typeComboBox.getSelectedItem();
+        Double value = parseValue();
+        if (type == null || value == null) {
+            return;
+        }
+        PriceAlert alert = new PriceAlert(code, type, value, (Integer) minutesSpinner.getValue());
+        if (alerts.contains(alert)) {
+            return;
+        }
+        alerts.add(alert);
+        tableModel.addRow(new Object[]{alert.describe()});
+        valueField.setText("");
+    }
+
+    private void removeSelected() {
+        int[] rows = table.getSelectedRows();
+        for (int i = rows.length - 1; i >= 0; i--) {
+            alerts.remove(rows[i]);
+            tableModel.removeRow(rows[i]);
+        }
+    }
+
+    /**
+     * @return 输入为空或不是数字时返回 null
+     */
+    private Double parseValue() {
+        try {
+            double value = Double.parseDouble(valueField.getText().trim());
+            return Double.isFinite(value) ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected @Nullable ValidationInfo doValidate() {
+        String text = valueField.getText().trim();
+        if (!text.isEmpty() && parseValue() == null) {
+            return new ValidationInfo("请输入数字", valueField);
+        }
+        return null;
+    }
+
+    @Override
+    protected void doOKAction() {
+        // 其他股票的规则保持不变
+        List<PriceAlert> all = new ArrayList<>();
+        for (PriceAlert alert : StockQuoteHub.getInstance().getPriceAlerts()) {
+            if (!code.equals(alert.getCode())) {
+                all.add(alert);
+            }
+        }
+        all.addAll(alerts);
+        StockQuoteHub.getInstance().setPriceAlerts(all);
+        super.doOKAction();
+    }
+}
@@ -1,14 +1,14 @@
 package com.github.thisisdun998.stockrecord.toolWindow;
 
 import com.github.thisisdun998.stockrecord.model.StockQuote;
-import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService;
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistProjectView;
 import com.github.thisisdun998.stockrecord.service.StockService;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.table.JBTable;
-import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.Alarm;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
@@ -19,7 +19,10 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 股票搜索对话框
@@ -27,6 +30,8 @@ import java.util.List;
 public class StockSearchDialog extends DialogWrapper {
 
     private static final String[] COLUMN_NAMES = {"股票代码", "股票名称", "操作"};
+    /** 输入停顿超过该时间才发起搜索，连续输入时只搜索最后一次 */
+    private static final int SEARCH_DELAY_MS = 150;
     
     private final Project project;
     private final StockService stockService;
@@ -34,12 +39,33 @@ public class StockSearchDialog extends DialogWrapper {
     private final JBTable resultTable;
     private final DefaultTableModel tableModel;
     private final Runnable onStockAdded;
+    private final Alarm searchAlarm;
+    /** 每次输入变化递增，只有序号仍是最新的搜索结果才会显示，避免旧结果覆盖新结果 */
+    private final AtomicLong searchSequence = new AtomicLong();
+    /** 当前显示的搜索结果，下一次搜索在其基础上继续过滤，仅在 EDT 中访问 */
+    private SearchResult lastResult;
+    /** 正在进行的搜索，输入变化时取消，仅在 EDT 中访问 */
+    private CompletableFuture<List<StockQuote>> pendingSearch;
+
+    /**
+     * 一次搜索的关键词及结果
+     */
+    private static final class SearchResult {
+        final String keyword;
+        final List<StockQuote> results;
+
+        SearchResult(String keyword, List<StockQuote> results) {
+            this.keyword = keyword;
+            this.results = results;
+        }
+    }
 
     public StockSearchDialog(@Nullable Project project, StockService stockService, Runnable onStockAdded) {
         super(project);
         this.project = project;
         this.stockService = stockService;
         this.onStockAdded = onStockAdded;
+        this.searchAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, getDisposable());
         
         this.searchField = new JTextField();
         this.tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
@@ -65,7 +91,7 @@ public class StockSearchDialog extends DialogWrapper {
         searchPanel.add(new JLabel("搜索:"), BorderLayout.WEST);
         searchPanel.add(searchField, BorderLayout.CENTER);
         JButton searchButton = new JButton("查询", AllIcons.Actions.Search);
-        searchButton.addActionListener(e -> performSearch());
+        searchButton.addActionListener(e -> performSearch(0));
         searchPanel.add(searchButton, BorderLayout.EAST);
         
         // 结果表格
@@ -82,22 +108,22 @@ public class StockSearchDialog extends DialogWrapper {
         searchField.getDocument().addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
-                performSearch();
+                performSearch(SEARCH_DELAY_MS);
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
-                performSearch();
+                performSearch(SEARCH_DELAY_MS);
             }
 
             @Override
             public void changedUpdate(DocumentEvent e) {
-                performSearch();
+                performSearch(SEARCH_DELAY_MS);
             }
         });
         
         // 搜索框回车事件
-        searchField.addActionListener(e -> performSearch());
+        searchField.addActionListener(e -> performSearch(0));
         
         // 设置列宽
         resultTable.getColumnModel().getColumn(0).setPreferredWidth(100);
@@ -112,43 +138,67 @@ public class StockSearchDialog extends DialogWrapper {
         resultTable.getTableHeader().setReorderingAllowed(false);
     }
 
-    private void performSearch() {
+    /**
+     * 取消尚未执行的搜索，延迟 delayMillis 后按当前输入重新搜索
+     */
+    private void performSearch(int delayMillis) {
         String keyword = searchField.getText();
+        long sequence = searchSequence.incrementAndGet();
+        searchAlarm.cancelAllRequests();
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+            pendingSearch = null;
+        }
         if (keyword == null || keyword.isBlank()) {
             // 清空搜索结果
+            lastResult = null;
             tableModel.setRowCount(0);
             return;
         }
-        
-        // 异步搜索
-        AppExecutorUtil.getAppExecutorService().submit(() -> {
-            try {
-                List<StockQuote> results = stockService.searchStocks(keyword);
-                SwingUtilities.invokeLater(() -> {
-                    tableModel.setRowCount(0);
-                    // 直接显示结果，不显示"未找到结果"
-                    for (StockQuote quote : results) {
-                        // 清理股票代码，移除.SZ/.SH/.XSHG/.XSHE等后缀
-                        String cleanCode = cleanStockCode(quote.getCode());
-                        
-                        // 检查是否已在自选列表
-                        StockWatchlistStateService stateService = StockWatchlistStateService.getInstance(project);
-                        boolean isInWatchlist = stateService.containsStock(cleanCode);
-                        String buttonText = isInWatchlist ? "删除" : "添加";
-                        
-                        tableModel.addRow(new Object[]{
-                                cleanCode,
-                                quote.getName(),
-                                buttonText
-                        });
-                    }
-                });
-            } catch (Exception e) {
-                SwingUtilities.invokeLater(() -> {
-                    tableModel.setRowCount(0);
-                });
+
+        SearchResult previous = lastResult;
+        searchAlarm.addRequest(() -> runSearch(keyword, previous, sequence), delayMillis);
+    }
+
+    /**
+     * 在 EDT 中发起异步搜索，关键词在上一次基础上扩展时只过滤上一次的结果
+     */
+    private void runSearch(String keyword, @Nullable SearchResult previous, long sequence) {
+        if (sequence != searchSequence.get()) {
+            return; // 已有更新的输入
+        }
+        CompletableFuture<List<StockQuote>> search = previous == null
+                ? stockService.searchStocksAsync(keyword, null, null)
+                : stockService.searchStocksAsync(keyword, previous.keyword, previous.results);
+        pendingSearch = search;
+        search.whenComplete((results, error) -> SwingUtilities.invokeLater(() -> {
+            if (sequence != searchSequence.get() || search.isCancelled()) {
+                return;
             }
-        });
+            pendingSearch = null;
+            lastResult = results == null ? null : new SearchResult(keyword, results);
+            showResults(results == null ? Collections.emptyList() : results);
+        }));
+    }
+
+    private void showResults(List<StockQuote> results) {
+        StockWatchlistProjectView stateService = StockWatchlistProjectView.getInstance(project);
+        tableModel.setRowCount(0);
+        // 直接显示结果，不显示"未找到结果"
+        for (StockQuote quote : results) {
+            // 清理股票代码，移除.SZ/.SH/.XSHG/.XSHE等后缀
+            String cleanCode = cleanStockCode(quote.getCode());
+
+            // 检查是否已在自选列表
+            boolean isInWatchlist = stateService.containsStock(cleanCode);
+            String buttonText = isInWatchlist ? "删除" : "添加";
+
+            tableModel.addRow(new Object[]{
+                    cleanCode,
+                    quote.getName(),
+                    buttonText
+            });
+        }
     }
 
     /**
@@ -242,7 +292,7 @@ public class StockSearchDialog extends DialogWrapper {
             }
             
             if (code != null && !code.isBlank()) {
-                StockWatchlistStateService stateService = StockWatchlistStateService.getInstance(project);
+                StockWatchlistProjectView stateService = StockWatchlistProjectView.getInstance(project);
                 
                 if ("删除".equals(buttonText)) {
                     // 从自选列表中删除
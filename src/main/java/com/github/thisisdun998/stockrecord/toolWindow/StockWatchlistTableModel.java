@@ -0,0 +1,433 @@
+package com.github.thisisdun998.stockrecord.toolWindow;
+
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService;
+import com.github.thisisdun998.stockrecord.service.QuoteSnapshotStore;
+import com.github.thisisdun998.stockrecord.service.TradingCalendar;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 自选股表格模型
+ * <p>
+ * 每只自选股固定占一行，行情到达时按代码查找所在行，只对数值发生变化的单元格发出更新事件，
+ * 不会清空重建表格，因此选中行和滚动位置保持不变，每个周期只重绘变化的单元格。
+ * <p>
+ * 有持仓时末尾增加一行合计。每行记录自己对市值、当日盈亏、总盈亏的贡献（已折算为人民币），
+ * 行情变化时合计只加上该行贡献的差值，不重新遍历全部持仓；增删自选股、修改持仓或汇率时才整体重算。
+ * 所有方法都需在 EDT 中调用。
+ */
+final class StockWatchlistTableModel extends AbstractTableModel {
+
+    static final int COLUMN_NAME = 0;
+    static final int COLUMN_CODE = 1;
+    static final int COLUMN_PRICE = 2;
+    static final int COLUMN_CHANGE_PERCENT = 3;
+    static final int COLUMN_HIGH = 4;
+    static final int COLUMN_LOW = 5;
+    static final int COLUMN_VOLUME = 6;
+    static final int COLUMN_MARKET_VALUE = 7;
+    static final int COLUMN_DAILY_PNL = 8;
+    static final int COLUMN_TOTAL_PNL = 9;
+    static final int COLUMN_SPARKLINE = 10;
+
+    private static final String[] COLUMN_NAMES = {
+            "股票名称", "股票代码", "当前价格", "涨跌幅(%)", "最高", "最低", "成交量",
+            "市值(元)", "当日盈亏", "总盈亏", "走势"
+    };
+
+    private static final String TOTAL_ROW_NAME = "合计";
+
+    private final List<Row> rows = new ArrayList<>();
+    private final Map<String, Integer> rowByCode = new HashMap<>();
+    private double hkdToCnyRate = 1.0;
+    /** 有持仓的行数，大于 0 时显示合计行 */
+    private int positionCount;
+    private double totalMarketValue;
+    private double totalDailyPnl;
+    private double totalCostPnl;
+    /** 合计行当前显示的值，保留两位小数 */
+    private Double totalMarketValueCell;
+    private Double totalDailyPnlCell;
+    private Double totalCostPnlCell;
+
+    /**
+     * 走势列的单元格值，version 变化说明该代码有了新的逐笔行情，渲染器据此判断缓存的图像是否失效
+     */
+    static final class Sparkline {
+        final String code;
+        final long version;
+        final double prevClose;
+
+        Sparkline(String code, long version, double prevClose) {
+            this.code = code;
+            this.version = version;
+            this.prevClose = prevClose;
+        }
+    }
+
+    /**
+     * 单行数据，数值已保留两位小数，尚未收到行情时为 null
+     */
+    private static final class Row {
+        final String code;
+        String customName;
+        String quoteName;
+        Double price;
+        Double changePercent;
+        Double high;
+        Double low;
+        long volume = -1;
+        String volumeText;
+        Sparkline sparkline;
+        /** 最近一次应用的槽位更新序号，序号不变说明行情没有变化，整行跳过 */
+        long appliedSequence = -1;
+
+        final boolean hk;
+        long shares;
+        double costPrice;
+        /** 未取整的现价与昨收价，计算盈亏用，尚无行情时为 NaN */
+        double lastPrice = Double.NaN;
+        double prevClose = Double.NaN;
+        /** 本行计入合计的市值与盈亏（人民币） */
+        double marketValue;
+        double dailyPnl;
+        double costPnl;
+        Double marketValueCell;
+        Double dailyPnlCell;
+        Double costPnlCell;
+
+        Row(String code) {
+            this.code = code;
+            this.hk = TradingCalendar.Market.ofCode(code) == TradingCalendar.Market.HK;
+        }
+
+        String displayName() {
+            // 优先显示本地自定义名称，其次使用接口返回名称
+            return customName != null && !customName.isBlank() ? customName : quoteName;
+        }
+    }
+
+    /**
+     * 按自选列表同步行。代码顺序不变时只更新名称；增删自选股时重建行，已有的行情保留
+     */
+    void setStocks(List<StockWatchlistStateService.StockItemState> stocks) {
+        List<StockWatchlistStateService.StockItemState> unique = new ArrayList<>(stocks.size());
+        Map<String, Integer> codes = new HashMap<>();
+        for (StockWatchlistStateService.StockItemState stock : stocks) {
+            if (stock.code != null && codes.putIfAbsent(stock.code, unique.size()) == null) {
+                unique.add(stock);
+            }
+        }
+
+        if (codes.size() == rows.size() && codes.equals(rowByCode)) {
+            boolean positionsChanged = false;
+            for (int i = 0; i < rows.size(); i++) {
+                Row row = rows.get(i);
+                StockWatchlistStateService.StockItemState stock = unique.get(i);
+                String before = row.displayName();
+                row.customName = stock.name;
+                if (!Objects.equals(before, row.displayName())) {
+                    fireTableCellUpdated(i, COLUMN_NAME);
+                }
+                if (row.shares != stock.shares || row.costPrice != stock.costPrice) {
+                    row.shares = stock.shares;
+                    row.costPrice = stock.costPrice;
+                    positionsChanged = true;
+                }
+            }
+            if (positionsChanged) {
+                recomputePositions();
+            }
+            return;
+        }
+
+        Map<String, Row> previous = new HashMap<>();
+        for (Row row : rows) {
+            previous.put(row.code, row);
+        }
+        rows.clear();
+        for (StockWatchlistStateService.StockItemState stock : unique) {
+            Row row = previous.get(stock.code);
+            if (row == null) {
+                row = new Row(stock.code);
+            }
+            row.customName = stock.name;
+            row.shares = stock.shares;
+            row.costPrice = stock.costPrice;
+            computeContribution(row);
+            row.marketValueCell = cell(isMarketValueShown(row), row.marketValue);
+            row.dailyPnlCell = cell(isDailyPnlShown(row), row.dailyPnl);
+            row.costPnlCell = cell(isCostPnlShown(row), row.costPnl);
+            rows.add(row);
+        }
+        rowByCode.clear();
+        rowByCode.putAll(codes);
+        recomputeTotals();
+        totalMarketValueCell = cell(positionCount > 0, totalMarketValue);
+        totalDailyPnlCell = cell(positionCount > 0, totalDailyPnl);
+        totalCostPnlCell = cell(positionCount > 0, totalCostPnl);
+        fireTableDataChanged();
+    }
+
+    /**
+     * 港股持仓折算为人民币的汇率，变化时整体重算
+     */
+    void setHkdToCnyRate(double rate) {
+        if (!(rate > 0) || rate == hkdToCnyRate) {
+            return;
+        }
+        hkdToCnyRate = rate;
+        recomputePositions();
+    }
+
+    /**
+     * 持仓或汇率变化后重算每行的贡献与合计，并刷新相应单元格
+     */
+    private void recomputePositions() {
+        boolean hadTotalRow = positionCount > 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            computeContribution(row);
+            updatePositionCells(row, i);
+        }
+        recomputeTotals();
+        boolean hasTotalRow = positionCount > 0;
+        if (hadTotalRow && !hasTotalRow) {
+            fireTableRowsDeleted(rows.size(), rows.size());
+        } else if (!hadTotalRow && hasTotalRow) {
+            totalMarketValueCell = cell(true, totalMarketValue);
+            totalDailyPnlCell = cell(true, totalDailyPnl);
+            totalCostPnlCell = cell(true, totalCostPnl);
+            fireTableRowsInserted(rows.size(), rows.size());
+        } else {
+            updateTotalCells();
+        }
+    }
+
+    /**
+     * 从各行贡献重新累加合计，同时消除增量累加的浮点误差
+     */
+    private void recomputeTotals() {
+        positionCount = 0;
+        totalMarketValue = 0;
+        totalDailyPnl = 0;
+        totalCostPnl = 0;
+        for (Row row : rows) {
+            if (row.shares > 0) {
+                positionCount++;
+            }
+            totalMarketValue += row.marketValue;
+            totalDailyPnl += row.dailyPnl;
+            totalCostPnl += row.costPnl;
+        }
+    }
+
+    /**
+     * 按现价计算本行的市值与盈亏，未持仓或尚无行情时为 0
+     */
+    private void computeContribution(Row row) {
+        double price = row.lastPrice;
+        if (row.shares <= 0 || !(price > 0)) {
+            row.marketValue = 0;
+            row.dailyPnl = 0;
+            row.costPnl = 0;
+            return;
+        }
+        double fx = row.hk ? hkdToCnyRate : 1.0;
+        row.marketValue = row.shares * price * fx;
+        row.dailyPnl = row.prevClose > 0 ? row.shares * (price - row.prevClose) * fx : 0;
+        row.costPnl = row.costPrice > 0 ? row.shares * (price - row.costPrice) * fx : 0;
+    }
+
+    private static boolean isMarketValueShown(Row row) {
+        return row.shares > 0 && row.lastPrice > 0;
+    }
+
+    private static boolean isDailyPnlShown(Row row) {
+        return isMarketValueShown(row) && row.prevClose > 0;
+    }
+
+    private static boolean isCostPnlShown(Row row) {
+        return isMarketValueShown(row) && row.costPrice > 0;
+    }
+
+    private void updatePositionCells(Row row, int rowIndex) {
+        row.marketValueCell = updateNullable(row.marketValueCell, isMarketValueShown(row),
+                row.marketValue, rowIndex, COLUMN_MARKET_VALUE);
+        row.dailyPnlCell = updateNullable(row.dailyPnlCell, isDailyPnlShown(row),
+                row.dailyPnl, rowIndex, COLUMN_DAILY_PNL);
+        row.costPnlCell = updateNullable(row.costPnlCell, isCostPnlShown(row),
+                row.costPnl, rowIndex, COLUMN_TOTAL_PNL);
+    }
+
+    private void updateTotalCells() {
+        if (positionCount == 0) {
+            return;
+        }
+        int totalRow = rows.size();
+        totalMarketValueCell = updateNullable(totalMarketValueCell, true, totalMarketValue, totalRow, COLUMN_MARKET_VALUE);
+        totalDailyPnlCell = updateNullable(totalDailyPnlCell, true, totalDailyPnl, totalRow, COLUMN_DAILY_PNL);
+        totalCostPnlCell = updateNullable(totalCostPnlCell, true, totalCostPnl, totalRow, COLUMN_TOTAL_PNL);
+    }
+
+    /**
+     * 把快照中的行情应用到表格，需持有 {@link QuoteSnapshotStore#readLock()}
+     * @param slots 行情中心回调中的槽位，-1 表示尚无行情
+     */
+    void applyQuotes(QuoteSnapshotStore store, int[] slots) {
+        boolean totalsChanged = false;
+        for (int slot : slots) {
+            if (slot < 0) {
+                continue;
+            }
+            Integer index = rowByCode.get(store.getCode(slot));
+            if (index == null) {
+                continue;
+            }
+            Row row = rows.get(index);
+            long sequence = store.getUpdateSequence(slot);
+            if (row.appliedSequence == sequence) {
+                continue;
+            }
+            row.appliedSequence = sequence;
+
+            int rowIndex = index;
+            String name = store.getName(slot);
+            if (!Objects.equals(row.quoteName, name)) {
+                String before = row.displayName();
+                row.quoteName = name;
+                if (!Objects.equals(before, row.displayName())) {
+                    fireTableCellUpdated(rowIndex, COLUMN_NAME);
+                }
+            }
+            row.price = update(row.price, store.getPrice(slot), rowIndex, COLUMN_PRICE);
+            row.changePercent = update(row.changePercent, store.getChangePercent(slot), rowIndex, COLUMN_CHANGE_PERCENT);
+            row.high = update(row.high, store.getHigh(slot), rowIndex, COLUMN_HIGH);
+            row.low = update(row.low, store.getLow(slot), rowIndex, COLUMN_LOW);
+            long volume = store.getVolume(slot);
+            if (row.volume != volume) {
+                row.volume = volume;
+                row.volumeText = formatVolume(volume);
+                fireTableCellUpdated(rowIndex, COLUMN_VOLUME);
+            }
+            row.sparkline = new Sparkline(row.code, sequence, store.getPrevClose(slot));
+            fireTableCellUpdated(rowIndex, COLUMN_SPARKLINE);
+
+            row.lastPrice = store.getPrice(slot);
+            row.prevClose = store.getPrevClose(slot);
+            if (row.shares > 0) {
+                // 合计只加上本行贡献的变化量
+                double marketValue = row.marketValue;
+                double dailyPnl = row.dailyPnl;
+                double costPnl = row.costPnl;
+                computeContribution(row);
+                totalMarketValue += row.marketValue - marketValue;
+                totalDailyPnl += row.dailyPnl - dailyPnl;
+                totalCostPnl += row.costPnl - costPnl;
+                updatePositionCells(row, rowIndex);
+                totalsChanged = true;
+            }
+        }
+        if (totalsChanged) {
+            updateTotalCells();
+        }
+    }
+
+    private Double update(Double current, double value, int row, int column) {
+        double rounded = QuoteSnapshotStore.round(value);
+        if (current != null && current == rounded) {
+            return current;
+        }
+        fireTableCellUpdated(row, column);
+        return rounded;
+    }
+
+    private static Double cell(boolean present, double value) {
+        return present ? QuoteSnapshotStore.round(value) : null;
+    }
+
+    /**
+     * @param present false 时单元格显示为空
+     */
+    private Double updateNullable(Double current, boolean present, double value, int row, int column) {
+        if (!present) {
+            if (current != null) {
+                fireTableCellUpdated(row, column);
+            }
+            return null;
+        }
+        return update(current, value, row, column);
+    }
+
+    /**
+     * 成交量（股）按万、亿显示
+     */
+    private static String formatVolume(long volume) {
+        if (volume >= 100_000_000L) {
+            return String.format("%.2f亿", volume / 100_000_000.0);
+        }
+        if (volume >= 10_000L) {
+            return String.format("%.2f万", volume / 10_000.0);
+        }
+        return String.valueOf(volume);
+    }
+
+    /**
+     * 获取指定行的股票代码，合计行返回 null
+     */
+    String getCodeAt(int row) {
+        return row < rows.size() ? rows.get(row).code : null;
+    }
+
+    boolean isTotalRow(int row) {
+        return row >= rows.size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return positionCount > 0 ? rows.size() + 1 : rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (isTotalRow(rowIndex)) {
+            return switch (columnIndex) {
+                case COLUMN_NAME -> TOTAL_ROW_NAME;
+                case COLUMN_MARKET_VALUE -> totalMarketValueCell;
+                case COLUMN_DAILY_PNL -> totalDailyPnlCell;
+                case COLUMN_TOTAL_PNL -> totalCostPnlCell;
+                default -> null;
+            };
+        }
+        Row row = rows.get(rowIndex);
+        return switch (columnIndex) {
+            case COLUMN_NAME -> row.displayName();
+            case COLUMN_CODE -> row.code;
+            case COLUMN_PRICE -> row.price;
+            case COLUMN_CHANGE_PERCENT -> row.changePercent;
+            case COLUMN_HIGH -> row.high;
+            case COLUMN_LOW -> row.low;
+            case COLUMN_VOLUME -> row.volumeText;
+            case COLUMN_MARKET_VALUE -> row.marketValueCell;
+            case COLUMN_DAILY_PNL -> row.dailyPnlCell;
+            case COLUMN_TOTAL_PNL -> row.costPnlCell;
+            case COLUMN_SPARKLINE -> row.sparkline;
+            default -> null;
+        };
+    }
+}
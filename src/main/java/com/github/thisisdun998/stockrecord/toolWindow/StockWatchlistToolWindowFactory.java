@@ -1,76 +1,83 @@
 package com.github.thisisdun998.stockrecord.toolWindow;
 
 import com.github.thisisdun998.stockrecord.StockRecordIcons;
-import com.github.thisisdun998.stockrecord.model.StockQuote;
 import com.github.thisisdun998.stockrecord.model.StockIndex;
 import com.github.thisisdun998.stockrecord.model.StockIndexQuote;
+import com.github.thisisdun998.stockrecord.persistence.StockRecordSettings;
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistProjectView;
 import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService;
-import com.github.thisisdun998.stockrecord.service.SinaStockService;
-import com.github.thisisdun998.stockrecord.service.StockService;
+import com.github.thisisdun998.stockrecord.service.QuoteSnapshotStore;
+import com.github.thisisdun998.stockrecord.service.SparklineSeries;
+import com.github.thisisdun998.stockrecord.service.StockListCacheService;
+import com.github.thisisdun998.stockrecord.service.StockQuoteHub;
+import com.github.thisisdun998.stockrecord.service.TickHistory;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
 import com.intellij.ui.table.JBTable;
-import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableCellRenderer;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 public final class StockWatchlistToolWindowFactory implements ToolWindowFactory {
 
-    private static final String[] COLUMN_NAMES = {
-            "股票名称", "股票代码", "当前价格", "涨跌幅(%)"
-    };
-
     @Override
     public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
 //        toolWindow.setIcon(StockRecordIcons.TOOL_WINDOW);
         StockWatchlistPanel panel = new StockWatchlistPanel(project);
-        Content content = ContentFactory.getInstance().createContent(panel.getComponent(), "", false);
+        Content content = ContentFactory.getInstance().createContent(panel.getComponent(), "自选", false);
+        content.setDisposer(panel);
         toolWindow.getContentManager().addContent(content);
+
+        DiagnosticsPanel diagnostics = new DiagnosticsPanel(StockQuoteHub.getInstance().getFeedMetrics());
+        Content diagnosticsContent = ContentFactory.getInstance().createContent(diagnostics.getComponent(), "诊断", false);
+        diagnosticsContent.setDisposer(diagnostics);
+        toolWindow.getContentManager().addContent(diagnosticsContent);
     }
 
-    private static final class StockWatchlistPanel {
+    private static final class StockWatchlistPanel implements Disposable {
 
         private final Project project;
         private final JPanel mainPanel;
         private final JBTable table;
-        private final DefaultTableModel tableModel;
-        private final StockService stockService = new SinaStockService();
-        private ScheduledFuture<?> pollingTask;
-        private ScheduledFuture<?> indexPollingTask;
+        private final StockWatchlistTableModel tableModel;
+        private final StockQuoteHub.Subscription watchlistSubscription;
+        private final StockQuoteHub.Subscription indexSubscription;
         private boolean syncing = false;
+        private volatile StockIndex selectedIndex;
         private JComboBox<StockIndex> indexComboBox;
+        private JComboBox<String> groupComboBox;
         private JLabel indexCodeLabel;
         private JLabel indexPointsLabel;
         private JLabel indexChangeLabel;
 
         StockWatchlistPanel(Project project) {
             this.project = project;
-            this.tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-                @Override
-                public boolean isCellEditable(int row, int column) {
-                    return false;
-                }
-            };
+            this.tableModel = new StockWatchlistTableModel();
             this.table = new JBTable(tableModel);
             this.table.setDefaultRenderer(Object.class, new ChangePercentRenderer());
+            this.table.getColumnModel().getColumn(StockWatchlistTableModel.COLUMN_SPARKLINE)
+                    .setCellRenderer(new SparklineRenderer(StockQuoteHub.getInstance().getTickHistory()));
             this.mainPanel = new JPanel(new BorderLayout());
 
-            // 清理无效数据
-            StockWatchlistStateService stateService = StockWatchlistStateService.getInstance(project);
-            stateService.cleanupInvalidData();
+            // 启动股票列表的每日定时刷新
+            StockListCacheService.getInstance();
 
             JComponent toolbar = createToolbar();
             JScrollPane scrollPane = new JBScrollPane(table);
@@ -80,8 +87,20 @@ public final class StockWatchlistToolWindowFactory implements ToolWindowFactory
             mainPanel.add(scrollPane, BorderLayout.CENTER);
             mainPanel.add(indexPanel, BorderLayout.SOUTH);
 
+            // 自选股与指数分别订阅行情中心，自选股默认暂停，开启同步后才参与定时轮询
+            StockQuoteHub hub = StockQuoteHub.getInstance();
+            watchlistSubscription = hub.subscribe(this, this::updateTable);
+            watchlistSubscription.setPaused(true);
+            indexSubscription = hub.subscribe(this, (store, slots) -> updateIndex(store));
+
+            // 自选列表由所有项目共用，任何项目修改后都重新同步
+            StockWatchlistStateService.getInstance().addChangeListener(this, () -> SwingUtilities.invokeLater(() -> {
+                reloadGroups();
+                refreshData();
+            }));
+
             refreshData();
-            startIndexPolling();
+            updateIndexSubscription();
         }
 
         JComponent getComponent() {
@@ -94,60 +113,77 @@ public final class StockWatchlistToolWindowFactory implements ToolWindowFactory
             actionGroup.add(new ToggleSyncAction());
             actionGroup.add(new AddStockAction());
             actionGroup.add(new RemoveStockAction());
+            actionGroup.add(new ShowKLineAction());
+            actionGroup.add(new EditAlertsAction());
+            actionGroup.add(new EditPositionAction());
+            actionGroup.addSeparator();
+            actionGroup.add(new AddGroupAction());
+            actionGroup.add(new RemoveGroupAction());
 
             ActionToolbar toolbar = ActionManager.getInstance()
                     .createActionToolbar("StockWatchlistToolbar", actionGroup, true);
             toolbar.setTargetComponent(mainPanel);
-            return toolbar.getComponent();
+
+            // 分组切换
+            groupComboBox = new JComboBox<>();
+            reloadGroups();
+            groupComboBox.addActionListener(e -> {
+                String group = (String) groupComboBox.getSelectedItem();
+                StockWatchlistProjectView view = StockWatchlistProjectView.getInstance(project);
+                if (group != null && !group.equals(view.getGroup())) {
+                    view.setGroup(group);
+                    refreshData();
+                }
+            });
+
+            JPanel panel = new JPanel(new BorderLayout());
+            panel.add(toolbar.getComponent(), BorderLayout.CENTER);
+            panel.add(groupComboBox, BorderLayout.EAST);
+            return panel;
+        }
+
+        /**
+         * 重新填充分组下拉框并选中本项目显示的分组
+         */
+        private void reloadGroups() {
+            List<String> groups = StockWatchlistStateService.getInstance().getGroupNames();
+            groupComboBox.setModel(new DefaultComboBoxModel<>(groups.toArray(new String[0])));
+            groupComboBox.setSelectedItem(StockWatchlistProjectView.getInstance(project).getGroup());
         }
 
         private void refreshData() {
-            StockWatchlistStateService stateService = StockWatchlistStateService.getInstance(project);
-            List<StockWatchlistStateService.StockItemState> stocks = stateService.getStocks();
+            List<StockWatchlistStateService.StockItemState> stocks = StockWatchlistProjectView.getInstance(project).getStocks();
             List<String> codes = stocks.stream().map(s -> s.code).toList();
+            watchlistSubscription.setCodes(codes);
+            tableModel.setStocks(stocks);
+            tableModel.setHkdToCnyRate(StockRecordSettings.getInstance().getHkdToCnyRate());
 
             if (codes.isEmpty()) {
-                SwingUtilities.invokeLater(() -> tableModel.setRowCount(0));
                 return;
             }
 
-            AppExecutorUtil.getAppExecutorService().submit(() -> {
-                List<StockQuote> quotes = stockService.getQuotes(codes);
-                SwingUtilities.invokeLater(() -> {
-                    tableModel.setRowCount(0);
-                    for (StockQuote quote : quotes) {
-                        // 优先显示本地自定义名称，其次使用接口返回名称
-                        String displayName = stocks.stream()
-                                .filter(s -> s.code.equals(quote.getCode()))
-                                .map(s -> s.name)
-                                .filter(n -> n != null && !n.isBlank())
-                                .findFirst()
-                                .orElse(quote.getName());
-
-                        tableModel.addRow(new Object[]{
-                                displayName,
-                                quote.getCode(),
-                                quote.getPrice(),
-                                quote.getChangePercent()
-                        });
-                    }
-                });
+            watchlistSubscription.refresh();
+        }
+
+        private void updateTable(QuoteSnapshotStore store, int[] slots) {
+            SwingUtilities.invokeLater(() -> {
+                Lock readLock = store.readLock();
+                readLock.lock();
+                try {
+                    tableModel.applyQuotes(store, slots);
+                } finally {
+                    readLock.unlock();
+                }
             });
         }
 
         private void startSync() {
-            if (pollingTask != null && !pollingTask.isDone()) {
-                return;
-            }
-            pollingTask = AppExecutorUtil.getAppScheduledExecutorService()
-                    .scheduleWithFixedDelay(this::refreshData, 0, 3, TimeUnit.SECONDS);
+            watchlistSubscription.setPaused(false);
+            refreshData();
         }
 
         private void stopSync() {
-            if (pollingTask != null) {
-                pollingTask.cancel(false);
-                pollingTask = null;
-            }
+            watchlistSubscription.setPaused(true);
         }
 
         private JComponent createIndexPanel() {
@@ -171,34 +207,34 @@ public final class StockWatchlistToolWindowFactory implements ToolWindowFactory
             panel.add(indexPointsLabel);
             panel.add(indexChangeLabel);
             
-            indexComboBox.addActionListener(e -> restartIndexPolling());
+            indexComboBox.addActionListener(e -> updateIndexSubscription());
             
             return panel;
         }
 
-        private void startIndexPolling() {
+        private void updateIndexSubscription() {
             StockIndex index = (StockIndex) indexComboBox.getSelectedItem();
+            selectedIndex = index;
+            indexSubscription.setIndices(index == null ? EnumSet.noneOf(StockIndex.class) : EnumSet.of(index));
+            indexSubscription.refresh();
+        }
+
+        private void updateIndex(QuoteSnapshotStore store) {
+            StockIndex index = selectedIndex;
             if (index == null) {
                 return;
             }
-            indexPollingTask = AppExecutorUtil.getAppScheduledExecutorService()
-                    .scheduleWithFixedDelay(() -> updateIndex(index), 0, 3, TimeUnit.SECONDS);
-        }
-
-        private void restartIndexPolling() {
-            stopIndexPolling();
-            startIndexPolling();
-        }
-
-        private void stopIndexPolling() {
-            if (indexPollingTask != null) {
-                indexPollingTask.cancel(false);
-                indexPollingTask = null;
+            StockIndexQuote quote;
+            Lock readLock = store.readLock();
+            readLock.lock();
+            try {
+                quote = store.toIndexQuote(index);
+            } finally {
+                readLock.unlock();
+            }
+            if (quote == null) {
+                return;
             }
-        }
-
-        private void updateIndex(StockIndex index) {
-            StockIndexQuote quote = stockService.getIndexQuote(index);
             SwingUtilities.invokeLater(() -> {
                 // 第二列：指数代码
                 indexCodeLabel.setText(index.getSinaCode());
@@ -262,7 +298,8 @@ public final class StockWatchlistToolWindowFactory implements ToolWindowFactory
 
             @Override
             public void actionPerformed(@NotNull AnActionEvent e) {
-                StockSearchDialog dialog = new StockSearchDialog(project, stockService, StockWatchlistPanel.this::refreshData);
+                // 添加、删除后由自选列表的修改通知刷新面板
+                StockSearchDialog dialog = new StockSearchDialog(project, StockQuoteHub.getInstance().getStockService(), null);
                 dialog.show();
             }
         }
@@ -278,17 +315,139 @@ public final class StockWatchlistToolWindowFactory implements ToolWindowFactory
                 if (selectedRow < 0) {
                     return;
                 }
-                StockWatchlistStateService stateService = StockWatchlistStateService.getInstance(project);
-                stateService.removeStock(selectedRow);
+                String code = tableModel.getCodeAt(table.convertRowIndexToModel(selectedRow));
+                if (code == null) {
+                    return;
+                }
+                StockWatchlistProjectView.getInstance(project).removeStockByCode(code);
+            }
+        }
+
+        private final class ShowKLineAction extends AnAction {
+            ShowKLineAction() {
+                super("日K", "查看选中股票的日K线", AllIcons.Actions.Show);
+            }
+
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                int selectedRow = table.getSelectedRow();
+                if (selectedRow < 0) {
+                    return;
+                }
+                int modelRow = table.convertRowIndexToModel(selectedRow);
+                String code = tableModel.getCodeAt(modelRow);
+                if (code == null) {
+                    return;
+                }
+                Object name = tableModel.getValueAt(modelRow, StockWatchlistTableModel.COLUMN_NAME);
+                new KLineDialog(project, code, name == null ? null : name.toString()).show();
+            }
+        }
+
+        private final class EditAlertsAction extends AnAction {
+            EditAlertsAction() {
+                super("价格提醒", "设置选中股票的价格提醒", AllIcons.Toolwindows.Notifications);
+            }
+
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                int selectedRow = table.getSelectedRow();
+                if (selectedRow < 0) {
+                    return;
+                }
+                int modelRow = table.convertRowIndexToModel(selectedRow);
+                String code = tableModel.getCodeAt(modelRow);
+                if (code == null) {
+                    return;
+                }
+                Object name = tableModel.getValueAt(modelRow, StockWatchlistTableModel.COLUMN_NAME);
+                new PriceAlertDialog(project, code, name == null ? null : name.toString()).show();
+            }
+        }
+
+        private final class EditPositionAction extends AnAction {
+            EditPositionAction() {
+                super("持仓", "设置选中股票的持股数与成本价", AllIcons.Actions.Edit);
+            }
+
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                int selectedRow = table.getSelectedRow();
+                if (selectedRow < 0) {
+                    return;
+                }
+                int modelRow = table.convertRowIndexToModel(selectedRow);
+                String code = tableModel.getCodeAt(modelRow);
+                if (code == null) {
+                    return;
+                }
+                Object name = tableModel.getValueAt(modelRow, StockWatchlistTableModel.COLUMN_NAME);
+                new PositionDialog(project, code, name == null ? null : name.toString()).show();
+            }
+        }
+
+        private final class AddGroupAction extends AnAction {
+            AddGroupAction() {
+                super("新建分组", "新建自选股分组并切换到该分组", AllIcons.Nodes.Folder);
+            }
+
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                String name = Messages.showInputDialog(project, "分组名称:", "新建分组", null);
+                if (name == null || name.isBlank()) {
+                    return;
+                }
+                String group = name.trim();
+                StockWatchlistStateService.getInstance().update(batch -> batch.addGroup(group));
+                StockWatchlistProjectView.getInstance(project).setGroup(group);
+                reloadGroups();
                 refreshData();
             }
         }
 
+        private final class RemoveGroupAction extends AnAction {
+            RemoveGroupAction() {
+                super("删除分组", "删除当前分组及其中的自选股（所有项目共用）", AllIcons.Actions.Close);
+            }
+
+            @Override
+            public @NotNull ActionUpdateThread getActionUpdateThread() {
+                return ActionUpdateThread.BGT;
+            }
+
+            @Override
+            public void update(@NotNull AnActionEvent e) {
+                e.getPresentation().setEnabled(!StockWatchlistStateService.DEFAULT_GROUP.equals(
+                        StockWatchlistProjectView.getInstance(project).getGroup()));
+            }
+
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                String group = StockWatchlistProjectView.getInstance(project).getGroup();
+                if (StockWatchlistStateService.DEFAULT_GROUP.equals(group)
+                        || Messages.showYesNoDialog(project, "删除分组“" + group + "”及其中的自选股？", "删除分组",
+                        Messages.getQuestionIcon()) != Messages.YES) {
+                    return;
+                }
+                // 所有显示该分组的项目都会收到修改通知并回到默认分组
+                StockWatchlistStateService.getInstance().update(batch -> batch.removeGroup(group));
+            }
+        }
+
+        @Override
+        public void dispose() {
+            // 行情订阅注册在本面板下，随面板一起释放
+        }
+
         private static final class ChangePercentRenderer extends DefaultTableCellRenderer {
             @Override
             public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
                 Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-                if (column == 3 && value instanceof Number number) {
+                int modelColumn = table.convertColumnIndexToModel(column);
+                boolean signed = modelColumn == StockWatchlistTableModel.COLUMN_CHANGE_PERCENT
+                        || modelColumn == StockWatchlistTableModel.COLUMN_DAILY_PNL
+                        || modelColumn == StockWatchlistTableModel.COLUMN_TOTAL_PNL;
+                if (signed && value instanceof Number number) {
                     double v = number.doubleValue();
                     if (v > 0) {
                         c.setForeground(new Color(0xCC0000));
@@ -300,9 +459,149 @@ public final class StockWatchlistToolWindowFactory implements ToolWindowFactory
                     setText(String.format("%.2f", v));
                 } else {
                     c.setForeground(table.getForeground());
+                    if (modelColumn == StockWatchlistTableModel.COLUMN_MARKET_VALUE && value instanceof Number number) {
+                        setText(String.format("%,.2f", number.doubleValue()));
+                    }
                 }
                 return c;
             }
         }
+
+        /**
+         * 日内走势列
+         * <p>
+         * 每个代码缓存一张绘制好的图像，只有该代码有新的逐笔行情或单元格尺寸变化时才重新绘制，
+         * 其余重绘直接贴图。数据取自轮询线程逐笔增量维护的 {@link SparklineSeries}（最多
+         * {@code TickDownsample.BUCKETS} 个桶），EDT 上不复制也不遍历逐笔记录；绘制时再把桶按像素列合并，
+         * 每列只画最高、最低价的竖线，因此重绘耗时只与列宽和桶数有关，与当日记录条数无关。
+         */
+        private static final class SparklineRenderer extends JComponent implements TableCellRenderer {
+
+            /** 最多缓存的图像数，超过时淘汰最久未显示的 */
+            private static final int MAX_CACHED_IMAGES = 512;
+            private static final int PADDING = 2;
+
+            private final TickHistory tickHistory;
+            private final Map<String, CachedImage> cache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedImage> eldest) {
+                    return size() > MAX_CACHED_IMAGES;
+                }
+            };
+            private StockWatchlistTableModel.Sparkline value;
+            private boolean selected;
+            private Color selectionBackground;
+
+            private static final class CachedImage {
+                final long version;
+                final int width;
+                final int height;
+                final BufferedImage image;
+
+                CachedImage(long version, int width, int height, BufferedImage image) {
+                    this.version = version;
+                    this.width = width;
+                    this.height = height;
+                    this.image = image;
+                }
+            }
+
+            SparklineRenderer(TickHistory tickHistory) {
+                this.tickHistory = tickHistory;
+            }
+
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+                this.value = value instanceof StockWatchlistTableModel.Sparkline sparkline ? sparkline : null;
+                this.selected = isSelected;
+                this.selectionBackground = table.getSelectionBackground();
+                return this;
+            }
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                if (selected) {
+                    g.setColor(selectionBackground);
+                    g.fillRect(0, 0, getWidth(), getHeight());
+                }
+                StockWatchlistTableModel.Sparkline sparkline = value;
+                if (sparkline == null || getWidth() <= PADDING * 2 || getHeight() <= PADDING * 2) {
+                    return;
+                }
+                // 按屏幕缩放比例绘制，HiDPI 下保持清晰
+                double scale = g instanceof Graphics2D g2 ? g2.getTransform().getScaleX() : 1.0;
+                int width = (int) Math.ceil(getWidth() * scale);
+                int height = (int) Math.ceil(getHeight() * scale);
+                CachedImage cached = cache.get(sparkline.code);
+                if (cached == null || cached.version != sparkline.version
+                        || cached.width != width || cached.height != height) {
+                    cached = new CachedImage(sparkline.version, width, height,
+                            render(tickHistory.getSparkline(sparkline.code), sparkline.prevClose, width, height, scale));
+                    cache.put(sparkline.code, cached);
+                }
+                g.drawImage(cached.image, 0, 0, getWidth(), getHeight(), null);
+            }
+
+            private static BufferedImage render(SparklineSeries series, double prevClose, int width, int height, double scale) {
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                int size = series.size();
+                if (size < 2) {
+                    return image;
+                }
+
+                int padding = (int) Math.round(PADDING * scale);
+                int columns = width - padding * 2;
+                double low = Math.min(series.getLow(), prevClose > 0 ? prevClose : Double.MAX_VALUE);
+                double high = Math.max(series.getHigh(), prevClose > 0 ? prevClose : -Double.MAX_VALUE);
+                double range = high - low;
+                double yScale = range > 0 ? (height - padding * 2 - 1) / range : 0;
+                int baseY = height - padding - 1;
+
+                Graphics2D g = image.createGraphics();
+                try {
+                    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    if (prevClose > 0) {
+                        g.setColor(Color.GRAY);
+                        int y = baseY - (int) Math.round((prevClose - low) * yScale);
+                        g.drawLine(padding, y, width - padding - 1, y);
+                    }
+
+                    double last = series.getLastPrice();
+                    g.setColor(prevClose > 0 && last < prevClose ? new Color(0x008000) : new Color(0xCC0000));
+                    g.setStroke(new BasicStroke((float) scale));
+                    // 把桶按像素列合并，每列连接上一列的收尾价并画出本列的最高、最低价
+                    int previousY = -1;
+                    int previousX = -1;
+                    for (int x = 0; x < columns; x++) {
+                        int from = (int) ((long) size * x / columns);
+                        int to = (int) ((long) size * (x + 1) / columns);
+                        if (from >= to) {
+                            continue;
+                        }
+                        double bucketLow = Double.MAX_VALUE;
+                        double bucketHigh = -Double.MAX_VALUE;
+                        for (int i = from; i < to; i++) {
+                            bucketLow = Math.min(bucketLow, series.getLow(i));
+                            bucketHigh = Math.max(bucketHigh, series.getHigh(i));
+                        }
+                        int px = padding + x;
+                        int firstY = baseY - (int) Math.round((series.getFirst(from) - low) * yScale);
+                        int lastY = baseY - (int) Math.round((series.getLast(to - 1) - low) * yScale);
+                        if (previousX >= 0) {
+                            g.drawLine(previousX, previousY, px, firstY);
+                        }
+                        if (bucketHigh > bucketLow) {
+                            g.drawLine(px, baseY - (int) Math.round((bucketHigh - low) * yScale),
+                                    px, baseY - (int) Math.round((bucketLow - low) * yScale));
+                        }
+                        previousX = px;
+                        previousY = lastY;
+                    }
+                } finally {
+                    g.dispose();
+                }
+                return image;
+            }
+        }
     }
 }
@@ -0,0 +1,138 @@
+package com.github.thisisdun998.stockrecord.persistence;
+
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService.GroupState;
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService.StockItemState;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StockWatchlistProjectViewTest {
+
+    private static final String DEFAULT = StockWatchlistStateService.DEFAULT_GROUP;
+
+    private final StockWatchlistStateService service = new StockWatchlistStateService();
+
+    private StockWatchlistProjectView newView() {
+        return new StockWatchlistProjectView(() -> service);
+    }
+
+    private static StockItemState stock(String name, String code, long shares, double costPrice) {
+        StockItemState stock = new StockItemState(name, code);
+        stock.shares = shares;
+        stock.costPrice = costPrice;
+        return stock;
+    }
+
+    private static List<String> codes(List<StockItemState> stocks) {
+        List<String> codes = new ArrayList<>();
+        for (StockItemState stock : stocks) {
+            codes.add(stock.code);
+        }
+        return codes;
+    }
+
+    @Test
+    public void legacyStocksMergeIntoDefaultGroup() {
+        service.update(batch -> {
+            batch.addStock(DEFAULT, "浦发银行", "sh600000");
+            batch.setPosition(DEFAULT, "sh600000", 100, 10);
+        });
+
+        StockWatchlistProjectView.State legacy = new StockWatchlistProjectView.State();
+        legacy.stocks.add(stock("浦发", "sh600000", 0, 0));
+        legacy.stocks.add(stock("平安银行", "sz000001", 200, 12));
+        legacy.stocks.add(stock("平安银行", "000001.SZ", 0, 0));
+        StockWatchlistProjectView view = newView();
+        view.loadState(legacy);
+
+        List<StockItemState> stocks = service.getStocks(DEFAULT);
+        assertEquals(List.of("sh600000", "sz000001"), codes(stocks));
+        // 已有条目保留原名称与持仓，新条目带上旧版本的持仓
+        assertEquals("浦发银行", stocks.get(0).name);
+        assertEquals(100, stocks.get(0).shares);
+        assertEquals(200, stocks.get(1).shares);
+        assertEquals(12, stocks.get(1).costPrice, 0);
+        assertEquals(DEFAULT, view.getGroup());
+        assertEquals(stocks, view.getStocks());
+    }
+
+    @Test
+    public void legacyGroupsMergeByName() {
+        service.update(batch -> batch.addStock("银行", "招商银行", "sh600036"));
+
+        StockWatchlistProjectView.State legacy = new StockWatchlistProjectView.State();
+        legacy.groups.add(new GroupState("银行", new ArrayList<>(List.of(
+                stock("招商", "sh600036", 300, 35), stock("工商银行", "sh601398", 0, 0)))));
+        legacy.groups.add(new GroupState("白酒", new ArrayList<>(List.of(stock("贵州茅台", "sh600519", 10, 1500)))));
+        legacy.activeGroup = "白酒";
+        newView().loadState(legacy);
+
+        assertEquals(List.of(DEFAULT, "银行", "白酒"), service.getGroupNames());
+        assertEquals(List.of("sh600036", "sh601398"), codes(service.getStocks("银行")));
+        assertEquals("招商银行", service.getStocks("银行").get(0).name);
+        assertEquals(0, service.getStocks("银行").get(0).shares);
+        assertEquals(10, service.getStocks("白酒").get(0).shares);
+
+        // 另一个项目带着同样的旧数据打开，不产生重复条目，也不算一次修改
+        long count = service.getStateModificationCount();
+        StockWatchlistProjectView other = newView();
+        other.loadState(legacy);
+        assertEquals(count, service.getStateModificationCount());
+        assertEquals(2, service.getStocks("银行").size());
+        assertEquals("白酒", other.getGroup());
+    }
+
+    @Test
+    public void savedStateKeepsOnlyTheActiveGroup() {
+        StockWatchlistProjectView.State legacy = new StockWatchlistProjectView.State();
+        legacy.stocks.add(stock("浦发银行", "sh600000", 0, 0));
+        legacy.groups.add(new GroupState("银行", new ArrayList<>(List.of(stock("招商银行", "sh600036", 0, 0)))));
+        legacy.activeGroup = "银行";
+        StockWatchlistProjectView view = newView();
+        view.loadState(legacy);
+
+        StockWatchlistProjectView.State saved = view.getState();
+        assertTrue(saved.stocks.isEmpty());
+        assertTrue(saved.groups.isEmpty());
+        assertEquals("银行", saved.activeGroup);
+    }
+
+    @Test
+    public void activeGroupFallsBackWhenDeleted() {
+        service.update(batch -> {
+            batch.addStock(DEFAULT, "浦发银行", "sh600000");
+            batch.addStock("银行", "招商银行", "sh600036");
+        });
+
+        StockWatchlistProjectView.State saved = new StockWatchlistProjectView.State();
+        saved.activeGroup = "银行";
+        StockWatchlistProjectView view = newView();
+        view.loadState(saved);
+        assertEquals("银行", view.getGroup());
+        assertEquals(List.of("sh600036"), codes(view.getStocks()));
+
+        // 其他项目删除了该分组，当前项目回到默认分组，之后的修改也落在默认分组
+        service.update(batch -> batch.removeGroup("银行"));
+        assertEquals(DEFAULT, view.getGroup());
+        view.addStock("平安银行", "sz000001");
+        assertEquals(List.of("sh600000", "sz000001"), codes(service.getStocks(DEFAULT)));
+        assertTrue(view.containsStock("sz000001"));
+
+        // 不存在的分组不能被选中
+        view.setGroup("白酒");
+        assertEquals(DEFAULT, view.getGroup());
+
+        // 项目文件中记录的分组已不存在
+        StockWatchlistProjectView.State stale = new StockWatchlistProjectView.State();
+        stale.activeGroup = "已删除";
+        StockWatchlistProjectView fresh = newView();
+        fresh.loadState(stale);
+        assertEquals(DEFAULT, fresh.getGroup());
+        assertFalse(service.hasGroup("已删除"));
+    }
+}
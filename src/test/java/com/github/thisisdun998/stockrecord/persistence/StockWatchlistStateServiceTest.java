@@ -0,0 +1,195 @@
+package com.github.thisisdun998.stockrecord.persistence;
+
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService.GroupState;
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService.State;
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService.StockItemState;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StockWatchlistStateServiceTest {
+
+    private static final String DEFAULT = StockWatchlistStateService.DEFAULT_GROUP;
+
+    private final StockWatchlistStateService service = new StockWatchlistStateService();
+    private final AtomicInteger notifications = new AtomicInteger();
+    private final Disposable disposable = () -> {
+    };
+
+    @Before
+    public void setUp() {
+        service.addChangeListener(disposable, notifications::incrementAndGet);
+    }
+
+    @After
+    public void tearDown() {
+        Disposer.dispose(disposable);
+    }
+
+    private static List<String> codes(List<StockItemState> stocks) {
+        List<String> codes = new ArrayList<>();
+        for (StockItemState stock : stocks) {
+            codes.add(stock.code);
+        }
+        return codes;
+    }
+
+    @Test
+    public void duplicateCodesAreRejected() {
+        service.update(batch -> {
+            batch.addStock(DEFAULT, "浦发银行", "sh600000");
+            batch.addStock(DEFAULT, "平安银行", "sz000001");
+            batch.addStock(DEFAULT, "浦发银行（重复）", "sh600000");
+        });
+        assertEquals(List.of("sh600000", "sz000001"), codes(service.getStocks(DEFAULT)));
+        assertEquals("浦发银行", service.getStocks(DEFAULT).get(0).name);
+
+        long count = service.getStateModificationCount();
+        service.update(batch -> batch.addStock(DEFAULT, "浦发银行", "sh600000"));
+        assertEquals(count, service.getStateModificationCount());
+
+        // 加载的状态中重复的代码只保留第一条，其他分组中的同一代码不受影响
+        State loaded = new State();
+        loaded.groups.add(new GroupState(DEFAULT, new ArrayList<>(List.of(
+                new StockItemState("A", "sh600000"), new StockItemState("B", "sh600000")))));
+        loaded.groups.add(new GroupState("银行", new ArrayList<>(List.of(new StockItemState("C", "sh600000")))));
+        service.loadState(loaded);
+        assertEquals(1, service.getStocks(DEFAULT).size());
+        assertEquals("A", service.getStocks(DEFAULT).get(0).name);
+        assertEquals(List.of("sh600000"), codes(service.getStocks("银行")));
+    }
+
+    @Test
+    public void invalidEntriesAreRejected() {
+        service.update(batch -> {
+            batch.addStock(DEFAULT, "平安银行", "000001.SZ");
+            batch.addStock(DEFAULT, "未找到结果", "sh600000");
+            batch.addStock(DEFAULT, " ", "sh600001");
+            batch.addStock(" ", "浦发银行", "sh600000");
+        });
+        assertTrue(service.getStocks(DEFAULT).isEmpty());
+        assertEquals(List.of(DEFAULT), service.getGroupNames());
+        assertEquals(0, notifications.get());
+    }
+
+    @Test
+    public void batchWithoutChangesIsNotAModification() {
+        service.update(batch -> batch.addStock(DEFAULT, "浦发银行", "sh600000"));
+        assertEquals(1, service.getStateModificationCount());
+        assertEquals(1, notifications.get());
+
+        service.update(batch -> {
+            batch.addStock(DEFAULT, "浦发银行", "sh600000");
+            batch.removeStock(DEFAULT, "sz000001");
+            batch.removeStock("不存在", "sh600000");
+            batch.setPosition(DEFAULT, "sh600000", 0, 0);
+            batch.addGroup(DEFAULT);
+            batch.removeGroup("不存在");
+        });
+        assertEquals(1, service.getStateModificationCount());
+        assertEquals(1, notifications.get());
+
+        // 一批多项修改只算一次
+        service.update(batch -> {
+            batch.addStock(DEFAULT, "平安银行", "sz000001");
+            batch.addStock("银行", "招商银行", "sh600036");
+            batch.setPosition(DEFAULT, "sh600000", 100, 10);
+        });
+        assertEquals(2, service.getStateModificationCount());
+        assertEquals(2, notifications.get());
+    }
+
+    @Test
+    public void listenersAreRemovedWithTheirParent() {
+        AtomicInteger other = new AtomicInteger();
+        Disposable parent = () -> {
+        };
+        service.addChangeListener(parent, other::incrementAndGet);
+        service.update(batch -> batch.addGroup("银行"));
+        assertEquals(1, other.get());
+
+        Disposer.dispose(parent);
+        service.update(batch -> batch.addGroup("白酒"));
+        assertEquals(1, other.get());
+        assertEquals(2, notifications.get());
+    }
+
+    @Test
+    public void stateIsReusedUntilTheNextChange() {
+        service.update(batch -> batch.addStock(DEFAULT, "浦发银行", "sh600000"));
+        State first = service.getState();
+        assertSame(first, service.getState());
+
+        service.update(batch -> batch.addStock(DEFAULT, "浦发银行", "sh600000"));
+        assertSame(first, service.getState());
+
+        service.update(batch -> batch.addGroup("银行"));
+        State second = service.getState();
+        assertNotSame(first, second);
+        assertEquals(2, second.groups.size());
+        assertEquals(DEFAULT, second.groups.get(0).name);
+        assertEquals(List.of("sh600000"), codes(second.groups.get(0).stocks));
+        assertEquals("银行", second.groups.get(1).name);
+        // 已交出的旧状态不随修改变化
+        assertEquals(1, first.groups.size());
+
+        service.loadState(new State());
+        assertNotSame(second, service.getState());
+    }
+
+    @Test
+    public void defaultGroupCannotBeRemoved() {
+        service.update(batch -> {
+            batch.addStock(DEFAULT, "浦发银行", "sh600000");
+            batch.addStock("银行", "招商银行", "sh600036");
+        });
+        long count = service.getStateModificationCount();
+        service.update(batch -> batch.removeGroup(DEFAULT));
+        assertEquals(count, service.getStateModificationCount());
+        assertTrue(service.hasGroup(DEFAULT));
+        assertEquals(1, service.getStocks(DEFAULT).size());
+
+        service.update(batch -> batch.removeGroup("银行"));
+        assertFalse(service.hasGroup("银行"));
+        assertTrue(service.getStocks("银行").isEmpty());
+        assertEquals(List.of(DEFAULT), service.getGroupNames());
+
+        // 加载的状态中没有默认分组时同样保留
+        service.loadState(new State());
+        assertEquals(List.of(DEFAULT), service.getGroupNames());
+    }
+
+    @Test
+    public void setPositionReplacesTheEntry() {
+        service.update(batch -> batch.addStock(DEFAULT, "浦发银行", "sh600000"));
+        StockItemState before = service.getStocks(DEFAULT).get(0);
+        State state = service.getState();
+
+        service.update(batch -> batch.setPosition(DEFAULT, "sh600000", 1000, 10.5));
+        StockItemState after = service.getStocks(DEFAULT).get(0);
+        assertNotSame(before, after);
+        assertEquals(1000, after.shares);
+        assertEquals(10.5, after.costPrice, 0);
+        assertEquals("浦发银行", after.name);
+        // 已交给面板或正在序列化的旧条目不变
+        assertEquals(0, before.shares);
+        assertEquals(0, state.groups.get(0).stocks.get(0).shares);
+
+        // 清仓时成本价一并清除，负数按 0 处理
+        service.update(batch -> batch.setPosition(DEFAULT, "sh600000", -5, 10.5));
+        assertEquals(0, service.getStocks(DEFAULT).get(0).shares);
+        assertEquals(0, service.getStocks(DEFAULT).get(0).costPrice, 0);
+    }
+}
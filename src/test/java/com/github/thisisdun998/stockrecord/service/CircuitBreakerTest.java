@@ -0,0 +1,102 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private long now = 1_000_000;
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 3, 1_000, 4_000, () -> now);
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        fail(2);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenAllowsSingleTrialThenCloses() {
+        fail(3);
+        now += 999;
+        assertFalse(breaker.tryAcquire());
+        now += 1;
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // 试探请求未结束时不放行其他请求
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void failedTrialDoublesOpenTimeUpToLimit() {
+        fail(3);
+        long[] expected = {2_000, 4_000, 4_000};
+        now += 1_000;
+        for (long openMillis : expected) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            now += openMillis - 1;
+            assertFalse(breaker.tryAcquire());
+            now += 1;
+        }
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+
+        // 恢复后断开时长回到初始值
+        fail(3);
+        now += 1_000;
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void cancelledTrialIsNotAFailure() {
+        fail(3);
+        now += 1_000;
+        assertTrue(breaker.tryAcquire());
+        breaker.onCancel();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // 允许下一个请求重新试探；取消没有让断开时长加倍，这次失败后断开 2 秒而不是 4 秒
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        now += 1_999;
+        assertFalse(breaker.tryAcquire());
+        now += 1;
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void lateFailureWhileOpenDoesNotExtend() {
+        fail(3);
+        breaker.onFailure();
+        now += 1_000;
+        assertTrue(breaker.tryAcquire());
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class DailyBarFileTest {
+
+    private static final String CODE = "sh600519";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory() {
+        return folder.getRoot().toPath().resolve("kline");
+    }
+
+    private Path path() {
+        return directory().resolve(CODE + ".bin");
+    }
+
+    private static void assertSameBars(DailyBars expected, DailyBars actual) {
+        assertNotNull(actual);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getDate(i), actual.getDate(i));
+            assertEquals(expected.getOpen(i), actual.getOpen(i), 0);
+            assertEquals(expected.getHigh(i), actual.getHigh(i), 0);
+            assertEquals(expected.getLow(i), actual.getLow(i), 0);
+            assertEquals(expected.getClose(i), actual.getClose(i), 0);
+            assertEquals(expected.getVolume(i), actual.getVolume(i));
+        }
+    }
+
+    @Test
+    public void roundTripsColumns() {
+        DailyBars bars = DailyBarsTest.bars(1688.5, 20261012, 20261013, 20261014, 20261015);
+        DailyBarFile file = new DailyBarFile(directory());
+        file.write(CODE, bars);
+
+        assertSameBars(bars, new DailyBarFile(directory()).read(CODE));
+        assertNull(file.read("sz000001"));
+    }
+
+    @Test
+    public void writesOnlyTheVisiblePartOfASharedView() throws Exception {
+        DailyBars all = DailyBarsTest.bars(10, 20261013, 20261014, 20261015, 20261016);
+        DailyBars closed = all.through(20261015);
+        DailyBarFile file = new DailyBarFile(directory());
+        file.write(CODE, closed);
+
+        DailyBars read = file.read(CODE);
+        assertSameBars(closed, read);
+        assertEquals(20261015, read.getLastDate());
+        assertEquals(12 + 3 * 44, Files.size(path()));
+    }
+
+    @Test
+    public void roundTripsEmptyAndOverwrites() {
+        DailyBarFile file = new DailyBarFile(directory());
+        file.write(CODE, DailyBars.EMPTY);
+        assertEquals(0, file.read(CODE).size());
+
+        DailyBars bars = DailyBarsTest.bars(5, 20261016);
+        file.write(CODE, bars);
+        assertSameBars(bars, file.read(CODE));
+    }
+
+    @Test
+    public void rejectsWrongMagicVersionOrSize() throws Exception {
+        DailyBarFile file = new DailyBarFile(directory());
+        file.write(CODE, DailyBarsTest.bars(10, 20261014, 20261015));
+        byte[] valid = Files.readAllBytes(path());
+
+        Files.write(path(), withInt(valid, 0, 0x12345678));
+        assertNull(file.read(CODE));
+        Files.write(path(), withInt(valid, 4, 2));
+        assertNull(file.read(CODE));
+        Files.write(path(), withInt(valid, 8, 3));
+        assertNull(file.read(CODE));
+        Files.write(path(), withInt(valid, 8, -1));
+        assertNull(file.read(CODE));
+        Files.write(path(), Arrays.copyOf(valid, valid.length - 1));
+        assertNull(file.read(CODE));
+        Files.write(path(), Arrays.copyOf(valid, valid.length + 8));
+        assertNull(file.read(CODE));
+        Files.write(path(), Arrays.copyOf(valid, 8));
+        assertNull(file.read(CODE));
+    }
+
+    private static byte[] withInt(byte[] bytes, int offset, int value) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        return copy;
+    }
+}
@@ -0,0 +1,183 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.StockIndex;
+import com.github.thisisdun998.stockrecord.model.StockQuote;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DailyBarServiceTest {
+
+    private static final String CODE = "sh600519";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final MutableClock clock = new MutableClock(ZonedDateTime.of(2026, 10, 16, 16, 0, 0, 0,
+            TradingCalendar.EXCHANGE_ZONE).toInstant());
+    private final StubService stockService = new StubService();
+    private final TradingCalendar calendar = TradingCalendar.load();
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advanceMillis(long millis) {
+            now = now.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return TradingCalendar.EXCHANGE_ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    /**
+     * 依次返回预设的日 K 线结果，null 表示请求失败
+     */
+    private static final class StubService implements StockService {
+        final Deque<DailyBars> responses = new ArrayDeque<>();
+        int fetches;
+
+        @Override
+        public DailyBars fetchDailyBars(String code, int count) {
+            fetches++;
+            return responses.isEmpty() ? null : responses.poll();
+        }
+
+        @Override
+        public boolean supportsDailyBars(String code) {
+            return !code.startsWith("hk");
+        }
+
+        @Override
+        public CompletableFuture<Boolean> updateSnapshotAsync(List<String> codes, Collection<StockIndex> indices,
+                                                              QuoteSnapshotStore store, Duration timeout) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<StockQuote> searchStocks(String keyword) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<StockQuote> searchStocks(String keyword, String previousKeyword, List<StockQuote> previousResults) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<List<StockQuote>> searchStocksAsync(String keyword, String previousKeyword,
+                                                                     List<StockQuote> previousResults) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Void> refreshStockList() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private DailyBarService service() {
+        return new DailyBarService(new DailyBarFile(folder.getRoot().toPath()), () -> stockService, () -> calendar,
+                clock, Runnable::run);
+    }
+
+    private static DailyBars get(DailyBarService service, String code) throws Exception {
+        return service.getDailyBars(code).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void failedFetchIsRetriedAfterBackoff() throws Exception {
+        DailyBarService service = service();
+        assertTrue(get(service, CODE).isEmpty());
+        assertEquals(1, stockService.fetches);
+
+        // 退避期间不重试，也不把代码当作已是最新
+        clock.advanceMillis(DailyBarService.RETRY_DELAY_MILLIS - 1);
+        assertTrue(get(service, CODE).isEmpty());
+        assertEquals(1, stockService.fetches);
+
+        stockService.responses.add(DailyBarsTest.bars(10, 20261014, 20261015, 20261016));
+        clock.advanceMillis(1);
+        DailyBars bars = get(service, CODE);
+        assertEquals(2, stockService.fetches);
+        assertEquals(3, bars.size());
+        assertEquals(20261016, bars.getLastDate());
+
+        // 已是最新，不再请求
+        get(service, CODE);
+        assertEquals(2, stockService.fetches);
+    }
+
+    @Test
+    public void failedFetchKeepsLocalBarsAndRetries() throws Exception {
+        new DailyBarFile(folder.getRoot().toPath()).write(CODE, DailyBarsTest.bars(10, 20261013, 20261014));
+        DailyBarService service = service();
+        assertEquals(2, get(service, CODE).size());
+        assertEquals(1, stockService.fetches);
+
+        stockService.responses.add(DailyBarsTest.bars(100, 20261014, 20261015, 20261016));
+        clock.advanceMillis(DailyBarService.RETRY_DELAY_MILLIS);
+        DailyBars bars = get(service, CODE);
+        assertEquals(4, bars.size());
+        assertEquals(100, bars.getClose(1), 0);
+    }
+
+    @Test
+    public void unsupportedCodeIsNotRequestedAgain() throws Exception {
+        DailyBarService service = service();
+        assertTrue(get(service, "hk00700").isEmpty());
+        clock.advanceMillis(DailyBarService.RETRY_DELAY_MILLIS * 10);
+        assertTrue(get(service, "hk00700").isEmpty());
+        assertEquals(0, stockService.fetches);
+    }
+
+    @Test
+    public void emptySuccessfulFetchCountsAsChecked() throws Exception {
+        // 停牌期间接口返回的最后一根 K 线早于最近的交易日
+        stockService.responses.add(DailyBarsTest.bars(10, 20261013));
+        DailyBarService service = service();
+        assertEquals(1, get(service, CODE).size());
+        clock.advanceMillis(DailyBarService.RETRY_DELAY_MILLIS * 10);
+        assertEquals(1, get(service, CODE).size());
+        assertEquals(1, stockService.fetches);
+    }
+
+    @Test
+    public void unfinishedBarIsNotStored() throws Exception {
+        clock.advanceMillis(-TimeUnit.HOURS.toMillis(5)); // 2026-10-16 11:00，盘中
+        stockService.responses.add(DailyBarsTest.bars(10, 20261014, 20261015, 20261016));
+        DailyBars bars = get(service(), CODE);
+        assertEquals(20261015, bars.getLastDate());
+        assertEquals(20261015, new DailyBarFile(folder.getRoot().toPath()).read(CODE).getLastDate());
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DailyBarsTest {
+
+    /**
+     * 按日期生成 K 线，收盘价为 base + 序号，其余字段由收盘价推出
+     */
+    static DailyBars bars(double base, int... dates) {
+        int n = dates.length;
+        double[] opens = new double[n];
+        double[] highs = new double[n];
+        double[] lows = new double[n];
+        double[] closes = new double[n];
+        long[] volumes = new long[n];
+        for (int i = 0; i < n; i++) {
+            closes[i] = base + i;
+            opens[i] = closes[i] - 0.5;
+            highs[i] = closes[i] + 1;
+            lows[i] = closes[i] - 1;
+            volumes[i] = (long) (closes[i] * 1000);
+        }
+        return new DailyBars(dates.clone(), opens, highs, lows, closes, volumes, n);
+    }
+
+    private static int[] dates(DailyBars bars) {
+        int[] dates = new int[bars.size()];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = bars.getDate(i);
+        }
+        return dates;
+    }
+
+    @Test
+    public void mergeOverwritesFromFirstNewerDate() {
+        DailyBars cached = bars(10, 20261012, 20261013, 20261014, 20261015);
+        DailyBars newer = bars(100, 20261014, 20261015, 20261016);
+
+        DailyBars merged = cached.merge(newer);
+        assertArrayEquals(new int[]{20261012, 20261013, 20261014, 20261015, 20261016}, dates(merged));
+        assertEquals(10, merged.getClose(0), 0);
+        assertEquals(11, merged.getClose(1), 0);
+        // 相同日期以 newer 为准
+        assertEquals(100, merged.getClose(2), 0);
+        assertEquals(101, merged.getClose(3), 0);
+        assertEquals(102, merged.getClose(4), 0);
+        assertEquals(100.5, merged.getOpen(3), 0);
+        assertEquals(103, merged.getHigh(4), 0);
+        assertEquals(99, merged.getLow(2), 0);
+        assertEquals(102_000, merged.getVolume(4));
+        assertEquals(20261016, merged.getLastDate());
+        // 原序列不变
+        assertEquals(4, cached.size());
+        assertEquals(13, cached.getClose(3), 0);
+    }
+
+    @Test
+    public void mergeDropsCachedBarsMissingFromNewer() {
+        // newer 从 14 日开始，缓存中 15 日的旧数据即使 newer 没有也不再保留
+        DailyBars cached = bars(10, 20261013, 20261014, 20261015);
+        DailyBars merged = cached.merge(bars(100, 20261014));
+        assertArrayEquals(new int[]{20261013, 20261014}, dates(merged));
+        assertEquals(100, merged.getClose(1), 0);
+    }
+
+    @Test
+    public void mergeAppendsOrReplacesWholly() {
+        DailyBars cached = bars(10, 20261013, 20261014);
+        assertArrayEquals(new int[]{20261013, 20261014, 20261015, 20261016},
+                dates(cached.merge(bars(100, 20261015, 20261016))));
+        assertArrayEquals(new int[]{20261001, 20261016}, dates(cached.merge(bars(100, 20261001, 20261016))));
+        assertArrayEquals(new int[]{20261015}, dates(DailyBars.EMPTY.merge(bars(100, 20261015))));
+        assertSame(cached, cached.merge(DailyBars.EMPTY));
+    }
+
+    @Test
+    public void throughDropsLaterBarsAndSharesArrays() {
+        DailyBars bars = bars(10, 20261013, 20261014, 20261015, 20261016);
+
+        DailyBars closed = bars.through(20261015);
+        assertEquals(3, closed.size());
+        assertEquals(20261015, closed.getLastDate());
+        assertSame(bars.dates(), closed.dates());
+        assertSame(bars.closes(), closed.closes());
+        assertSame(bars.volumes(), closed.volumes());
+
+        assertSame(bars, bars.through(20261016));
+        assertSame(bars, bars.through(20261231));
+        assertEquals(2, bars.through(20261014).size());
+        assertEquals(0, bars.through(20261001).size());
+        assertEquals(0, bars.through(20261001).getLastDate());
+    }
+
+    @Test
+    public void mergeOnSharedViewIgnoresDroppedBars() {
+        // through 之后的序列与原序列共用数组，合并时不能带出已去掉的 K 线
+        DailyBars closed = bars(10, 20261013, 20261014, 20261015, 20261016).through(20261014);
+        DailyBars merged = closed.merge(bars(100, 20261016));
+        assertArrayEquals(new int[]{20261013, 20261014, 20261016}, dates(merged));
+        assertEquals(100, merged.getClose(2), 0);
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FeedMetricsTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private final FeedMetrics metrics = new FeedMetrics();
+
+    private FeedMetrics.Snapshot snapshot(String name) {
+        for (FeedMetrics.Snapshot snapshot : metrics.snapshot()) {
+            if (snapshot.getName().equals(name)) {
+                return snapshot;
+            }
+        }
+        throw new AssertionError("没有接口 " + name);
+    }
+
+    @Test
+    public void countsSuccessesFailuresAndBytes() {
+        FeedMetrics.Endpoint sina = metrics.endpoint("sina");
+        FeedMetrics.Endpoint tencent = metrics.endpoint("tencent");
+        assertSame(sina, metrics.endpoint("sina"));
+
+        sina.recordSuccess(10 * MILLIS, 1000);
+        sina.recordSuccess(30 * MILLIS, 2000);
+        sina.recordFailure(80 * MILLIS, 24);
+        sina.recordParseErrors(3);
+        sina.recordParseErrors(0);
+        tencent.recordFailure(5 * MILLIS, 0);
+
+        List<FeedMetrics.Snapshot> snapshots = metrics.snapshot();
+        assertEquals(List.of("sina", "tencent"), snapshots.stream().map(FeedMetrics.Snapshot::getName).toList());
+        FeedMetrics.Snapshot s = snapshot("sina");
+        assertEquals(3, s.getRequests());
+        assertEquals(1, s.getFailures());
+        assertEquals(3, s.getParseErrors());
+        assertEquals(3024, s.getBytes());
+        assertEquals(40.0, s.getMeanMillis(), 1e-9);
+        assertEquals(80.0, s.getMaxMillis(), 1e-9);
+        assertEquals(1, snapshot("tencent").getRequests());
+        assertEquals(1, snapshot("tencent").getFailures());
+
+        String summary = metrics.summary();
+        assertTrue(summary.contains("sina: 请求 3，失败 1，解析错误 3"));
+        assertTrue(summary.contains("tencent: 请求 1，失败 1"));
+
+        metrics.reset();
+        s = snapshot("sina");
+        assertEquals(0, s.getRequests());
+        assertEquals(0, s.getFailures());
+        assertEquals(0, s.getBytes());
+        assertEquals(0, s.getMeanMillis(), 0);
+        assertEquals(0, s.getMaxMillis(), 0);
+        assertEquals(0, s.getPercentileMillis(0.99), 0);
+    }
+
+    @Test
+    public void percentilesUseBucketUpperBounds() {
+        FeedMetrics.Endpoint endpoint = metrics.endpoint("sina");
+        for (int i = 0; i < 90; i++) {
+            endpoint.recordSuccess(3 * MILLIS, 0);
+        }
+        for (int i = 0; i < 9; i++) {
+            endpoint.recordSuccess(150 * MILLIS, 0);
+        }
+        endpoint.recordFailure(12_000 * MILLIS, 0);
+
+        FeedMetrics.Snapshot s = snapshot("sina");
+        // 3ms 落在 [0, 5) 区间，150ms 落在 [100, 200) 区间
+        assertEquals(5.0, s.getPercentileMillis(0.5), 0);
+        assertEquals(5.0, s.getPercentileMillis(0.9), 0);
+        assertEquals(200.0, s.getPercentileMillis(0.95), 0);
+        assertEquals(200.0, s.getPercentileMillis(0.99), 0);
+        // 落在没有上界的最后一个区间时取最大耗时
+        assertEquals(12_000.0, s.getPercentileMillis(1.0), 0);
+    }
+
+    @Test
+    public void percentileNeverExceedsMaximum() {
+        FeedMetrics.Endpoint endpoint = metrics.endpoint("sina");
+        endpoint.recordSuccess(3 * MILLIS, 0);
+        endpoint.recordSuccess(2 * MILLIS, 0);
+        FeedMetrics.Snapshot s = snapshot("sina");
+        assertEquals(3.0, s.getPercentileMillis(0.5), 0);
+        assertEquals(3.0, s.getPercentileMillis(0.99), 0);
+    }
+
+    @Test
+    public void bucketBoundaryBelongsToTheUpperBucket() {
+        FeedMetrics.Endpoint endpoint = metrics.endpoint("sina");
+        // 恰好 5ms 计入 [5, 10) 区间
+        endpoint.recordSuccess(5 * MILLIS, 0);
+        endpoint.recordSuccess(9 * MILLIS, 0);
+        assertEquals(9.0, snapshot("sina").getPercentileMillis(0.5), 0);
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonObjectArrayTest {
+
+    private static final String[] KEYS = {"dm", "mc"};
+
+    private final List<List<String>> rows = new ArrayList<>();
+
+    private boolean parse(Reader reader) throws IOException {
+        return JsonObjectArray.parse(reader, KEYS, values -> {
+            List<String> row = new ArrayList<>(values.length);
+            for (CharSequence value : values) {
+                row.add(value == null ? null : value.toString());
+            }
+            rows.add(row);
+        });
+    }
+
+    private boolean parse(String json) throws IOException {
+        return parse(new StringReader(json));
+    }
+
+    /**
+     * 解析应失败，并给出出错的位置与原因
+     */
+    private void assertError(String json, String expected) throws IOException {
+        try {
+            parse(json);
+            fail("应抛出 FormatException: " + json);
+        } catch (JsonObjectArray.FormatException e) {
+            assertEquals("JSON 格式错误，" + expected, e.getMessage());
+        }
+    }
+
+    @Test
+    public void decodesStringEscapes() throws IOException {
+        assertTrue(parse("[{\"dm\":\"a\\\"b\\\\c\\/d\",\"mc\":\"\\b\\f\\n\\r\\t\"}]"));
+        assertEquals(List.of(Arrays.asList("a\"b\\c/d", "\b\f\n\r\t")), rows);
+    }
+
+    @Test
+    public void decodesUnicodeEscapesAndSurrogatePairs() throws IOException {
+        // 平安银行，及一个需要代理对表示的字符 U+1F600
+        assertTrue(parse("[{\"dm\":\"000001\",\"mc\":\"\\u5e73\\u5B89\\u94f6\\u884C \\ud83d\\ude00\"}]"));
+        String name = rows.get(0).get(1);
+        assertEquals("平安银行 \uD83D\uDE00", name);
+        assertEquals(0x1F600, name.codePointAt(5));
+        // 未转义的代理对原样保留
+        rows.clear();
+        assertTrue(parse("[{\"mc\":\"\uD83D\uDE00\"}]"));
+        assertEquals("\uD83D\uDE00", rows.get(0).get(1));
+    }
+
+    @Test
+    public void fieldOrderDoesNotMatter() throws IOException {
+        assertTrue(parse("[{\"dm\":\"000001\",\"mc\":\"平安银行\"},{\"mc\":\"浦发银行\",\"jys\":\"sh\",\"dm\":\"600000\"},"
+                + "{\"dm\":\"000002\"}]"));
+        assertEquals(List.of(
+                Arrays.asList("000001", "平安银行"),
+                Arrays.asList("600000", "浦发银行"),
+                Arrays.asList("000002", null)), rows);
+    }
+
+    @Test
+    public void skipsNestedValuesAndOtherFields() throws IOException {
+        assertTrue(parse("[ {\"x\":{\"a\":[1,{\"b\":\"]}\"}],\"c\":{}},\"dm\":\"000001\",\"y\":[[],[true,null]],"
+                + "\"mc\":{\"nested\":\"ignored\"},\"z\":-1.5E+3}, [1,2], \"s\", 3, {} ]"));
+        assertEquals(List.of(
+                Arrays.asList("000001", null),
+                Arrays.asList(null, null)), rows);
+    }
+
+    @Test
+    public void numbersAreKeptAsText() throws IOException {
+        assertTrue(parse("[{\"dm\":600000,\"mc\":-0.25e-2}]"));
+        assertEquals(List.of(Arrays.asList("600000", "-0.25e-2")), rows);
+    }
+
+    @Test
+    public void topLevelObjectIsNotAnArray() throws IOException {
+        assertFalse(parse("{\"error\":\"busy\"}"));
+        assertTrue(rows.isEmpty());
+        assertTrue(parse(" [ ] "));
+        assertTrue(rows.isEmpty());
+    }
+
+    @Test
+    public void parsesAcrossBufferBoundaries() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"mc\":\"\\u5e73\",\"dm\":\"").append(i).append("\"}");
+        }
+        json.append(']');
+        // 每次只返回一个字符，退回与补充缓冲区交替发生
+        Reader slow = new Reader() {
+            private final StringReader delegate = new StringReader(json.toString());
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return delegate.read(buffer, offset, Math.min(1, length));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertTrue(parse(slow));
+        assertEquals(2000, rows.size());
+        assertEquals(Arrays.asList("1999", "平"), rows.get(1999));
+    }
+
+    @Test
+    public void reportsOffsetOfTruncatedInput() throws IOException {
+        // 位置为已读取的字符数
+        assertError("[{\"dm\":\"0000", "位置 12: 字符串未结束");
+        assertError("[{\"dm\":\"000001\"", "位置 15: 应为 ',' 或 '}'");
+        assertError("[{\"dm\":", "位置 7: 无法识别的字符 'EOF'");
+        assertError("[{\"dm\":\"\\u12", "位置 12: 无效的 \\u 转义");
+    }
+
+    @Test
+    public void reportsOffsetOfMalformedInput() throws IOException {
+        assertError("[{\"dm\":\"1\" \"mc\":\"2\"}]", "位置 12: 应为 ',' 或 '}'");
+        assertError("[{dm:\"1\"}]", "位置 3: 应为 '\"'");
+        assertError("[{\"dm\" \"1\"}]", "位置 8: 应为 ':'");
+        assertError("[{\"dm\":\"\\x\"}]", "位置 10: 无效的转义字符");
+        assertError("[{\"x\":[1;2]}]", "位置 9: 应为 ',' 或 ']'");
+        assertError("[{\"dm\":\"1\"},#]", "位置 13: 无法识别的字符 '#'");
+    }
+}
@@ -0,0 +1,215 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.PriceAlert;
+import org.junit.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertEquals;
+
+public class PriceAlertEngineTest {
+
+    private static final String CODE = "sh600000";
+    private static final int DAY = 20261016;
+    private static final int NEXT_DAY = 20261019;
+
+    private final QuoteSnapshotStore store = new QuoteSnapshotStore();
+    private final Map<String, Long> sequences = new HashMap<>();
+    private final List<PriceAlert> fired = new ArrayList<>();
+    private final PriceAlertEngine engine = new PriceAlertEngine((alert, price, change) -> fired.add(alert));
+
+    /**
+     * 写入一条行情并交给引擎计算
+     * @param time 行情时间 HHmmss
+     */
+    private void tick(int date, int time, double price, double prevClose) {
+        Lock writeLock = store.writeLock();
+        writeLock.lock();
+        try {
+            store.beginUpdate();
+            int slot = store.slotFor(CODE);
+            store.setPrice(slot, price);
+            store.setPrevClose(slot, prevClose);
+            store.setDateTime(slot, date, time);
+        } finally {
+            writeLock.unlock();
+        }
+        engine.evaluate(TickBatch.collect(store, List.of(CODE), sequences,
+                ZonedDateTime.now(TradingCalendar.EXCHANGE_ZONE)));
+    }
+
+    private static int seconds(int totalSeconds) {
+        return 93000 + totalSeconds / 60 * 100 + totalSeconds % 60;
+    }
+
+    @Test
+    public void firstEvaluationDoesNotFireRulesAlreadySatisfied() {
+        PriceAlert above = new PriceAlert(CODE, PriceAlert.Type.PRICE_ABOVE, 10, 0);
+        PriceAlert below = new PriceAlert(CODE, PriceAlert.Type.PRICE_BELOW, 12, 0);
+        PriceAlert farAbove = new PriceAlert(CODE, PriceAlert.Type.PRICE_ABOVE, 20, 0);
+        engine.setAlerts(List.of(above, below, farAbove));
+
+        tick(DAY, 93000, 11, 10);
+        assertEquals(0, fired.size());
+
+        // 已满足的规则要先回到阈值另一侧
+        tick(DAY, 93003, 11.5, 10);
+        assertEquals(0, fired.size());
+        tick(DAY, 93006, 9.5, 10);
+        assertEquals(0, fired.size());
+        tick(DAY, 93009, 10.5, 10);
+        assertEquals(List.of(above), fired);
+
+        // 首次计算时未满足的规则已处于待触发状态
+        tick(DAY, 93012, 20, 10);
+        assertEquals(List.of(above, farAbove), fired);
+    }
+
+    @Test
+    public void priceCrossingRearmsOnlyAfterGoingBack() {
+        PriceAlert above = new PriceAlert(CODE, PriceAlert.Type.PRICE_ABOVE, 10, 0);
+        engine.setAlerts(List.of(above));
+
+        tick(DAY, 93000, 9, 9);
+        assertEquals(0, fired.size());
+        tick(DAY, 93003, 10.5, 9);
+        assertEquals(List.of(above), fired);
+        // 停在阈值上方不再触发
+        tick(DAY, 93006, 10.8, 9);
+        tick(DAY, 93009, 10, 9);
+        tick(DAY, 93012, 10.2, 9);
+        assertEquals(1, fired.size());
+        // 回到下方后再上穿，立即再次触发
+        tick(DAY, 93015, 9.9, 9);
+        assertEquals(1, fired.size());
+        tick(DAY, 93018, 10.1, 9);
+        assertEquals(2, fired.size());
+    }
+
+    @Test
+    public void landingExactlyOnThresholdFiresAndRearms() {
+        PriceAlert below = new PriceAlert(CODE, PriceAlert.Type.PRICE_BELOW, 10, 0);
+        engine.setAlerts(List.of(below));
+
+        tick(DAY, 93000, 10.5, 10);
+        tick(DAY, 93003, 10, 10);
+        assertEquals(List.of(below), fired);
+        // 从阈值上离开再回来
+        tick(DAY, 93006, 10.2, 10);
+        tick(DAY, 93009, 10, 10);
+        assertEquals(2, fired.size());
+    }
+
+    @Test
+    public void unchangedRulesKeepTheirState() {
+        PriceAlert above = new PriceAlert(CODE, PriceAlert.Type.PRICE_ABOVE, 10, 0);
+        engine.setAlerts(List.of(above));
+        tick(DAY, 93000, 9, 10);
+        tick(DAY, 93003, 11, 10);
+        assertEquals(1, fired.size());
+
+        engine.setAlerts(List.of(new PriceAlert(CODE, PriceAlert.Type.PRICE_ABOVE, 10, 0)));
+        tick(DAY, 93006, 11.5, 10);
+        assertEquals(1, fired.size());
+    }
+
+    @Test
+    public void changePercentKeepsArmedStateAcrossTradingDays() {
+        PriceAlert change = new PriceAlert(CODE, PriceAlert.Type.CHANGE_ABOVE, 5, 0);
+        engine.setAlerts(List.of(change));
+
+        tick(DAY, 93000, 10.3, 10);
+        tick(DAY, 93003, 10.6, 10);
+        assertEquals(1, fired.size());
+        tick(DAY, 100000, 10.7, 10);
+        assertEquals(1, fired.size());
+
+        // 次日昨收价变化，涨跌幅仍在阈值上方，规则未回到另一侧，不触发
+        tick(NEXT_DAY, 93000, 11.3, 10.7);
+        assertEquals(1, fired.size());
+        tick(NEXT_DAY, 93003, 10.8, 10.7);
+        tick(NEXT_DAY, 93006, 11.4, 10.7);
+        assertEquals(2, fired.size());
+    }
+
+    @Test
+    public void changePercentFiresWhenNewDayOpensBeyondThreshold() {
+        PriceAlert change = new PriceAlert(CODE, PriceAlert.Type.CHANGE_ABOVE, 5, 0);
+        engine.setAlerts(List.of(change));
+
+        tick(DAY, 93000, 10.1, 10);
+        assertEquals(0, fired.size());
+        // 前一日收盘时未满足，次日开盘直接满足，换日后检查全部规则
+        tick(NEXT_DAY, 93000, 10.8, 10.1);
+        assertEquals(List.of(change), fired);
+    }
+
+    @Test
+    public void changeBelowFiresOnDownwardCross() {
+        PriceAlert drop = new PriceAlert(CODE, PriceAlert.Type.CHANGE_BELOW, -3, 0);
+        engine.setAlerts(List.of(drop));
+
+        tick(DAY, 93000, 9.8, 10);
+        assertEquals(0, fired.size());
+        tick(DAY, 93003, 9.6, 10);
+        assertEquals(List.of(drop), fired);
+    }
+
+    @Test
+    public void moveWindowGrowsAndEvictsOldTicks() {
+        PriceAlert rise = new PriceAlert(CODE, PriceAlert.Type.MOVE_UP, 2, 1);
+        engine.setAlerts(List.of(rise));
+
+        // 每秒一条递增的行情，最低价队列保留全部 60 条，超过按 3 秒一笔估算的初始容量
+        for (int i = 0; i < 60; i++) {
+            tick(DAY, seconds(i), 10 + i * 0.001, 10);
+        }
+        assertEquals(0, fired.size());
+
+        // 窗口为 [40s, 100s]，最低价 10.04 已不是 10，上涨 1.6% 不触发
+        tick(DAY, seconds(100), 10.2, 10);
+        assertEquals(0, fired.size());
+
+        // 相对 10.041 上涨约 2.6%，触发一次
+        tick(DAY, seconds(101), 10.3, 10);
+        assertEquals(List.of(rise), fired);
+        tick(DAY, seconds(102), 10.31, 10);
+        assertEquals(1, fired.size());
+    }
+
+    @Test
+    public void moveWindowTracksHighAfterWrapAround() {
+        PriceAlert fall = new PriceAlert(CODE, PriceAlert.Type.MOVE_DOWN, 1, 1);
+        engine.setAlerts(List.of(fall));
+
+        // 每 3 秒一条递减的行情，队列在环形数组中多次绕回
+        for (int i = 0; i < 200; i++) {
+            tick(DAY, seconds(i * 3), 100 - i * 0.01, 100);
+        }
+        assertEquals(0, fired.size());
+
+        // 窗口内最高价为 60 秒前的价格，约 98.2，下跌超过 1% 触发
+        tick(DAY, seconds(600), 97, 100);
+        assertEquals(List.of(fall), fired);
+    }
+
+    @Test
+    public void moveWindowClearsOnNewTradingDay() {
+        PriceAlert fall = new PriceAlert(CODE, PriceAlert.Type.MOVE_DOWN, 2, 5);
+        engine.setAlerts(List.of(fall));
+
+        // 两条行情只相隔 2 分钟，但交易日不同，前一日的最高价不应留在窗口中
+        tick(DAY, 235900, 10, 10);
+        tick(DAY + 1, 100, 9.5, 10);
+        assertEquals(0, fired.size());
+        tick(DAY + 1, 103, 9.45, 10);
+        assertEquals(0, fired.size());
+        tick(DAY + 1, 106, 9.2, 10);
+        assertEquals(List.of(fall), fired);
+    }
+}
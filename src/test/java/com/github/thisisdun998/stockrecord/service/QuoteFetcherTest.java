@@ -0,0 +1,108 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QuoteFetcherTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private StandInQuoteServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final FeedMetrics metrics = new FeedMetrics();
+
+    @Before
+    public void setUp() throws IOException {
+        server = StandInQuoteServer.start(0);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    private QuoteFetcher fetcher(int shardSize, int maxConcurrentRequests) {
+        return new QuoteFetcher(client, server.getQuoteUrl(), null, metrics.endpoint("stand-in"),
+                shardSize, maxConcurrentRequests);
+    }
+
+    private static List<String> codes(int count) {
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add("sh" + (600000 + i));
+        }
+        return codes;
+    }
+
+    /**
+     * 按响应顺序解析出的代码，同时检查每条行情都有价格
+     */
+    private static List<String> quotedCodes(List<byte[]> bodies) {
+        List<String> codes = new ArrayList<>();
+        SinaQuoteParser parser = new SinaQuoteParser();
+        for (byte[] body : bodies) {
+            parser.reset(body, body.length);
+            while (parser.nextLine()) {
+                assertTrue(parser.fieldCount() > 3);
+                assertTrue(parser.fieldAsDouble(3) > 0);
+                codes.add(parser.code());
+            }
+        }
+        return codes;
+    }
+
+    @Test
+    public void shardsAreMergedInCodeOrder() throws Exception {
+        // 随机延迟让各分片以任意顺序完成
+        server.setLatency(0, 40);
+        List<String> codes = codes(25);
+        List<byte[]> bodies = fetcher(4, 3).fetch(codes, TIMEOUT).get(10, TimeUnit.SECONDS);
+
+        assertEquals(7, bodies.size());
+        assertEquals(codes, quotedCodes(bodies));
+        assertEquals(7, server.getRequestCount());
+    }
+
+    @Test
+    public void failingShardDoesNotDropOtherShards() throws Exception {
+        server.setLatency(0, 40);
+        List<String> codes = codes(12);
+        // 第二个分片（sh600003 ~ sh600005）总是返回 503
+        server.setFailingCodes(Set.of("sh600004"));
+        List<byte[]> bodies = fetcher(3, 2).fetch(codes, TIMEOUT).get(10, TimeUnit.SECONDS);
+
+        List<String> expected = new ArrayList<>(codes);
+        expected.removeAll(List.of("sh600003", "sh600004", "sh600005"));
+        assertEquals(3, bodies.size());
+        assertEquals(expected, quotedCodes(bodies));
+        assertEquals(4, server.getRequestCount());
+        assertEquals(1, server.getFailureCount());
+    }
+
+    @Test
+    public void allShardsFailingCompletesExceptionally() throws Exception {
+        server.setFailingCodes(Set.of("sh600000", "sh600003"));
+        try {
+            fetcher(3, 2).fetch(codes(6), TIMEOUT).get(10, TimeUnit.SECONDS);
+            fail("所有分片都失败时应以异常完成");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(e.getCause().getMessage().contains("503"));
+        }
+        assertEquals(2, server.getFailureCount());
+    }
+}
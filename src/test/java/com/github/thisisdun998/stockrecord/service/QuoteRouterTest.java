@@ -0,0 +1,222 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.model.StockIndex;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QuoteRouterTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(100);
+
+    private final QuoteProvider.Response primaryResponse = store -> { };
+    private final QuoteProvider.Response secondaryResponse = store -> { };
+
+    /**
+     * 按给定行为返回 future 的数据源，记录调用次数与返回过的 future
+     */
+    private static final class StubProvider implements QuoteProvider {
+        final List<CompletableFuture<Response>> returned = new ArrayList<>();
+        private final String name;
+        private final Supplier<CompletableFuture<Response>> behaviour;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        StubProvider(String name, Supplier<CompletableFuture<Response>> behaviour) {
+            this.name = name;
+            this.behaviour = behaviour;
+        }
+
+        int calls() {
+            return calls.get();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public CompletableFuture<Response> fetchAsync(List<String> codes, Collection<StockIndex> indices,
+                                                      Duration timeout) {
+            calls.incrementAndGet();
+            CompletableFuture<Response> future = behaviour.get();
+            synchronized (returned) {
+                returned.add(future);
+            }
+            return future;
+        }
+
+        @Override
+        public void setSharding(int shardSize, int maxConcurrentRequests) {
+        }
+    }
+
+    private static QuoteProvider.Response fetch(QuoteRouter router) throws Exception {
+        return router.fetchAsync(List.of("sh600000"), List.of(), TIMEOUT).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void primarySuccessSkipsSecondary() throws Exception {
+        StubProvider primary = new StubProvider("primary", () -> CompletableFuture.completedFuture(primaryResponse));
+        StubProvider secondary = new StubProvider("secondary", () -> CompletableFuture.completedFuture(secondaryResponse));
+        QuoteRouter router = new QuoteRouter(null, List.of(primary, secondary));
+
+        assertSame(primaryResponse, fetch(router));
+        assertEquals(0, secondary.calls());
+    }
+
+    @Test
+    public void asyncFailureFallsBackToSecondary() throws Exception {
+        StubProvider primary = new StubProvider("primary", () -> CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("primary down");
+        }));
+        StubProvider secondary = new StubProvider("secondary", () -> CompletableFuture.completedFuture(secondaryResponse));
+        QuoteRouter router = new QuoteRouter(null, List.of(primary, secondary));
+
+        assertSame(secondaryResponse, fetch(router));
+        assertEquals(1, primary.calls());
+    }
+
+    @Test
+    public void synchronouslyFailedFutureFallsBackToSecondary() throws Exception {
+        StubProvider primary = new StubProvider("primary",
+                () -> CompletableFuture.failedFuture(new IOException("primary down")));
+        StubProvider secondary = new StubProvider("secondary", () -> CompletableFuture.completedFuture(secondaryResponse));
+        QuoteRouter router = new QuoteRouter(null, List.of(primary, secondary));
+
+        assertSame(secondaryResponse, fetch(router));
+    }
+
+    @Test
+    public void allSynchronousFailuresReportFirstFailure() throws Exception {
+        IOException first = new IOException("primary down");
+        StubProvider primary = new StubProvider("primary", () -> CompletableFuture.failedFuture(first));
+        StubProvider secondary = new StubProvider("secondary",
+                () -> CompletableFuture.failedFuture(new IOException("secondary down")));
+        QuoteRouter router = new QuoteRouter(null, List.of(primary, secondary));
+
+        try {
+            fetch(router);
+            fail("应以异常完成");
+        } catch (ExecutionException e) {
+            assertSame(first, e.getCause());
+        }
+        assertEquals(1, secondary.calls());
+    }
+
+    @Test
+    public void providerThrowingFromFetchFallsBackAndCountsAsFailure() throws Exception {
+        StubProvider primary = new StubProvider("primary", () -> {
+            throw new IllegalStateException("primary broken");
+        });
+        StubProvider secondary = new StubProvider("secondary", () -> CompletableFuture.completedFuture(secondaryResponse));
+        QuoteRouter router = new QuoteRouter(null, List.of(primary, secondary));
+
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            assertSame(secondaryResponse, fetch(router));
+        }
+        // 同步抛出的异常计入失败，首选数据源已熔断，不再调用
+        assertSame(secondaryResponse, fetch(router));
+        assertEquals(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, primary.calls());
+    }
+
+    @Test
+    public void repeatedAsyncFailuresTripPrimaryBreaker() throws Exception {
+        StubProvider primary = new StubProvider("primary", () -> CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("primary down");
+        }));
+        StubProvider secondary = new StubProvider("secondary", () -> CompletableFuture.completedFuture(secondaryResponse));
+        QuoteRouter router = new QuoteRouter(null, List.of(primary, secondary));
+
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD + 2; i++) {
+            assertSame(secondaryResponse, fetch(router));
+        }
+        assertEquals(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, primary.calls());
+    }
+
+    @Test
+    public void hedgeWinsAndCancelledPrimaryIsNotAFailure() throws Exception {
+        // 首选数据源一直不返回，对冲请求在 100 毫秒后发出
+        StubProvider primary = new StubProvider("primary", CompletableFuture::new);
+        StubProvider secondary = new StubProvider("secondary", () -> CompletableFuture.completedFuture(secondaryResponse));
+        QuoteRouter router = new QuoteRouter(null, List.of(primary, secondary));
+
+        int rounds = CircuitBreaker.DEFAULT_FAILURE_THRESHOLD + 1;
+        for (int i = 0; i < rounds; i++) {
+            assertSame(secondaryResponse, fetch(router));
+        }
+        // 落败的请求都被取消；取消不计入失败，首选数据源没有熔断
+        assertEquals(rounds, primary.calls());
+        for (CompletableFuture<QuoteProvider.Response> attempt : primary.returned) {
+            assertTrue(attempt.isCancelled());
+        }
+    }
+
+    private static QuoteRouter.Route route() {
+        return new QuoteRouter.Route(new StubProvider("route", CompletableFuture::new), new CircuitBreaker("route"));
+    }
+
+    @Test
+    public void hedgeDelayUsesDefaultUntilEnoughSamples() {
+        QuoteRouter.Route route = route();
+        Duration timeout = Duration.ofSeconds(5);
+        for (int i = 0; i < QuoteRouter.MIN_LATENCY_SAMPLES - 1; i++) {
+            route.recordLatency(TimeUnit.MILLISECONDS.toNanos(300));
+        }
+        assertEquals(QuoteRouter.DEFAULT_HEDGE_DELAY_MILLIS, route.hedgeDelayMillis(timeout));
+
+        route.recordLatency(TimeUnit.MILLISECONDS.toNanos(300));
+        assertEquals(300, route.hedgeDelayMillis(timeout));
+    }
+
+    @Test
+    public void hedgeDelayIsP95OfRecentLatencies() {
+        QuoteRouter.Route route = route();
+        // 1..100 毫秒乱序写入，P95 为第 95 小的样本
+        for (int i = 0; i < 100; i++) {
+            route.recordLatency(TimeUnit.MILLISECONDS.toNanos(101 + (i * 37) % 100));
+        }
+        assertEquals(195, route.hedgeDelayMillis(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void hedgeDelayKeepsOnlyLatestSamples() {
+        QuoteRouter.Route route = route();
+        for (int i = 0; i < QuoteRouter.LATENCY_SAMPLES; i++) {
+            route.recordLatency(TimeUnit.MILLISECONDS.toNanos(2_000));
+        }
+        // 环形写满后新样本覆盖最旧的样本
+        for (int i = 0; i < QuoteRouter.LATENCY_SAMPLES; i++) {
+            route.recordLatency(TimeUnit.MILLISECONDS.toNanos(400));
+        }
+        assertEquals(400, route.hedgeDelayMillis(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void hedgeDelayIsClampedToFloorAndTimeout() {
+        QuoteRouter.Route fast = route();
+        QuoteRouter.Route slow = route();
+        for (int i = 0; i < QuoteRouter.MIN_LATENCY_SAMPLES; i++) {
+            fast.recordLatency(TimeUnit.MILLISECONDS.toNanos(5));
+            slow.recordLatency(TimeUnit.MILLISECONDS.toNanos(8_000));
+        }
+        assertEquals(QuoteRouter.MIN_HEDGE_DELAY_MILLIS, fast.hedgeDelayMillis(Duration.ofSeconds(5)));
+        assertEquals(5_000, slow.hedgeDelayMillis(Duration.ofSeconds(5)));
+        // 样本不足时默认延迟同样不超过超时
+        assertEquals(TIMEOUT.toMillis(), route().hedgeDelayMillis(TIMEOUT));
+    }
+}
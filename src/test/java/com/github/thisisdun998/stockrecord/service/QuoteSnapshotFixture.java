@@ -0,0 +1,33 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 供其他包的测试向快照写入行情，快照的写方法只在 service 包内可见
+ */
+public final class QuoteSnapshotFixture {
+
+    private QuoteSnapshotFixture() {
+    }
+
+    /**
+     * 在一次批量更新中写入一条行情
+     * @return 代码所在的槽位
+     */
+    public static int put(QuoteSnapshotStore store, String code, String name, double price, double prevClose) {
+        Lock writeLock = store.writeLock();
+        writeLock.lock();
+        try {
+            store.beginUpdate();
+            int slot = store.slotFor(code);
+            store.setName(slot, name);
+            store.setPrice(slot, price);
+            store.setPrevClose(slot, prevClose);
+            store.setHigh(slot, Math.max(price, prevClose));
+            store.setLow(slot, Math.min(price, prevClose));
+            return slot;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class QuoteSnapshotStoreTest {
+
+    private final QuoteSnapshotStore store = new QuoteSnapshotStore();
+
+    /**
+     * 在一次批量更新中写入一条行情
+     * @return 代码所在的槽位
+     */
+    private int put(String code, String name, double price, long volume) {
+        Lock writeLock = store.writeLock();
+        writeLock.lock();
+        try {
+            store.beginUpdate();
+            int slot = store.slotFor(code);
+            store.setName(slot, name);
+            store.setPrice(slot, price);
+            store.setPrevClose(slot, price);
+            store.setVolume(slot, volume);
+            store.setBid(slot, 0, price, volume);
+            store.setDateTime(slot, 20261016, 93000);
+            return slot;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private int retain(Set<String> keep) {
+        Lock writeLock = store.writeLock();
+        writeLock.lock();
+        try {
+            return store.retainCodes(keep);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Test
+    public void releasedSlotIsReusedForAnotherCode() {
+        int first = put("sh600000", "浦发银行", 10.5, 1000);
+        int second = put("sz000001", "平安银行", 12.3, 2000);
+        long firstSequence = store.getUpdateSequence(first);
+        long secondSequence = store.getUpdateSequence(second);
+        assertTrue(secondSequence > firstSequence);
+
+        // 取消订阅 sh600000
+        assertEquals(1, retain(Set.of("sz000001")));
+        assertEquals(-1, store.slotOf("sh600000"));
+        assertEquals(1, store.liveCount());
+        assertNull(store.getCode(first));
+        assertNull(store.getName(first));
+        assertEquals(0, store.getPrice(first), 0);
+        assertEquals(0, store.getVolume(first));
+        assertEquals(0, store.getBidPrice(first, 0), 0);
+        assertEquals(0, store.getDate(first));
+        assertEquals(0, store.getUpdateSequence(first));
+
+        // 订阅另一只股票，复用释放的槽位，不再扩大数组
+        int reused = put("sh600519", "贵州茅台", 1700, 300);
+        assertEquals(first, reused);
+        assertEquals(2, store.size());
+        assertEquals(reused, store.slotOf("sh600519"));
+        assertEquals(-1, store.slotOf("sh600000"));
+        assertEquals("sh600519", store.getCode(reused));
+        assertEquals("贵州茅台", store.getName(reused));
+        assertEquals(1700, store.getPrice(reused), 0);
+        assertEquals(300, store.getBidVolume(reused, 0));
+        // 新代码的序号大于该槽位此前的任何序号，按序号判断是否变化的读取方不会误以为没有更新
+        assertTrue(store.getUpdateSequence(reused) > secondSequence);
+        assertEquals(store.getSequence(), store.getUpdateSequence(reused));
+        // 保留的代码不受影响
+        assertEquals(second, store.slotOf("sz000001"));
+        assertEquals(secondSequence, store.getUpdateSequence(second));
+        assertEquals(12.3, store.getPrice(second), 0);
+    }
+
+    @Test
+    public void resubscribedCodeStartsFromEmptySlot() {
+        int slot = put("sh600000", "浦发银行", 10.5, 1000);
+        long before = store.getUpdateSequence(slot);
+        retain(Set.of());
+        assertEquals(0, store.liveCount());
+
+        // 同一代码再次订阅时重新分配，旧行情不会残留
+        Lock writeLock = store.writeLock();
+        writeLock.lock();
+        int again;
+        try {
+            store.beginUpdate();
+            again = store.slotFor("sh600000");
+            store.setPrice(again, 10.5);
+        } finally {
+            writeLock.unlock();
+        }
+        assertEquals(slot, again);
+        assertNull(store.getName(again));
+        assertEquals(0, store.getVolume(again));
+        // 价格与释放前相同，仍然产生新的序号
+        assertTrue(store.getUpdateSequence(again) > before);
+    }
+
+    @Test
+    public void slotsGrowPastInitialCapacity() {
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i, put("sh" + (600000 + i), "股票" + i, 10 + i, i));
+        }
+        assertEquals(40, store.size());
+        for (int i = 0; i < 40; i++) {
+            int slot = store.slotOf("sh" + (600000 + i));
+            assertEquals(i, slot);
+            assertEquals(10 + i, store.getPrice(slot), 0);
+            assertEquals(10 + i, store.getBidPrice(slot, 0), 0);
+        }
+
+        // 释放一半后再订阅同样多的新代码，槽位数不变
+        Set<String> keep = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            keep.add("sh" + (600000 + i));
+        }
+        assertEquals(20, retain(keep));
+        for (int i = 0; i < 20; i++) {
+            int slot = put("sz" + (100000 + i), "新股" + i, 5, 1);
+            assertTrue(slot >= 20 && slot < 40);
+        }
+        assertEquals(40, store.size());
+        assertEquals(40, store.liveCount());
+    }
+}
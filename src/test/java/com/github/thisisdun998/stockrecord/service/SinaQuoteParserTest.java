@@ -0,0 +1,64 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SinaQuoteParserTest {
+
+    private static final Charset GBK = Charset.forName("GBK");
+
+    private static SinaQuoteParser parse(SinaQuoteParser parser, String response) {
+        byte[] body = response.getBytes(GBK);
+        parser.reset(body, body.length);
+        return parser;
+    }
+
+    @Test
+    public void tencentNameWithTildeTrailByte() {
+        // 「葉」「銅」的 GBK 编码第二个字节都是 0x7E，与腾讯的分隔符相同
+        assertArrayEquals(new byte[]{(byte) 0xC8, 0x7E}, "葉".getBytes(GBK));
+
+        SinaQuoteParser parser = parse(new SinaQuoteParser("v_", '~'),
+                "v_sh600000=\"1~葉銅科技~600000~10.50~10.00~10.20~\";\n");
+        assertTrue(parser.nextLine());
+        assertEquals("sh600000", parser.code());
+        assertEquals(7, parser.fieldCount());
+        assertEquals("葉銅科技", parser.name(1));
+        assertEquals(600000, parser.fieldDigits(2));
+        assertEquals(10.50, parser.fieldAsDouble(3), 0.0);
+        assertEquals(10.00, parser.fieldAsDouble(4), 0.0);
+        assertEquals(10.20, parser.fieldAsDouble(5), 0.0);
+        assertFalse(parser.nextLine());
+    }
+
+    @Test
+    public void tencentNameEndingInTildeTrailByte() {
+        SinaQuoteParser parser = parse(new SinaQuoteParser("v_", '~'),
+                "v_sz000001=\"51~中葉~000001~12.34~\";\nv_sz000002=\"51~万科Ａ~000002~8.00~\";\n");
+        assertTrue(parser.nextLine());
+        assertEquals("中葉", parser.name(1));
+        assertEquals(12.34, parser.fieldAsDouble(3), 0.0);
+        assertTrue(parser.nextLine());
+        assertEquals("sz000002", parser.code());
+        assertEquals("万科Ａ", parser.name(1));
+        assertEquals(8.00, parser.fieldAsDouble(3), 0.0);
+        assertEquals(0, parser.malformedLines());
+    }
+
+    @Test
+    public void sinaFields() {
+        SinaQuoteParser parser = parse(new SinaQuoteParser(),
+                "var hq_str_sh600519=\"贵州茅台,1700.000,1690.500,1710.250\";\n");
+        assertTrue(parser.nextLine());
+        assertEquals("sh600519", parser.code());
+        assertEquals(4, parser.fieldCount());
+        assertEquals("贵州茅台", parser.name(0));
+        assertEquals(1710.25, parser.fieldAsDouble(3), 0.0);
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class StockListFileTest {
+
+    private static final long FETCHED_AT = 1_792_000_000_000L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path() {
+        return folder.getRoot().toPath().resolve("stock-record").resolve("stock-list.bin");
+    }
+
+    private static SymbolTable table() {
+        SymbolTable.Builder builder = new SymbolTable.Builder(4);
+        builder.add("sz000001", "平安银行");
+        builder.add("sh600519", "贵州茅台");
+        builder.add("hk00700", "腾讯控股");
+        builder.add("bj430047", "");
+        return builder.build();
+    }
+
+    @Test
+    public void roundTrips() {
+        SymbolTable written = table();
+        StockListFile file = new StockListFile(path());
+        file.write(FETCHED_AT, written);
+
+        StockListFile.Contents contents = new StockListFile(path()).read();
+        assertNotNull(contents);
+        assertEquals(FETCHED_AT, contents.fetchedAt);
+        SymbolTable read = contents.symbols;
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.code(i), read.code(i));
+            assertEquals(written.name(i), read.name(i));
+        }
+        assertEquals(1, read.indexOf("sh600519"));
+    }
+
+    @Test
+    public void roundTripsEmptyTableAndOverwrites() {
+        StockListFile file = new StockListFile(path());
+        file.write(1L, SymbolTable.EMPTY);
+        assertEquals(0, file.read().symbols.size());
+
+        file.write(FETCHED_AT, table());
+        assertEquals(4, file.read().symbols.size());
+        assertEquals(FETCHED_AT, file.read().fetchedAt);
+    }
+
+    @Test
+    public void missingFileReadsAsNull() {
+        assertNull(new StockListFile(path()).read());
+    }
+
+    @Test
+    public void rejectsWrongMagicOrVersion() throws Exception {
+        StockListFile file = new StockListFile(path());
+        file.write(FETCHED_AT, table());
+        byte[] valid = Files.readAllBytes(path());
+
+        Files.write(path(), withInt(valid, 0, 0x12345678));
+        assertNull(file.read());
+        Files.write(path(), withInt(valid, 4, 1));
+        assertNull(file.read());
+        Files.write(path(), withInt(valid, 4, 3));
+        assertNull(file.read());
+    }
+
+    @Test
+    public void rejectsWrongSize() throws Exception {
+        StockListFile file = new StockListFile(path());
+        file.write(FETCHED_AT, table());
+        byte[] valid = Files.readAllBytes(path());
+
+        Files.write(path(), Arrays.copyOf(valid, valid.length - 1));
+        assertNull(file.read());
+        Files.write(path(), Arrays.copyOf(valid, valid.length + 2));
+        assertNull(file.read());
+        Files.write(path(), Arrays.copyOf(valid, 10));
+        assertNull(file.read());
+        // 股票数量与文件长度不符
+        Files.write(path(), withInt(valid, 16, 5));
+        assertNull(file.read());
+        Files.write(path(), withInt(valid, 16, -1));
+        assertNull(file.read());
+    }
+
+    @Test
+    public void rejectsOutOfRangeEntries() throws Exception {
+        StockListFile file = new StockListFile(path());
+        file.write(FETCHED_AT, table());
+        byte[] corrupt = Files.readAllBytes(path());
+        // 文件头之后第一个字节是第一只股票的市场编号
+        corrupt[24] = 9;
+        Files.write(path(), corrupt);
+        assertNull(file.read());
+    }
+
+    private static byte[] withInt(byte[] bytes, int offset, int value) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        return copy;
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StockSearchIndexTest {
+
+    private static final String[] MARKETS = {"sh", "sz", "bj", "hk"};
+    /** 名称用字，同时包含 U+8000 以下（中、国、平、安）与以上（茅、贵、股、银）的汉字，以及大写字母 */
+    private static final String NAME_CHARS = "中国平安银行招商贵州茅台股份科技电器集团能源ABCTSL*";
+
+    /**
+     * 原来的线性扫描：名称、完整代码或纯数字代码包含关键词，按列表顺序取前 limit 个
+     */
+    private static int[] linearSearch(SymbolTable symbols, String keyword, int limit) {
+        String lowerKeyword = keyword.toLowerCase(Locale.ROOT).trim();
+        int[] result = new int[symbols.size()];
+        int found = 0;
+        for (int i = 0; i < symbols.size() && found < limit; i++) {
+            String code = symbols.code(i);
+            if (symbols.name(i).toLowerCase(Locale.ROOT).contains(lowerKeyword)
+                    || code.toLowerCase(Locale.ROOT).contains(lowerKeyword)
+                    || code.replaceAll("[^0-9]", "").contains(lowerKeyword)) {
+                result[found++] = i;
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    private static SymbolTable generated(int count, long seed) {
+        Random random = new Random(seed);
+        SymbolTable.Builder builder = new SymbolTable.Builder(count);
+        SymbolTable fallback = SinaStockService.initStockList();
+        for (int i = 0; i < fallback.size(); i++) {
+            builder.add(fallback.code(i), fallback.name(i));
+        }
+        while (builder.size() < count) {
+            String market = MARKETS[random.nextInt(MARKETS.length)];
+            int digits = market.equals("hk") ? 5 : 6;
+            StringBuilder code = new StringBuilder(market);
+            for (int d = 0; d < digits; d++) {
+                code.append((char) ('0' + random.nextInt(10)));
+            }
+            StringBuilder name = new StringBuilder();
+            for (int c = 2 + random.nextInt(4); c > 0; c--) {
+                name.append(NAME_CHARS.charAt(random.nextInt(NAME_CHARS.length())));
+            }
+            builder.add(code, name);
+        }
+        return builder.build();
+    }
+
+    private static void assertSameAsLinear(SymbolTable symbols, StockSearchIndex index, String keyword, int limit) {
+        String lower = keyword.toLowerCase(Locale.ROOT);
+        assertArrayEquals("关键词 " + keyword + "，limit " + limit,
+                linearSearch(symbols, keyword, limit), index.search(lower, limit));
+    }
+
+    @Test
+    public void fallbackListMatchesLinearScan() {
+        SymbolTable symbols = SinaStockService.initStockList();
+        StockSearchIndex index = StockSearchIndex.build(symbols);
+        for (String keyword : List.of("茅", "茅台", "贵州茅台", "中国", "中国平安", "平", "银行", "招商银行",
+                "sh600519", "SZ300750", "sz300", "sh", "600", "6005", "000", "3007", "0", "8", "比亚迪", "五粮液",
+                "台股", "sz0008", "x", "华为")) {
+            assertSameAsLinear(symbols, index, keyword, 100);
+        }
+        assertEquals(1, index.search("茅台", 100).length);
+        assertEquals(4, index.search("sz00", 100).length);
+    }
+
+    @Test
+    public void generatedListMatchesLinearScan() {
+        SymbolTable symbols = generated(2000, 20261016);
+        StockSearchIndex index = StockSearchIndex.build(symbols);
+        Set<String> keywords = new LinkedHashSet<>();
+        Random random = new Random(7);
+        for (int n = 0; n < 100; n++) {
+            int i = random.nextInt(symbols.size());
+            String name = symbols.name(i);
+            String code = symbols.code(i);
+            // 名称中的 1、2 个字与更长的片段
+            int from = random.nextInt(name.length());
+            keywords.add(name.substring(from, from + 1));
+            keywords.add(name.substring(from, Math.min(name.length(), from + 2)));
+            keywords.add(name.substring(random.nextInt(Math.max(1, name.length() - 2))));
+            // 完整代码、代码前缀与纯数字片段
+            keywords.add(code);
+            keywords.add(code.substring(0, 5));
+            keywords.add(code.substring(2, 2 + 1 + random.nextInt(code.length() - 2)));
+            keywords.add(code.substring(3));
+        }
+        for (char c : NAME_CHARS.toCharArray()) {
+            keywords.add(String.valueOf(c));
+            keywords.add(String.valueOf(c) + NAME_CHARS.charAt(random.nextInt(NAME_CHARS.length())));
+        }
+        for (String keyword : keywords) {
+            for (int limit : new int[]{1, 100, Integer.MAX_VALUE}) {
+                assertSameAsLinear(symbols, index, keyword, limit);
+            }
+        }
+    }
+
+    @Test
+    public void bigramsAboveU8000AreFound() {
+        SymbolTable.Builder builder = new SymbolTable.Builder(4);
+        builder.add("sh600001", "股银");  // 两个字都在 U+8000 以上
+        builder.add("sh600002", "茅中");  // 第一个字在 U+8000 以上
+        builder.add("sh600003", "中茅");  // 第二个字在 U+8000 以上
+        builder.add("sh600004", "中国");  // 都在 U+8000 以下
+        SymbolTable symbols = builder.build();
+        assertTrue('股' >= 0x8000 && '银' >= 0x8000 && '茅' >= 0x8000 && '中' < 0x8000 && '国' < 0x8000);
+        StockSearchIndex index = StockSearchIndex.build(symbols);
+
+        assertArrayEquals(new int[]{0}, index.search("股银", 10));
+        assertArrayEquals(new int[]{1}, index.search("茅中", 10));
+        assertArrayEquals(new int[]{2}, index.search("中茅", 10));
+        assertArrayEquals(new int[]{3}, index.search("中国", 10));
+        assertArrayEquals(new int[]{1, 2}, index.search("茅", 10));
+        assertArrayEquals(new int[]{1, 2, 3}, index.search("中", 10));
+        assertArrayEquals(new int[0], index.search("银股", 10));
+    }
+
+    @Test
+    public void limitKeepsListOrder() {
+        SymbolTable.Builder builder = new SymbolTable.Builder(50);
+        for (int i = 0; i < 50; i++) {
+            builder.add(String.format("sh6%05d", i), "银行" + i);
+        }
+        StockSearchIndex index = StockSearchIndex.build(builder.build());
+        assertArrayEquals(new int[]{0, 1, 2}, index.search("银行", 3));
+        assertEquals(50, index.search("sh6", 100).length);
+        assertEquals(0, index.search("银行", 0).length);
+        assertEquals(0, index.search("", 10).length);
+    }
+}
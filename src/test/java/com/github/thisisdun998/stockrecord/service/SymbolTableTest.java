@@ -0,0 +1,99 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SymbolTableTest {
+
+    private static SymbolTable table() {
+        SymbolTable.Builder builder = new SymbolTable.Builder(4);
+        assertTrue(builder.add("sz000001", "平安银行"));
+        assertTrue(builder.add("SH600519", "贵州茅台"));
+        assertTrue(builder.add("hk00700", "腾讯控股"));
+        assertTrue(builder.add("bj430047", "TCL科技"));
+        return builder.build();
+    }
+
+    @Test
+    public void storesCodesAndNames() {
+        SymbolTable symbols = table();
+        assertEquals(4, symbols.size());
+        assertEquals("sz000001", symbols.code(0));
+        assertEquals("sh600519", symbols.code(1));
+        assertEquals("hk00700", symbols.code(2));
+        assertEquals("贵州茅台", symbols.name(1));
+        assertEquals(5, symbols.nameLength(3));
+        assertEquals("平安银行贵州茅台腾讯控股TCL科技", new String(symbols.nameChars()));
+    }
+
+    @Test
+    public void indexOfFindsFullCodesOnly() {
+        SymbolTable symbols = table();
+        assertEquals(0, symbols.indexOf("sz000001"));
+        assertEquals(1, symbols.indexOf("SH600519"));
+        assertEquals(2, symbols.indexOf("hk00700"));
+        assertEquals(3, symbols.indexOf("bj430047"));
+        assertEquals(-1, symbols.indexOf("sh000001"));
+        assertEquals(-1, symbols.indexOf("600519"));
+        assertEquals(-1, symbols.indexOf("hk000700"));
+        assertEquals(-1, symbols.indexOf("sz00000a"));
+        assertEquals(-1, symbols.indexOf("xx000001"));
+        assertEquals(-1, symbols.indexOf("sz"));
+        assertEquals(-1, symbols.indexOf(null));
+        assertEquals(-1, SymbolTable.EMPTY.indexOf("sz000001"));
+    }
+
+    @Test
+    public void builderRejectsUnknownMarketsAndOutOfRangeCodes() {
+        SymbolTable.Builder builder = new SymbolTable.Builder(0);
+        assertFalse(builder.add("us000001", "x"));
+        assertFalse(builder.add("sz00001", "x"));
+        assertFalse(builder.add("sz0000001", "x"));
+        assertFalse(builder.add("hk000700", "x"));
+        assertFalse(builder.add("sz0000a1", "x"));
+        assertFalse(builder.add("sz", "x"));
+        assertFalse(builder.add("s", "x000001", "x"));
+        assertFalse(builder.add(-1, 1, "x"));
+        assertFalse(builder.add(4, 1, "x"));
+        assertFalse(builder.add(0, -1, "x"));
+        assertFalse(builder.add(0, 1_000_000, "x"));
+        assertFalse(builder.add(3, 100_000, "x"));
+        assertEquals(0, builder.size());
+        assertTrue(builder.add(3, 99_999, "x"));
+        assertEquals("hk99999", builder.build().code(0));
+    }
+
+    @Test
+    public void builderGrowsPastExpectedSize() {
+        SymbolTable.Builder builder = new SymbolTable.Builder(1);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(builder.add(0, i, "名称很长的股票" + i));
+        }
+        SymbolTable symbols = builder.build();
+        assertEquals(100, symbols.size());
+        assertEquals("名称很长的股票99", symbols.name(99));
+        assertEquals(99, symbols.indexOf("sh000099"));
+    }
+
+    @Test
+    public void matchesNameAndCodeInPlace() {
+        SymbolTable symbols = table();
+        assertTrue(symbols.matches(0, "平安"));
+        assertTrue(symbols.matches(3, "tcl"));
+        assertFalse(symbols.matches(3, "TCL"));
+        assertTrue(symbols.matches(0, "sz000001"));
+        assertTrue(symbols.matches(0, "z00"));
+        assertTrue(symbols.matches(0, "0001"));
+        assertTrue(symbols.matches(1, "600519"));
+        assertTrue(symbols.matches(2, "k007"));
+        assertTrue(symbols.matches(2, "00700"));
+        assertTrue(symbols.matches(1, ""));
+        assertFalse(symbols.matches(2, "000700"));
+        assertFalse(symbols.matches(0, "sz0000011"));
+        assertFalse(symbols.matches(0, "sh"));
+        assertFalse(symbols.matches(1, "茅台a"));
+    }
+}
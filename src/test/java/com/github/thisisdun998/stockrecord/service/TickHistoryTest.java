@@ -0,0 +1,220 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TickHistoryTest {
+
+    private static final int DAY = 20261016;
+    private static final long ONE_MB = 1024L * 1024L;
+
+    private final QuoteSnapshotStore store = new QuoteSnapshotStore();
+    private final Map<String, Long> sequences = new HashMap<>();
+    private final TickHistory history = new TickHistory();
+    private int time = 93000;
+
+    private static List<String> codes(int from, int to) {
+        List<String> codes = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            codes.add(String.format("sh%06d", 600000 + i));
+        }
+        return codes;
+    }
+
+    /**
+     * 为这些代码各写入一条新行情并记录到历史中
+     */
+    private void tick(List<String> codes) {
+        time++;
+        Lock writeLock = store.writeLock();
+        writeLock.lock();
+        try {
+            store.beginUpdate();
+            for (String code : codes) {
+                int slot = store.slotFor(code);
+                store.setPrice(slot, 10 + time % 100 / 100.0);
+                store.setDateTime(slot, DAY, time);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        history.record(TickBatch.collect(store, codes, sequences, ZonedDateTime.now(TradingCalendar.EXCHANGE_ZONE)));
+    }
+
+    private void assertWithinLimit(long limitBytes) {
+        long perSymbol = (long) history.capacity() * TickBuffer.BYTES_PER_TICK + TickDownsample.BYTES;
+        assertTrue(history.size() + " 个代码，容量 " + history.capacity() + " 超出上限",
+                history.size() * perSymbol <= limitBytes);
+        assertTrue(history.memoryBytes() <= history.size() * perSymbol);
+    }
+
+    @Test
+    public void addingCodesStaysWithinLimit() {
+        history.setMemoryLimitMb(1);
+        int added = 0;
+        for (int next : new int[]{1, 10, 50, 120, 200}) {
+            tick(codes(added, next));
+            added = next;
+            assertWithinLimit(ONE_MB);
+        }
+        // 超出容量下限可容纳的代码数后不再建立缓冲区
+        assertTrue(history.size() < 200);
+        assertTrue(history.getSeries("sh600000").size() > 0);
+    }
+
+    @Test
+    public void existingCodesGrowOnlyWithinLimit() {
+        history.setMemoryLimitMb(1);
+        tick(codes(0, 5));
+        int singleCapacity = history.capacity();
+        tick(codes(0, 80));
+        assertWithinLimit(ONE_MB);
+        assertTrue(history.capacity() < singleCapacity);
+        // 只有部分代码有新行情时，其余已缩小的缓冲区也不会超出
+        tick(codes(0, 3));
+        assertWithinLimit(ONE_MB);
+    }
+
+    @Test
+    public void loweringLimitShrinksAndDropsBuffers() {
+        tick(codes(0, 300));
+        assertEquals(300, history.size());
+        assertWithinLimit(TickHistory.DEFAULT_MEMORY_LIMIT_MB * ONE_MB);
+
+        history.setMemoryLimitMb(1);
+        // 容量在下一次轮询时调整，即使这次只有一个代码有新行情
+        tick(codes(0, 1));
+        assertWithinLimit(ONE_MB);
+        assertTrue(history.size() < 300);
+    }
+
+    @Test
+    public void retainCodesRecomputesCapacity() {
+        history.setMemoryLimitMb(1);
+        tick(codes(0, 100));
+        int crowded = history.capacity();
+
+        Set<String> kept = new HashSet<>(codes(0, 10));
+        history.retainCodes(kept);
+        assertEquals(10, history.size());
+        assertWithinLimit(ONE_MB);
+        assertTrue(history.capacity() > crowded);
+        assertEquals(0, history.getSeries("sh600050").size());
+
+        tick(codes(0, 10));
+        assertWithinLimit(ONE_MB);
+    }
+
+    @Test
+    public void restoreStaysWithinLimit() {
+        history.setMemoryLimitMb(1);
+        TickSeries series = new TickSeries(new long[]{1, 2, 3}, new double[]{10, 10.1, 10.2}, new long[]{100, 200, 300}, 3);
+        for (String code : codes(0, 200)) {
+            history.restore(code, DAY, series);
+            assertWithinLimit(ONE_MB);
+        }
+        assertTrue(history.size() < 200);
+        assertEquals(3, history.getSeries("sh600000").size());
+
+        // 回放后的新代码同样受限
+        tick(codes(200, 210));
+        assertWithinLimit(ONE_MB);
+    }
+
+    @Test
+    public void snapshotIsConsistentUnderConcurrentWriter() throws Exception {
+        TickBuffer buffer = new TickBuffer(64);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            // 时间、价格与成交量都等于逻辑序号，快照内应连续
+            for (long i = 1; !done.get(); i++) {
+                buffer.append(DAY, i, i, i);
+            }
+        });
+        AtomicReference<String> failure = new AtomicReference<>();
+        writer.start();
+        try {
+            long lastSeen = 0;
+            for (int round = 0; round < 200_000 && failure.get() == null; round++) {
+                TickSeries series = buffer.snapshot();
+                if (series.size() > buffer.capacity()) {
+                    failure.set("快照超出容量: " + series.size());
+                }
+                for (int i = 0; i < series.size(); i++) {
+                    long t = series.getTime(i);
+                    if (series.getPrice(i) != t || series.getVolume(i) != t
+                            || (i > 0 && t != series.getTime(i - 1) + 1)) {
+                        failure.set("第 " + round + " 次快照在 " + i + " 处不一致");
+                        break;
+                    }
+                }
+                if (!series.isEmpty()) {
+                    long last = series.getTime(series.size() - 1);
+                    if (last < lastSeen) {
+                        failure.set("快照回退: " + last + " < " + lastSeen);
+                    }
+                    lastSeen = last;
+                }
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void sparklineIsConsistentUnderConcurrentWriter() throws Exception {
+        TickDownsample downsample = new TickDownsample();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            // 价格单调递增，每桶的首价即最低价、尾价即最高价，且后一桶的首价大于前一桶的尾价
+            for (long i = 1; !done.get(); i++) {
+                downsample.add(i);
+            }
+        });
+        AtomicReference<String> failure = new AtomicReference<>();
+        writer.start();
+        try {
+            double lastSeen = 0;
+            for (int round = 0; round < 200_000 && failure.get() == null; round++) {
+                SparklineSeries series = downsample.snapshot();
+                if (series.size() > TickDownsample.BUCKETS) {
+                    failure.set("桶数超出上限: " + series.size());
+                }
+                for (int i = 0; i < series.size(); i++) {
+                    if (series.getLow(i) != series.getFirst(i) || series.getHigh(i) != series.getLast(i)
+                            || series.getFirst(i) > series.getLast(i)
+                            || (i > 0 && series.getFirst(i) <= series.getLast(i - 1))) {
+                        failure.set("第 " + round + " 次快照在桶 " + i + " 处不一致");
+                        break;
+                    }
+                }
+                if (series.size() > 0) {
+                    if (series.getLastPrice() < lastSeen) {
+                        failure.set("快照回退: " + series.getLastPrice() + " < " + lastSeen);
+                    }
+                    lastSeen = series.getLastPrice();
+                }
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,234 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TickJournalTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 15);
+    private static final LocalDate NEXT_DAY = LocalDate.of(2026, 10, 16);
+    private static final String A = "sh600000";
+    private static final String B = "sz000001";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final QuoteSnapshotStore store = new QuoteSnapshotStore();
+    private final Map<String, Long> sequences = new HashMap<>();
+    private final List<TickJournal> journals = new ArrayList<>();
+
+    @After
+    public void closeJournals() {
+        journals.forEach(TickJournal::close);
+    }
+
+    private TickJournal journal() {
+        return journal(TickJournal.MAX_SEGMENT_SIZE);
+    }
+
+    private TickJournal journal(long maxSegmentSize) {
+        TickJournal journal = new TickJournal(folder.getRoot().toPath(), maxSegmentSize);
+        journals.add(journal);
+        return journal;
+    }
+
+    private Path segment(LocalDate date) {
+        return folder.getRoot().toPath().resolve(TickBatch.toDate(date) + ".seg");
+    }
+
+    /**
+     * 写入一批行情并追加到日志，价格与成交量由 seq 决定
+     * @param time 行情时间 HHmmss
+     */
+    private void append(TickJournal journal, LocalDate date, int time, int seq, String... codes) {
+        Lock writeLock = store.writeLock();
+        writeLock.lock();
+        try {
+            store.beginUpdate();
+            for (String code : codes) {
+                int slot = store.slotFor(code);
+                store.setPrice(slot, price(code, seq));
+                store.setVolume(slot, seq * 100L);
+                store.setDateTime(slot, TickBatch.toDate(date), time);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        journal.append(TickBatch.collect(store, List.of(codes), sequences, ZonedDateTime.now(TradingCalendar.EXCHANGE_ZONE)));
+    }
+
+    private static double price(String code, int seq) {
+        return (code.equals(A) ? 10 : 20) + seq / 100.0;
+    }
+
+    private static TickSeries replay(TickJournal journal, LocalDate date, String code) throws Exception {
+        return journal.replay(date, code).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void assertSeries(TickSeries series, String code, int from, int to) {
+        assertEquals(to - from, series.size());
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals(price(code, from + i), series.getPrice(i), 0);
+            assertEquals((from + i) * 100L, series.getVolume(i));
+            assertTrue(i == 0 || series.getTime(i) > series.getTime(i - 1));
+        }
+    }
+
+    @Test
+    public void replaysEachSymbolFromInterleavedBatches() throws Exception {
+        TickJournal journal = journal();
+        for (int seq = 1; seq <= 5; seq++) {
+            append(journal, DAY, 93000 + seq, seq, A, B);
+        }
+        append(journal, DAY, 93010, 6, A);
+
+        assertSeries(replay(journal, DAY, A), A, 1, 7);
+        assertSeries(replay(journal, DAY, B), B, 1, 6);
+        assertTrue(replay(journal, DAY, "sh601318").isEmpty());
+        assertTrue(replay(journal, NEXT_DAY, A).isEmpty());
+    }
+
+    @Test
+    public void replayFollowsOnlyTheSymbolsOwnRecords() throws Exception {
+        TickJournal journal = journal();
+        for (int seq = 1; seq <= 4; seq++) {
+            append(journal, DAY, 93000 + seq, seq, A, B);
+        }
+        journal.close();
+        replay(journal, DAY, A); // 等待关闭完成
+
+        // 记录按 A、B 交替写入；把 B 的记录全部覆盖为无效数据后，A 仍可完整回放
+        try (FileChannel channel = FileChannel.open(segment(DAY), StandardOpenOption.WRITE)) {
+            byte[] garbage = new byte[TickJournal.RECORD_SIZE];
+            Arrays.fill(garbage, (byte) 0xFF);
+            for (int i = 1; i < 8; i += 2) {
+                channel.write(ByteBuffer.wrap(garbage), TickJournal.DATA_START + (long) i * TickJournal.RECORD_SIZE);
+            }
+        }
+        TickJournal reopened = journal();
+        assertSeries(replay(reopened, DAY, A), A, 1, 5);
+        assertTrue(replay(reopened, DAY, B).isEmpty());
+    }
+
+    @Test
+    public void reopensExistingSegmentAfterClose() throws Exception {
+        TickJournal journal = journal();
+        append(journal, DAY, 93001, 1, A, B);
+        append(journal, DAY, 93002, 2, A);
+        journal.close();
+        assertSeries(replay(journal, DAY, A), A, 1, 3);
+
+        // 新实例继续追加到同一个段文件，已有代码沿用原来的链表
+        TickJournal reopened = journal();
+        append(reopened, DAY, 93003, 3, A, B);
+        assertSeries(replay(reopened, DAY, A), A, 1, 4);
+        assertEquals(2, replay(reopened, DAY, B).size());
+    }
+
+    @Test
+    public void rollsToNewSegmentOnDateChange() throws Exception {
+        TickJournal journal = journal();
+        LocalDate third = NEXT_DAY.plusDays(3);
+        append(journal, DAY, 93001, 1, A);
+        append(journal, NEXT_DAY, 93001, 2, A);
+        append(journal, NEXT_DAY, 93002, 3, A);
+        // 第三个交易日会关闭最早打开的段
+        append(journal, third, 93001, 4, A);
+        append(journal, DAY, 93002, 5, A);
+
+        TickSeries first = replay(journal, DAY, A);
+        assertEquals(2, first.size());
+        assertEquals(price(A, 5), first.getLastPrice(), 0);
+        assertSeries(replay(journal, NEXT_DAY, A), A, 2, 4);
+        assertSeries(replay(journal, third, A), A, 4, 5);
+        assertTrue(Files.isRegularFile(segment(DAY)));
+        assertTrue(Files.isRegularFile(segment(NEXT_DAY)));
+        assertTrue(Files.isRegularFile(segment(third)));
+    }
+
+    @Test
+    public void truncatedSegmentIsSetAsideAndRecordingContinues() throws Exception {
+        Files.write(segment(DAY), new byte[100]);
+        TickJournal journal = journal();
+        assertTrue(replay(journal, DAY, A).isEmpty());
+
+        append(journal, DAY, 93001, 1, A);
+        append(journal, DAY, 93002, 2, A);
+        assertSeries(replay(journal, DAY, A), A, 1, 3);
+        assertTrue(Files.isRegularFile(segment(DAY).resolveSibling(segment(DAY).getFileName() + ".corrupt")));
+    }
+
+    @Test
+    public void corruptDirectoryIsSetAsideAndRecordingContinues() throws Exception {
+        TickJournal journal = journal();
+        append(journal, DAY, 93001, 1, A);
+        journal.close();
+        replay(journal, DAY, A);
+        // 代码长度字节改为负数
+        try (FileChannel channel = FileChannel.open(segment(DAY), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xF0}), TickJournal.HEADER_SIZE);
+        }
+
+        TickJournal reopened = journal();
+        assertTrue(replay(reopened, DAY, A).isEmpty());
+        for (int seq = 2; seq <= 4; seq++) {
+            append(reopened, DAY, 93000 + seq, seq, A);
+        }
+        assertSeries(replay(reopened, DAY, A), A, 2, 5);
+    }
+
+    @Test
+    public void fullSegmentDropsLaterRecordsAndKeepsEarlierOnes() throws Exception {
+        // 上限 2MB：段文件从 1MB 扩展一次后写满
+        long maxSize = 2L * 1024 * 1024;
+        int capacity = (int) ((maxSize - TickJournal.DATA_START) / TickJournal.RECORD_SIZE);
+        String[] codes = new String[100];
+        codes[0] = A;
+        for (int i = 1; i < codes.length; i++) {
+            codes[i] = "sh" + (600000 + i);
+        }
+        int batches = capacity / codes.length + 50;
+
+        TickJournal journal = journal(maxSize);
+        for (int seq = 1; seq <= batches; seq++) {
+            append(journal, DAY, 100000 + seq / 60 * 100 + seq % 60, seq, codes);
+        }
+        // 写满后的记录被丢弃，之前的记录完整，其他交易日照常写入
+        append(journal, NEXT_DAY, 93001, 1, A);
+        int recorded = 0;
+        for (String code : codes) {
+            recorded += replay(journal, DAY, code).size();
+        }
+        assertEquals(capacity, recorded);
+        assertSeries(replay(journal, DAY, A), A, 1, capacity / codes.length + 2);
+        assertSeries(replay(journal, NEXT_DAY, A), A, 1, 2);
+        assertEquals(maxSize, Files.size(segment(DAY)));
+
+        // 重新打开已写满的段文件，继续追加同样被丢弃
+        journal.close();
+        TickJournal reopened = journal(maxSize);
+        append(reopened, DAY, 120000, batches + 1, A);
+        assertEquals(capacity / codes.length + 1, replay(reopened, DAY, A).size());
+        assertEquals(maxSize, Files.size(segment(DAY)));
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.thisisdun998.stockrecord.service;
+
+import com.github.thisisdun998.stockrecord.service.TradingCalendar.Market;
+import com.github.thisisdun998.stockrecord.service.TradingCalendar.Phase;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TradingCalendarTest {
+
+    private final TradingCalendar calendar = TradingCalendar.load();
+
+    /**
+     * 交易所时区的时刻
+     */
+    private static ZonedDateTime at(String date, String time) {
+        return LocalDate.parse(date).atTime(LocalTime.parse(time)).atZone(TradingCalendar.EXCHANGE_ZONE);
+    }
+
+    @Test
+    public void cnSessionsIncludeLunchBreakAndClosingAuction() {
+        String day = "2026-10-16";
+        assertEquals(Phase.CLOSED, calendar.phaseAt(Market.CN, at(day, "09:14:59")));
+        assertEquals(Phase.AUCTION, calendar.phaseAt(Market.CN, at(day, "09:15")));
+        assertEquals(Phase.AUCTION, calendar.phaseAt(Market.CN, at(day, "09:29:59")));
+        assertEquals(Phase.CONTINUOUS, calendar.phaseAt(Market.CN, at(day, "09:30")));
+        assertEquals(Phase.CONTINUOUS, calendar.phaseAt(Market.CN, at(day, "11:29:59")));
+        assertEquals(Phase.BREAK, calendar.phaseAt(Market.CN, at(day, "11:30")));
+        assertEquals(Phase.BREAK, calendar.phaseAt(Market.CN, at(day, "12:59:59")));
+        assertEquals(Phase.CONTINUOUS, calendar.phaseAt(Market.CN, at(day, "13:00")));
+        assertEquals(Phase.CONTINUOUS, calendar.phaseAt(Market.CN, at(day, "14:56:59")));
+        assertEquals(Phase.AUCTION, calendar.phaseAt(Market.CN, at(day, "14:57")));
+        assertEquals(Phase.AUCTION, calendar.phaseAt(Market.CN, at(day, "14:59:59")));
+        assertEquals(Phase.CLOSED, calendar.phaseAt(Market.CN, at(day, "15:00")));
+        assertFalse(Phase.BREAK.isTrading());
+        assertTrue(Phase.AUCTION.isTrading());
+    }
+
+    @Test
+    public void hkHasClosingAuctionUntil1610() {
+        String day = "2026-10-16";
+        assertEquals(Phase.AUCTION, calendar.phaseAt(Market.HK, at(day, "09:00")));
+        assertEquals(Phase.CONTINUOUS, calendar.phaseAt(Market.HK, at(day, "11:59:59")));
+        assertEquals(Phase.BREAK, calendar.phaseAt(Market.HK, at(day, "12:00")));
+        assertEquals(Phase.CONTINUOUS, calendar.phaseAt(Market.HK, at(day, "15:59:59")));
+        assertEquals(Phase.AUCTION, calendar.phaseAt(Market.HK, at(day, "16:00")));
+        assertEquals(Phase.AUCTION, calendar.phaseAt(Market.HK, at(day, "16:09:59")));
+        assertEquals(Phase.CLOSED, calendar.phaseAt(Market.HK, at(day, "16:10")));
+
+        // 沪深收盘后港股仍在收盘竞价，合并后取最活跃的阶段
+        EnumSet<Market> both = EnumSet.allOf(Market.class);
+        assertEquals(Phase.AUCTION, calendar.phaseAt(both, at(day, "16:05")));
+        assertEquals(Phase.CONTINUOUS, calendar.phaseAt(both, at(day, "11:45")));
+        assertEquals(Phase.CLOSED, calendar.phaseAt(EnumSet.noneOf(Market.class), at(day, "10:00")));
+    }
+
+    @Test
+    public void convertsToExchangeZone() {
+        ZonedDateTime utc = ZonedDateTime.of(2026, 10, 16, 1, 30, 0, 0, ZoneOffset.UTC);
+        assertEquals(Phase.CONTINUOUS, calendar.phaseAt(Market.CN, utc));
+        assertEquals(at("2026-10-16", "11:30"), calendar.nextPhaseChange(Market.CN, utc));
+    }
+
+    @Test
+    public void weekendsAndHolidaysAreClosed() {
+        assertEquals(Phase.CLOSED, calendar.phaseAt(Market.CN, at("2026-10-17", "10:00")));
+        assertEquals(Phase.CLOSED, calendar.phaseAt(Market.HK, at("2026-10-18", "10:00")));
+        for (LocalDate date = LocalDate.of(2026, 10, 1); !date.isAfter(LocalDate.of(2026, 10, 7)); date = date.plusDays(1)) {
+            assertFalse(date.toString(), calendar.isTradingDay(Market.CN, date));
+        }
+        assertTrue(calendar.isTradingDay(Market.CN, LocalDate.of(2026, 10, 8)));
+        // 港股国庆只休一天
+        assertFalse(calendar.isTradingDay(Market.HK, LocalDate.of(2026, 10, 1)));
+        assertTrue(calendar.isTradingDay(Market.HK, LocalDate.of(2026, 10, 2)));
+        assertEquals(Phase.CONTINUOUS, calendar.phaseAt(Market.HK, at("2026-10-05", "10:00")));
+        assertEquals(Phase.CLOSED, calendar.phaseAt(Market.CN, at("2026-10-05", "10:00")));
+    }
+
+    @Test
+    public void nextPhaseChangeWithinDay() {
+        String day = "2026-10-16";
+        assertEquals(at(day, "09:15"), calendar.nextPhaseChange(Market.CN, at(day, "08:00")));
+        assertEquals(at(day, "09:30"), calendar.nextPhaseChange(Market.CN, at(day, "09:15")));
+        assertEquals(at(day, "13:00"), calendar.nextPhaseChange(Market.CN, at(day, "11:30")));
+        assertEquals(at(day, "14:57"), calendar.nextPhaseChange(Market.CN, at(day, "14:00")));
+        assertEquals(at(day, "15:00"), calendar.nextPhaseChange(Market.CN, at(day, "14:57")));
+        assertEquals(at(day, "16:10"), calendar.nextPhaseChange(Market.HK, at(day, "16:05")));
+        assertEquals(at(day, "16:00"), calendar.nextPhaseChange(EnumSet.allOf(Market.class), at(day, "15:30")));
+    }
+
+    @Test
+    public void nextPhaseChangeSkipsWeekendsAndHolidays() {
+        assertEquals(at("2026-10-19", "09:15"), calendar.nextPhaseChange(Market.CN, at("2026-10-16", "15:00")));
+        assertEquals(at("2026-10-19", "09:15"), calendar.nextPhaseChange(Market.CN, at("2026-10-17", "12:00")));
+        assertEquals(at("2026-10-08", "09:15"), calendar.nextPhaseChange(Market.CN, at("2026-09-30", "15:30")));
+        assertEquals(at("2026-10-02", "09:00"), calendar.nextPhaseChange(Market.HK, at("2026-09-30", "16:30")));
+    }
+
+    @Test
+    public void lastClosedTradingDay() {
+        assertEquals(LocalDate.of(2026, 10, 15), calendar.lastClosedTradingDay(Market.CN, at("2026-10-16", "14:59")));
+        assertEquals(LocalDate.of(2026, 10, 16), calendar.lastClosedTradingDay(Market.CN, at("2026-10-16", "15:00")));
+        assertEquals(LocalDate.of(2026, 10, 15), calendar.lastClosedTradingDay(Market.HK, at("2026-10-16", "16:05")));
+        assertEquals(LocalDate.of(2026, 10, 16), calendar.lastClosedTradingDay(Market.HK, at("2026-10-16", "16:10")));
+        assertEquals(LocalDate.of(2026, 10, 16), calendar.lastClosedTradingDay(Market.CN, at("2026-10-18", "10:00")));
+        assertEquals(LocalDate.of(2026, 9, 30), calendar.lastClosedTradingDay(Market.CN, at("2026-10-05", "16:00")));
+        assertEquals(LocalDate.of(2026, 9, 30), calendar.lastClosedTradingDay(Market.CN, at("2026-10-08", "10:00")));
+    }
+
+    @Test
+    public void tradingDaysBetweenSkipsHolidays() {
+        assertEquals(2, calendar.tradingDaysBetween(Market.CN, LocalDate.of(2026, 9, 30), LocalDate.of(2026, 10, 9)));
+        assertEquals(6, calendar.tradingDaysBetween(Market.HK, LocalDate.of(2026, 9, 30), LocalDate.of(2026, 10, 9)));
+        assertEquals(0, calendar.tradingDaysBetween(Market.CN, LocalDate.of(2026, 10, 16), LocalDate.of(2026, 10, 16)));
+    }
+
+    @Test
+    public void bundledHolidaysCoverOnlyListedYears() {
+        assertTrue(calendar.hasHolidays(Market.CN, 2026));
+        assertTrue(calendar.hasHolidays(Market.HK, 2026));
+        assertFalse(calendar.hasHolidays(Market.CN, 2025));
+    }
+
+    @Test
+    public void marketOfCode() {
+        assertEquals(Market.HK, Market.ofCode("hk00700"));
+        assertEquals(Market.HK, Market.ofCode("0700.HK"));
+        assertEquals(Market.HK, Market.ofCode("00700"));
+        assertEquals(Market.CN, Market.ofCode("sh600519"));
+        assertEquals(Market.CN, Market.ofCode("600519"));
+        assertEquals(Market.CN, Market.ofCode(null));
+    }
+}
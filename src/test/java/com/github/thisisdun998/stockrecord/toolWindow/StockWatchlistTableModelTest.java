@@ -0,0 +1,130 @@
+package com.github.thisisdun998.stockrecord.toolWindow;
+
+import com.github.thisisdun998.stockrecord.persistence.StockWatchlistStateService.StockItemState;
+import com.github.thisisdun998.stockrecord.service.QuoteSnapshotFixture;
+import com.github.thisisdun998.stockrecord.service.QuoteSnapshotStore;
+import org.junit.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StockWatchlistTableModelTest {
+
+    private static final double CENT = 0.006;
+
+    private final QuoteSnapshotStore store = new QuoteSnapshotStore();
+    private final StockWatchlistTableModel model = new StockWatchlistTableModel();
+
+    private static StockItemState stock(String code, long shares, double costPrice) {
+        StockItemState stock = new StockItemState(code, code);
+        stock.shares = shares;
+        stock.costPrice = costPrice;
+        return stock;
+    }
+
+    private void quote(String code, double price, double prevClose) {
+        int slot = QuoteSnapshotFixture.put(store, code, code, price, prevClose);
+        model.applyQuotes(store, new int[]{slot});
+    }
+
+    private double total(int column) {
+        return (Double) model.getValueAt(model.getRowCount() - 1, column);
+    }
+
+    @Test
+    public void incrementalTotalsMatchFullRecompute() {
+        String[] codes = {"sh600000", "sz000001", "hk00700"};
+        long[] shares = {1000, 500, 200};
+        double[] costs = {10, 12, 300};
+        double[] prevCloses = {10.2, 11.8, 310};
+        double rate = 0.92;
+        List<StockItemState> stocks = new ArrayList<>();
+        for (int i = 0; i < codes.length; i++) {
+            stocks.add(stock(codes[i], shares[i], costs[i]));
+        }
+        model.setStocks(stocks);
+        model.setHkdToCnyRate(rate);
+
+        // 逐条应用随机的价格变化，合计只做增量累加
+        Random random = new Random(42);
+        double[] prices = prevCloses.clone();
+        for (int n = 0; n < 500; n++) {
+            int i = random.nextInt(codes.length);
+            prices[i] = QuoteSnapshotStore.round(prices[i] * (1 + (random.nextDouble() - 0.5) * 0.02));
+            quote(codes[i], prices[i], prevCloses[i]);
+        }
+
+        double marketValue = 0;
+        double dailyPnl = 0;
+        double costPnl = 0;
+        for (int i = 0; i < codes.length; i++) {
+            double fx = codes[i].startsWith("hk") ? rate : 1.0;
+            marketValue += shares[i] * prices[i] * fx;
+            dailyPnl += shares[i] * (prices[i] - prevCloses[i]) * fx;
+            costPnl += shares[i] * (prices[i] - costs[i]) * fx;
+        }
+        assertEquals(codes.length + 1, model.getRowCount());
+        assertEquals(marketValue, total(StockWatchlistTableModel.COLUMN_MARKET_VALUE), CENT);
+        assertEquals(dailyPnl, total(StockWatchlistTableModel.COLUMN_DAILY_PNL), CENT);
+        assertEquals(costPnl, total(StockWatchlistTableModel.COLUMN_TOTAL_PNL), CENT);
+
+        // 整体重算（重排自选列表）得到相同的合计
+        double incremental = total(StockWatchlistTableModel.COLUMN_MARKET_VALUE);
+        model.setStocks(List.of(stocks.get(2), stocks.get(0), stocks.get(1)));
+        assertEquals(incremental, total(StockWatchlistTableModel.COLUMN_MARKET_VALUE), CENT);
+        assertEquals(dailyPnl, total(StockWatchlistTableModel.COLUMN_DAILY_PNL), CENT);
+        assertEquals(costPnl, total(StockWatchlistTableModel.COLUMN_TOTAL_PNL), CENT);
+    }
+
+    @Test
+    public void totalRowFollowsPositions() {
+        List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+        model.setStocks(List.of(stock("sh600000", 0, 0), stock("sz000001", 0, 0)));
+        quote("sh600000", 10.5, 10);
+        assertEquals(2, model.getRowCount());
+
+        events.clear();
+        model.setStocks(List.of(stock("sh600000", 100, 10), stock("sz000001", 0, 0)));
+        assertEquals(3, model.getRowCount());
+        assertTrue(model.isTotalRow(2));
+        assertTrue(events.stream().anyMatch(e -> e.getType() == TableModelEvent.INSERT && e.getFirstRow() == 2));
+        assertEquals(1050.0, total(StockWatchlistTableModel.COLUMN_MARKET_VALUE), CENT);
+        assertEquals(50.0, total(StockWatchlistTableModel.COLUMN_TOTAL_PNL), CENT);
+        assertEquals(1050.0, (Double) model.getValueAt(0, StockWatchlistTableModel.COLUMN_MARKET_VALUE), CENT);
+
+        events.clear();
+        model.setStocks(List.of(stock("sh600000", 0, 0), stock("sz000001", 0, 0)));
+        assertEquals(2, model.getRowCount());
+        assertFalse(model.isTotalRow(1));
+        assertTrue(events.stream().anyMatch(e -> e.getType() == TableModelEvent.DELETE && e.getFirstRow() == 2));
+        assertNull(model.getValueAt(0, StockWatchlistTableModel.COLUMN_MARKET_VALUE));
+    }
+
+    @Test
+    public void hkdPositionsAreConverted() {
+        model.setStocks(List.of(stock("hk00700", 100, 300), stock("sh600000", 1000, 10)));
+        model.setHkdToCnyRate(0.9);
+        quote("hk00700", 320, 310);
+        quote("sh600000", 10.5, 10);
+
+        assertEquals(28_800.0, (Double) model.getValueAt(0, StockWatchlistTableModel.COLUMN_MARKET_VALUE), CENT);
+        assertEquals(900.0, (Double) model.getValueAt(0, StockWatchlistTableModel.COLUMN_DAILY_PNL), CENT);
+        assertEquals(1_800.0, (Double) model.getValueAt(0, StockWatchlistTableModel.COLUMN_TOTAL_PNL), CENT);
+        assertEquals(28_800.0 + 10_500.0, total(StockWatchlistTableModel.COLUMN_MARKET_VALUE), CENT);
+
+        // 汇率变化时港股持仓整体重算，A 股不受影响
+        model.setHkdToCnyRate(0.92);
+        assertEquals(29_440.0, (Double) model.getValueAt(0, StockWatchlistTableModel.COLUMN_MARKET_VALUE), CENT);
+        assertEquals(10_500.0, (Double) model.getValueAt(1, StockWatchlistTableModel.COLUMN_MARKET_VALUE), CENT);
+        assertEquals(29_440.0 + 10_500.0, total(StockWatchlistTableModel.COLUMN_MARKET_VALUE), CENT);
+        assertEquals(920.0 + 500.0, total(StockWatchlistTableModel.COLUMN_DAILY_PNL), CENT);
+    }
+}